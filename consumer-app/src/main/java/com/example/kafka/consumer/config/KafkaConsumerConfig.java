@@ -1,23 +1,46 @@
 package com.example.kafka.consumer.config;
 
+import com.example.kafka.consumer.dto.MessagePayload;
+import com.example.kafka.consumer.service.AsyncTaskConsumerService;
+import com.example.kafka.consumer.service.KeyOrderedDispatcher;
+import com.example.kafka.consumer.service.ConsumerFailureMetrics;
+import com.example.kafka.consumer.service.TaskMessageCodec;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
 import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.StringUtils;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 
 @EnableKafka
 @Configuration
 public class KafkaConsumerConfig {
     
+    private static final Logger logger = LoggerFactory.getLogger(KafkaConsumerConfig.class);
+    
+    private final TaskMessageCodec codec;
+    
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
     
@@ -42,13 +65,87 @@ public class KafkaConsumerConfig {
     @Value("${spring.kafka.listener.concurrency:3}")
     private Integer concurrency;
     
+    @Value("${app.kafka.static-membership.enabled:false}")
+    private boolean staticMembership;
+    
+    @Value("${app.kafka.static-membership.instance-id:}")
+    private String instanceId;
+    
+    @Value("${app.offsets.store:kafka}")
+    private String offsetStore;
+    
+    @Value("${app.offsets.db.broker-commit-interval-ms:5000}")
+    private long brokerCommitIntervalMs;
+    
+    @Value("${app.processing.batch.max-poll-records:500}")
+    private Integer batchMaxPollRecords;
+    
+    @Value("${app.processing.batch.retry-interval-ms:1000}")
+    private long batchRetryIntervalMs;
+    
+    @Value("${app.processing.batch.retry-attempts:2}")
+    private long batchRetryAttempts;
+    
+    @Value("${app.kafka.topic}")
+    private String topic;
+    
+    @Value("${app.kafka.snapshot-topic:task-snapshots}")
+    private String snapshotTopic;
+    
+    @Value("${app.snapshot.listener.max-poll-records:500}")
+    private Integer snapshotMaxPollRecords;
+    
+    @Value("${app.snapshot.listener.retry-interval-ms:1000}")
+    private long snapshotRetryIntervalMs;
+    
+    @Value("${app.snapshot.listener.retry-attempts:2}")
+    private long snapshotRetryAttempts;
+    
+    @Value("${app.retry.enabled:true}")
+    private boolean deadLetterEnabled;
+    
+    @Value("${app.retry.dlt-suffix:-dlt}")
+    private String dltSuffix;
+    
+    @Value("${app.retry.partitions:3}")
+    private int dltPartitions;
+    
+    @Value("${app.retry.replication-factor:1}")
+    private short dltReplicationFactor;
+    
+    @Value("${app.processing.parallel.max-poll-records:100}")
+    private Integer parallelMaxPollRecords;
+    
+    @Value("${app.processing.parallel.commit-interval-ms:1000}")
+    private long parallelCommitIntervalMs;
+    
+    @Value("${app.processing.async.max-poll-records:50}")
+    private Integer asyncMaxPollRecords;
+    
+    @Value("${app.processing.async.max-poll-interval-ms:60000}")
+    private Integer asyncMaxPollIntervalMs;
+    
+    public KafkaConsumerConfig(TaskMessageCodec codec) {
+        this.codec = codec;
+    }
+    
     @Bean
-    public ConsumerFactory<String, String> consumerFactory() {
+    public ConsumerFactory<String, MessagePayload> consumerFactory() {
+        return consumerFactory(consumerProps());
+    }
+    
+    /**
+     * Values are read with the dual-format {@link MessagePayloadDeserializer}: JSON and Avro records
+     * can be mixed on every topic while producers migrate.
+     */
+    private ConsumerFactory<String, MessagePayload> consumerFactory(Map<String, Object> props) {
+        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new MessagePayloadDeserializer(codec));
+    }
+    
+    private Map<String, Object> consumerProps() {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, autoOffsetReset);
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
         props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
@@ -56,17 +153,208 @@ public class KafkaConsumerConfig {
         props.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, sessionTimeoutMs);
         props.put(ConsumerConfig.HEARTBEAT_INTERVAL_MS_CONFIG, heartbeatIntervalMs);
         
-        return new DefaultKafkaConsumerFactory<>(props);
+        return props;
     }
     
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, String> factory = 
+    public ConcurrentKafkaListenerContainerFactory<String, MessagePayload> kafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, MessagePayload> factory = 
             new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
         factory.setConcurrency(concurrency);
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        applyOffsetStore(factory);
+        applyStaticMembership(factory);
         
         return factory;
     }
+    
+    /**
+     * Container factory for batch listeners (app.processing.mode=batch).
+     * Fetches up to app.processing.batch.max-poll-records per poll; one manual ack covers the whole batch.
+     * A BatchListenerFailedException thrown by the listener commits the records before the failed one,
+     * retries the failed record and finally publishes it to {@code <topic><dlt-suffix>} like the parallel
+     * and async modes, so one bad record never blocks the rest.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, MessagePayload> batchKafkaListenerContainerFactory(
+            KafkaTemplate<String, MessagePayload> payloadKafkaTemplate, ConsumerFailureMetrics failureMetrics) {
+        Map<String, Object> props = consumerProps();
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords);
+        
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(
+            deadLetterRecoverer(payloadKafkaTemplate, failureMetrics, "task record"),
+            new FixedBackOff(batchRetryIntervalMs, batchRetryAttempts));
+        errorHandler.setRetryListeners(failureMetrics);
+        
+        ConcurrentKafkaListenerContainerFactory<String, MessagePayload> factory = 
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory(props));
+        factory.setConcurrency(concurrency);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        applyOffsetStore(factory);
+        factory.setCommonErrorHandler(errorHandler);
+        applyStaticMembership(factory);
+        
+        return factory;
+    }
+    
+    /**
+     * Container factory for the snapshot listener: batches of up to app.snapshot.listener.max-poll-records,
+     * coalesced per taskId by the listener, one manual ack per batch.
+     * A BatchListenerFailedException commits the records before the failed one; the failed record is
+     * retried in place and then published to {@code <snapshot topic><dlt-suffix>} (app.retry.enabled),
+     * payload errors without retrying. Dead letters can be replayed with POST /internal/dlt/{topic}/replay.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, MessagePayload> snapshotKafkaListenerContainerFactory(
+            KafkaTemplate<String, MessagePayload> payloadKafkaTemplate, ConsumerFailureMetrics failureMetrics) {
+        Map<String, Object> props = consumerProps();
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, snapshotMaxPollRecords);
+        
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(
+            deadLetterRecoverer(payloadKafkaTemplate, failureMetrics, "snapshot"),
+            new FixedBackOff(snapshotRetryIntervalMs, snapshotRetryAttempts));
+        errorHandler.addNotRetryableExceptions(JsonProcessingException.class, IllegalArgumentException.class);
+        errorHandler.setRetryListeners(failureMetrics);
+        
+        ConcurrentKafkaListenerContainerFactory<String, MessagePayload> factory = 
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory(props));
+        factory.setConcurrency(concurrency);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        applyOffsetStore(factory);
+        factory.setCommonErrorHandler(errorHandler);
+        applyStaticMembership(factory);
+        
+        return factory;
+    }
+    
+    @Bean
+    @ConditionalOnProperty(name = "app.retry.enabled", havingValue = "true", matchIfMissing = true)
+    public NewTopic snapshotDeadLetterTopic() {
+        return new NewTopic(snapshotTopic + dltSuffix, dltPartitions, dltReplicationFactor);
+    }
+    
+    /**
+     * Last resort of the parallel and async modes, whose workers retry in process: a record that
+     * still fails is published to {@code <topic><dlt-suffix>} (replayable like the record-mode DLT)
+     * before its offset is committed. The batch mode's error handler publishes to the same topic.
+     */
+    @Bean
+    @ConditionalOnExpression("'${app.processing.mode:record}' == 'parallel' or '${app.processing.mode:record}' == 'async'")
+    public ConsumerRecordRecoverer taskDeadLetterRecoverer(KafkaTemplate<String, MessagePayload> payloadKafkaTemplate,
+                                                           ConsumerFailureMetrics failureMetrics) {
+        return deadLetterRecoverer(payloadKafkaTemplate, failureMetrics, "task record");
+    }
+    
+    @Bean
+    @ConditionalOnExpression("${app.retry.enabled:true} and ('${app.processing.mode:record}' == 'batch' or " +
+        "'${app.processing.mode:record}' == 'parallel' or '${app.processing.mode:record}' == 'async')")
+    public NewTopic taskDeadLetterTopic() {
+        return new NewTopic(topic + dltSuffix, dltPartitions, dltReplicationFactor);
+    }
+    
+    /**
+     * Publishes to {@code <topic><dlt-suffix>} and counts the dead letter (app.retry.enabled),
+     * otherwise logs and skips the record.
+     */
+    private ConsumerRecordRecoverer deadLetterRecoverer(KafkaTemplate<String, MessagePayload> payloadKafkaTemplate,
+                                                        ConsumerFailureMetrics failureMetrics, String description) {
+        if (!deadLetterEnabled) {
+            return (record, ex) -> logger.error("Skipping {} at partition {} offset {} after retries",
+                description, record.partition(), record.offset(), ex);
+        }
+        DeadLetterPublishingRecoverer deadLetterPublisher = new DeadLetterPublishingRecoverer(payloadKafkaTemplate,
+            (record, ex) -> new TopicPartition(record.topic() + dltSuffix, -1));
+        return (record, ex) -> {
+            deadLetterPublisher.accept(record, ex);
+            failureMetrics.deadLetter(record, ex);
+        };
+    }
+    
+    /**
+     * Container factory for the parallel mode (app.processing.mode=parallel).
+     * The poll thread only dispatches records; offsets are committed by the {@link KeyOrderedDispatcher}
+     * (never by the container), on every poll and on idle events every commit-interval-ms.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.processing.mode", havingValue = "parallel")
+    public ConcurrentKafkaListenerContainerFactory<String, MessagePayload> parallelKafkaListenerContainerFactory(
+            KeyOrderedDispatcher dispatcher) {
+        Map<String, Object> props = consumerProps();
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, parallelMaxPollRecords);
+        
+        ConcurrentKafkaListenerContainerFactory<String, MessagePayload> factory = 
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory(props));
+        factory.setConcurrency(concurrency);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(dispatcher);
+        factory.getContainerProperties().setIdleEventInterval(parallelCommitIntervalMs);
+        applyStaticMembership(factory);
+        
+        return factory;
+    }
+    
+    /**
+     * Container factory for the async mode (app.processing.mode=async).
+     * The listener never blocks the poll loop, so max.poll.interval.ms only has to cover one poll cycle
+     * and can be much shorter than the longest processing time. Acks arrive from the worker threads
+     * and are committed by the container on its next poll (AckMode.MANUAL).
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.processing.mode", havingValue = "async")
+    public ConcurrentKafkaListenerContainerFactory<String, MessagePayload> asyncKafkaListenerContainerFactory(
+            AsyncTaskConsumerService asyncConsumer) {
+        Map<String, Object> props = consumerProps();
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, asyncMaxPollRecords);
+        props.put(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, asyncMaxPollIntervalMs);
+        
+        ConcurrentKafkaListenerContainerFactory<String, MessagePayload> factory = 
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory(props));
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(asyncConsumer);
+        applyStaticMembership(factory);
+        
+        return factory;
+    }
+    
+    /**
+     * With DB-stored offsets (app.offsets.store=db) the broker commit is informational only: it is sent
+     * asynchronously, and partitions idle for broker-commit-interval-ms publish the events on which
+     * {@link com.example.kafka.consumer.service.ConsumerOffsetStore} sends their skipped acks.
+     */
+    private void applyOffsetStore(ConcurrentKafkaListenerContainerFactory<String, MessagePayload> factory) {
+        if ("db".equalsIgnoreCase(offsetStore)) {
+            factory.getContainerProperties().setSyncCommits(false);
+            factory.getContainerProperties().setIdlePartitionEventInterval(brokerCommitIntervalMs);
+        }
+    }
+
+    /**
+     * Static group membership (app.kafka.static-membership.enabled): every consumer gets a
+     * group.instance.id of {@code <instance-id>-<listener id>} (plus -n per concurrent consumer, added by
+     * the container). A closed static member does not leave the group; when the pod comes back with
+     * the same name within session.timeout.ms it gets its partitions back without a rebalance.
+     * Needs stable pod names (StatefulSet) - a new name per restart would leave the old member's
+     * partitions idle until the session times out.
+     */
+    private void applyStaticMembership(ConcurrentKafkaListenerContainerFactory<String, MessagePayload> factory) {
+        if (!staticMembership || !StringUtils.hasText(instanceId)) {
+            return;
+        }
+        factory.setContainerCustomizer(container -> {
+            // Own copy: the factory's consumer properties are shared by all of its containers
+            Properties properties = new Properties();
+            properties.putAll(container.getContainerProperties().getKafkaConsumerProperties());
+            properties.setProperty(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG, instanceId + "-" + container.getListenerId());
+            container.getContainerProperties().setKafkaConsumerProperties(properties);
+        });
+    }
 }
@@ -0,0 +1,83 @@
+package com.example.kafka.consumer.config;
+
+import com.example.kafka.consumer.dto.MessagePayload;
+import com.example.kafka.consumer.service.ConsumerFailureMetrics;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.retrytopic.RetryTopicConfiguration;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationSupport;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+
+import java.util.List;
+
+/**
+ * Non-blocking retries (app.retry.enabled).
+ * A failing record is forwarded to a chain of delay topics ({@code <topic>-retry-<delay ms>}, exponential
+ * backoff) and finally to {@code <topic>-dlt}, so it no longer blocks the records behind it in its partition.
+ * Payload errors (unparseable JSON) skip the retries and go straight to the DLT.
+ * Only the record-mode task listener is covered; the batch, parallel and async modes keep their own
+ * in-process retries (parallel and async then dead-letter to the same DLT), and the snapshot batch listener
+ * dead-letters through its container factory.
+ */
+@Configuration
+public class KafkaRetryTopicConfig extends RetryTopicConfigurationSupport {
+    
+    private final ConsumerFailureMetrics failureMetrics;
+    
+    @Value("${app.kafka.topic}")
+    private String topic;
+    
+    @Value("${app.retry.attempts:4}")
+    private int attempts;
+    
+    @Value("${app.retry.initial-interval-ms:1000}")
+    private long initialIntervalMs;
+    
+    @Value("${app.retry.multiplier:4.0}")
+    private double multiplier;
+    
+    @Value("${app.retry.max-interval-ms:60000}")
+    private long maxIntervalMs;
+    
+    @Value("${app.retry.partitions:3}")
+    private int partitions;
+    
+    @Value("${app.retry.replication-factor:1}")
+    private short replicationFactor;
+    
+    @Value("${app.retry.dlt-suffix:-dlt}")
+    private String dltSuffix;
+    
+    public KafkaRetryTopicConfig(ConsumerFailureMetrics failureMetrics) {
+        this.failureMetrics = failureMetrics;
+    }
+    
+    @Bean
+    @ConditionalOnExpression("${app.retry.enabled:true} and '${app.processing.mode:record}' == 'record'")
+    public RetryTopicConfiguration taskRetryTopicConfiguration(KafkaTemplate<String, MessagePayload> payloadKafkaTemplate) {
+        return retryTopics(topic).create(payloadKafkaTemplate);
+    }
+    
+    private RetryTopicConfigurationBuilder retryTopics(String includedTopic) {
+        return RetryTopicConfigurationBuilder.newInstance()
+            .includeTopic(includedTopic)
+            .maxAttempts(attempts)
+            .exponentialBackoff(initialIntervalMs, multiplier, maxIntervalMs)
+            .setTopicSuffixingStrategy(TopicSuffixingStrategy.SUFFIX_WITH_DELAY_VALUE)
+            .dltSuffix(dltSuffix)
+            .notRetryOn(List.of(JsonProcessingException.class))
+            .traversingCauses()
+            .autoCreateTopicsWith(partitions, replicationFactor)
+            .dltHandlerMethod("deadLetterService", "handleDeadLetter");
+    }
+    
+    @Override
+    protected void configureCustomizers(CustomizersConfigurer customizersConfigurer) {
+        customizersConfigurer.customizeErrorHandler(errorHandler -> errorHandler.setRetryListeners(failureMetrics));
+    }
+}
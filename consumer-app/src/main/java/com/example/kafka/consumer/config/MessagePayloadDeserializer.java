@@ -0,0 +1,52 @@
+package com.example.kafka.consumer.config;
+
+import com.example.kafka.consumer.dto.MessagePayload;
+import com.example.kafka.consumer.service.TaskMessageCodec;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Dual-format value deserializer: a record with a {@link TaskMessageCodec#SCHEMA_ID_HEADER} header is
+ * Avro, any other one JSON text. Only wraps the bytes; decoding is left to the listener
+ * ({@link MessagePayload}), so a corrupt record cannot fail the poll. Tombstones stay null.
+ * Records with a {@value #FENCE_HEADER} header are the fence markers of a partition expansion; the
+ * {@value #SOURCE_VERSION_HEADER} header (8 bytes, big-endian) is the producer's version of the record.
+ */
+public class MessagePayloadDeserializer implements Deserializer<MessagePayload> {
+
+    public static final String FENCE_HEADER = "partition-fence";
+    public static final String SOURCE_VERSION_HEADER = "source-version";
+
+    private final TaskMessageCodec codec;
+
+    public MessagePayloadDeserializer(TaskMessageCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public MessagePayload deserialize(String topic, byte[] data) {
+        return data != null ? MessagePayload.json(data) : null;
+    }
+
+    @Override
+    public MessagePayload deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (headers != null && headers.lastHeader(FENCE_HEADER) != null) {
+            return MessagePayload.fence(data);
+        }
+        Header schemaId = headers != null ? headers.lastHeader(TaskMessageCodec.SCHEMA_ID_HEADER) : null;
+        MessagePayload payload = schemaId != null
+            ? MessagePayload.binary(data, TaskMessageCodec.readSchemaId(schemaId.value()), codec)
+            : MessagePayload.json(data);
+        Header sourceVersion = headers != null ? headers.lastHeader(SOURCE_VERSION_HEADER) : null;
+        if (sourceVersion != null && sourceVersion.value().length == Long.BYTES) {
+            payload.setSourceVersion(ByteBuffer.wrap(sourceVersion.value()).getLong());
+        }
+        return payload;
+    }
+}
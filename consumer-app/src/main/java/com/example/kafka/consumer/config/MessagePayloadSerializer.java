@@ -0,0 +1,28 @@
+package com.example.kafka.consumer.config;
+
+import com.example.kafka.consumer.dto.MessagePayload;
+import com.example.kafka.consumer.service.TaskMessageCodec;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Writes a {@link MessagePayload} back as received (retry topics, dead letters, DLT replays):
+ * the original bytes, with the schema-id header for binary payloads.
+ */
+public class MessagePayloadSerializer implements Serializer<MessagePayload> {
+
+    @Override
+    public byte[] serialize(String topic, MessagePayload payload) {
+        return payload != null ? payload.getData() : null;
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, MessagePayload payload) {
+        if (payload != null && payload.isBinary()) {
+            // The copied headers of the original record may already contain it
+            headers.remove(TaskMessageCodec.SCHEMA_ID_HEADER);
+            headers.add(TaskMessageCodec.SCHEMA_ID_HEADER, TaskMessageCodec.schemaIdHeader(payload.getSchemaId()));
+        }
+        return serialize(topic, payload);
+    }
+}
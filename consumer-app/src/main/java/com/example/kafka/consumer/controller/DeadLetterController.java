@@ -0,0 +1,45 @@
+package com.example.kafka.consumer.controller;
+
+import com.example.kafka.consumer.service.DeadLetterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Internal controller for dead-letter replay.
+ * POST /internal/dlt/{topic}/replay re-publishes records from {@code <topic>-dlt} to {@code <topic>}.
+ */
+@RestController
+@RequestMapping("/internal/dlt")
+public class DeadLetterController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterController.class);
+    
+    private final DeadLetterService deadLetterService;
+    
+    public DeadLetterController(DeadLetterService deadLetterService) {
+        this.deadLetterService = deadLetterService;
+    }
+    
+    @PostMapping("/{topic}/replay")
+    public Map<String, Object> replay(@PathVariable String topic,
+                                      @RequestParam(defaultValue = "100") int maxRecords) {
+        logger.info("Received request to replay up to {} dead letters of {}", maxRecords, topic);
+        
+        int replayed = deadLetterService.replay(topic, maxRecords);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("topic", topic);
+        response.put("replayed", replayed);
+        
+        return response;
+    }
+}
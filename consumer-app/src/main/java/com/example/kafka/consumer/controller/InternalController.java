@@ -1,20 +1,23 @@
 package com.example.kafka.consumer.controller;
 
+import com.example.kafka.consumer.service.ConsumerDrainService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
-import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Internal controller for graceful shutdown.
- * Used by Kubernetes preStop hook to stop consuming before pod termination.
+ * Used by Kubernetes preStop hook to stop consuming before pod termination:
+ * POST /internal/drain starts the drain, GET /internal/drain answers 200 once it is finished
+ * (503 before), so the hook waits exactly as long as the drain takes.
  */
 @RestController
 @RequestMapping("/internal")
@@ -22,27 +25,37 @@ public class InternalController {
     
     private static final Logger logger = LoggerFactory.getLogger(InternalController.class);
     
-    private final KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+    private final ConsumerDrainService drainService;
     
-    public InternalController(KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry) {
-        this.kafkaListenerEndpointRegistry = kafkaListenerEndpointRegistry;
+    public InternalController(ConsumerDrainService drainService) {
+        this.drainService = drainService;
     }
     
+    @PostMapping("/drain")
+    public ResponseEntity<Map<String, Object>> startDrain() {
+        logger.info("Received request to drain the consumers (graceful shutdown)");
+        drainService.startDrain();
+        ResponseEntity<Map<String, Object>> status = drainStatus();
+        return status.getStatusCode().is2xxSuccessful() ? status : ResponseEntity.accepted().body(status.getBody());
+    }
+    
+    @GetMapping("/drain")
+    public ResponseEntity<Map<String, Object>> drainStatus() {
+        ConsumerDrainService.State state = drainService.getState();
+        Map<String, Object> response = new HashMap<>();
+        response.put("state", state);
+        HttpStatus status = state == ConsumerDrainService.State.DRAINED ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status).body(response);
+    }
+    
+    /**
+     * Synchronous variant of the drain, kept for existing hooks.
+     */
     @PostMapping("/stop-consuming")
     public Map<String, Object> stopConsuming() {
         logger.info("Received request to stop consuming messages (graceful shutdown)");
         
-        Collection<MessageListenerContainer> containers = 
-            kafkaListenerEndpointRegistry.getAllListenerContainers();
-        
-        int stoppedCount = 0;
-        for (MessageListenerContainer container : containers) {
-            if (container.isRunning()) {
-                logger.info("Stopping listener container: {}", container.getListenerId());
-                container.stop();
-                stoppedCount++;
-            }
-        }
+        int stoppedCount = drainService.drainAndWait();
         
         logger.info("Stopped {} listener containers", stoppedCount);
         
@@ -0,0 +1,38 @@
+package com.example.kafka.consumer.controller;
+
+import com.example.kafka.consumer.service.ConsumerLagMonitor;
+import com.example.kafka.consumer.service.ConsumerLagMonitor.GroupLag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Internal controller exposing the latest consumer lag samples.
+ * GET /internal/lag/{group} returns a single group in a flat shape suitable for external
+ * metrics adapters (totalLag, timeToDrainSeconds, ...).
+ */
+@RestController
+@RequestMapping("/internal/lag")
+public class LagController {
+    
+    private final ConsumerLagMonitor lagMonitor;
+    
+    public LagController(ConsumerLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+    }
+    
+    @GetMapping
+    public Map<String, GroupLag> getLags() {
+        return lagMonitor.getLags();
+    }
+    
+    @GetMapping("/{group}")
+    public ResponseEntity<GroupLag> getLag(@PathVariable String group) {
+        GroupLag lag = lagMonitor.getLags().get(group);
+        return lag != null ? ResponseEntity.ok(lag) : ResponseEntity.notFound().build();
+    }
+}
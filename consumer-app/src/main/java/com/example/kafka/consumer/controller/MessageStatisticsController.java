@@ -0,0 +1,73 @@
+package com.example.kafka.consumer.controller;
+
+import com.example.kafka.consumer.repository.MessageRecordJdbcRepository;
+import com.example.kafka.consumer.repository.MessageRecordJdbcRepository.MessageSummary;
+import com.example.kafka.consumer.service.MessageStatisticsService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Processing statistics and recent messages for dashboards, without scanning message_records.
+ * GET /api/messages/stats?from=...&amp;to=...&amp;topic=... aggregates the per-minute rollups
+ * (default: the last hour). GET /api/messages/recent?since=...&amp;limit=100 lists records newest
+ * first without their payload; the response carries afterReceivedAt/afterId for the next page.
+ */
+@RestController
+@RequestMapping("/api/messages")
+public class MessageStatisticsController {
+
+    private final MessageStatisticsService statisticsService;
+    private final MessageRecordJdbcRepository messageRecordJdbcRepository;
+
+    @Value("${app.audit.recent.max-page-size:500}")
+    private int maxPageSize;
+
+    public MessageStatisticsController(MessageStatisticsService statisticsService,
+                                       MessageRecordJdbcRepository messageRecordJdbcRepository) {
+        this.statisticsService = statisticsService;
+        this.messageRecordJdbcRepository = messageRecordJdbcRepository;
+    }
+
+    @GetMapping("/stats")
+    public Map<String, Object> getStatistics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(required = false) String topic) {
+        OffsetDateTime end = to != null ? to : OffsetDateTime.now().truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        OffsetDateTime start = from != null ? from : end.minusHours(1);
+        return statisticsService.getStatistics(start, end, topic);
+    }
+
+    @GetMapping("/recent")
+    public Map<String, Object> getRecent(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime since,
+            @RequestParam(required = false) String topic,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime afterReceivedAt,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "100") int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        List<MessageSummary> items = messageRecordJdbcRepository.findRecent(
+            since != null ? since : OffsetDateTime.now().minusHours(1), topic, afterReceivedAt, afterId, pageSize);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("items", items);
+        if (items.size() == pageSize) {
+            MessageSummary last = items.get(items.size() - 1);
+            Map<String, Object> next = new HashMap<>();
+            next.put("afterReceivedAt", last.receivedAt());
+            next.put("afterId", last.id());
+            response.put("next", next);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.kafka.consumer.controller;
+
+import com.example.kafka.consumer.repository.TaskDocumentJdbcRepository;
+import com.example.kafka.consumer.service.TaskDocumentCodec;
+import com.example.kafka.consumer.service.TaskDocumentCodec.DocumentAttribute;
+import com.example.kafka.consumer.service.TaskDocumentView;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads task documents (app.persistence.mode=document).
+ * GET /api/tasks/{taskId}/attributes decodes the whole document,
+ * GET /api/tasks/{taskId}/attributes/{name} only the requested attribute.
+ */
+@RestController
+@RequestMapping("/api/tasks/{taskId}/attributes")
+@ConditionalOnProperty(name = "app.persistence.mode", havingValue = "document")
+public class TaskDocumentController {
+
+    private final TaskDocumentJdbcRepository taskDocumentJdbcRepository;
+    private final TaskDocumentCodec codec;
+
+    public TaskDocumentController(TaskDocumentJdbcRepository taskDocumentJdbcRepository, TaskDocumentCodec codec) {
+        this.taskDocumentJdbcRepository = taskDocumentJdbcRepository;
+        this.codec = codec;
+    }
+
+    @GetMapping
+    public Map<String, Object> getAttributes(@PathVariable String taskId) {
+        TaskDocumentView view = find(taskId);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("taskId", view.taskId());
+        response.put("version", view.version());
+        response.put("updatedAt", view.updatedAt());
+        response.put("documentSize", view.documentSize());
+        response.put("attributes", view.attributes().stream().map(TaskDocumentController::toMap).toList());
+        return response;
+    }
+
+    @GetMapping("/{name}")
+    public Map<String, Object> getAttribute(@PathVariable String taskId, @PathVariable String name) {
+        return find(taskId).attribute(name)
+            .map(TaskDocumentController::toMap)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                "Task " + taskId + " has no attribute " + name));
+    }
+
+    private TaskDocumentView find(String taskId) {
+        return taskDocumentJdbcRepository.findByTaskId(taskId)
+            .map(document -> new TaskDocumentView(codec, document))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Task " + taskId + " not found"));
+    }
+
+    private static Map<String, Object> toMap(DocumentAttribute attribute) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", attribute.name());
+        map.put("type", attribute.type());
+        map.put("values", attribute.values());
+        return map;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.kafka.consumer.controller;
+
+import com.example.kafka.consumer.entity.AttributeType;
+import com.example.kafka.consumer.repository.TaskAttributeSearchRepository;
+import com.example.kafka.consumer.repository.TaskAttributeSearchRepository.AttributeHit;
+import com.example.kafka.consumer.repository.TaskAttributeSearchRepository.AttributeSearch;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Typed attribute search over the normalized task tables.
+ * GET /api/tasks/search?attribute=priority&amp;type=NUMERIC&amp;min=3&amp;max=7&amp;limit=100 returns the
+ * values of the attribute within [min, max] (eq=x for min = max = x) ordered by value, one hit per value.
+ * The response carries afterValue/afterId for the next page.
+ */
+@RestController
+@RequestMapping("/api/tasks/search")
+public class TaskSearchController {
+
+    private final TaskAttributeSearchRepository searchRepository;
+
+    @Value("${app.attribute-search.max-page-size:500}")
+    private int maxPageSize;
+
+    public TaskSearchController(TaskAttributeSearchRepository searchRepository) {
+        this.searchRepository = searchRepository;
+    }
+
+    @GetMapping
+    public Map<String, Object> search(
+            @RequestParam String attribute,
+            @RequestParam String type,
+            @RequestParam(required = false) String eq,
+            @RequestParam(required = false) String min,
+            @RequestParam(required = false) String max,
+            @RequestParam(required = false) String afterValue,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "100") int limit) {
+        AttributeSearch search;
+        try {
+            AttributeType attributeType = AttributeType.valueOf(type.toUpperCase(Locale.ROOT));
+            if (attributeType == AttributeType.TEXT) {
+                throw new IllegalArgumentException("TEXT attributes are not searchable");
+            }
+            search = new AttributeSearch(attribute, attributeType,
+                parse(attributeType, eq != null ? eq : min),
+                parse(attributeType, eq != null ? eq : max),
+                parse(attributeType, afterValue), afterId,
+                Math.max(1, Math.min(limit, maxPageSize)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        List<AttributeHit> items = searchRepository.search(search);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", items);
+        if (items.size() == search.limit()) {
+            AttributeHit last = items.get(items.size() - 1);
+            Map<String, Object> next = new HashMap<>();
+            next.put("afterValue", last.value());
+            next.put("afterId", last.valueId());
+            response.put("next", next);
+        }
+        return response;
+    }
+
+    private static Object parse(AttributeType type, String value) {
+        if (value == null) {
+            return null;
+        }
+        return switch (type) {
+            case NUMERIC -> new BigDecimal(value);
+            case DATE -> OffsetDateTime.parse(value);
+            case BOOLEAN -> Boolean.parseBoolean(value);
+            default -> value;
+        };
+    }
+}
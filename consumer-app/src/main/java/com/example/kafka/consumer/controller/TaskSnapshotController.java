@@ -0,0 +1,125 @@
+package com.example.kafka.consumer.controller;
+
+import com.example.kafka.consumer.repository.TaskSnapshotSearchRepository.AttributePredicate;
+import com.example.kafka.consumer.service.TaskSnapshotQueryService;
+import com.example.kafka.consumer.service.TaskSnapshotQueryService.SnapshotView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read API over the task_snapshots read-model, so downstream services do not query the table directly.
+ * <ul>
+ *   <li>GET /api/snapshots/{taskId} - one snapshot; If-None-Match with its ETag answers 304</li>
+ *   <li>GET /api/snapshots?ids=a,b,c - several snapshots (unknown ids are left out)</li>
+ *   <li>GET /api/snapshots?updatedAfter=...&amp;afterId=...&amp;limit=100 - keyset-paged listing by
+ *   updated_at; the response carries the position of the next page</li>
+ *   <li>GET /api/snapshots/search?where=status:eq:DONE&amp;where=priority:gte:3&amp;afterId=...&amp;limit=100 -
+ *   snapshots whose attributes match all conditions (eq, in with |-separated values, exists, gt, gte, lt, lte),
+ *   keyset-paged by id; indexed with app.snapshot.storage=jsonb</li>
+ * </ul>
+ */
+@RestController
+@RequestMapping("/api/snapshots")
+public class TaskSnapshotController {
+    
+    private final TaskSnapshotQueryService queryService;
+    
+    @Value("${app.snapshot.query.max-ids:500}")
+    private int maxIds;
+    
+    @Value("${app.snapshot.query.max-page-size:500}")
+    private int maxPageSize;
+    
+    public TaskSnapshotController(TaskSnapshotQueryService queryService) {
+        this.queryService = queryService;
+    }
+    
+    @GetMapping("/{taskId}")
+    public ResponseEntity<SnapshotView> getSnapshot(@PathVariable String taskId, WebRequest request) {
+        SnapshotView snapshot = queryService.find(taskId).orElse(null);
+        if (snapshot == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = etag(snapshot);
+        if (request.checkNotModified(etag)) {
+            // 304 with the ETag header already set
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(snapshot);
+    }
+    
+    /**
+     * The version alone starts again at 1 when a task is deleted (tombstone) and created again, so the
+     * row id and the update time are part of the tag: a re-created snapshot never matches an old one.
+     */
+    static String etag(SnapshotView snapshot) {
+        long updatedAt = snapshot.updatedAt() != null ? snapshot.updatedAt().toInstant().toEpochMilli() : 0;
+        return "\"" + snapshot.id() + "-" + snapshot.version() + "-" + updatedAt + "\"";
+    }
+    
+    @GetMapping(params = "ids")
+    public List<SnapshotView> getSnapshots(@RequestParam List<String> ids) {
+        if (ids.size() > maxIds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + maxIds + " ids per request");
+        }
+        return queryService.findAll(ids);
+    }
+    
+    @GetMapping("/search")
+    public Map<String, Object> searchSnapshots(
+            @RequestParam(defaultValue = "0") long afterId,
+            @RequestParam(defaultValue = "100") int limit,
+            WebRequest request) {
+        // Raw values: a single List parameter would be split at commas, which may be part of a value
+        String[] where = request.getParameterValues("where");
+        if (where == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one where condition is required");
+        }
+        List<AttributePredicate> predicates = new ArrayList<>();
+        try {
+            for (String expression : where) {
+                predicates.add(AttributePredicate.parse(expression));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        List<SnapshotView> items = queryService.search(predicates, afterId, Math.max(1, Math.min(limit, maxPageSize)));
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", items);
+        if (!items.isEmpty()) {
+            response.put("next", Map.of("afterId", items.get(items.size() - 1).id()));
+        }
+        return response;
+    }
+    
+    @GetMapping(params = "!ids")
+    public Map<String, Object> listSnapshots(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime updatedAfter,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "100") int limit) {
+        List<SnapshotView> items = queryService.list(updatedAfter, afterId, Math.max(1, Math.min(limit, maxPageSize)));
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", items);
+        if (!items.isEmpty()) {
+            SnapshotView last = items.get(items.size() - 1);
+            Map<String, Object> next = new HashMap<>();
+            next.put("updatedAfter", last.updatedAt());
+            next.put("afterId", last.id());
+            response.put("next", next);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.kafka.consumer.dto;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AttributeChange record of avro/task-messages.avsc: one attribute-level change of a task, with the
+ * other fields of the payload as JSON text.
+ */
+public record AttributeChangeMessage(String taskId, String attributeName, String type, List<Object> values,
+                                     String operation, @JsonIgnore Map<String, String> extra) {
+
+    public AttributeChangeMessage {
+        extra = extra != null ? extra : Map.of();
+    }
+
+    public AttributeChangeMessage(String taskId, String attributeName, String type, List<Object> values,
+                                  String operation) {
+        this(taskId, attributeName, type, values, operation, Map.of());
+    }
+
+    @JsonAnyGetter
+    Map<String, Object> extraFields() {
+        return ExtraFields.rendered(extra);
+    }
+}
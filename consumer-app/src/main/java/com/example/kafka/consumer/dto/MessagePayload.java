@@ -0,0 +1,113 @@
+package com.example.kafka.consumer.dto;
+
+import com.example.kafka.consumer.service.TaskMessageCodec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Value of a task-topic / task-snapshots record in either wire format: JSON text, or Avro binary
+ * with the id of its writer schema ({@link TaskMessageCodec#SCHEMA_ID_HEADER} header).
+ * Binary payloads are decoded on first access, on the listener thread, so a record that cannot be
+ * decoded goes through the listener's error handling instead of failing the poll.
+ * A fence marker of a producer partition expansion is a payload too ({@link #isFence()}): it is
+ * acknowledged like any record but carries no task.
+ * The producer's source version (outbox id) of the record travels along, when it has one.
+ */
+public final class MessagePayload {
+
+    private final byte[] data;
+    private final Long schemaId;
+    private final TaskMessageCodec codec;
+    private boolean fence;
+    private Long sourceVersion;
+    private Object message;
+    private String text;
+
+    private MessagePayload(byte[] data, Long schemaId, TaskMessageCodec codec) {
+        this.data = data;
+        this.schemaId = schemaId;
+        this.codec = codec;
+    }
+
+    public static MessagePayload json(byte[] data) {
+        return new MessagePayload(data, null, null);
+    }
+
+    public static MessagePayload json(String text) {
+        MessagePayload payload = json(text.getBytes(StandardCharsets.UTF_8));
+        payload.text = text;
+        return payload;
+    }
+
+    public static MessagePayload binary(byte[] data, long schemaId, TaskMessageCodec codec) {
+        return new MessagePayload(data, schemaId, codec);
+    }
+
+    public static MessagePayload fence(byte[] data) {
+        MessagePayload payload = json(data);
+        payload.fence = true;
+        return payload;
+    }
+
+    public boolean isFence() {
+        return fence;
+    }
+
+    public boolean isBinary() {
+        return schemaId != null;
+    }
+
+    /**
+     * The bytes as received (forwarded unchanged to retry and dead-letter topics).
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    public Long getSchemaId() {
+        return schemaId;
+    }
+
+    public Long getSourceVersion() {
+        return sourceVersion;
+    }
+
+    public void setSourceVersion(Long sourceVersion) {
+        this.sourceVersion = sourceVersion;
+    }
+
+    /**
+     * Decoded message of a binary payload.
+     *
+     * @throws IllegalArgumentException if the payload cannot be decoded or is not a {@code type}
+     */
+    public <T> T message(Class<T> type) {
+        if (!isBinary()) {
+            throw new IllegalStateException("JSON payload has no decoded message");
+        }
+        if (message == null) {
+            message = codec.decode(schemaId, data);
+        }
+        if (!type.isInstance(message)) {
+            throw new IllegalArgumentException("Expected " + type.getSimpleName() + " but schema " + schemaId +
+                " is a " + message.getClass().getSimpleName());
+        }
+        return type.cast(message);
+    }
+
+    /**
+     * The payload as JSON text: the text itself, or the canonical JSON of a binary message
+     * ({@link TaskMessageCodec#toJson}), which is what the audit trail, raw_payload and snapshot_data store.
+     */
+    public String text() {
+        if (text == null) {
+            text = isBinary() ? codec.toJson(message(Object.class)) : new String(data, StandardCharsets.UTF_8);
+        }
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return isBinary() ? "binary(schema " + schemaId + ", " + data.length + " bytes)" : text();
+    }
+}
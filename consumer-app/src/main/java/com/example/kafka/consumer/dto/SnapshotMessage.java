@@ -0,0 +1,11 @@
+package com.example.kafka.consumer.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * TaskSnapshot record of avro/task-messages.avsc: aggregated task state as published to task-snapshots.
+ */
+public record SnapshotMessage(String taskId, List<AttributeMessage> attributes, Instant timestamp,
+                              Long sourceVersion) {
+}
@@ -0,0 +1,27 @@
+package com.example.kafka.consumer.dto;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Task record of avro/task-messages.avsc: a full task as published to task-topic, with the other
+ * fields of the payload as JSON text.
+ */
+public record TaskMessage(String taskId, List<AttributeMessage> attributes, @JsonIgnore Map<String, String> extra) {
+
+    public TaskMessage {
+        extra = extra != null ? extra : Map.of();
+    }
+
+    public TaskMessage(String taskId, List<AttributeMessage> attributes) {
+        this(taskId, attributes, Map.of());
+    }
+
+    @JsonAnyGetter
+    Map<String, Object> extraFields() {
+        return ExtraFields.rendered(extra);
+    }
+}
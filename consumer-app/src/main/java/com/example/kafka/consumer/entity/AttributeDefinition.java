@@ -0,0 +1,60 @@
+package com.example.kafka.consumer.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Dictionary entry for an attribute name and type. Task attributes and their values reference it
+ * by its integer id instead of repeating the name and type as text on every row.
+ * Entries are only ever added, so ids can be cached for the lifetime of the process.
+ */
+@Entity
+@Table(name = "attribute_definitions", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_attribute_definitions_name_type", columnNames = {"attribute_name", "attribute_type"})
+})
+public class AttributeDefinition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "attribute_name", nullable = false)
+    private String name;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "attribute_type", nullable = false)
+    private AttributeType type;
+
+    public AttributeDefinition() {
+    }
+
+    public AttributeDefinition(Integer id, String name, AttributeType type) {
+        this.id = id;
+        this.name = name;
+        this.type = type;
+    }
+
+    // Getters and Setters
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public AttributeType getType() {
+        return type;
+    }
+
+    public void setType(AttributeType type) {
+        this.type = type;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.kafka.consumer.entity;
+
+import com.example.kafka.consumer.repository.AttributeDefinitionRegistry;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+
+/**
+ * Maps the transient name and type of task attributes read or saved through JPA to their
+ * definition_id and back (the consumer itself uses TaskJdbcRepository).
+ * Created by Hibernate through Spring's bean container.
+ */
+public class AttributeDefinitionListener {
+
+    private final AttributeDefinitionRegistry registry;
+
+    public AttributeDefinitionListener(AttributeDefinitionRegistry registry) {
+        this.registry = registry;
+    }
+
+    @PrePersist
+    void resolveDefinition(TaskAttribute attribute) {
+        attribute.setDefinitionId(registry.resolve(attribute.getName(), attribute.getType()));
+    }
+
+    @PostLoad
+    void loadDefinition(TaskAttribute attribute) {
+        AttributeDefinition definition = registry.get(attribute.getDefinitionId());
+        attribute.setName(definition.getName());
+        attribute.setType(definition.getType());
+    }
+}
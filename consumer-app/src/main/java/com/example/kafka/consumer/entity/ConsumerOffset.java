@@ -0,0 +1,116 @@
+package com.example.kafka.consumer.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+
+/**
+ * ConsumerOffset entity - next offset to consume per consumer group and partition.
+ * Written in the same transaction as the data a record produced (app.offsets.store=db),
+ * so the stored offset and the persisted data can never disagree.
+ */
+@Entity
+@Table(name = "consumer_offsets")
+@IdClass(ConsumerOffset.Key.class)
+public class ConsumerOffset {
+    
+    @Id
+    @Column(name = "group_id", nullable = false)
+    private String groupId;
+    
+    @Id
+    @Column(name = "topic", nullable = false)
+    private String topic;
+    
+    @Id
+    @Column(name = "partition", nullable = false)
+    private Integer partition;
+    
+    @Column(name = "next_offset", nullable = false)
+    private Long nextOffset;
+    
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+    
+    public ConsumerOffset() {
+    }
+    
+    // Getters and Setters
+    public String getGroupId() {
+        return groupId;
+    }
+    
+    public void setGroupId(String groupId) {
+        this.groupId = groupId;
+    }
+    
+    public String getTopic() {
+        return topic;
+    }
+    
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+    
+    public Integer getPartition() {
+        return partition;
+    }
+    
+    public void setPartition(Integer partition) {
+        this.partition = partition;
+    }
+    
+    public Long getNextOffset() {
+        return nextOffset;
+    }
+    
+    public void setNextOffset(Long nextOffset) {
+        this.nextOffset = nextOffset;
+    }
+    
+    public OffsetDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(OffsetDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
+    /**
+     * Composite primary key (group_id, topic, partition).
+     */
+    public static class Key implements Serializable {
+        
+        private String groupId;
+        private String topic;
+        private Integer partition;
+        
+        public Key() {
+        }
+        
+        public Key(String groupId, String topic, Integer partition) {
+            this.groupId = groupId;
+            this.topic = topic;
+            this.partition = partition;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return Objects.equals(groupId, key.groupId)
+                && Objects.equals(topic, key.topic)
+                && Objects.equals(partition, key.partition);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(groupId, topic, partition);
+        }
+    }
+}
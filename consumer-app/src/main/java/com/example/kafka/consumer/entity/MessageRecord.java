@@ -6,17 +6,20 @@ import java.time.OffsetDateTime;
 /**
  * MessageRecord entity for storing consumed messages and metadata.
  * Tracks received time and processing completion time.
+ * The table is range-partitioned by received_at (see MessageRecordPartitionRepository).
  */
 @Entity
 @Table(name = "message_records", indexes = {
     @Index(name = "idx_kafka_topic_partition", columnList = "kafka_topic,partition"),
     @Index(name = "idx_received_at", columnList = "received_at"),
-    @Index(name = "idx_message_key", columnList = "message_key")
+    @Index(name = "idx_message_key", columnList = "message_key"),
+    @Index(name = "idx_message_records_received_id", columnList = "received_at,id")
 })
 public class MessageRecord {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "message_records_seq")
+    @SequenceGenerator(name = "message_records_seq", sequenceName = "message_records_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "raw_message", columnDefinition = "TEXT")
@@ -14,7 +14,8 @@ import java.util.List;
 public class Task {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tasks_seq")
+    @SequenceGenerator(name = "tasks_seq", sequenceName = "tasks_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "task_id", unique = true)
@@ -26,6 +27,10 @@ public class Task {
     @Column(name = "created_at", nullable = false)
     private OffsetDateTime createdAt;
     
+    /** Producer version (outbox id) of the stored state; a redelivered older record is not applied. */
+    @Column(name = "source_version")
+    private Long sourceVersion;
+    
     @OneToMany(mappedBy = "task", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<TaskAttribute> attributes = new ArrayList<>();
     
@@ -78,6 +83,14 @@ public class Task {
         this.createdAt = createdAt;
     }
     
+    public Long getSourceVersion() {
+        return sourceVersion;
+    }
+    
+    public void setSourceVersion(Long sourceVersion) {
+        this.sourceVersion = sourceVersion;
+    }
+    
     public List<TaskAttribute> getAttributes() {
         return attributes;
     }
@@ -7,24 +7,31 @@ import java.util.List;
 /**
  * TaskAttribute entity representing an attribute of a task.
  * One task attribute can have multiple values.
+ * Name and type are stored as a reference to their attribute_definitions entry (definition_id).
  */
 @Entity
-@Table(name = "task_attributes")
+@EntityListeners(AttributeDefinitionListener.class)
+@Table(name = "task_attributes", indexes = {
+    @Index(name = "idx_task_attributes_task_id", columnList = "task_id")
+})
 public class TaskAttribute {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_attributes_seq")
+    @SequenceGenerator(name = "task_attributes_seq", sequenceName = "task_attributes_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "task_id", nullable = false)
     private Task task;
     
-    @Column(name = "attribute_name", nullable = false)
+    @Column(name = "definition_id", nullable = false)
+    private Integer definitionId;
+    
+    @Transient
     private String name;
     
-    @Enumerated(EnumType.STRING)
-    @Column(name = "attribute_type", nullable = false)
+    @Transient
     private AttributeType type;
     
     @OneToMany(mappedBy = "attribute", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -61,6 +68,14 @@ public class TaskAttribute {
         this.task = task;
     }
     
+    public Integer getDefinitionId() {
+        return definitionId;
+    }
+    
+    public void setDefinitionId(Integer definitionId) {
+        this.definitionId = definitionId;
+    }
+    
     public String getName() {
         return name;
     }
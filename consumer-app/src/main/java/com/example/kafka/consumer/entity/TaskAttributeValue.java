@@ -7,19 +7,28 @@ import java.time.OffsetDateTime;
 /**
  * TaskAttributeValue entity representing a value of a task attribute.
  * Uses polymorphic storage - different columns for different types.
+ * The attribute's definition_id is repeated on every value, so typed searches run on one
+ * (definition_id, &lt;typed column&gt;) index without joining task_attributes first.
  */
 @Entity
-@Table(name = "task_attribute_values")
+@Table(name = "task_attribute_values", indexes = {
+    @Index(name = "idx_attribute_values_attribute_id", columnList = "attribute_id")
+})
 public class TaskAttributeValue {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_attribute_values_seq")
+    @SequenceGenerator(name = "task_attribute_values_seq", sequenceName = "task_attribute_values_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "attribute_id", nullable = false)
     private TaskAttribute attribute;
     
+    /** Copy of task_attributes.definition_id. */
+    @Column(name = "definition_id", nullable = false)
+    private Integer definitionId;
+    
     // Different value columns based on type
     @Column(name = "string_value")
     private String stringValue;
@@ -79,6 +88,13 @@ public class TaskAttributeValue {
         return v;
     }
     
+    @PrePersist
+    void copyDefinitionId() {
+        if (attribute != null) {
+            definitionId = attribute.getDefinitionId();
+        }
+    }
+    
     // Getters and Setters
     public Long getId() {
         return id;
@@ -96,6 +112,14 @@ public class TaskAttributeValue {
         this.attribute = attribute;
     }
     
+    public Integer getDefinitionId() {
+        return definitionId;
+    }
+    
+    public void setDefinitionId(Integer definitionId) {
+        this.definitionId = definitionId;
+    }
+    
     public String getStringValue() {
         return stringValue;
     }
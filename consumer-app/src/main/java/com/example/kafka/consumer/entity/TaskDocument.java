@@ -0,0 +1,120 @@
+package com.example.kafka.consumer.entity;
+
+import jakarta.persistence.*;
+import java.time.OffsetDateTime;
+
+/**
+ * TaskDocument entity - one row per task holding its whole attribute set as a binary (Smile)
+ * document, written with a single statement (app.persistence.mode=document).
+ * The normalized tables are an optional projection of these rows: {@code projected} is reset on
+ * every write and set again once the projector has applied the version. A version the projector
+ * could not apply keeps its error in {@code projection_error} and is skipped until it is rewritten.
+ */
+@Entity
+@Table(name = "task_documents", indexes = {
+    @Index(name = "idx_task_documents_projected", columnList = "projected, updated_at")
+})
+public class TaskDocument {
+
+    @Id
+    @Column(name = "task_id")
+    private String taskId;
+
+    @Column(name = "document", nullable = false)
+    private byte[] document;
+
+    @Column(name = "attribute_count", nullable = false)
+    private int attributeCount;
+
+    @Column(name = "version", nullable = false)
+    private Long version = 1L;
+
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+
+    @Column(name = "projected", nullable = false)
+    private boolean projected;
+
+    /** Producer version (outbox id) of the document; an older redelivered record does not replace it. */
+    @Column(name = "source_version")
+    private Long sourceVersion;
+
+    @Column(name = "projection_error", length = 1000)
+    private String projectionError;
+
+    public TaskDocument() {
+        this.updatedAt = OffsetDateTime.now();
+    }
+
+    public TaskDocument(String taskId, byte[] document, int attributeCount) {
+        this();
+        this.taskId = taskId;
+        this.document = document;
+        this.attributeCount = attributeCount;
+    }
+
+    // Getters and Setters
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public void setTaskId(String taskId) {
+        this.taskId = taskId;
+    }
+
+    public byte[] getDocument() {
+        return document;
+    }
+
+    public void setDocument(byte[] document) {
+        this.document = document;
+    }
+
+    public int getAttributeCount() {
+        return attributeCount;
+    }
+
+    public void setAttributeCount(int attributeCount) {
+        this.attributeCount = attributeCount;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public OffsetDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(OffsetDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public boolean isProjected() {
+        return projected;
+    }
+
+    public void setProjected(boolean projected) {
+        this.projected = projected;
+    }
+
+    public Long getSourceVersion() {
+        return sourceVersion;
+    }
+
+    public void setSourceVersion(Long sourceVersion) {
+        this.sourceVersion = sourceVersion;
+    }
+
+    public String getProjectionError() {
+        return projectionError;
+    }
+
+    public void setProjectionError(String projectionError) {
+        this.projectionError = projectionError;
+    }
+}
@@ -11,7 +11,9 @@ import java.time.OffsetDateTime;
 @Entity
 @Table(name = "task_snapshots", indexes = {
     @Index(name = "idx_task_id", columnList = "task_id", unique = true),
-    @Index(name = "idx_updated_at", columnList = "updated_at")
+    @Index(name = "idx_updated_at", columnList = "updated_at"),
+    // Keyset paging of the query API
+    @Index(name = "idx_updated_at_id", columnList = "updated_at, id")
 })
 public class TaskSnapshot {
     
@@ -40,6 +42,10 @@ public class TaskSnapshot {
     @Column(name = "kafka_partition")
     private Integer kafkaPartition;
     
+    /** Producer-side version of the snapshot (sourceVersion in the payload), if it carries one. */
+    @Column(name = "source_version")
+    private Long sourceVersion;
+    
     public TaskSnapshot() {
         this.createdAt = OffsetDateTime.now();
         this.updatedAt = OffsetDateTime.now();
@@ -121,4 +127,12 @@ public class TaskSnapshot {
     public void setKafkaPartition(Integer kafkaPartition) {
         this.kafkaPartition = kafkaPartition;
     }
+
+    public Long getSourceVersion() {
+        return sourceVersion;
+    }
+
+    public void setSourceVersion(Long sourceVersion) {
+        this.sourceVersion = sourceVersion;
+    }
 }
@@ -0,0 +1,153 @@
+package com.example.kafka.consumer.repository;
+
+import com.example.kafka.consumer.entity.AttributeDefinition;
+import com.example.kafka.consumer.entity.AttributeType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process cache of the attribute_definitions dictionary: name + type to id for writes and
+ * searches, id to definition for reads. The table is loaded once on startup; a name not seen
+ * before is added with INSERT ... ON CONFLICT DO NOTHING, so pods adding the same name concurrently
+ * end up with the same id.
+ * A new entry is inserted on the caller's connection, inside its transaction, and only cached once
+ * that transaction has committed: a rollback cannot leave an id in the cache that does not exist in
+ * the table. (A separate transaction would need a second pool connection while the caller holds
+ * one, which deadlocks the pool when every connection belongs to a task transaction.)
+ */
+@Repository
+public class AttributeDefinitionRegistry implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttributeDefinitionRegistry.class);
+
+    private static final String SELECT_ALL_SQL = "SELECT id, attribute_name, attribute_type FROM attribute_definitions";
+
+    private static final String SELECT_BY_ID_SQL = SELECT_ALL_SQL + " WHERE id = ?";
+
+    private static final String SELECT_BY_KEY_SQL = SELECT_ALL_SQL + " WHERE attribute_name = ? AND attribute_type = ?";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO attribute_definitions (attribute_name, attribute_type) VALUES (?, ?) " +
+        "ON CONFLICT (attribute_name, attribute_type) DO NOTHING";
+
+    private static final RowMapper<AttributeDefinition> ROW_MAPPER = (rs, rowNum) -> new AttributeDefinition(
+        rs.getInt("id"), rs.getString("attribute_name"), AttributeType.valueOf(rs.getString("attribute_type")));
+
+    private record Key(String name, AttributeType type) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Key, AttributeDefinition> byKey = new ConcurrentHashMap<>();
+    private final Map<Integer, AttributeDefinition> byId = new ConcurrentHashMap<>();
+
+    public AttributeDefinitionRegistry(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Runs after the EntityManagerFactory (ddl-auto) has created the table.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        jdbcTemplate.query(SELECT_ALL_SQL, ROW_MAPPER).forEach(this::cache);
+        logger.info("Loaded {} attribute definitions", byId.size());
+    }
+
+    /**
+     * Id of the given name and type, added to the dictionary if it is not there yet.
+     */
+    public int resolve(String name, AttributeType type) {
+        Key key = new Key(name, type);
+        AttributeDefinition definition = byKey.get(key);
+        if (definition != null) {
+            return definition.getId();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+            Map<Key, AttributeDefinition> uncommitted = uncommitted();
+            definition = uncommitted.get(key);
+            if (definition == null) {
+                definition = insert(name, type);
+                uncommitted.put(key, definition);
+            }
+            return definition.getId();
+        }
+        definition = transactionTemplate.execute(status -> insert(name, type));
+        return cache(definition).getId();
+    }
+
+    private AttributeDefinition insert(String name, AttributeType type) {
+        jdbcTemplate.update(INSERT_SQL, name, type.name());
+        AttributeDefinition definition = jdbcTemplate.queryForObject(SELECT_BY_KEY_SQL, ROW_MAPPER, name, type.name());
+        logger.debug("Attribute definition {} ({}) has id {}", name, type, definition.getId());
+        return definition;
+    }
+
+    /**
+     * Definitions added by the current transaction, cached when it commits and dropped when it rolls back.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Key, AttributeDefinition> uncommitted() {
+        Map<Key, AttributeDefinition> uncommitted = (Map<Key, AttributeDefinition>) TransactionSynchronizationManager.getResource(this);
+        if (uncommitted == null) {
+            Map<Key, AttributeDefinition> added = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, added);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AttributeDefinitionRegistry.this);
+                    if (status == STATUS_COMMITTED) {
+                        added.values().forEach(AttributeDefinitionRegistry.this::cache);
+                    }
+                }
+            });
+            uncommitted = added;
+        }
+        return uncommitted;
+    }
+
+    /**
+     * Id of the given name and type if it is in the dictionary, without adding it.
+     */
+    public Optional<Integer> find(String name, AttributeType type) {
+        AttributeDefinition definition = byKey.get(new Key(name, type));
+        if (definition == null) {
+            List<AttributeDefinition> found = jdbcTemplate.query(SELECT_BY_KEY_SQL, ROW_MAPPER, name, type.name());
+            definition = found.isEmpty() ? null : cache(found.get(0));
+        }
+        return Optional.ofNullable(definition).map(AttributeDefinition::getId);
+    }
+
+    /**
+     * Definition with the given id; ids written by another pod are loaded on first use.
+     */
+    public AttributeDefinition get(int id) {
+        AttributeDefinition definition = byId.get(id);
+        if (definition == null) {
+            definition = cache(jdbcTemplate.queryForObject(SELECT_BY_ID_SQL, ROW_MAPPER, id));
+        }
+        return definition;
+    }
+
+    private AttributeDefinition cache(AttributeDefinition definition) {
+        byKey.putIfAbsent(new Key(definition.getName(), definition.getType()), definition);
+        byId.putIfAbsent(definition.getId(), definition);
+        return definition;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.kafka.consumer.repository;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC repository for the consumer_offsets table (see {@link com.example.kafka.consumer.entity.ConsumerOffset}).
+ */
+@Repository
+public class ConsumerOffsetJdbcRepository {
+
+    private static final String UPSERT_SQL =
+        "INSERT INTO consumer_offsets (group_id, topic, partition, next_offset, updated_at) VALUES (?, ?, ?, ?, ?) " +
+        "ON CONFLICT (group_id, topic, partition) DO UPDATE SET " +
+        "next_offset = EXCLUDED.next_offset, updated_at = EXCLUDED.updated_at";
+
+    private static final String FIND_SQL =
+        "SELECT topic, partition, next_offset FROM consumer_offsets WHERE group_id = ? AND topic = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ConsumerOffsetJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void save(String groupId, String topic, int partition, long nextOffset) {
+        jdbcTemplate.update(UPSERT_SQL, groupId, topic, partition, nextOffset, OffsetDateTime.now());
+    }
+
+    public void saveAll(String groupId, Map<TopicPartition, Long> nextOffsets) {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<Map.Entry<TopicPartition, Long>> entries = new ArrayList<>(nextOffsets.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setString(1, groupId);
+            ps.setString(2, entry.getKey().topic());
+            ps.setInt(3, entry.getKey().partition());
+            ps.setLong(4, entry.getValue());
+            ps.setObject(5, now);
+        });
+    }
+
+    /**
+     * Returns the stored next offsets of the group for the given partitions; partitions without a row are absent.
+     */
+    public Map<TopicPartition, Long> findAll(String groupId, Collection<TopicPartition> partitions) {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        partitions.stream().map(TopicPartition::topic).distinct().forEach(topic ->
+            jdbcTemplate.query(FIND_SQL, rs -> {
+                TopicPartition partition = new TopicPartition(rs.getString("topic"), rs.getInt("partition"));
+                if (partitions.contains(partition)) {
+                    offsets.put(partition, rs.getLong("next_offset"));
+                }
+            }, groupId, topic));
+        return offsets;
+    }
+}
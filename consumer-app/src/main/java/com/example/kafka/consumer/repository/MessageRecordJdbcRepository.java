@@ -0,0 +1,90 @@
+package com.example.kafka.consumer.repository;
+
+import com.example.kafka.consumer.entity.MessageRecord;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * JDBC repository for batched inserts into message_records and keyset-paged listings of recent
+ * records (without raw_message). Listings always carry a received_at lower bound, so only the
+ * partitions of that period are read.
+ */
+@Repository
+public class MessageRecordJdbcRepository {
+
+    private static final String INSERT_SQL =
+        "INSERT INTO message_records (id, raw_message, received_at, processed_at, kafka_topic, partition, " +
+        "offset_value, message_key, processing_duration_ms) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String RECENT_SQL =
+        "SELECT id, kafka_topic, partition, offset_value, message_key, received_at, processed_at, processing_duration_ms " +
+        "FROM message_records WHERE received_at >= ?";
+
+    /**
+     * A message_records row without its payload.
+     */
+    public record MessageSummary(long id, String topic, Integer partition, Long offset, String key,
+                                 OffsetDateTime receivedAt, OffsetDateTime processedAt, Long processingDurationMs) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SequenceIdAllocator idAllocator;
+
+    public MessageRecordJdbcRepository(JdbcTemplate jdbcTemplate, SequenceIdAllocator idAllocator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.idAllocator = idAllocator;
+    }
+
+    public void insertAll(List<MessageRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        Iterator<Long> ids = idAllocator.allocate("message_records_seq", records.size()).iterator();
+        records.forEach(record -> record.setId(ids.next()));
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, records, records.size(), (ps, record) -> {
+            ps.setLong(1, record.getId());
+            ps.setString(2, record.getRawMessage());
+            ps.setObject(3, record.getReceivedAt());
+            ps.setObject(4, record.getProcessedAt());
+            ps.setString(5, record.getKafkaTopic());
+            ps.setObject(6, record.getPartition(), Types.INTEGER);
+            ps.setObject(7, record.getOffsetValue(), Types.BIGINT);
+            ps.setString(8, record.getMessageKey());
+            ps.setObject(9, record.getProcessingDurationMs(), Types.BIGINT);
+        });
+    }
+
+    /**
+     * Records received since {@code since}, newest first; the next page starts after the
+     * (receivedAt, id) of the last record of the previous one.
+     */
+    public List<MessageSummary> findRecent(OffsetDateTime since, String topic,
+                                           OffsetDateTime afterReceivedAt, Long afterId, int limit) {
+        StringBuilder sql = new StringBuilder(RECENT_SQL);
+        List<Object> args = new ArrayList<>();
+        args.add(since);
+        if (topic != null) {
+            sql.append(" AND kafka_topic = ?");
+            args.add(topic);
+        }
+        if (afterReceivedAt != null && afterId != null) {
+            sql.append(" AND (received_at, id) < (?, ?)");
+            args.add(afterReceivedAt);
+            args.add(afterId);
+        }
+        sql.append(" ORDER BY received_at DESC, id DESC LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new MessageSummary(
+            rs.getLong("id"), rs.getString("kafka_topic"), rs.getObject("partition", Integer.class),
+            rs.getObject("offset_value", Long.class), rs.getString("message_key"),
+            rs.getObject("received_at", OffsetDateTime.class), rs.getObject("processed_at", OffsetDateTime.class),
+            rs.getObject("processing_duration_ms", Long.class)), args.toArray());
+    }
+}
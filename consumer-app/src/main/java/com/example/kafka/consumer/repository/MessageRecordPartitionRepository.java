@@ -0,0 +1,189 @@
+package com.example.kafka.consumer.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Daily range partitions of message_records by received_at (app.audit.partitioning.enabled, PostgreSQL).
+ * On startup a plain message_records table (as created by ddl-auto) is turned into a partitioned one:
+ * the existing table is renamed to message_records_legacy and attached as the partition of everything
+ * before the next UTC midnight, or dropped if empty. {@link #maintain} then keeps daily partitions
+ * message_records_pYYYYMMDD ready for the coming days and drops the partitions that are entirely
+ * older than the retention, which removes expired records without a DELETE.
+ * Records outside every daily partition (maintenance fell behind, or a clock ahead of premake-days)
+ * land in message_records_default instead of failing their insert; they are moved out when the
+ * partition of their day is created, and deleted from it once past the retention.
+ * The partitioned table has no primary key (it would have to include received_at); ids stay unique
+ * through message_records_seq.
+ */
+@Repository
+public class MessageRecordPartitionRepository implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageRecordPartitionRepository.class);
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    /** Serializes conversion and maintenance between pods (pg_advisory_xact_lock key). */
+    private static final String LOCK_SQL = "SELECT pg_advisory_xact_lock(hashtext('message_records_partitions'))";
+
+    /**
+     * Converts a plain message_records table. A large table is scanned by the ATTACH (under an exclusive
+     * lock): validate its range ahead of the deployment with message-records-partitioning-migration.sql.
+     */
+    private static final String CONVERT_SQL =
+        "DO $$ DECLARE legacy_until timestamptz; index_name text; BEGIN " +
+        "IF (SELECT relkind FROM pg_class WHERE oid = to_regclass('message_records')) IS DISTINCT FROM 'r' THEN RETURN; END IF; " +
+        "LOCK TABLE message_records IN ACCESS EXCLUSIVE MODE; " +
+        "ALTER TABLE message_records RENAME TO message_records_legacy; " +
+        "FOR index_name IN SELECT indexname FROM pg_indexes WHERE schemaname = current_schema() " +
+        "AND tablename = 'message_records_legacy' LOOP " +
+        "EXECUTE format('ALTER INDEX %I RENAME TO %I', index_name, left(index_name, 55) || '_legacy'); " +
+        "END LOOP; " +
+        "CREATE TABLE message_records (LIKE message_records_legacy INCLUDING DEFAULTS) PARTITION BY RANGE (received_at); " +
+        "IF NOT EXISTS (SELECT 1 FROM message_records_legacy) THEN " +
+        "DROP TABLE message_records_legacy; " +
+        "ELSE " +
+        "SELECT date_trunc('day', GREATEST(MAX(received_at), now()), 'UTC') + interval '1 day' INTO legacy_until " +
+        "FROM message_records_legacy; " +
+        "EXECUTE format('ALTER TABLE message_records ATTACH PARTITION message_records_legacy " +
+        "FOR VALUES FROM (MINVALUE) TO (%L)', legacy_until); " +
+        "END IF; " +
+        "CREATE TABLE IF NOT EXISTS message_records_default PARTITION OF message_records DEFAULT; " +
+        "CREATE INDEX IF NOT EXISTS idx_kafka_topic_partition ON message_records (kafka_topic, partition); " +
+        "CREATE INDEX IF NOT EXISTS idx_received_at ON message_records (received_at); " +
+        "CREATE INDEX IF NOT EXISTS idx_message_key ON message_records (message_key); " +
+        "CREATE INDEX IF NOT EXISTS idx_message_records_received_id ON message_records (received_at, id); " +
+        "END $$";
+
+    /** Catch-all partition of the records no daily partition covers. */
+    private static final String DEFAULT_PARTITION = "message_records_default";
+
+    /** Partitions with their upper bound, parsed from the partition bound expression (null for the default). */
+    private static final String PARTITIONS_SQL =
+        "SELECT c.relname AS name, " +
+        "(regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \\(''([^'']+)''\\)'))[1]::timestamptz AS upper_bound " +
+        "FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+        "WHERE i.inhparent = to_regclass('message_records') ORDER BY upper_bound";
+
+    private record Partition(String name, OffsetDateTime upperBound) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int retentionDays;
+    private final int premakeDays;
+
+    public MessageRecordPartitionRepository(JdbcTemplate jdbcTemplate,
+                                            PlatformTransactionManager transactionManager,
+                                            @Value("${app.audit.partitioning.enabled:true}") boolean enabled,
+                                            @Value("${app.audit.partitioning.retention-days:7}") int retentionDays,
+                                            @Value("${app.audit.partitioning.premake-days:2}") int premakeDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.retentionDays = retentionDays;
+        this.premakeDays = premakeDays;
+    }
+
+    /**
+     * Runs after the EntityManagerFactory (ddl-auto) has created the table, before the listeners start,
+     * so that the first records already have a partition.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.query(LOCK_SQL, rs -> { });
+            jdbcTemplate.execute(CONVERT_SQL);
+        });
+        logger.info("message_records partitioned by received_at ({} ms)", System.currentTimeMillis() - startTime);
+        maintain();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Creates the partitions up to premake-days ahead, with the records of their day moved out of the
+     * default partition, and drops those past the retention.
+     *
+     * @return number of partitions dropped
+     */
+    public int maintain() {
+        Integer dropped = transactionTemplate.execute(status -> {
+            jdbcTemplate.query(LOCK_SQL, rs -> { });
+            // Tables converted before the default partition existed
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + DEFAULT_PARTITION + " PARTITION OF message_records DEFAULT");
+            List<Partition> partitions = jdbcTemplate.query(PARTITIONS_SQL, (rs, rowNum) ->
+                new Partition(rs.getString("name"), rs.getObject("upper_bound", OffsetDateTime.class)));
+
+            LocalDate today = LocalDate.now(ZoneOffset.UTC);
+            LocalDate day = partitions.stream()
+                .map(Partition::upperBound)
+                .filter(bound -> bound != null)
+                .reduce((first, second) -> second)
+                .map(bound -> bound.withOffsetSameInstant(ZoneOffset.UTC).toLocalDate())
+                .orElse(today);
+            for (; !day.isAfter(today.plusDays(premakeDays)); day = day.plusDays(1)) {
+                createPartition(day);
+            }
+
+            OffsetDateTime expiry = today.minusDays(retentionDays).atStartOfDay().atOffset(ZoneOffset.UTC);
+            int expired = jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE received_at < ?", expiry);
+            if (expired > 0) {
+                logger.info("Deleted {} expired records from {}", expired, DEFAULT_PARTITION);
+            }
+            int count = 0;
+            for (Partition partition : partitions) {
+                if (partition.upperBound() != null && !partition.upperBound().isAfter(expiry)) {
+                    jdbcTemplate.execute("DROP TABLE \"" + partition.name() + "\"");
+                    logger.info("Dropped message_records partition {} (records before {})",
+                        partition.name(), partition.upperBound());
+                    count++;
+                }
+            }
+            return count;
+        });
+        return dropped != null ? dropped : 0;
+    }
+
+    /**
+     * Creates the partition of {@code day}. A day's range cannot be attached while the default partition
+     * still holds records of it, so the partition is built as a plain table, those records are moved
+     * into it and it is attached afterwards (the ATTACH scans only the default partition, usually empty).
+     */
+    private void createPartition(LocalDate day) {
+        String name = "message_records_p" + day.format(PARTITION_SUFFIX);
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name);
+        if (Boolean.TRUE.equals(exists)) {
+            return;
+        }
+        OffsetDateTime from = day.atStartOfDay().atOffset(ZoneOffset.UTC);
+        OffsetDateTime to = from.plusDays(1);
+        jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE message_records INCLUDING DEFAULTS)");
+        int moved = jdbcTemplate.update(
+            "WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE received_at >= ? AND received_at < ? RETURNING *) " +
+            "INSERT INTO " + name + " SELECT * FROM moved", from, to);
+        jdbcTemplate.execute(String.format(
+            "ALTER TABLE message_records ATTACH PARTITION %s FOR VALUES FROM ('%sT00:00:00Z') TO ('%sT00:00:00Z')",
+            name, day, day.plusDays(1)));
+        logger.info("Created message_records partition for {} ({} records moved from {})", day, moved, DEFAULT_PARTITION);
+    }
+}
@@ -2,20 +2,16 @@ package com.example.kafka.consumer.repository;
 
 import com.example.kafka.consumer.entity.MessageRecord;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
-import java.time.OffsetDateTime;
 import java.util.List;
 
+/**
+ * Statistics and recent listings are served from message_rollups ({@link MessageRollupJdbcRepository})
+ * and keyset pages ({@link MessageRecordJdbcRepository#findRecent}) instead of queries over the whole table.
+ */
 @Repository
 public interface MessageRecordRepository extends JpaRepository<MessageRecord, Long> {
     
     List<MessageRecord> findByKafkaTopicAndPartition(String topic, Integer partition);
-    
-    @Query("SELECT m FROM MessageRecord m WHERE m.receivedAt >= :since ORDER BY m.receivedAt DESC")
-    List<MessageRecord> findRecentMessages(OffsetDateTime since);
-    
-    @Query("SELECT AVG(m.processingDurationMs) FROM MessageRecord m WHERE m.processingDurationMs IS NOT NULL")
-    Double getAverageProcessingDuration();
 }
@@ -0,0 +1,133 @@
+package com.example.kafka.consumer.repository;
+
+import com.example.kafka.consumer.entity.MessageRollup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC repository for the message_rollups table (see {@link MessageRollup}).
+ * Rollups are merged into the stored minute with one multi-row INSERT ... ON CONFLICT DO UPDATE:
+ * counts and sums are added, min/max combined and the sparse histograms added bucket by bucket.
+ */
+@Repository
+public class MessageRollupJdbcRepository {
+
+    /** Rows per statement, well below the 65535 bind parameters PostgreSQL accepts. */
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private static final String MERGE_PREFIX =
+        "INSERT INTO message_rollups (bucket_start, kafka_topic, partition, message_count, processed_count, " +
+        "duration_sum, duration_min, duration_max, duration_histogram, updated_at) VALUES ";
+
+    private static final String MERGE_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, CAST(? AS jsonb), ?)";
+
+    private static final String MERGE_SUFFIX =
+        " ON CONFLICT (bucket_start, kafka_topic, partition) DO UPDATE SET " +
+        "message_count = message_rollups.message_count + EXCLUDED.message_count, " +
+        "processed_count = message_rollups.processed_count + EXCLUDED.processed_count, " +
+        "duration_sum = message_rollups.duration_sum + EXCLUDED.duration_sum, " +
+        "duration_min = LEAST(message_rollups.duration_min, EXCLUDED.duration_min), " +
+        "duration_max = GREATEST(message_rollups.duration_max, EXCLUDED.duration_max), " +
+        "duration_histogram = (SELECT COALESCE(jsonb_object_agg(h.key, h.total), '{}'::jsonb) FROM (" +
+        "SELECT key, SUM(value::bigint) AS total FROM (" +
+        "SELECT * FROM jsonb_each_text(message_rollups.duration_histogram) " +
+        "UNION ALL SELECT * FROM jsonb_each_text(EXCLUDED.duration_histogram)) b GROUP BY key) h), " +
+        "updated_at = EXCLUDED.updated_at";
+
+    private static final String RANGE_CONDITION = " WHERE bucket_start >= ? AND bucket_start < ?";
+
+    private static final String TOPIC_CONDITION = " AND kafka_topic = ?";
+
+    private static final String TOTALS_SQL =
+        "SELECT kafka_topic, partition, SUM(message_count) AS message_count, SUM(processed_count) AS processed_count, " +
+        "SUM(duration_sum) AS duration_sum, MIN(duration_min) AS duration_min, MAX(duration_max) AS duration_max " +
+        "FROM message_rollups";
+
+    private static final String HISTOGRAM_SQL =
+        "SELECT kafka_topic, partition, h.key AS bucket, SUM(h.value::bigint) AS total " +
+        "FROM message_rollups, jsonb_each_text(duration_histogram) h";
+
+    private static final String DELETE_BEFORE_SQL = "DELETE FROM message_rollups WHERE bucket_start < ?";
+
+    /**
+     * Rollups of one topic partition summed over a time range; histogram maps bucket to count.
+     */
+    public record RollupTotals(String topic, int partition, long messageCount, long processedCount,
+                               long durationSum, Long durationMin, Long durationMax, Map<Integer, Long> histogram) {
+    }
+
+    private record Key(String topic, int partition) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MessageRollupJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds the given rollups to the stored ones, one statement per {@value #MAX_ROWS_PER_STATEMENT} rows.
+     * The list must not contain the same minute, topic and partition twice.
+     */
+    public void mergeAll(List<MessageRollup> rollups) {
+        OffsetDateTime now = OffsetDateTime.now();
+        for (int from = 0; from < rollups.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<MessageRollup> chunk = rollups.subList(from, Math.min(rollups.size(), from + MAX_ROWS_PER_STATEMENT));
+            String sql = MERGE_PREFIX + String.join(", ", Collections.nCopies(chunk.size(), MERGE_ROW)) + MERGE_SUFFIX;
+            jdbcTemplate.update(sql, ps -> {
+                int index = 1;
+                for (MessageRollup rollup : chunk) {
+                    ps.setObject(index++, rollup.getBucketStart());
+                    ps.setString(index++, rollup.getKafkaTopic());
+                    ps.setInt(index++, rollup.getPartition());
+                    ps.setLong(index++, rollup.getMessageCount());
+                    ps.setLong(index++, rollup.getProcessedCount());
+                    ps.setLong(index++, rollup.getDurationSum());
+                    ps.setObject(index++, rollup.getDurationMin(), Types.BIGINT);
+                    ps.setObject(index++, rollup.getDurationMax(), Types.BIGINT);
+                    ps.setString(index++, rollup.getDurationHistogram());
+                    ps.setObject(index++, now);
+                }
+            });
+        }
+    }
+
+    /**
+     * Totals per topic partition of the minutes in [from, to), optionally of a single topic.
+     */
+    public List<RollupTotals> findTotals(OffsetDateTime from, OffsetDateTime to, String topic) {
+        String condition = RANGE_CONDITION + (topic != null ? TOPIC_CONDITION : "");
+        Object[] args = topic != null ? new Object[]{from, to, topic} : new Object[]{from, to};
+
+        Map<Key, Map<Integer, Long>> histograms = new LinkedHashMap<>();
+        jdbcTemplate.query(HISTOGRAM_SQL + condition + " GROUP BY kafka_topic, partition, h.key", rs -> {
+            histograms.computeIfAbsent(new Key(rs.getString("kafka_topic"), rs.getInt("partition")), key -> new LinkedHashMap<>())
+                .put(Integer.parseInt(rs.getString("bucket")), rs.getLong("total"));
+        }, args);
+
+        List<RollupTotals> totals = new ArrayList<>();
+        jdbcTemplate.query(TOTALS_SQL + condition + " GROUP BY kafka_topic, partition ORDER BY kafka_topic, partition", rs -> {
+            Key key = new Key(rs.getString("kafka_topic"), rs.getInt("partition"));
+            totals.add(new RollupTotals(key.topic(), key.partition(),
+                rs.getLong("message_count"), rs.getLong("processed_count"), rs.getLong("duration_sum"),
+                rs.getObject("duration_min", Long.class), rs.getObject("duration_max", Long.class),
+                histograms.getOrDefault(key, Map.of())));
+        }, args);
+        return totals;
+    }
+
+    /**
+     * @return number of rollups deleted
+     */
+    public int deleteBefore(OffsetDateTime before) {
+        return jdbcTemplate.update(DELETE_BEFORE_SQL, before);
+    }
+}
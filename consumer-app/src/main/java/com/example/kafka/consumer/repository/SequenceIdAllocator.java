@@ -0,0 +1,55 @@
+package com.example.kafka.consumer.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Allocates primary keys for JDBC batch inserts from the entity sequences, so rows can be
+ * inserted (and referenced by child rows) without reading generated keys back.
+ * The sequences are shared with Hibernate's pooled optimizer: a sequence value {@code v}
+ * reserves the block {@code [v - ALLOCATION_SIZE + 1, v]}, so both writers can use the
+ * same sequence without handing out the same id twice.
+ */
+@Component
+public class SequenceIdAllocator {
+
+    /**
+     * Increment of the entity sequences; must match the allocationSize of their @SequenceGenerator.
+     */
+    public static final int ALLOCATION_SIZE = 50;
+
+    private static final String NEXT_VALUES_SQL = "SELECT nextval(?) FROM generate_series(1, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SequenceIdAllocator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Returns {@code count} fresh ids from the given sequence, usually in a single round-trip.
+     */
+    public List<Long> allocate(String sequence, int count) {
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            int blocks = (count - ids.size() + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE;
+            for (Long hi : jdbcTemplate.queryForList(NEXT_VALUES_SQL, Long.class, sequence, blocks)) {
+                // The first value of a fresh sequence is treated as a block start by Hibernate; skip it
+                if (hi < ALLOCATION_SIZE) {
+                    continue;
+                }
+                for (long id = hi - ALLOCATION_SIZE + 1; id <= hi && ids.size() < count; id++) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.kafka.consumer.repository;
+
+import com.example.kafka.consumer.entity.AttributeType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Typed search over the normalized task tables: the values of one attribute within an optional
+ * [min, max] range of the column that holds its {@link AttributeType}, keyset-paged by (value, value id).
+ * <p>
+ * The attribute is looked up in the attribute_definitions dictionary; every searchable type has a
+ * partial index (definition_id, &lt;typed column&gt;, id) over the rows that use the column. A page is one range scan of that index in index order, so neither the range nor
+ * the page depth causes a sort or a scan of skipped rows. tasks and task_attributes are only
+ * joined for the rows returned.
+ */
+@Repository
+public class TaskAttributeSearchRepository implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskAttributeSearchRepository.class);
+
+    /**
+     * The advisory lock makes concurrently starting pods build each index once. Building locks
+     * task_attribute_values against writes: create the indexes ahead of the deployment on a large
+     * table with task-attribute-definitions-migration.sql.
+     */
+    private static final String CREATE_INDEXES_SQL =
+        "DO $$ BEGIN " +
+        "PERFORM pg_advisory_xact_lock(hashtext('task_attribute_values_search')); " +
+        "CREATE INDEX IF NOT EXISTS idx_attribute_values_def_string ON task_attribute_values " +
+        "(definition_id, string_value, id) WHERE string_value IS NOT NULL; " +
+        "CREATE INDEX IF NOT EXISTS idx_attribute_values_def_numeric ON task_attribute_values " +
+        "(definition_id, numeric_value, id) WHERE numeric_value IS NOT NULL; " +
+        "CREATE INDEX IF NOT EXISTS idx_attribute_values_def_date ON task_attribute_values " +
+        "(definition_id, date_value, id) WHERE date_value IS NOT NULL; " +
+        "CREATE INDEX IF NOT EXISTS idx_attribute_values_def_boolean ON task_attribute_values " +
+        "(definition_id, boolean_value, id) WHERE boolean_value IS NOT NULL; " +
+        "CREATE INDEX IF NOT EXISTS idx_attribute_values_def_entity ON task_attribute_values " +
+        "(definition_id, entity_ref, id) WHERE entity_ref IS NOT NULL; " +
+        "END $$";
+
+    /** %1$s is the typed column; the conditions are appended in index column order. */
+    private static final String SEARCH_SQL =
+        "SELECT v.id, v.%1$s AS value, t.task_id " +
+        "FROM (SELECT id, attribute_id, %1$s FROM task_attribute_values " +
+        "WHERE definition_id = ? AND %1$s IS NOT NULL%2$s ORDER BY %1$s, id LIMIT ?) v " +
+        "JOIN task_attributes a ON a.id = v.attribute_id " +
+        "JOIN tasks t ON t.id = a.task_id " +
+        "ORDER BY v.%1$s, v.id";
+
+    /**
+     * One search: min and max are inclusive and optional; after is the position of the previous
+     * page's last hit (both null for the first page). Values are of the type's Java class
+     * ({@link #valueClass(AttributeType)}).
+     */
+    public record AttributeSearch(String attribute, AttributeType type, Object min, Object max,
+                                  Object afterValue, Long afterId, int limit) {
+    }
+
+    /**
+     * One matching value; a task with several matching values has several hits.
+     */
+    public record AttributeHit(long valueId, String taskId, Object value) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AttributeDefinitionRegistry definitionRegistry;
+    private final boolean createIndexes;
+
+    public TaskAttributeSearchRepository(JdbcTemplate jdbcTemplate,
+                                         AttributeDefinitionRegistry definitionRegistry,
+                                         @Value("${app.attribute-search.create-indexes:true}") boolean createIndexes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.definitionRegistry = definitionRegistry;
+        this.createIndexes = createIndexes;
+    }
+
+    /**
+     * Runs after the EntityManagerFactory (ddl-auto) has created the tables.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!createIndexes) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        jdbcTemplate.execute(CREATE_INDEXES_SQL);
+        logger.info("Attribute search indexes on task_attribute_values ready ({} ms)",
+            System.currentTimeMillis() - startTime);
+    }
+
+    public List<AttributeHit> search(AttributeSearch search) {
+        String column = column(search.type());
+        Optional<Integer> definitionId = definitionRegistry.find(search.attribute(), search.type());
+        if (definitionId.isEmpty()) {
+            return List.of();
+        }
+        StringBuilder conditions = new StringBuilder();
+        List<Object> args = new ArrayList<>();
+        args.add(definitionId.get());
+        if (search.min() != null) {
+            conditions.append(" AND ").append(column).append(" >= ?");
+            args.add(search.min());
+        }
+        if (search.max() != null) {
+            conditions.append(" AND ").append(column).append(" <= ?");
+            args.add(search.max());
+        }
+        if (search.afterValue() != null && search.afterId() != null) {
+            // Row comparison: an index condition on (value, id), not a filter
+            conditions.append(" AND (").append(column).append(", id) > (?, ?)");
+            args.add(search.afterValue());
+            args.add(search.afterId());
+        }
+        args.add(search.limit());
+        String sql = String.format(SEARCH_SQL, column, conditions);
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new AttributeHit(rs.getLong("id"), rs.getString("task_id"),
+            rs.getObject("value", valueClass(search.type()))), args.toArray());
+    }
+
+    /**
+     * Column holding the values of the given type. TEXT values are not indexed and cannot be searched.
+     */
+    public static String column(AttributeType type) {
+        return switch (type) {
+            case STRING -> "string_value";
+            case NUMERIC -> "numeric_value";
+            case DATE -> "date_value";
+            case BOOLEAN -> "boolean_value";
+            case ENTITY -> "entity_ref";
+            case TEXT -> throw new IllegalArgumentException("TEXT attributes are not searchable");
+        };
+    }
+
+    public static Class<?> valueClass(AttributeType type) {
+        return switch (type) {
+            case NUMERIC -> BigDecimal.class;
+            case DATE -> OffsetDateTime.class;
+            case BOOLEAN -> Boolean.class;
+            default -> String.class;
+        };
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.kafka.consumer.repository;
+
+import com.example.kafka.consumer.entity.TaskDocument;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * JDBC repository for the task_documents table (see {@link TaskDocument}).
+ * A batch of documents is written with one multi-row INSERT ... ON CONFLICT (task_id) DO UPDATE;
+ * the version is incremented by the database and every write marks the row as not projected
+ * (clearing the projection error of the previous version).
+ * A row is only replaced by a document with a newer source version (or when either has none).
+ */
+@Repository
+public class TaskDocumentJdbcRepository {
+
+    /** Rows per statement, well below the 65535 bind parameters PostgreSQL accepts. */
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private static final String UPSERT_PREFIX =
+        "INSERT INTO task_documents (task_id, document, attribute_count, version, updated_at, projected, " +
+        "source_version) VALUES ";
+
+    private static final String UPSERT_ROW = "(?, ?, ?, 1, ?, false, ?)";
+
+    private static final String UPSERT_SUFFIX =
+        " ON CONFLICT (task_id) DO UPDATE SET " +
+        "document = EXCLUDED.document, " +
+        "attribute_count = EXCLUDED.attribute_count, " +
+        "version = task_documents.version + 1, " +
+        "updated_at = EXCLUDED.updated_at, " +
+        "projected = false, " +
+        "projection_error = NULL, " +
+        "source_version = COALESCE(EXCLUDED.source_version, task_documents.source_version) " +
+        "WHERE task_documents.source_version IS NULL OR EXCLUDED.source_version IS NULL " +
+        "OR EXCLUDED.source_version > task_documents.source_version";
+
+    private static final String SELECT_COLUMNS =
+        "SELECT task_id, document, attribute_count, version, updated_at, projected, source_version, projection_error " +
+        "FROM task_documents";
+
+    private static final String FIND_SQL = SELECT_COLUMNS + " WHERE task_id = ?";
+
+    /**
+     * Oldest documents not yet projected, leaving out versions that failed; rows locked by another
+     * projector are skipped, so several pods can project concurrently without applying the same
+     * document twice.
+     */
+    private static final String FIND_UNPROJECTED_SQL =
+        SELECT_COLUMNS + " WHERE NOT projected AND projection_error IS NULL ORDER BY updated_at LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String LOCK_UNPROJECTED_SQL =
+        SELECT_COLUMNS + " WHERE task_id = ? AND version = ? AND NOT projected AND projection_error IS NULL " +
+        "FOR UPDATE SKIP LOCKED";
+
+    /** Only the projected version: a document rewritten in the meantime stays pending. */
+    private static final String MARK_PROJECTED_SQL =
+        "UPDATE task_documents SET projected = true WHERE task_id = ? AND version = ?";
+
+    private static final String MARK_FAILED_SQL =
+        "UPDATE task_documents SET projection_error = ? WHERE task_id = ? AND version = ?";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private static final RowMapper<TaskDocument> ROW_MAPPER = (rs, rowNum) -> {
+        TaskDocument document = new TaskDocument(rs.getString("task_id"), rs.getBytes("document"),
+            rs.getInt("attribute_count"));
+        document.setVersion(rs.getLong("version"));
+        document.setUpdatedAt(rs.getObject("updated_at", OffsetDateTime.class));
+        document.setProjected(rs.getBoolean("projected"));
+        document.setSourceVersion(rs.getObject("source_version", Long.class));
+        document.setProjectionError(rs.getString("projection_error"));
+        return document;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TaskDocumentJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts or updates the given documents, one statement per {@value #MAX_ROWS_PER_STATEMENT} rows.
+     * The list must not contain the same taskId twice (a statement cannot update a row twice).
+     *
+     * @return number of rows inserted or updated (not counting documents older than the stored ones)
+     */
+    public int upsertAll(List<TaskDocument> documents) {
+        OffsetDateTime now = OffsetDateTime.now();
+        int written = 0;
+        for (int from = 0; from < documents.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<TaskDocument> chunk = documents.subList(from, Math.min(documents.size(), from + MAX_ROWS_PER_STATEMENT));
+            String sql = UPSERT_PREFIX + String.join(", ", Collections.nCopies(chunk.size(), UPSERT_ROW)) + UPSERT_SUFFIX;
+            written += jdbcTemplate.update(sql, ps -> {
+                int index = 1;
+                for (TaskDocument document : chunk) {
+                    ps.setString(index++, document.getTaskId());
+                    ps.setBytes(index++, document.getDocument());
+                    ps.setInt(index++, document.getAttributeCount());
+                    ps.setObject(index++, now);
+                    ps.setObject(index++, document.getSourceVersion(), Types.BIGINT);
+                }
+            });
+        }
+        return written;
+    }
+
+    public Optional<TaskDocument> findByTaskId(String taskId) {
+        return jdbcTemplate.query(FIND_SQL, ROW_MAPPER, taskId).stream().findFirst();
+    }
+
+    /**
+     * Locks and returns up to {@code limit} documents waiting for projection; must run in a transaction.
+     */
+    public List<TaskDocument> findUnprojected(int limit) {
+        return jdbcTemplate.query(FIND_UNPROJECTED_SQL, ROW_MAPPER, limit);
+    }
+
+    /**
+     * Locks the given version of a document if it is still waiting for projection and not locked by
+     * another projector; must run in a transaction.
+     */
+    public Optional<TaskDocument> lockUnprojected(TaskDocument document) {
+        return jdbcTemplate.query(LOCK_UNPROJECTED_SQL, ROW_MAPPER, document.getTaskId(), document.getVersion())
+            .stream().findFirst();
+    }
+
+    public void markProjected(Collection<TaskDocument> documents) {
+        jdbcTemplate.batchUpdate(MARK_PROJECTED_SQL, documents, documents.size(), (ps, document) -> {
+            ps.setString(1, document.getTaskId());
+            ps.setLong(2, document.getVersion());
+        });
+    }
+
+    /**
+     * Sets this version aside with the error that prevented its projection; a newer version of the
+     * document is projected again.
+     */
+    public void markFailed(TaskDocument document, String error) {
+        String message = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        jdbcTemplate.update(MARK_FAILED_SQL, message != null ? message : "unknown", document.getTaskId(), document.getVersion());
+    }
+
+    public long countUnprojected() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM task_documents WHERE NOT projected", Long.class);
+        return count != null ? count : 0;
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.kafka.consumer.repository;
+
+import com.example.kafka.consumer.entity.AttributeDefinition;
+import com.example.kafka.consumer.entity.Task;
+import com.example.kafka.consumer.entity.TaskAttribute;
+import com.example.kafka.consumer.entity.TaskAttributeValue;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * JDBC repository for the Task → TaskAttribute → TaskAttributeValue hierarchy.
+ * Every statement is batched per table; primary keys are allocated up front from the entity
+ * sequences so children can reference their parents without a round-trip per row.
+ * Used by {@link com.example.kafka.consumer.service.TaskUpsertEngine} to apply only the rows
+ * that changed between the stored and the incoming version of a task.
+ * Attribute names and types are written and read as attribute_definitions ids through
+ * {@link AttributeDefinitionRegistry}.
+ */
+@Repository
+public class TaskJdbcRepository {
+
+    private static final String FIND_GRAPHS_SQL =
+        "SELECT t.id, t.task_id, t.raw_payload, t.created_at, t.source_version, " +
+        "a.id AS attribute_id, a.definition_id, " +
+        "v.id AS value_id, v.string_value, v.numeric_value, v.date_value, v.boolean_value, v.entity_ref, v.text_value " +
+        "FROM tasks t " +
+        "LEFT JOIN task_attributes a ON a.task_id = t.id " +
+        "LEFT JOIN task_attribute_values v ON v.attribute_id = a.id " +
+        "WHERE t.task_id = ANY(?) " +
+        "ORDER BY t.id, a.id, v.id";
+
+    private static final String FIND_IDS_SQL = "SELECT id, task_id FROM tasks WHERE task_id = ANY(?)";
+
+    private static final String INSERT_TASK_SQL =
+        "INSERT INTO tasks (id, task_id, raw_payload, created_at, source_version) VALUES (?, ?, ?, ?, ?) " +
+        "ON CONFLICT (task_id) DO NOTHING";
+
+    private static final String UPDATE_TASK_SQL = "UPDATE tasks SET raw_payload = ?, source_version = ? WHERE id = ?";
+
+    private static final String INSERT_ATTRIBUTE_SQL =
+        "INSERT INTO task_attributes (id, task_id, definition_id) VALUES (?, ?, ?)";
+
+    private static final String UPDATE_ATTRIBUTE_SQL = "UPDATE task_attributes SET definition_id = ? WHERE id = ?";
+
+    private static final String UPDATE_ATTRIBUTE_VALUES_SQL =
+        "UPDATE task_attribute_values SET definition_id = ? WHERE attribute_id = ?";
+
+    private static final String DELETE_ATTRIBUTE_VALUES_SQL = "DELETE FROM task_attribute_values WHERE attribute_id = ?";
+
+    private static final String DELETE_ATTRIBUTE_SQL = "DELETE FROM task_attributes WHERE id = ?";
+
+    private static final String INSERT_VALUE_SQL =
+        "INSERT INTO task_attribute_values (id, attribute_id, definition_id, string_value, numeric_value, date_value, " +
+        "boolean_value, entity_ref, text_value) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_VALUE_SQL =
+        "UPDATE task_attribute_values SET string_value = ?, numeric_value = ?, date_value = ?, " +
+        "boolean_value = ?, entity_ref = ?, text_value = ? WHERE id = ?";
+
+    private static final String DELETE_VALUE_SQL = "DELETE FROM task_attribute_values WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SequenceIdAllocator idAllocator;
+    private final AttributeDefinitionRegistry definitionRegistry;
+
+    public TaskJdbcRepository(JdbcTemplate jdbcTemplate, SequenceIdAllocator idAllocator,
+                              AttributeDefinitionRegistry definitionRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.idAllocator = idAllocator;
+        this.definitionRegistry = definitionRegistry;
+    }
+
+    /**
+     * Loads the complete graphs of the given tasks with a single query, keyed by taskId.
+     * Tasks that do not exist are absent from the map.
+     */
+    public Map<String, Task> findAllByTaskId(Collection<String> taskIds) {
+        Map<String, Task> tasks = new LinkedHashMap<>();
+        if (taskIds.isEmpty()) {
+            return tasks;
+        }
+        Map<Long, TaskAttribute> attributes = new HashMap<>();
+        jdbcTemplate.query(FIND_GRAPHS_SQL, ps -> ps.setArray(1, textArray(ps.getConnection(), taskIds)), rs -> {
+            Task task = tasks.get(rs.getString("task_id"));
+            if (task == null) {
+                task = new Task(rs.getString("task_id"), rs.getString("raw_payload"));
+                task.setId(rs.getLong("id"));
+                task.setCreatedAt(rs.getObject("created_at", OffsetDateTime.class));
+                task.setSourceVersion(rs.getObject("source_version", Long.class));
+                tasks.put(task.getTaskId(), task);
+            }
+            long attributeId = rs.getLong("attribute_id");
+            if (rs.wasNull()) {
+                return;
+            }
+            TaskAttribute attribute = attributes.get(attributeId);
+            if (attribute == null) {
+                AttributeDefinition definition = definitionRegistry.get(rs.getInt("definition_id"));
+                attribute = new TaskAttribute(definition.getName(), definition.getType());
+                attribute.setId(attributeId);
+                attribute.setDefinitionId(definition.getId());
+                task.addAttribute(attribute);
+                attributes.put(attributeId, attribute);
+            }
+            long valueId = rs.getLong("value_id");
+            if (!rs.wasNull()) {
+                attribute.addValue(mapValue(rs, valueId));
+            }
+        });
+        return tasks;
+    }
+
+    /**
+     * Inserts the given tasks (without children) unless a task with the same taskId already exists.
+     * Returns the tasks that were actually inserted; the others were created concurrently and
+     * have to be diffed against the stored version instead.
+     */
+    public List<Task> insertTasksIfAbsent(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return tasks;
+        }
+        Iterator<Long> taskIds = idAllocator.allocate("tasks_seq", tasks.size()).iterator();
+        tasks.forEach(task -> task.setId(taskIds.next()));
+
+        jdbcTemplate.batchUpdate(INSERT_TASK_SQL, tasks, tasks.size(), (ps, task) -> {
+            ps.setLong(1, task.getId());
+            ps.setString(2, task.getTaskId());
+            ps.setString(3, task.getRawPayload());
+            ps.setObject(4, task.getCreatedAt());
+            ps.setObject(5, task.getSourceVersion(), Types.BIGINT);
+        });
+
+        // Batch update counts are not reliable with reWriteBatchedInserts, so check which ids won
+        Map<String, Long> storedIds = new HashMap<>();
+        List<String> keys = tasks.stream().map(Task::getTaskId).toList();
+        jdbcTemplate.query(FIND_IDS_SQL, ps -> ps.setArray(1, textArray(ps.getConnection(), keys)),
+            rs -> {
+                storedIds.put(rs.getString("task_id"), rs.getLong("id"));
+            });
+        return tasks.stream()
+            .filter(task -> task.getId().equals(storedIds.get(task.getTaskId())))
+            .toList();
+    }
+
+    public void updateTaskPayloads(List<Task> tasks) {
+        jdbcTemplate.batchUpdate(UPDATE_TASK_SQL, tasks, tasks.size(), (ps, task) -> {
+            ps.setString(1, task.getRawPayload());
+            ps.setObject(2, task.getSourceVersion(), Types.BIGINT);
+            ps.setLong(3, task.getId());
+        });
+    }
+
+    /**
+     * Inserts the given attributes together with all of their values.
+     * Each attribute's task must already have its id.
+     */
+    public void insertAttributes(List<TaskAttribute> attributes) {
+        if (attributes.isEmpty()) {
+            return;
+        }
+        Iterator<Long> attributeIds = idAllocator.allocate("task_attributes_seq", attributes.size()).iterator();
+        attributes.forEach(attribute -> {
+            attribute.setId(attributeIds.next());
+            resolveDefinition(attribute);
+        });
+
+        jdbcTemplate.batchUpdate(INSERT_ATTRIBUTE_SQL, attributes, attributes.size(), (ps, attribute) -> {
+            ps.setLong(1, attribute.getId());
+            ps.setLong(2, attribute.getTask().getId());
+            ps.setInt(3, attribute.getDefinitionId());
+        });
+
+        List<TaskAttributeValue> values = new ArrayList<>();
+        attributes.forEach(attribute -> values.addAll(attribute.getValues()));
+        insertValues(values);
+    }
+
+    /**
+     * Points the given attributes and their stored values to the definition of their new type.
+     */
+    public void updateAttributeTypes(List<TaskAttribute> attributes) {
+        attributes.forEach(this::resolveDefinition);
+        jdbcTemplate.batchUpdate(UPDATE_ATTRIBUTE_SQL, attributes, attributes.size(), (ps, attribute) -> {
+            ps.setInt(1, attribute.getDefinitionId());
+            ps.setLong(2, attribute.getId());
+        });
+        jdbcTemplate.batchUpdate(UPDATE_ATTRIBUTE_VALUES_SQL, attributes, attributes.size(), (ps, attribute) -> {
+            ps.setInt(1, attribute.getDefinitionId());
+            ps.setLong(2, attribute.getId());
+        });
+    }
+
+    /**
+     * Deletes the given attributes and all of their values.
+     */
+    public void deleteAttributes(List<TaskAttribute> attributes) {
+        jdbcTemplate.batchUpdate(DELETE_ATTRIBUTE_VALUES_SQL, attributes, attributes.size(),
+            (ps, attribute) -> ps.setLong(1, attribute.getId()));
+        jdbcTemplate.batchUpdate(DELETE_ATTRIBUTE_SQL, attributes, attributes.size(),
+            (ps, attribute) -> ps.setLong(1, attribute.getId()));
+    }
+
+    /**
+     * Inserts the given values. Each value's attribute must already have its id.
+     */
+    public void insertValues(List<TaskAttributeValue> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        Iterator<Long> valueIds = idAllocator.allocate("task_attribute_values_seq", values.size()).iterator();
+        values.forEach(value -> {
+            value.setId(valueIds.next());
+            value.setDefinitionId(resolveDefinition(value.getAttribute()));
+        });
+
+        jdbcTemplate.batchUpdate(INSERT_VALUE_SQL, values, values.size(), (ps, value) -> {
+            ps.setLong(1, value.getId());
+            ps.setLong(2, value.getAttribute().getId());
+            ps.setInt(3, value.getDefinitionId());
+            ps.setString(4, value.getStringValue());
+            ps.setBigDecimal(5, value.getNumericValue());
+            ps.setObject(6, value.getDateValue());
+            ps.setObject(7, value.getBooleanValue(), Types.BOOLEAN);
+            ps.setString(8, value.getEntityRef());
+            ps.setString(9, value.getTextValue());
+        });
+    }
+
+    public void updateValues(List<TaskAttributeValue> values) {
+        jdbcTemplate.batchUpdate(UPDATE_VALUE_SQL, values, values.size(), (ps, value) -> {
+            ps.setString(1, value.getStringValue());
+            ps.setBigDecimal(2, value.getNumericValue());
+            ps.setObject(3, value.getDateValue());
+            ps.setObject(4, value.getBooleanValue(), Types.BOOLEAN);
+            ps.setString(5, value.getEntityRef());
+            ps.setString(6, value.getTextValue());
+            ps.setLong(7, value.getId());
+        });
+    }
+
+    public void deleteValues(List<TaskAttributeValue> values) {
+        jdbcTemplate.batchUpdate(DELETE_VALUE_SQL, values, values.size(),
+            (ps, value) -> ps.setLong(1, value.getId()));
+    }
+
+    /**
+     * Sets the attribute's definition id from its current name and type (a cache lookup once the
+     * name is known).
+     */
+    private int resolveDefinition(TaskAttribute attribute) {
+        int definitionId = definitionRegistry.resolve(attribute.getName(), attribute.getType());
+        attribute.setDefinitionId(definitionId);
+        return definitionId;
+    }
+
+    private static TaskAttributeValue mapValue(ResultSet rs, long valueId) throws SQLException {
+        TaskAttributeValue value = new TaskAttributeValue();
+        value.setId(valueId);
+        value.setStringValue(rs.getString("string_value"));
+        value.setNumericValue(rs.getBigDecimal("numeric_value"));
+        value.setDateValue(rs.getObject("date_value", OffsetDateTime.class));
+        value.setBooleanValue(rs.getObject("boolean_value", Boolean.class));
+        value.setEntityRef(rs.getString("entity_ref"));
+        value.setTextValue(rs.getString("text_value"));
+        return value;
+    }
+
+    private static Array textArray(Connection connection, Collection<String> values) throws SQLException {
+        return connection.createArrayOf("text", values.toArray());
+    }
+}
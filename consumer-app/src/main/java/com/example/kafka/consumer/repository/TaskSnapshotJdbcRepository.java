@@ -0,0 +1,266 @@
+package com.example.kafka.consumer.repository;
+
+import com.example.kafka.consumer.entity.TaskSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JDBC repository for bulk writes to the task_snapshots read-model.
+ * Writes whole batches with one multi-row INSERT ... ON CONFLICT (task_id) DO UPDATE
+ * (one MERGE on Oracle) instead of the per-entity find + save round-trips of
+ * {@link TaskSnapshotRepository}. The version is incremented by the database.
+ * <p>
+ * With app.snapshot.storage=jsonb (PostgreSQL only) snapshot_data is converted to jsonb with a
+ * GIN (jsonb_path_ops) index on startup, for the attribute search of {@link TaskSnapshotSearchRepository}.
+ */
+@Repository
+public class TaskSnapshotJdbcRepository implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskSnapshotJdbcRepository.class);
+
+    /** Rows per statement, well below the 65535 bind parameters PostgreSQL accepts. */
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private static final String UPSERT_PREFIX =
+        "INSERT INTO task_snapshots (task_id, snapshot_data, version, created_at, updated_at, kafka_offset, kafka_partition, source_version) VALUES ";
+
+    private static final String UPSERT_ROW = "(?, ?, 1, ?, ?, ?, ?, ?)";
+
+    private static final String JSONB_UPSERT_ROW = "(?, CAST(? AS jsonb), 1, ?, ?, ?, ?, ?)";
+
+    private static final String UPSERT_SUFFIX =
+        " ON CONFLICT (task_id) DO UPDATE SET " +
+        "snapshot_data = EXCLUDED.snapshot_data, " +
+        "version = task_snapshots.version + 1, " +
+        "updated_at = EXCLUDED.updated_at, " +
+        "kafka_offset = EXCLUDED.kafka_offset, " +
+        "kafka_partition = EXCLUDED.kafka_partition, " +
+        "source_version = EXCLUDED.source_version";
+
+    private static final String MERGE_PREFIX = "MERGE INTO task_snapshots t USING (";
+
+    private static final String MERGE_ROW =
+        "SELECT ? task_id, ? snapshot_data, ? created_at, ? updated_at, ? kafka_offset, ? kafka_partition, " +
+        "? source_version FROM dual";
+
+    private static final String MERGE_MATCHED =
+        ") s ON (t.task_id = s.task_id) " +
+        "WHEN MATCHED THEN UPDATE SET " +
+        "t.snapshot_data = s.snapshot_data, " +
+        "t.version = t.version + 1, " +
+        "t.updated_at = s.updated_at, " +
+        "t.kafka_offset = s.kafka_offset, " +
+        "t.kafka_partition = s.kafka_partition, " +
+        "t.source_version = s.source_version";
+
+    private static final String MERGE_NOT_MATCHED =
+        " WHEN NOT MATCHED THEN INSERT (task_id, snapshot_data, version, created_at, updated_at, kafka_offset, kafka_partition, source_version) " +
+        "VALUES (s.task_id, s.snapshot_data, 1, s.created_at, s.updated_at, s.kafka_offset, s.kafka_partition, s.source_version)";
+
+    /**
+     * Incoming (%2$s) is newer than stored (%1$s) by Kafka position: a different partition (repartitioned
+     * topic) or a row without position cannot be compared and is accepted.
+     */
+    private static final String OFFSET_GUARD =
+        "(%1$s.kafka_offset IS NULL OR %2$s.kafka_offset IS NULL " +
+        "OR %1$s.kafka_partition <> %2$s.kafka_partition OR %2$s.kafka_offset > %1$s.kafka_offset)";
+
+    /** Producer version when both sides have one, the Kafka position otherwise. */
+    private static final String VERSION_GUARD =
+        "((%1$s.source_version IS NOT NULL AND %2$s.source_version IS NOT NULL AND %2$s.source_version > %1$s.source_version) " +
+        "OR ((%1$s.source_version IS NULL OR %2$s.source_version IS NULL) AND " + OFFSET_GUARD + "))";
+
+    private static final String DELETE_SQL = "DELETE FROM task_snapshots WHERE task_id = ?";
+
+    private static final String GUARDED_DELETE_SQL = DELETE_SQL +
+        " AND (kafka_offset IS NULL OR kafka_partition <> ? OR kafka_offset < ?)";
+
+    private static final String COLUMN_TYPE_SQL =
+        "SELECT data_type FROM information_schema.columns WHERE table_schema = current_schema() " +
+        "AND table_name = 'task_snapshots' AND column_name = 'snapshot_data'";
+
+    private static final String GIN_INDEX_EXISTS_SQL = "SELECT to_regclass('idx_snapshot_data_gin') IS NOT NULL";
+
+    /**
+     * Converts a text snapshot_data column and creates the GIN index. Only run when one of them is
+     * missing; the table lock makes concurrently starting pods convert it once (the type is checked
+     * again under the lock). A large table is rewritten, so convert it ahead of the deployment with
+     * task-snapshots-jsonb-migration.sql.
+     */
+    private static final String JSONB_MIGRATION_SQL =
+        "DO $$ BEGIN " +
+        "LOCK TABLE task_snapshots IN ACCESS EXCLUSIVE MODE; " +
+        "IF (SELECT data_type FROM information_schema.columns WHERE table_schema = current_schema() " +
+        "AND table_name = 'task_snapshots' AND column_name = 'snapshot_data') <> 'jsonb' THEN " +
+        "ALTER TABLE task_snapshots ALTER COLUMN snapshot_data TYPE jsonb USING snapshot_data::jsonb; " +
+        "END IF; " +
+        "CREATE INDEX IF NOT EXISTS idx_snapshot_data_gin ON task_snapshots USING GIN (snapshot_data jsonb_path_ops); " +
+        "END $$";
+
+    /**
+     * Column type of snapshot_data (app.snapshot.storage).
+     */
+    public enum Storage {
+        /** TEXT (default); attribute search casts every row. */
+        TEXT,
+        /** jsonb with a GIN jsonb_path_ops index (PostgreSQL). */
+        JSONB
+    }
+
+    /**
+     * When an incoming snapshot may replace the stored one (app.snapshot.write-guard).
+     */
+    public enum WriteGuard {
+        /** Always (last write wins). */
+        NONE,
+        /** Only if its partition offset is higher than the stored one. */
+        OFFSET,
+        /** Only if its producer sourceVersion is higher, falling back to the offset without one. */
+        VERSION
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WriteGuard writeGuard;
+    private final Storage storage;
+    private volatile Boolean oracle;
+
+    public TaskSnapshotJdbcRepository(JdbcTemplate jdbcTemplate,
+                                      @Value("${app.snapshot.write-guard:version}") String writeGuard,
+                                      @Value("${app.snapshot.storage:text}") String storage) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeGuard = WriteGuard.valueOf(writeGuard.toUpperCase());
+        this.storage = Storage.valueOf(storage.toUpperCase());
+    }
+
+    /**
+     * Runs after the EntityManagerFactory (ddl-auto) has created the table, before the listeners start.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (storage != Storage.JSONB) {
+            return;
+        }
+        if (isOracle()) {
+            throw new IllegalStateException("app.snapshot.storage=jsonb requires PostgreSQL");
+        }
+        // Every boot after the first finds both in place: no lock on the table
+        if ("jsonb".equals(jdbcTemplate.queryForObject(COLUMN_TYPE_SQL, String.class))
+                && Boolean.TRUE.equals(jdbcTemplate.queryForObject(GIN_INDEX_EXISTS_SQL, Boolean.class))) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        jdbcTemplate.execute(JSONB_MIGRATION_SQL);
+        logger.info("task_snapshots.snapshot_data stored as jsonb with GIN index ({} ms)",
+            System.currentTimeMillis() - startTime);
+    }
+
+    public Storage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Inserts or updates the given snapshots, one statement per {@value #MAX_ROWS_PER_STATEMENT} rows.
+     * The list must not contain the same taskId twice (a statement cannot update a row twice).
+     * With a write guard, the conflict update carries the guard as its condition: a stale snapshot
+     * leaves the row untouched without a prior SELECT and without locking beyond the upsert itself.
+     *
+     * @return number of rows inserted or updated (stale snapshots are not counted)
+     */
+    public int upsertAll(List<TaskSnapshot> snapshots) {
+        OffsetDateTime now = OffsetDateTime.now();
+        boolean merge = isOracle();
+        int written = 0;
+        for (int from = 0; from < snapshots.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<TaskSnapshot> chunk = snapshots.subList(from, Math.min(snapshots.size(), from + MAX_ROWS_PER_STATEMENT));
+            String sql = merge
+                ? MERGE_PREFIX + String.join(" UNION ALL ", Collections.nCopies(chunk.size(), MERGE_ROW))
+                    + MERGE_MATCHED + guard(" WHERE ", "t", "s") + MERGE_NOT_MATCHED
+                : UPSERT_PREFIX + String.join(", ", Collections.nCopies(chunk.size(),
+                        storage == Storage.JSONB ? JSONB_UPSERT_ROW : UPSERT_ROW))
+                    + UPSERT_SUFFIX + guard(" WHERE ", "task_snapshots", "EXCLUDED");
+            written += jdbcTemplate.update(sql, ps -> {
+                int index = 1;
+                for (TaskSnapshot snapshot : chunk) {
+                    index = bindRow(ps, index, snapshot, now);
+                }
+            });
+        }
+        return written;
+    }
+
+    private static int bindRow(PreparedStatement ps, int index, TaskSnapshot snapshot, OffsetDateTime now)
+            throws SQLException {
+        ps.setString(index++, snapshot.getTaskId());
+        ps.setString(index++, snapshot.getSnapshotData());
+        ps.setObject(index++, now);
+        ps.setObject(index++, now);
+        if (snapshot.getKafkaOffset() != null) {
+            ps.setLong(index++, snapshot.getKafkaOffset());
+        } else {
+            ps.setNull(index++, Types.BIGINT);
+        }
+        if (snapshot.getKafkaPartition() != null) {
+            ps.setInt(index++, snapshot.getKafkaPartition());
+        } else {
+            ps.setNull(index++, Types.INTEGER);
+        }
+        if (snapshot.getSourceVersion() != null) {
+            ps.setLong(index++, snapshot.getSourceVersion());
+        } else {
+            ps.setNull(index++, Types.BIGINT);
+        }
+        return index;
+    }
+
+    /**
+     * Deletes the snapshots of the given tombstones in a single JDBC batch. With a write guard a
+     * tombstone only removes a row written from an older offset of its partition.
+     *
+     * @return number of rows deleted
+     */
+    public int deleteAll(List<TaskSnapshot> tombstones) {
+        int[][] counts;
+        if (writeGuard == WriteGuard.NONE) {
+            counts = jdbcTemplate.batchUpdate(DELETE_SQL, tombstones, tombstones.size(),
+                (ps, tombstone) -> ps.setString(1, tombstone.getTaskId()));
+        } else {
+            counts = jdbcTemplate.batchUpdate(GUARDED_DELETE_SQL, tombstones, tombstones.size(), (ps, tombstone) -> {
+                ps.setString(1, tombstone.getTaskId());
+                ps.setInt(2, tombstone.getKafkaPartition());
+                ps.setLong(3, tombstone.getKafkaOffset());
+            });
+        }
+        return Arrays.stream(counts).flatMapToInt(Arrays::stream).map(count -> Math.max(count, 0)).sum();
+    }
+
+    private String guard(String keyword, String stored, String incoming) {
+        return switch (writeGuard) {
+            case NONE -> "";
+            case OFFSET -> keyword + String.format(OFFSET_GUARD, stored, incoming);
+            case VERSION -> keyword + String.format(VERSION_GUARD, stored, incoming);
+        };
+    }
+
+    private boolean isOracle() {
+        Boolean result = oracle;
+        if (result == null) {
+            result = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                connection.getMetaData().getDatabaseProductName().toLowerCase().contains("oracle"));
+            oracle = result;
+        }
+        return result;
+    }
+}
@@ -1,9 +1,15 @@
 package com.example.kafka.consumer.repository;
 
 import com.example.kafka.consumer.entity.TaskSnapshot;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,5 +17,21 @@ public interface TaskSnapshotRepository extends JpaRepository<TaskSnapshot, Long
     
     Optional<TaskSnapshot> findByTaskId(String taskId);
     
+    List<TaskSnapshot> findAllByTaskIdIn(Collection<String> taskIds);
+    
     boolean existsByTaskId(String taskId);
+    
+    long deleteByTaskId(String taskId);
+    
+    /**
+     * First page of the snapshots ordered by (updated_at, id).
+     */
+    List<TaskSnapshot> findAllByOrderByUpdatedAtAscIdAsc(Pageable page);
+    
+    /**
+     * Keyset page: the snapshots after the (updated_at, id) position of the previous page's last row.
+     */
+    @Query("SELECT s FROM TaskSnapshot s WHERE s.updatedAt > :updatedAt OR (s.updatedAt = :updatedAt AND s.id > :id) " +
+           "ORDER BY s.updatedAt, s.id")
+    List<TaskSnapshot> findPageAfter(@Param("updatedAt") OffsetDateTime updatedAt, @Param("id") long id, Pageable page);
 }
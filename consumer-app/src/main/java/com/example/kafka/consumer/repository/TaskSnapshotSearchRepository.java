@@ -0,0 +1,203 @@
+package com.example.kafka.consumer.repository;
+
+import com.example.kafka.consumer.entity.TaskSnapshot;
+import com.example.kafka.consumer.repository.TaskSnapshotJdbcRepository.Storage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Attribute search over task_snapshots (PostgreSQL). A snapshot holds its attributes as
+ * {@code {"attributes": [{"name": ..., "type": ..., "values": [...]}]}}; every predicate compiles to
+ * jsonb operators the GIN (jsonb_path_ops) index of app.snapshot.storage=jsonb can answer:
+ * <ul>
+ *   <li>eq / in / exists - containment ({@code @>}) of the attribute name and value, fully indexed;</li>
+ *   <li>gt / gte / lt / lte - containment of the attribute name (indexed) narrows the rows, a jsonpath
+ *   filter ({@code @?}) then compares the values (rechecked per candidate row).</li>
+ * </ul>
+ * With text storage the same SQL casts snapshot_data per row: correct, but a sequential scan.
+ */
+@Repository
+public class TaskSnapshotSearchRepository {
+
+    private static final String SELECT_SQL =
+        "SELECT id, task_id, snapshot_data, version, created_at, updated_at FROM task_snapshots WHERE id > ?";
+
+    private static final RowMapper<TaskSnapshot> ROW_MAPPER = (rs, rowNum) -> {
+        TaskSnapshot snapshot = new TaskSnapshot(rs.getString("task_id"), rs.getString("snapshot_data"));
+        snapshot.setId(rs.getLong("id"));
+        snapshot.setVersion(rs.getLong("version"));
+        snapshot.setCreatedAt(rs.getObject("created_at", OffsetDateTime.class));
+        snapshot.setUpdatedAt(rs.getObject("updated_at", OffsetDateTime.class));
+        return snapshot;
+    };
+
+    public enum Operator {
+        EQ, IN, EXISTS, GT, GTE, LT, LTE;
+
+        boolean isRange() {
+            return this == GT || this == GTE || this == LT || this == LTE;
+        }
+
+        String jsonPathOperator() {
+            return switch (this) {
+                case GT -> ">";
+                case GTE -> ">=";
+                case LT -> "<";
+                case LTE -> "<=";
+                default -> throw new IllegalStateException(this + " is not a range operator");
+            };
+        }
+    }
+
+    /**
+     * One condition on a snapshot attribute; all predicates of a search must match.
+     * Values that parse as numbers (or true/false) also match the JSON number (boolean),
+     * so a condition does not depend on how the producer typed the value.
+     */
+    public record AttributePredicate(String attribute, Operator operator, List<String> values) {
+
+        public AttributePredicate {
+            if (attribute == null || attribute.isBlank()) {
+                throw new IllegalArgumentException("Attribute name is required");
+            }
+            if (operator != Operator.EXISTS && values.isEmpty()) {
+                throw new IllegalArgumentException("Operator " + operator + " needs a value");
+            }
+            if ((operator == Operator.EQ || operator.isRange()) && values.size() != 1) {
+                throw new IllegalArgumentException("Operator " + operator + " takes exactly one value");
+            }
+            values = List.copyOf(values);
+        }
+
+        /**
+         * Parses {@code name:op[:value]}, with {@code |} between the values of {@code in},
+         * e.g. {@code status:eq:DONE}, {@code priority:gte:3}, {@code region:in:EU|US}, {@code owner:exists}.
+         */
+        public static AttributePredicate parse(String expression) {
+            String[] parts = expression.split(":", 3);
+            if (parts.length < 2) {
+                throw new IllegalArgumentException("Expected name:op[:value], got '" + expression + "'");
+            }
+            Operator operator;
+            try {
+                operator = Operator.valueOf(parts[1].toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown operator '" + parts[1] + "'");
+            }
+            List<String> values = parts.length < 3 ? List.of()
+                : operator == Operator.IN ? List.of(parts[2].split("\\|")) : List.of(parts[2]);
+            return new AttributePredicate(parts[0], operator, values);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TaskSnapshotJdbcRepository snapshotJdbcRepository;
+    private final ObjectMapper objectMapper;
+
+    public TaskSnapshotSearchRepository(JdbcTemplate jdbcTemplate,
+                                        TaskSnapshotJdbcRepository snapshotJdbcRepository,
+                                        ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotJdbcRepository = snapshotJdbcRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Snapshots matching all predicates, ordered by id and keyset-paged after the given id.
+     */
+    public List<TaskSnapshot> search(List<AttributePredicate> predicates, long afterId, int limit) {
+        String column = snapshotJdbcRepository.getStorage() == Storage.JSONB
+            ? "snapshot_data" : "CAST(snapshot_data AS jsonb)";
+        StringBuilder sql = new StringBuilder(SELECT_SQL);
+        List<Object> args = new ArrayList<>();
+        args.add(afterId);
+        for (AttributePredicate predicate : predicates) {
+            appendPredicate(sql, args, column, predicate);
+        }
+        sql.append(" ORDER BY id LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), ROW_MAPPER, args.toArray());
+    }
+
+    private void appendPredicate(StringBuilder sql, List<Object> args, String column, AttributePredicate predicate) {
+        if (predicate.operator() == Operator.EXISTS || predicate.operator().isRange()) {
+            sql.append(" AND ").append(column).append(" @> CAST(? AS jsonb)");
+            args.add(containment(predicate.attribute(), null));
+        }
+        if (predicate.operator().isRange()) {
+            // ?? is the JDBC driver's escape for the literal ? of the @? operator
+            sql.append(" AND ").append(column).append(" @?? CAST(? AS jsonpath)");
+            args.add(rangePath(predicate.attribute(), predicate.operator(), predicate.values().get(0)));
+        }
+        if (predicate.operator() == Operator.EQ || predicate.operator() == Operator.IN) {
+            // Alternatives of one predicate are OR-ed; the planner combines their index scans (BitmapOr)
+            List<String> alternatives = new ArrayList<>();
+            for (String value : predicate.values()) {
+                for (Object typed : typedValues(value)) {
+                    alternatives.add(column + " @> CAST(? AS jsonb)");
+                    args.add(containment(predicate.attribute(), typed));
+                }
+            }
+            sql.append(" AND (").append(String.join(" OR ", alternatives)).append(')');
+        }
+    }
+
+    /**
+     * {@code {"attributes":[{"name":attribute}]}} or {@code {"attributes":[{"name":attribute,"values":[value]}]}}.
+     */
+    private String containment(String attribute, Object value) {
+        Map<String, Object> element = value == null
+            ? Map.of("name", attribute)
+            : Map.of("name", attribute, "values", List.of(value));
+        return toJson(Map.of("attributes", List.of(element)));
+    }
+
+    /**
+     * {@code $.attributes[*] ? (@.name == "priority").values[*] ? (@ >= 3)}; the literals are JSON-encoded
+     * (jsonpath shares JSON's string escapes), so a value cannot change the path.
+     */
+    private String rangePath(String attribute, Operator operator, String value) {
+        BigDecimal number = toNumber(value);
+        String literal = number != null ? number.toPlainString() : toJson(value);
+        return "$.attributes[*] ? (@.name == " + toJson(attribute) + ").values[*] ? (@ "
+            + operator.jsonPathOperator() + " " + literal + ")";
+    }
+
+    private static List<Object> typedValues(String value) {
+        List<Object> typed = new ArrayList<>();
+        typed.add(value);
+        BigDecimal number = toNumber(value);
+        if (number != null) {
+            typed.add(number);
+        } else if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+            typed.add(Boolean.parseBoolean(value));
+        }
+        return typed;
+    }
+
+    private static BigDecimal toNumber(String value) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot encode " + value, e);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.kafka.consumer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sizes this pod's task-topic consumption to its actual load at runtime (app.concurrency.adaptive.enabled).
+ * <p>
+ * Every evaluation reads the task-topic partitions assigned to this pod, their lag
+ * ({@link ConsumerLagMonitor}) and the recent mean of task.processing.duration, and derives the
+ * number of threads needed to drain the local lag within target-drain-seconds (lag x latency / target).
+ * Without latency samples (batch mode) the current size is scaled by time-to-drain / target instead.
+ * The result is applied to:
+ * <ul>
+ *   <li>parallel mode - the {@link KeyOrderedDispatcher} worker pool, resized in place;</li>
+ *   <li>other modes - the concurrency of the task-topic listener containers, which only takes effect
+ *   on restart, so the container is stopped and started again (this pod's partitions are rebalanced).</li>
+ * </ul>
+ * Consumer threads left without partitions are released first. The sizing, hysteresis and cooldown
+ * rules live in {@link ConcurrencyPolicy}. Workers are capped at the connection pool size, since each
+ * one holds a connection while it writes. Every evaluation, including the ones skipped while a
+ * container restarts, is counted in consumer.concurrency.decisions{target,action,reason}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.concurrency.adaptive.enabled", havingValue = "true")
+public class AdaptiveConcurrencyController implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyController.class);
+
+    private static final String TARGET_WORKERS = "workers";
+    private static final String TARGET_CONTAINERS = "containers";
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final ConsumerLagMonitor lagMonitor;
+    private final ObjectProvider<KeyOrderedDispatcher> dispatcherProvider;
+    private final MeterRegistry meterRegistry;
+    private final String groupId;
+    private final String topic;
+    private final Map<String, Counter> decisionCounters = new ConcurrentHashMap<>();
+    private final ExecutorService restartExecutor = Executors.newSingleThreadExecutor(
+        runnable -> new Thread(runnable, "concurrency-restart"));
+    private final AtomicBoolean restarting = new AtomicBoolean();
+    private final ConcurrencyPolicy policy;
+    private final int connectionPoolSize;
+
+    private volatile int current;
+    private volatile int desired;
+    private volatile int assignedPartitions;
+    private volatile long localLag;
+
+    private long lastTimerCount;
+    private double lastTimerTotalSeconds;
+    private double latencySeconds = Double.NaN;
+
+    @Value("${app.concurrency.adaptive.min-consumers:1}")
+    private int minConsumers;
+
+    @Value("${app.concurrency.adaptive.max-consumers:3}")
+    private int maxConsumers;
+
+    @Value("${app.concurrency.adaptive.min-workers:2}")
+    private int minWorkers;
+
+    @Value("${app.concurrency.adaptive.max-workers:10}")
+    private int maxWorkers;
+
+    @Value("${app.concurrency.adaptive.target-drain-seconds:300}")
+    private double targetDrainSeconds;
+
+    @Value("${app.concurrency.adaptive.worker-cooldown-ms:30000}")
+    private long workerCooldownMs;
+
+    @Value("${app.concurrency.adaptive.consumer-cooldown-ms:300000}")
+    private long consumerCooldownMs;
+
+    public AdaptiveConcurrencyController(KafkaListenerEndpointRegistry registry,
+                                         ConsumerLagMonitor lagMonitor,
+                                         ObjectProvider<KeyOrderedDispatcher> dispatcherProvider,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${spring.kafka.consumer.group-id}") String groupId,
+                                         @Value("${app.kafka.topic}") String topic,
+                                         @Value("${app.concurrency.adaptive.up-samples:2}") int upSamples,
+                                         @Value("${app.concurrency.adaptive.down-samples:6}") int downSamples,
+                                         @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        this.registry = registry;
+        this.lagMonitor = lagMonitor;
+        this.dispatcherProvider = dispatcherProvider;
+        this.meterRegistry = meterRegistry;
+        this.groupId = groupId;
+        this.topic = topic;
+        this.policy = new ConcurrencyPolicy(upSamples, downSamples);
+        this.connectionPoolSize = connectionPoolSize;
+
+        Gauge.builder("consumer.concurrency.current", this, c -> c.current)
+            .description("Current worker threads (parallel mode) or consumer threads of the task listener")
+            .register(meterRegistry);
+        Gauge.builder("consumer.concurrency.desired", this, c -> c.desired)
+            .description("Thread count the controller would use without bounds and hysteresis")
+            .register(meterRegistry);
+        Gauge.builder("consumer.concurrency.assigned.partitions", this, c -> c.assignedPartitions)
+            .description("Task-topic partitions assigned to this pod")
+            .register(meterRegistry);
+        Gauge.builder("consumer.concurrency.local.lag", this, c -> c.localLag)
+            .description("Lag of the task-topic partitions assigned to this pod")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${app.concurrency.adaptive.interval-ms:30000}",
+               fixedDelayString = "${app.concurrency.adaptive.interval-ms:30000}")
+    public synchronized void evaluate() {
+        // A restarting container is stopped, so this comes before looking for running containers
+        if (restarting.get()) {
+            decision(TARGET_CONTAINERS, "hold", "restarting");
+            return;
+        }
+        KeyOrderedDispatcher dispatcher = dispatcherProvider.getIfAvailable();
+        List<ConcurrentMessageListenerContainer<?, ?>> containers = taskContainers();
+        if (dispatcher == null && containers.isEmpty()) {
+            return;
+        }
+        String target = dispatcher != null ? TARGET_WORKERS : TARGET_CONTAINERS;
+
+        Set<TopicPartition> assigned = new HashSet<>();
+        int idleConsumers = 0;
+        for (ConcurrentMessageListenerContainer<?, ?> container : containers) {
+            for (Collection<TopicPartition> partitions : container.getAssignmentsByClientId().values()) {
+                if (partitions == null || partitions.isEmpty()) {
+                    idleConsumers++;
+                } else {
+                    assigned.addAll(partitions);
+                }
+            }
+        }
+        assignedPartitions = assigned.size();
+        updateLatency();
+
+        ConsumerLagMonitor.GroupLag groupLag = lagMonitor.getLags().get(groupId);
+        if (groupLag == null) {
+            decision(target, "hold", "no-lag-sample");
+            return;
+        }
+        localLag = groupLag.partitions().stream()
+            .filter(lag -> assigned.contains(new TopicPartition(lag.topic(), lag.partition())))
+            .mapToLong(ConsumerLagMonitor.PartitionLag::lag)
+            .sum();
+
+        int min;
+        int max;
+        long cooldownMs;
+        if (dispatcher != null) {
+            current = dispatcher.getWorkerCount();
+            min = minWorkers;
+            // More workers than connections would only queue on the pool
+            max = Math.min(maxWorkers, connectionPoolSize);
+            cooldownMs = workerCooldownMs;
+        } else {
+            current = containers.stream().mapToInt(ConcurrentMessageListenerContainer::getConcurrency).max().orElse(0);
+            min = minConsumers;
+            // Consumer threads beyond the partition count never get a partition
+            max = Math.min(maxConsumers, Math.max(minConsumers, groupLag.partitions().size()));
+            cooldownMs = consumerCooldownMs;
+        }
+
+        int needed = ConcurrencyPolicy.needed(localLag, latencySeconds, groupLag.timeToDrainSeconds(), current,
+            targetDrainSeconds);
+        String reason = "lag";
+        if (dispatcher == null && idleConsumers > 0 && needed >= current) {
+            needed = current - idleConsumers;
+            reason = "idle-consumers";
+        }
+        desired = needed;
+
+        ConcurrencyPolicy.Decision decision = policy.decide(current, needed, min, max, cooldownMs,
+            System.currentTimeMillis(), reason);
+        if (decision.changed()) {
+            int next = decision.size();
+            logger.info("Adaptive concurrency: {} {} -> {} ({}, {} partitions, local lag {}, latency {} s)",
+                target, current, next, reason, assignedPartitions, localLag,
+                Double.isNaN(latencySeconds) ? "n/a" : String.format("%.2f", latencySeconds));
+            if (dispatcher != null) {
+                dispatcher.setWorkerCount(next);
+            } else {
+                containers.forEach(container -> restart(container, next));
+            }
+            current = next;
+        }
+        decision(target, decision.action(), decision.reason());
+    }
+
+    /**
+     * Mean processing time since the previous evaluation; keeps the last value while nothing completed.
+     */
+    private void updateLatency() {
+        Timer timer = meterRegistry.find("task.processing.duration").timer();
+        if (timer == null) {
+            return;
+        }
+        long count = timer.count();
+        double totalSeconds = timer.totalTime(TimeUnit.SECONDS);
+        if (count > lastTimerCount) {
+            latencySeconds = (totalSeconds - lastTimerTotalSeconds) / (count - lastTimerCount);
+        }
+        lastTimerCount = count;
+        lastTimerTotalSeconds = totalSeconds;
+    }
+
+    /**
+     * Running listener containers of the task topic itself; retry topic containers and paused
+     * (draining) containers are left alone.
+     */
+    private List<ConcurrentMessageListenerContainer<?, ?>> taskContainers() {
+        List<ConcurrentMessageListenerContainer<?, ?>> containers = new ArrayList<>();
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            String[] topics = container.getContainerProperties().getTopics();
+            if (container instanceof ConcurrentMessageListenerContainer<?, ?> concurrent
+                    && container.isRunning() && !container.isPauseRequested()
+                    && topics != null && Arrays.asList(topics).equals(List.of(topic))) {
+                containers.add(concurrent);
+            }
+        }
+        return containers;
+    }
+
+    /**
+     * The new concurrency only applies when the child consumers are recreated. Stopping waits for the
+     * in-flight records, so it runs off the scheduler thread.
+     */
+    private void restart(ConcurrentMessageListenerContainer<?, ?> container, int concurrency) {
+        restarting.set(true);
+        restartExecutor.execute(() -> {
+            try {
+                container.stop();
+                container.setConcurrency(concurrency);
+                container.start();
+            } catch (Exception e) {
+                logger.error("Could not restart listener {} with concurrency {}", container.getListenerId(), concurrency, e);
+                if (!container.isRunning()) {
+                    container.start();
+                }
+            } finally {
+                restarting.set(false);
+            }
+        });
+    }
+
+    private void decision(String target, String action, String reason) {
+        decisionCounters.computeIfAbsent(target + "|" + action + "|" + reason, key ->
+            Counter.builder("consumer.concurrency.decisions")
+                .description("Evaluations of the adaptive concurrency controller")
+                .tag("target", target)
+                .tag("action", action)
+                .tag("reason", reason)
+                .register(meterRegistry)).increment();
+    }
+
+    @Override
+    public void destroy() {
+        restartExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.dto.MessagePayload;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Asynchronous consumer for task-topic (app.processing.mode=async).
+ * Processing is offloaded to a separate executor (virtual threads when the JVM provides them) and
+ * the record's partition is paused while work is in flight. The listener returns immediately, so the
+ * poll loop keeps running (heartbeats, max.poll.interval.ms) no matter how long a record takes.
+ * When a partition's work completes, its offsets are acknowledged (committed on the poll thread)
+ * and the partition is resumed. A record that still fails after its retries goes to the task DLT
+ * recoverer before it is acknowledged; while the recoverer fails it is retried every
+ * recovery-retry-interval-ms with the partition kept paused. If the partition is revoked meanwhile,
+ * the record and the ones queued behind it are not acknowledged and are redelivered to the new owner.
+ */
+@Service
+@ConditionalOnProperty(name = "app.processing.mode", havingValue = "async")
+public class AsyncTaskConsumerService implements ConsumerAwareRebalanceListener, DisposableBean {
+
+    public static final String LISTENER_ID = "asyncTaskListener";
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncTaskConsumerService.class);
+
+    private final TaskMessageProcessor messageProcessor;
+    private final KafkaListenerEndpointRegistry registry;
+    private final ConsumerRecordRecoverer recoverer;
+    private final ExecutorService executor;
+    private final Map<TopicPartition, PartitionLane> lanes = new ConcurrentHashMap<>();
+
+    @Value("${app.processing.async.retry-attempts:2}")
+    private int retryAttempts;
+
+    @Value("${app.processing.async.drain-timeout-ms:30000}")
+    private long drainTimeoutMs;
+
+    @Value("${app.processing.async.recovery-retry-interval-ms:5000}")
+    private long recoveryRetryIntervalMs;
+
+    public AsyncTaskConsumerService(TaskMessageProcessor messageProcessor,
+                                    KafkaListenerEndpointRegistry registry,
+                                    @Qualifier("taskDeadLetterRecoverer") ConsumerRecordRecoverer recoverer,
+                                    @Value("${app.processing.async.pool-size:16}") int poolSize) {
+        this.messageProcessor = messageProcessor;
+        this.registry = registry;
+        this.recoverer = recoverer;
+        this.executor = createExecutor(poolSize);
+    }
+
+    @KafkaListener(id = LISTENER_ID, idIsGroup = false, topics = "${app.kafka.topic}",
+        containerFactory = "asyncKafkaListenerContainerFactory")
+    public void consume(ConsumerRecord<String, MessagePayload> record, Acknowledgment acknowledgment) {
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        PartitionLane lane = lanes.computeIfAbsent(partition, PartitionLane::new);
+        lane.submit(record, acknowledgment);
+    }
+
+    private void process(ConsumerRecord<String, MessagePayload> record, PartitionLane lane) {
+        Exception failure = null;
+        for (int attempt = 0; attempt <= retryAttempts; attempt++) {
+            try {
+                messageProcessor.process(record.value(), record.topic(), record.partition(), record.offset(), record.key());
+                return;
+            } catch (Exception e) {
+                failure = e;
+                logger.warn("Attempt {} failed for partition {} offset {}: {}",
+                    attempt + 1, record.partition(), record.offset(), e.getMessage());
+            }
+        }
+        if (!recover(record, failure, lane)) {
+            throw new IllegalStateException("Record at partition " + record.partition() + " offset " +
+                record.offset() + " was not dead-lettered before its partition was released", failure);
+        }
+    }
+
+    /**
+     * Hands the record to the recoverer until it succeeds or {@code lane} no longer owns the
+     * partition (revoked) or the executor shuts down.
+     *
+     * @return true if the record was dead-lettered
+     */
+    private boolean recover(ConsumerRecord<String, MessagePayload> record, Exception failure, PartitionLane lane) {
+        while (true) {
+            try {
+                recoverer.accept(record, failure);
+                return true;
+            } catch (Exception e) {
+                logger.error("Record at partition {} offset {} failed {} attempts and could not be dead-lettered, " +
+                    "retrying in {} ms", record.partition(), record.offset(), retryAttempts + 1, recoveryRetryIntervalMs, e);
+            }
+            if (lanes.get(lane.partition) != lane || executor.isShutdown()) {
+                return false;
+            }
+            try {
+                Thread.sleep(recoveryRetryIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        // The lanes of all revoked partitions drain concurrently within one timeout
+        long deadline = System.currentTimeMillis() + drainTimeoutMs;
+        for (TopicPartition partition : partitions) {
+            PartitionLane lane = lanes.remove(partition);
+            if (lane != null && !lane.awaitIdle(Math.max(0, deadline - System.currentTimeMillis()))) {
+                logger.warn("Partition {} revoked with work still in flight; it will be redelivered", partition);
+            }
+            // A paused partition would otherwise stay paused if it is assigned back to this pod
+            MessageListenerContainer container = container();
+            if (container != null) {
+                container.resumePartition(partition);
+            }
+        }
+    }
+
+    public int getInFlightCount() {
+        return lanes.values().stream().mapToInt(PartitionLane::pending).sum();
+    }
+
+    private MessageListenerContainer container() {
+        return registry.getListenerContainer(LISTENER_ID);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * Uses a virtual-thread-per-task executor on JVMs that have one (Java 21+),
+     * a bounded platform thread pool otherwise.
+     */
+    private static ExecutorService createExecutor(int poolSize) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.info("Virtual threads not available, using a pool of {} platform threads", poolSize);
+            return Executors.newFixedThreadPool(poolSize);
+        }
+    }
+
+    /**
+     * Sequential work queue of one partition. The partition stays paused while the lane is busy.
+     */
+    private class PartitionLane {
+
+        private final TopicPartition partition;
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+        private int pending;
+
+        PartitionLane(TopicPartition partition) {
+            this.partition = partition;
+        }
+
+        synchronized void submit(ConsumerRecord<String, MessagePayload> record, Acknowledgment acknowledgment) {
+            if (pending++ == 0) {
+                // Takes effect before the next poll; the consumer keeps polling (and heartbeating) with no records
+                container().pausePartition(partition);
+            }
+            tail = tail.thenRunAsync(() -> process(record, this), executor)
+                .whenComplete((result, ex) -> {
+                    // Queued by the container and committed on the poll thread; a record that was
+                    // not dead-lettered (and every record queued behind it) is never acknowledged
+                    if (ex == null) {
+                        acknowledgment.acknowledge();
+                    }
+                    completed();
+                });
+        }
+
+        private synchronized void completed() {
+            if (--pending == 0) {
+                container().resumePartition(partition);
+                notifyAll();
+            }
+        }
+
+        synchronized int pending() {
+            return pending;
+        }
+
+        synchronized boolean awaitIdle(long timeoutMs) {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            try {
+                while (pending > 0) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return true;
+        }
+    }
+}
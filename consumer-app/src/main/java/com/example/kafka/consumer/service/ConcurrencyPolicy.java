@@ -0,0 +1,97 @@
+package com.example.kafka.consumer.service;
+
+/**
+ * Sizing rules of the {@link AdaptiveConcurrencyController}, free of Kafka and Spring so they can be
+ * tested on their own: how many threads the local lag needs, and whether the hysteresis and the
+ * cooldown let the current size move towards it.
+ * <p>
+ * Not thread-safe; the controller evaluates under its own lock.
+ */
+class ConcurrencyPolicy {
+
+    private final int upSamples;
+    private final int downSamples;
+
+    private int scaleUpSignals;
+    private int scaleDownSignals;
+    private long lastChangeAt;
+
+    ConcurrencyPolicy(int upSamples, int downSamples) {
+        this.upSamples = upSamples;
+        this.downSamples = downSamples;
+    }
+
+    /**
+     * Threads needed to drain the local lag within the target (Little's law), or, without a latency
+     * sample (NaN), the current size scaled by how far the group's time-to-drain is from the target.
+     */
+    static int needed(long localLag, double latencySeconds, double timeToDrainSeconds, int current,
+                      double targetDrainSeconds) {
+        if (localLag == 0) {
+            return 0;
+        }
+        if (!Double.isNaN(latencySeconds)) {
+            return (int) Math.ceil(localLag * latencySeconds / targetDrainSeconds);
+        }
+        if (timeToDrainSeconds < 0) {
+            // Lag without any progress: ask for one more thread
+            return current + 1;
+        }
+        return (int) Math.ceil(current * timeToDrainSeconds / targetDrainSeconds);
+    }
+
+    /**
+     * Decides the next size. Scaling up jumps to the bounded need after up-samples consecutive
+     * evaluations asking for more; scaling down goes one thread at a time after down-samples asking
+     * for less; no change is made within cooldownMs of the previous one.
+     *
+     * @param reason the reason reported when the size changes
+     */
+    Decision decide(int current, int needed, int min, int max, long cooldownMs, long now, String reason) {
+        int bounded = Math.max(min, Math.min(max, needed));
+        if (bounded > current) {
+            scaleUpSignals++;
+            scaleDownSignals = 0;
+        } else if (bounded < current) {
+            scaleDownSignals++;
+            scaleUpSignals = 0;
+        } else {
+            scaleUpSignals = 0;
+            scaleDownSignals = 0;
+            return Decision.hold(current, needed != bounded ? "bounds" : "steady");
+        }
+
+        if (now - lastChangeAt < cooldownMs) {
+            return Decision.hold(current, "cooldown");
+        }
+        int next;
+        if (scaleUpSignals >= upSamples) {
+            next = bounded;
+        } else if (scaleDownSignals >= downSamples) {
+            next = current - 1;
+        } else {
+            return Decision.hold(current, "hysteresis");
+        }
+
+        lastChangeAt = now;
+        scaleUpSignals = 0;
+        scaleDownSignals = 0;
+        return new Decision(next, next > current ? "up" : "down", reason);
+    }
+
+    /**
+     * @param size   the thread count to use
+     * @param action up, down or hold
+     * @param reason why (consumer.concurrency.decisions reason tag)
+     */
+    record Decision(int size, String action, String reason) {
+
+        static Decision hold(int size, String reason) {
+            return new Decision(size, "hold", reason);
+        }
+
+        boolean changed() {
+            return !"hold".equals(action);
+        }
+    }
+}
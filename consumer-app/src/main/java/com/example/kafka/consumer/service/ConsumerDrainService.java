@@ -0,0 +1,143 @@
+package com.example.kafka.consumer.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Takes this pod out of consumption before it terminates (preStop hook):
+ * <ol>
+ *   <li>readiness goes to REFUSING_TRAFFIC;</li>
+ *   <li>every listener container is paused, so no further records are fetched;</li>
+ *   <li>the records already handed to the listeners finish - the poll threads return to poll
+ *   (container paused) and the parallel / async workers have nothing in flight;</li>
+ *   <li>the containers are stopped, which commits the pending acks and closes the consumers.</li>
+ * </ol>
+ * With static membership (app.kafka.static-membership.enabled) closing does not leave the group, so
+ * the partitions stay assigned to this member until the restarted pod rejoins with the same instance id.
+ */
+@Service
+public class ConsumerDrainService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsumerDrainService.class);
+    private static final long POLL_INTERVAL_MS = 100;
+
+    public enum State { RUNNING, DRAINING, DRAINED }
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<KeyOrderedDispatcher> dispatcherProvider;
+    private final ObjectProvider<AsyncTaskConsumerService> asyncConsumerProvider;
+
+    private volatile State state = State.RUNNING;
+    private volatile int stoppedContainers;
+    private CompletableFuture<State> drain;
+
+    @Value("${app.drain.timeout-ms:150000}")
+    private long timeoutMs;
+
+    public ConsumerDrainService(KafkaListenerEndpointRegistry registry,
+                                ApplicationEventPublisher eventPublisher,
+                                ObjectProvider<KeyOrderedDispatcher> dispatcherProvider,
+                                ObjectProvider<AsyncTaskConsumerService> asyncConsumerProvider) {
+        this.registry = registry;
+        this.eventPublisher = eventPublisher;
+        this.dispatcherProvider = dispatcherProvider;
+        this.asyncConsumerProvider = asyncConsumerProvider;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isDraining() {
+        return state != State.RUNNING;
+    }
+
+    /**
+     * Starts draining in the background (once); later calls return the same drain.
+     */
+    public synchronized CompletableFuture<State> startDrain() {
+        if (drain == null) {
+            state = State.DRAINING;
+            AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+            drain = CompletableFuture.supplyAsync(this::doDrain);
+        }
+        return drain;
+    }
+
+    /**
+     * Drains and waits until the containers are stopped (at most app.drain.timeout-ms plus the stop itself).
+     *
+     * @return number of listener containers stopped
+     */
+    public int drainAndWait() {
+        startDrain().join();
+        return stoppedContainers;
+    }
+
+    private State doDrain() {
+        long startTime = System.currentTimeMillis();
+        long deadline = startTime + timeoutMs;
+        List<MessageListenerContainer> containers = registry.getAllListenerContainers().stream()
+            .filter(MessageListenerContainer::isRunning)
+            .toList();
+        logger.info("Draining {} listener containers", containers.size());
+        containers.forEach(MessageListenerContainer::pause);
+
+        try {
+            while (!quiescent(containers) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(POLL_INTERVAL_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!quiescent(containers)) {
+            logger.warn("Drain timeout after {} ms: stopping with {} records in flight (they will be redelivered)",
+                timeoutMs, inFlight());
+        }
+
+        int stopped = 0;
+        for (MessageListenerContainer container : containers) {
+            if (container.isRunning()) {
+                container.stop();
+                stopped++;
+            }
+        }
+        stoppedContainers = stopped;
+        state = State.DRAINED;
+        logger.info("Drained and stopped {} listener containers in {} ms", stopped, System.currentTimeMillis() - startTime);
+        return state;
+    }
+
+    /**
+     * All poll threads are back in poll with their partitions paused and no worker holds a record.
+     */
+    private boolean quiescent(List<MessageListenerContainer> containers) {
+        return containers.stream().allMatch(container -> !container.isRunning() || container.isContainerPaused())
+            && inFlight() == 0;
+    }
+
+    private int inFlight() {
+        int inFlight = 0;
+        KeyOrderedDispatcher dispatcher = dispatcherProvider.getIfAvailable();
+        if (dispatcher != null) {
+            inFlight += dispatcher.getInFlightCount();
+        }
+        AsyncTaskConsumerService asyncConsumer = asyncConsumerProvider.getIfAvailable();
+        if (asyncConsumer != null) {
+            inFlight += asyncConsumer.getInFlightCount();
+        }
+        return inFlight;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.kafka.consumer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.RetryListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts listener failures per topic and failure class (root cause of the listener exception).
+ * <ul>
+ *   <li>kafka.consumer.failures - every failed delivery attempt</li>
+ *   <li>kafka.consumer.forwarded - records handed off to the next retry topic or the DLT</li>
+ *   <li>kafka.consumer.dead.letters - records that reached a DLT (see {@link DeadLetterService})</li>
+ * </ul>
+ */
+@Component
+public class ConsumerFailureMetrics implements RetryListener {
+
+    private final MeterRegistry meterRegistry;
+
+    public ConsumerFailureMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void failedDelivery(ConsumerRecord<?, ?> record, Exception ex, int deliveryAttempt) {
+        counter("kafka.consumer.failures", "Failed delivery attempts", record.topic(), failureClass(ex)).increment();
+    }
+
+    @Override
+    public void recovered(ConsumerRecord<?, ?> record, Exception ex) {
+        counter("kafka.consumer.forwarded", "Failed records forwarded to a retry topic or DLT",
+            record.topic(), failureClass(ex)).increment();
+    }
+
+    public void deadLetter(String originalTopic, String failureClass) {
+        counter("kafka.consumer.dead.letters", "Records that exhausted their retries",
+            originalTopic, failureClass).increment();
+    }
+
+    public void deadLetter(ConsumerRecord<?, ?> record, Exception ex) {
+        deadLetter(record.topic(), failureClass(ex));
+    }
+
+    private Counter counter(String name, String description, String topic, String failureClass) {
+        return Counter.builder(name)
+            .description(description)
+            .tag("topic", topic)
+            .tag("failure", failureClass)
+            .register(meterRegistry);
+    }
+
+    static String failureClass(Throwable ex) {
+        Throwable cause = ex;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.kafka.consumer.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Periodically computes the lag of the task and snapshot consumer groups from the broker
+ * (log end offset - committed offset per partition) and publishes it through Micrometer:
+ * <ul>
+ *   <li>kafka.consumer.lag{group,topic,partition}</li>
+ *   <li>kafka.consumer.lag.total{group} - the autoscaling signal</li>
+ *   <li>kafka.consumer.consume.rate{group} - records/s, smoothed over the committed offset progress</li>
+ *   <li>kafka.consumer.time.to.drain{group} - seconds until the lag is consumed at that rate
+ *   (-1 while the group makes no progress)</li>
+ * </ul>
+ * The lag is the same for every pod of a group; aggregate with max(), not sum().
+ * <p>
+ * The rate comes from the group's committed offsets, not from the task.processing.duration
+ * histogram: that timer is per pod, only records successful records and is not recorded at all by
+ * the batch listener, while the committed offsets count every record the whole group got past
+ * (including the ones sent to the retry topics), which is exactly what drains the lag.
+ */
+@Component
+public class ConsumerLagMonitor implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsumerLagMonitor.class);
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final AdminClient adminClient;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, String> groupTopics = new LinkedHashMap<>();
+    private final Map<String, GroupLag> lags = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> partitionGauges = new ConcurrentHashMap<>();
+    private final Map<String, GroupGauges> groupGauges = new ConcurrentHashMap<>();
+
+    @Value("${app.lag.rate-smoothing:0.3}")
+    private double rateSmoothing;
+
+    public ConsumerLagMonitor(KafkaAdmin kafkaAdmin,
+                              MeterRegistry meterRegistry,
+                              @Value("${spring.kafka.consumer.group-id}") String groupId,
+                              @Value("${app.kafka.topic}") String topic,
+                              @Value("${app.kafka.snapshot-consumer-group:task-snapshot-consumer-group}") String snapshotGroup,
+                              @Value("${app.kafka.snapshot-topic:task-snapshots}") String snapshotTopic) {
+        this.adminClient = AdminClient.create(kafkaAdmin.getConfigurationProperties());
+        this.meterRegistry = meterRegistry;
+        groupTopics.put(groupId, topic);
+        groupTopics.put(snapshotGroup, snapshotTopic);
+    }
+
+    @Scheduled(fixedDelayString = "${app.lag.poll-interval-ms:10000}")
+    public void refresh() {
+        for (Map.Entry<String, String> entry : groupTopics.entrySet()) {
+            try {
+                GroupLag lag = sample(entry.getKey(), entry.getValue(), lags.get(entry.getKey()));
+                lags.put(entry.getKey(), lag);
+                publish(lag);
+            } catch (Exception e) {
+                logger.warn("Could not compute lag of group {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Latest lag sample per group, keyed by group id.
+     */
+    public Map<String, GroupLag> getLags() {
+        return Collections.unmodifiableMap(lags);
+    }
+
+    private GroupLag sample(String group, String topic, GroupLag previous) throws Exception {
+        TopicDescription description = adminClient.describeTopics(List.of(topic))
+            .allTopicNames().get(TIMEOUT_SECONDS, TimeUnit.SECONDS).get(topic);
+        List<TopicPartition> partitions = description.partitions().stream()
+            .map(info -> new TopicPartition(topic, info.partition()))
+            .toList();
+
+        Map<TopicPartition, OffsetAndMetadata> committed = adminClient.listConsumerGroupOffsets(group)
+            .partitionsToOffsetAndMetadata().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Map<TopicPartition, Long> endOffsets = offsets(partitions, OffsetSpec.latest());
+        Map<TopicPartition, Long> startOffsets = offsets(partitions, OffsetSpec.earliest());
+
+        List<PartitionLag> partitionLags = new ArrayList<>();
+        long totalLag = 0;
+        long totalCommitted = 0;
+        for (TopicPartition partition : partitions) {
+            long end = endOffsets.getOrDefault(partition, 0L);
+            OffsetAndMetadata commit = committed.get(partition);
+            // Without a commit the group starts from the beginning (auto-offset-reset: earliest)
+            long position = commit != null ? commit.offset() : startOffsets.getOrDefault(partition, 0L);
+            long lag = Math.max(0, end - position);
+            partitionLags.add(new PartitionLag(topic, partition.partition(), position, end, lag));
+            totalLag += lag;
+            totalCommitted += position;
+        }
+
+        long now = System.currentTimeMillis();
+        double rate = consumeRate(previous, totalCommitted, now, rateSmoothing);
+        return new GroupLag(group, topic, totalLag, totalCommitted, rate, timeToDrain(totalLag, rate), now, partitionLags);
+    }
+
+    /**
+     * Records per second the group committed since the previous sample, exponentially smoothed with
+     * the previous rate. 0 for the first sample; offsets going back (a reset) count as no progress.
+     */
+    static double consumeRate(GroupLag previous, long committedTotal, long now, double smoothing) {
+        if (previous == null || now <= previous.sampledAt()) {
+            return previous != null ? previous.ratePerSecond() : 0;
+        }
+        double instantRate = Math.max(0, committedTotal - previous.committedTotal()) * 1000.0 / (now - previous.sampledAt());
+        return smoothing * instantRate + (1 - smoothing) * previous.ratePerSecond();
+    }
+
+    /**
+     * Seconds until the lag is consumed at the given rate: 0 without lag, -1 while there is no progress.
+     */
+    static double timeToDrain(long totalLag, double ratePerSecond) {
+        if (totalLag == 0) {
+            return 0;
+        }
+        return ratePerSecond > 0 ? totalLag / ratePerSecond : -1;
+    }
+
+    private Map<TopicPartition, Long> offsets(List<TopicPartition> partitions, OffsetSpec spec) throws Exception {
+        Map<TopicPartition, OffsetSpec> request = partitions.stream()
+            .collect(Collectors.toMap(Function.identity(), partition -> spec));
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> result =
+            adminClient.listOffsets(request).all().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        result.forEach((partition, info) -> offsets.put(partition, info.offset()));
+        return offsets;
+    }
+
+    private void publish(GroupLag lag) {
+        for (PartitionLag partitionLag : lag.partitions()) {
+            String key = lag.group() + "|" + partitionLag.topic() + "|" + partitionLag.partition();
+            partitionGauges.computeIfAbsent(key, k -> {
+                AtomicLong value = new AtomicLong();
+                Gauge.builder("kafka.consumer.lag", value, AtomicLong::get)
+                    .description("Records between the committed offset and the log end offset")
+                    .tag("group", lag.group())
+                    .tag("topic", partitionLag.topic())
+                    .tag("partition", String.valueOf(partitionLag.partition()))
+                    .register(meterRegistry);
+                return value;
+            }).set(partitionLag.lag());
+        }
+        groupGauges.computeIfAbsent(lag.group(), this::registerGroupGauges).update(lag);
+    }
+
+    private GroupGauges registerGroupGauges(String group) {
+        GroupGauges gauges = new GroupGauges();
+        Gauge.builder("kafka.consumer.lag.total", gauges, g -> g.totalLag)
+            .description("Total lag of the consumer group")
+            .tag("group", group)
+            .register(meterRegistry);
+        Gauge.builder("kafka.consumer.consume.rate", gauges, g -> g.rate)
+            .description("Committed records per second (smoothed)")
+            .tag("group", group)
+            .register(meterRegistry);
+        Gauge.builder("kafka.consumer.time.to.drain", gauges, g -> g.timeToDrain)
+            .description("Estimated seconds until the lag is consumed, -1 while there is no progress")
+            .tag("group", group)
+            .baseUnit("seconds")
+            .register(meterRegistry);
+        return gauges;
+    }
+
+    @Override
+    public void destroy() {
+        adminClient.close();
+    }
+
+    public record PartitionLag(String topic, int partition, long committedOffset, long endOffset, long lag) {
+    }
+
+    public record GroupLag(String group, String topic, long totalLag, long committedTotal, double ratePerSecond,
+                           double timeToDrainSeconds, long sampledAt, List<PartitionLag> partitions) {
+    }
+
+    private static class GroupGauges {
+
+        private volatile double totalLag;
+        private volatile double rate;
+        private volatile double timeToDrain;
+
+        void update(GroupLag lag) {
+            totalLag = lag.totalLag();
+            rate = lag.ratePerSecond();
+            timeToDrain = lag.timeToDrainSeconds();
+        }
+    }
+}
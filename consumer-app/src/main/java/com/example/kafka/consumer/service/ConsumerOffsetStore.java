@@ -0,0 +1,154 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.repository.ConsumerOffsetJdbcRepository;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.event.ListenerContainerPartitionIdleEvent;
+import org.springframework.kafka.listener.ConsumerSeekAware.ConsumerSeekCallback;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Where the record, batch and snapshot consumers keep their positions (app.offsets.store).
+ * <ul>
+ *   <li>kafka (default) - every record is acknowledged to the broker after its transaction commits.</li>
+ *   <li>db - the next offset is written to consumer_offsets inside the record's own transaction and
+ *   the listeners seek to it on assignment, so a crash between commit and ack cannot replay a record.
+ *   The broker commit is only kept for lag monitoring and is sent at most every broker-commit-interval-ms
+ *   per partition instead of once per record. The latest skipped ack of a partition is sent once the
+ *   partition has been idle for broker-commit-interval-ms (partition idle events of the record, batch and
+ *   snapshot containers), so a partition that stops receiving records does not keep reporting a phantom lag.</li>
+ * </ul>
+ */
+@Component
+public class ConsumerOffsetStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsumerOffsetStore.class);
+
+    private final ConsumerOffsetJdbcRepository offsetRepository;
+    private final boolean dbStore;
+    private final Map<TopicPartition, Long> lastBrokerCommit = new ConcurrentHashMap<>();
+    /** Latest acknowledgment per partition that was skipped by the throttle (db store only). */
+    private final Map<TopicPartition, Acknowledgment> pendingAcks = new ConcurrentHashMap<>();
+
+    @Value("${app.offsets.db.broker-commit-interval-ms:5000}")
+    private long brokerCommitIntervalMs;
+
+    public ConsumerOffsetStore(ConsumerOffsetJdbcRepository offsetRepository,
+                               @Value("${app.offsets.store:kafka}") String store) {
+        this.offsetRepository = offsetRepository;
+        this.dbStore = "db".equalsIgnoreCase(store);
+    }
+
+    public boolean isDbStore() {
+        return dbStore;
+    }
+
+    /**
+     * Records that {@code offset} has been processed. Must join the transaction that persisted the record.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void processed(String groupId, String topic, int partition, long offset) {
+        if (dbStore) {
+            offsetRepository.save(groupId, topic, partition, offset + 1);
+        }
+    }
+
+    /**
+     * Acknowledges a processed record to the broker: always with the kafka store, throttled per
+     * partition with the db store (a later ack also covers every skipped record of the partition).
+     */
+    public void acknowledge(String topic, int partition, Acknowledgment acknowledgment) {
+        if (!dbStore) {
+            acknowledgment.acknowledge();
+            return;
+        }
+        TopicPartition topicPartition = new TopicPartition(topic, partition);
+        long now = System.currentTimeMillis();
+        Long last = lastBrokerCommit.get(topicPartition);
+        if (last == null || now - last >= brokerCommitIntervalMs) {
+            acknowledgment.acknowledge();
+            lastBrokerCommit.put(topicPartition, now);
+            pendingAcks.remove(topicPartition);
+        } else {
+            pendingAcks.put(topicPartition, acknowledgment);
+        }
+    }
+
+    /**
+     * Acknowledges a processed batch covering the given partitions; with the db store only when one
+     * of them is due for a broker commit.
+     */
+    public void acknowledge(Collection<TopicPartition> partitions, Acknowledgment acknowledgment) {
+        if (!dbStore) {
+            acknowledgment.acknowledge();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        boolean due = partitions.stream().anyMatch(partition -> {
+            Long last = lastBrokerCommit.get(partition);
+            return last == null || now - last >= brokerCommitIntervalMs;
+        });
+        if (due) {
+            acknowledgment.acknowledge();
+            partitions.forEach(partition -> {
+                lastBrokerCommit.put(partition, now);
+                pendingAcks.remove(partition);
+            });
+        } else {
+            partitions.forEach(partition -> pendingAcks.put(partition, acknowledgment));
+        }
+    }
+
+    /**
+     * Sends the skipped ack of a partition that stopped receiving records. Partition idle events are
+     * published on the consumer thread, like the acks themselves.
+     */
+    @EventListener
+    public void onPartitionIdle(ListenerContainerPartitionIdleEvent event) {
+        Acknowledgment acknowledgment = pendingAcks.remove(event.getTopicPartition());
+        if (acknowledgment == null) {
+            return;
+        }
+        // A batch ack covers every partition of its batch
+        pendingAcks.values().removeIf(pending -> pending == acknowledgment);
+        acknowledgment.acknowledge();
+        lastBrokerCommit.put(event.getTopicPartition(), System.currentTimeMillis());
+        logger.debug("Committed idle partition {} to the broker", event.getTopicPartition());
+    }
+
+    /**
+     * Seeks newly assigned partitions to the offsets stored for the group. Partitions without a
+     * stored offset keep the broker's committed position.
+     */
+    public void seekToStored(String groupId, Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        if (!dbStore || assignments.isEmpty()) {
+            return;
+        }
+        // Acks of an earlier assignment of these partitions must not move the broker commit back
+        assignments.keySet().forEach(pendingAcks::remove);
+        Map<TopicPartition, Long> stored = offsetRepository.findAll(groupId, assignments.keySet());
+        stored.forEach((partition, offset) -> {
+            logger.info("Seeking {} to stored offset {} (group {})", partition, offset, groupId);
+            callback.seek(partition.topic(), partition.partition(), offset);
+        });
+    }
+
+    /**
+     * Stores positions obtained outside the listeners (e.g. by the snapshot bootstrap).
+     */
+    public void storeAll(String groupId, Map<TopicPartition, Long> nextOffsets) {
+        if (dbStore && !nextOffsets.isEmpty()) {
+            offsetRepository.saveAll(groupId, nextOffsets);
+        }
+    }
+}
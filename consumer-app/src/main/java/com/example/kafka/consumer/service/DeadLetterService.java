@@ -0,0 +1,149 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.dto.MessagePayload;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Handles records that exhausted the retry topics, and replays them from the DLT on request.
+ * The DLT of a topic is {@code <topic><dlt-suffix>}; replayed records are published back to their
+ * original topic (without the retry/DLT headers) and go through the regular listener again.
+ */
+@Service
+public class DeadLetterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterService.class);
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(2);
+    /** Prefix of the attempt/backoff headers added by the retry topics (RetryTopicHeaders). */
+    private static final String RETRY_HEADER_PREFIX = "retry_topic-";
+
+    private final ConsumerFactory<String, MessagePayload> consumerFactory;
+    private final KafkaTemplate<String, MessagePayload> kafkaTemplate;
+    private final ConsumerFailureMetrics failureMetrics;
+
+    @Value("${spring.kafka.consumer.group-id}")
+    private String groupId;
+
+    @Value("${app.retry.dlt-suffix:-dlt}")
+    private String dltSuffix;
+
+    public DeadLetterService(ConsumerFactory<String, MessagePayload> consumerFactory,
+                             KafkaTemplate<String, MessagePayload> kafkaTemplate,
+                             ConsumerFailureMetrics failureMetrics) {
+        this.consumerFactory = consumerFactory;
+        this.kafkaTemplate = kafkaTemplate;
+        this.failureMetrics = failureMetrics;
+    }
+
+    /**
+     * DLT handler method of the retry topic configurations.
+     */
+    public void handleDeadLetter(ConsumerRecord<String, MessagePayload> record) {
+        String originalTopic = headerValue(record, KafkaHeaders.DLT_ORIGINAL_TOPIC);
+        String failure = headerValue(record, KafkaHeaders.DLT_EXCEPTION_CAUSE_FQCN);
+        if (failure == null) {
+            failure = headerValue(record, KafkaHeaders.DLT_EXCEPTION_FQCN);
+        }
+        String failureClass = failure != null ? failure.substring(failure.lastIndexOf('.') + 1) : "unknown";
+        failureMetrics.deadLetter(originalTopic != null ? originalTopic : record.topic(), failureClass);
+
+        logger.error("Dead letter on {} (partition {}, offset {}, key {}): {} - {}",
+            record.topic(), record.partition(), record.offset(), record.key(), failureClass,
+            headerValue(record, KafkaHeaders.DLT_EXCEPTION_MESSAGE));
+    }
+
+    /**
+     * Re-publishes up to {@code maxRecords} dead letters of {@code topic} to the topic itself.
+     * Progress is tracked by a dedicated consumer group, so each dead letter is replayed once.
+     * A replayed record keeps its source-version header, so it cannot undo a newer state of its task.
+     *
+     * @return number of records replayed, 0 if the DLT does not exist
+     */
+    public int replay(String topic, int maxRecords) {
+        String dltTopic = topic + dltSuffix;
+        String replayGroup = groupId + "-dlt-replay";
+
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.GROUP_ID_CONFIG, replayGroup);
+        overrides.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, Math.min(maxRecords, 500));
+        // Looking up a DLT that was never written must not create it
+        overrides.put(ConsumerConfig.ALLOW_AUTO_CREATE_TOPICS_CONFIG, false);
+
+        int replayed = 0;
+        try (Consumer<String, MessagePayload> consumer =
+                 consumerFactory.createConsumer(replayGroup, "dlt-replay", null, overrides)) {
+            List<PartitionInfo> infos = consumer.partitionsFor(dltTopic);
+            if (infos == null || infos.isEmpty()) {
+                logger.info("Nothing to replay, {} does not exist", dltTopic);
+                return 0;
+            }
+            List<TopicPartition> partitions = new ArrayList<>();
+            for (PartitionInfo info : infos) {
+                partitions.add(new TopicPartition(info.topic(), info.partition()));
+            }
+            consumer.assign(partitions);
+
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            List<CompletableFuture<?>> sends = new ArrayList<>();
+            while (replayed < maxRecords) {
+                ConsumerRecords<String, MessagePayload> records = consumer.poll(POLL_TIMEOUT);
+                if (records.isEmpty()) {
+                    break;
+                }
+                for (ConsumerRecord<String, MessagePayload> record : records) {
+                    if (replayed >= maxRecords) {
+                        break;
+                    }
+                    String originalTopic = headerValue(record, KafkaHeaders.DLT_ORIGINAL_TOPIC);
+                    ProducerRecord<String, MessagePayload> replay = new ProducerRecord<>(
+                        originalTopic != null ? originalTopic : topic, record.key(), record.value());
+                    for (Header header : record.headers()) {
+                        if (!header.key().startsWith(KafkaHeaders.PREFIX) && !header.key().startsWith(RETRY_HEADER_PREFIX)) {
+                            replay.headers().add(header);
+                        }
+                    }
+                    sends.add(kafkaTemplate.send(replay));
+                    offsets.put(new TopicPartition(record.topic(), record.partition()),
+                        new OffsetAndMetadata(record.offset() + 1));
+                    replayed++;
+                }
+            }
+            // Only move the replay group once every replayed record is acknowledged by the broker
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+            if (!offsets.isEmpty()) {
+                consumer.commitSync(offsets);
+            }
+        }
+        logger.info("Replayed {} dead letters from {}", replayed, dltTopic);
+        return replayed;
+    }
+
+    private static String headerValue(ConsumerRecord<?, ?> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+}
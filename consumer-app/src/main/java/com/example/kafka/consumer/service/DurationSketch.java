@@ -0,0 +1,110 @@
+package com.example.kafka.consumer.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mergeable log-linear histogram of processing durations (ms) for percentile estimates.
+ * Durations below 8 ms are counted exactly; above, every power of two is split into 8 buckets,
+ * so an estimate is within 1/16 (about 6%) of the true value. Only non-empty buckets are kept,
+ * keyed by bucket index, which is also how the buckets are stored in message_rollups.
+ * Not thread-safe.
+ */
+public class DurationSketch {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public void add(long durationMs) {
+        add(bucketOf(durationMs), 1);
+        min = Math.min(min, durationMs);
+        max = Math.max(max, durationMs);
+    }
+
+    /**
+     * Adds {@code count} durations of the given bucket (from a stored rollup).
+     */
+    public void add(int bucket, long count) {
+        buckets.merge(bucket, count, Long::sum);
+        this.count += count;
+    }
+
+    public void merge(DurationSketch other) {
+        other.buckets.forEach(this::add);
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Bounds the estimates by the exact extremes, when known (e.g. from the rollup columns).
+     */
+    public void setRange(long min, long max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public Map<Integer, Long> getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * Estimated duration at the given quantile (0 - 1), or null without durations.
+     */
+    public Long quantile(double quantile) {
+        if (count == 0) {
+            return null;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            seen += bucket.getValue();
+            if (seen >= rank) {
+                long lower = lowerBound(bucket.getKey());
+                long estimate = lower + (upperBound(bucket.getKey()) - lower) / 2;
+                return Math.max(min, Math.min(max, estimate));
+            }
+        }
+        return max;
+    }
+
+    static int bucketOf(long durationMs) {
+        if (durationMs < SUB_BUCKETS) {
+            return (int) Math.max(0, durationMs);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(durationMs);
+        int subBucket = (int) (durationMs >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        return lowerBound(bucket) + (1L << (bucket / SUB_BUCKETS - 1)) - 1;
+    }
+}
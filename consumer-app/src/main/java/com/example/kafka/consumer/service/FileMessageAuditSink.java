@@ -0,0 +1,130 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.entity.MessageRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.OffsetDateTime;
+
+/**
+ * Audit sink that appends records to rolling CSV segment files on local disk (app.audit.sink=file).
+ * A segment is closed once it reaches segment-bytes and renamed from .csv.open to .csv. Closed
+ * segments hold the message_records columns except id, in table order, and can be bulk loaded with
+ * {@code COPY ... WITH (FORMAT csv)} into a staging table and moved into message_records with ids
+ * from message_records_seq.
+ * Nothing is written to the database on the consumer's path; the per-minute rollups are still
+ * maintained ({@link MessageRollupAggregator}), so statistics do not wait for the bulk load.
+ */
+@Service
+@ConditionalOnProperty(name = "app.audit.sink", havingValue = "file")
+public class FileMessageAuditSink implements MessageAuditSink, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileMessageAuditSink.class);
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final MessageRollupAggregator rollupAggregator;
+
+    private BufferedWriter writer;
+    private Path segment;
+    private long written;
+
+    public FileMessageAuditSink(@Value("${app.audit.file.directory:audit}") String directory,
+                                @Value("${app.audit.file.segment-bytes:67108864}") long segmentBytes,
+                                MessageRollupAggregator rollupAggregator) throws IOException {
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentBytes;
+        this.rollupAggregator = rollupAggregator;
+        Files.createDirectories(this.directory);
+    }
+
+    @Override
+    public synchronized void record(MessageRecord messageRecord) {
+        rollupAggregator.add(messageRecord);
+        String line = toCsv(messageRecord);
+        try {
+            if (writer == null) {
+                openSegment();
+            }
+            writer.write(line);
+            written += line.getBytes(StandardCharsets.UTF_8).length;
+            if (written >= segmentBytes) {
+                closeSegment();
+            }
+        } catch (IOException e) {
+            logger.error("Failed to append message record (partition {}, offset {}) to {}: {}",
+                messageRecord.getPartition(), messageRecord.getOffsetValue(), segment, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.audit.file.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (writer != null) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                logger.error("Failed to flush audit segment {}: {}", segment, e.getMessage());
+            }
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segment = directory.resolve("message-records-" + System.currentTimeMillis() + ".csv.open");
+        writer = Files.newBufferedWriter(segment, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        written = 0;
+    }
+
+    private void closeSegment() throws IOException {
+        writer.close();
+        String name = segment.getFileName().toString();
+        Path closed = segment.resolveSibling(name.substring(0, name.length() - ".open".length()));
+        Files.move(segment, closed);
+        logger.info("Closed audit segment {} ({} bytes)", closed, written);
+        writer = null;
+        segment = null;
+    }
+
+    private static String toCsv(MessageRecord record) {
+        return quote(record.getRawMessage())
+            + "," + timestamp(record.getReceivedAt())
+            + "," + timestamp(record.getProcessedAt())
+            + "," + quote(record.getKafkaTopic())
+            + "," + nullable(record.getPartition())
+            + "," + nullable(record.getOffsetValue())
+            + "," + quote(record.getMessageKey())
+            + "," + nullable(record.getProcessingDurationMs())
+            + "\n";
+    }
+
+    private static String quote(String value) {
+        return value == null ? "" : "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String timestamp(OffsetDateTime value) {
+        return value == null ? "" : value.toString();
+    }
+
+    private static String nullable(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
+    @Override
+    public synchronized void destroy() throws IOException {
+        if (writer != null) {
+            closeSegment();
+        }
+    }
+}
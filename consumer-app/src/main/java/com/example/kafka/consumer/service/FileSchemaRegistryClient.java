@@ -0,0 +1,82 @@
+package com.example.kafka.consumer.service;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Schema registry kept in a directory shared by producers and consumers
+ * (app.schema-registry.type=file): one {@code <id in hex>.avsc} file per schema, written atomically
+ * and never changed, so readers cache what they have loaded.
+ * For local runs and tests; a deployment with several hosts needs a shared volume.
+ */
+@Service
+@ConditionalOnProperty(name = "app.schema-registry.type", havingValue = "file")
+public class FileSchemaRegistryClient implements SchemaRegistryClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileSchemaRegistryClient.class);
+
+    private final Path directory;
+    private final Map<Long, Schema> schemas = new ConcurrentHashMap<>();
+
+    public FileSchemaRegistryClient(@Value("${app.schema-registry.directory:schema-registry}") Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public long register(Schema schema) {
+        long id = SchemaRegistryClient.idOf(schema);
+        if (schemas.putIfAbsent(id, schema) == null) {
+            Path file = fileOf(id);
+            try {
+                if (!Files.exists(file)) {
+                    Files.createDirectories(directory);
+                    Path temp = Files.createTempFile(directory, "schema", ".tmp");
+                    Files.writeString(temp, schema.toString(true), StandardCharsets.UTF_8);
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+                    logger.info("Registered schema {} as {}", schema.getFullName(), file.getFileName());
+                }
+            } catch (FileAlreadyExistsException e) {
+                // Registered concurrently by another process
+            } catch (IOException e) {
+                schemas.remove(id);
+                throw new UncheckedIOException("Could not register schema " + schema.getFullName(), e);
+            }
+        }
+        return id;
+    }
+
+    @Override
+    public Schema getSchema(long id) {
+        return schemas.computeIfAbsent(id, this::load);
+    }
+
+    private Schema load(long id) {
+        try {
+            return new Schema.Parser().parse(Files.readString(fileOf(id), StandardCharsets.UTF_8));
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Unknown schema id " + Long.toHexString(id));
+        } catch (IOException | SchemaParseException e) {
+            throw new IllegalArgumentException("Unreadable schema " + Long.toHexString(id) + ": " + e.getMessage(), e);
+        }
+    }
+
+    private Path fileOf(long id) {
+        return directory.resolve(Long.toHexString(id) + ".avsc");
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.entity.MessageRecord;
+import com.example.kafka.consumer.repository.MessageRecordJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit sink that buffers records in a bounded queue and writes them to message_records in batched
+ * multi-row inserts (app.audit.sink=jdbc, default).
+ * A record handed over inside a transaction is only queued once that transaction commits, so a
+ * rolled-back and redelivered message is audited once. The queue is lock-free (a linked queue whose
+ * bound is reserved with compare-and-set); a record that finds it full waits for the flusher instead
+ * of being dropped, which holds the processing threads back while the database lags. The waiting
+ * thread may still hold the connection of its committed transaction, so the flusher relies on the
+ * processing threads staying below the connection pool size, as they already must.
+ * Only the scheduled flusher writes: every flush-interval-ms it drains the queue, batch-size records
+ * per insert, each batch in its own transaction. A batch whose insert fails keeps its place in the
+ * queue and is written first on the next flush (audit.records.retried).
+ */
+@Service
+@ConditionalOnProperty(name = "app.audit.sink", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcMessageAuditSink implements MessageAuditSink, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcMessageAuditSink.class);
+
+    /** Pause between checks for room while the queue is full. */
+    private static final long FULL_QUEUE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final MessageRecordJdbcRepository messageRecordJdbcRepository;
+    private final MessageRollupAggregator rollupAggregator;
+    private final TransactionTemplate transactionTemplate;
+    private final Queue<MessageRecord> queue = new ConcurrentLinkedQueue<>();
+    /** Records queued or waiting for a retry; a slot is reserved before a record is queued. */
+    private final AtomicInteger queued = new AtomicInteger();
+    /** Batches whose insert failed, retried before the queue; only touched by the flusher. */
+    private final Deque<List<MessageRecord>> failedBatches = new ArrayDeque<>();
+    private final int capacity;
+    private final int batchSize;
+    private final Counter retriedRecords;
+    private final Counter backpressureWaits;
+
+    public JdbcMessageAuditSink(MessageRecordJdbcRepository messageRecordJdbcRepository,
+                                MessageRollupAggregator rollupAggregator,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.audit.jdbc.capacity:10000}") int capacity,
+                                @Value("${app.audit.jdbc.batch-size:500}") int batchSize) {
+        this.messageRecordJdbcRepository = messageRecordJdbcRepository;
+        this.rollupAggregator = rollupAggregator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.retriedRecords = Counter.builder("audit.records.retried")
+            .description("Audit records whose batch insert failed and was kept for the next flush")
+            .register(meterRegistry);
+        this.backpressureWaits = Counter.builder("audit.records.backpressure")
+            .description("Audit records that waited for room in the full JDBC sink queue")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Queues the record, after the commit of the current transaction if there is one; waits while
+     * the queue is full.
+     */
+    @Override
+    public void record(MessageRecord messageRecord) {
+        rollupAggregator.add(messageRecord);
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+            uncommitted().add(messageRecord);
+        } else {
+            enqueue(messageRecord);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<MessageRecord> uncommitted() {
+        List<MessageRecord> uncommitted = (List<MessageRecord>) TransactionSynchronizationManager.getResource(this);
+        if (uncommitted == null) {
+            List<MessageRecord> added = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, added);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    added.forEach(JdbcMessageAuditSink.this::enqueue);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(JdbcMessageAuditSink.this);
+                }
+            });
+            uncommitted = added;
+        }
+        return uncommitted;
+    }
+
+    private void enqueue(MessageRecord messageRecord) {
+        if (!reserve()) {
+            backpressureWaits.increment();
+            logger.debug("Audit queue full, waiting to queue record of partition {} offset {}",
+                messageRecord.getPartition(), messageRecord.getOffsetValue());
+            while (!reserve()) {
+                LockSupport.parkNanos(FULL_QUEUE_WAIT_NANOS);
+                if (Thread.currentThread().isInterrupted()) {
+                    // Shutting down: queue over the bound rather than lose a committed record
+                    queued.incrementAndGet();
+                    break;
+                }
+            }
+        }
+        queue.offer(messageRecord);
+    }
+
+    private boolean reserve() {
+        int current = queued.get();
+        while (current < capacity) {
+            if (queued.compareAndSet(current, current + 1)) {
+                return true;
+            }
+            current = queued.get();
+        }
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${app.audit.jdbc.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * Retries the failed batches, then writes what is queued when the flush starts, batch-size
+     * records per multi-row insert and transaction; records queued meanwhile are left to the next
+     * flush. Stops at the first failed insert, the database is unlikely to take the next one.
+     */
+    synchronized void flush() {
+        while (!failedBatches.isEmpty()) {
+            if (!write(failedBatches.peekFirst())) {
+                return;
+            }
+            failedBatches.removeFirst();
+        }
+        int remaining = queue.size();
+        while (remaining > 0) {
+            List<MessageRecord> batch = new ArrayList<>(Math.min(batchSize, remaining));
+            MessageRecord messageRecord;
+            while (batch.size() < batchSize && batch.size() < remaining && (messageRecord = queue.poll()) != null) {
+                batch.add(messageRecord);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            remaining -= batch.size();
+            if (!write(batch)) {
+                failedBatches.addLast(batch);
+                return;
+            }
+        }
+    }
+
+    private boolean write(List<MessageRecord> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> messageRecordJdbcRepository.insertAll(batch));
+            queued.addAndGet(-batch.size());
+            logger.debug("Flushed {} message records", batch.size());
+            return true;
+        } catch (Exception e) {
+            retriedRecords.increment(batch.size());
+            logger.error("Failed to write {} message records to the audit trail, kept for the next flush: {}",
+                batch.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    int getQueuedCount() {
+        return queued.get();
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+        if (queued.get() > 0) {
+            logger.error("{} message records could not be written to the audit trail before shutdown", queued.get());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.entity.*;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * {@link TaskPayloadParser} that reads the whole payload into a JsonNode tree and walks it
+ * (app.processing.parser=tree). Kept as the reference implementation for the streaming parser.
+ */
+@Component
+@ConditionalOnProperty(name = "app.processing.parser", havingValue = "tree")
+public class JsonTreeTaskPayloadParser implements TaskPayloadParser {
+    
+    private static final Logger logger = LoggerFactory.getLogger(JsonTreeTaskPayloadParser.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    
+    @Override
+    public Task parse(String message) throws Exception {
+        JsonNode rootNode = objectMapper.readTree(message);
+        
+        String taskId = rootNode.path("taskId").asText("unknown");
+        Task task = new Task(taskId, message);
+        
+        // Parse attributes if present
+        JsonNode attributesNode = rootNode.path("attributes");
+        if (attributesNode.isArray()) {
+            for (JsonNode attrNode : attributesNode) {
+                String attrName = attrNode.path("name").asText();
+                String attrTypeStr = attrNode.path("type").asText("STRING");
+                AttributeType attrType = parseAttributeType(attrTypeStr);
+                
+                TaskAttribute attribute = new TaskAttribute(attrName, attrType);
+                
+                // Parse values
+                JsonNode valuesNode = attrNode.path("values");
+                if (valuesNode.isArray()) {
+                    for (JsonNode valueNode : valuesNode) {
+                        TaskAttributeValue value = parseAttributeValue(valueNode, attrType);
+                        if (value != null) {
+                            attribute.addValue(value);
+                        }
+                    }
+                }
+                
+                task.addAttribute(attribute);
+            }
+        }
+        
+        return task;
+    }
+    
+    private AttributeType parseAttributeType(String typeStr) {
+        try {
+            return AttributeType.valueOf(typeStr.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return AttributeType.STRING;
+        }
+    }
+    
+    private TaskAttributeValue parseAttributeValue(JsonNode valueNode, AttributeType type) {
+        try {
+            switch (type) {
+                case NUMERIC:
+                    if (valueNode.isNumber()) {
+                        return TaskAttributeValue.ofNumeric(new BigDecimal(valueNode.asText()));
+                    }
+                    break;
+                case DATE:
+                    if (valueNode.isTextual()) {
+                        return TaskAttributeValue.ofDate(
+                            OffsetDateTime.parse(valueNode.asText(), DateTimeFormatter.ISO_OFFSET_DATE_TIME)
+                        );
+                    }
+                    break;
+                case BOOLEAN:
+                    if (valueNode.isBoolean()) {
+                        return TaskAttributeValue.ofBoolean(valueNode.asBoolean());
+                    }
+                    break;
+                case ENTITY:
+                    if (valueNode.isTextual()) {
+                        return TaskAttributeValue.ofEntity(valueNode.asText());
+                    }
+                    break;
+                case TEXT:
+                    return TaskAttributeValue.ofText(valueNode.asText());
+                default:
+                case STRING:
+                    return TaskAttributeValue.ofString(valueNode.asText());
+            }
+        } catch (Exception e) {
+            logger.warn("Could not parse attribute value: {}", e.getMessage());
+        }
+        return null;
+    }
+}
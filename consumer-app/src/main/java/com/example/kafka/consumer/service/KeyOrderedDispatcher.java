@@ -0,0 +1,290 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.dto.MessagePayload;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatches records of the partitions owned by this pod to a shared worker pool while keeping
+ * per-key order: records with the same key are chained one after another, records with different
+ * keys run concurrently, so parallelism is bounded by the pool size instead of the partition count.
+ * Completed offsets are tracked per partition and only the contiguous completed prefix is committed.
+ * The poll thread never waits for the workers: once max-in-flight records are outstanding the
+ * consumer's partitions are paused until half of them have completed. A record that still fails after
+ * its retries goes to the task DLT recoverer before its offset counts as completed; while the recoverer
+ * fails it is retried every recovery-retry-interval-ms, so the committed prefix never passes a record
+ * that was neither processed nor dead-lettered (nor do later records of its key run). If the partition
+ * is revoked meanwhile the record is left uncompleted and redelivered to the new owner.
+ * Used by the parallel processing mode (app.processing.mode=parallel).
+ */
+@Component
+@ConditionalOnProperty(name = "app.processing.mode", havingValue = "parallel")
+public class KeyOrderedDispatcher implements ConsumerAwareRebalanceListener, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyOrderedDispatcher.class);
+
+    private final ThreadPoolExecutor workers;
+    private final int maxInFlight;
+    private final KafkaListenerEndpointRegistry registry;
+    private final ConsumerRecordRecoverer recoverer;
+    private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, OffsetTracker> trackers = new ConcurrentHashMap<>();
+    /** Partitions paused because max-in-flight was reached (not the ones paused by others, e.g. a drain). */
+    private final Set<TopicPartition> throttled = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Value("${app.processing.parallel.retry-attempts:2}")
+    private int retryAttempts;
+
+    @Value("${app.processing.parallel.drain-timeout-ms:30000}")
+    private long drainTimeoutMs;
+
+    @Value("${app.processing.parallel.recovery-retry-interval-ms:5000}")
+    private long recoveryRetryIntervalMs;
+
+    public KeyOrderedDispatcher(@Value("${app.processing.parallel.workers:8}") int workerCount,
+                                @Value("${app.processing.parallel.max-in-flight:200}") int maxInFlight,
+                                KafkaListenerEndpointRegistry registry,
+                                @Qualifier("taskDeadLetterRecoverer") ConsumerRecordRecoverer recoverer) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> new Thread(runnable, "task-worker-" + threadIndex.incrementAndGet()));
+        this.maxInFlight = maxInFlight;
+        this.registry = registry;
+        this.recoverer = recoverer;
+    }
+
+    /**
+     * Schedules the record after every previously dispatched record with the same key. Never blocks;
+     * call {@link #applyBackPressure} once the poll's records are dispatched.
+     */
+    public void dispatch(ConsumerRecord<String, MessagePayload> record, Runnable work) {
+        inFlight.incrementAndGet();
+
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        OffsetTracker tracker = trackers.computeIfAbsent(partition, tp -> new OffsetTracker());
+        tracker.dispatched(record.offset());
+
+        // Records without a key keep their partition order
+        String key = record.key() != null ? record.key() : partition.toString();
+        CompletableFuture<Void> task = tails.compute(key, (k, tail) ->
+            (tail == null ? CompletableFuture.<Void>completedFuture(null) : tail)
+                .handle((result, ex) -> null)
+                .thenRunAsync(() -> execute(record, work, partition, tracker), workers));
+
+        task.whenComplete((result, ex) -> {
+            // A record that could not be dead-lettered never counts as completed
+            if (ex == null) {
+                tracker.completed(record.offset());
+            }
+            tails.remove(key, task);
+            released();
+        });
+    }
+
+    private void execute(ConsumerRecord<String, MessagePayload> record, Runnable work,
+                         TopicPartition partition, OffsetTracker tracker) {
+        Exception failure = null;
+        for (int attempt = 0; attempt <= retryAttempts; attempt++) {
+            try {
+                work.run();
+                return;
+            } catch (Exception e) {
+                failure = e;
+                logger.warn("Attempt {} failed for partition {} offset {}: {}",
+                    attempt + 1, record.partition(), record.offset(), e.getMessage());
+            }
+        }
+        if (!recover(record, failure, partition, tracker)) {
+            throw new IllegalStateException("Record at partition " + record.partition() + " offset " +
+                record.offset() + " was not dead-lettered before its partition was released", failure);
+        }
+    }
+
+    /**
+     * Hands the record to the recoverer until it succeeds or the partition is no longer tracked by
+     * {@code tracker} (revoked, lost) or the pool shuts down.
+     *
+     * @return true if the record was dead-lettered
+     */
+    private boolean recover(ConsumerRecord<String, MessagePayload> record, Exception failure,
+                            TopicPartition partition, OffsetTracker tracker) {
+        while (true) {
+            try {
+                recoverer.accept(record, failure);
+                return true;
+            } catch (Exception e) {
+                logger.error("Record at partition {} offset {} failed {} attempts and could not be dead-lettered, " +
+                    "retrying in {} ms", record.partition(), record.offset(), retryAttempts + 1, recoveryRetryIntervalMs, e);
+            }
+            if (trackers.get(partition) != tracker || workers.isShutdown()) {
+                return false;
+            }
+            try {
+                Thread.sleep(recoveryRetryIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Pauses the consumer's partitions while max-in-flight records are outstanding, so the poll
+     * loop keeps running (heartbeats, max.poll.interval.ms) without fetching more.
+     * Must be called on the consumer's poll thread.
+     */
+    public synchronized void applyBackPressure(Consumer<?, ?> consumer) {
+        if (inFlight.get() < maxInFlight) {
+            return;
+        }
+        MessageListenerContainer container = container();
+        for (TopicPartition partition : consumer.assignment()) {
+            if (throttled.add(partition) && container != null) {
+                container.pausePartition(partition);
+            }
+        }
+        logger.debug("{} records in flight, paused partitions {}", inFlight.get(), consumer.assignment());
+    }
+
+    private synchronized void released() {
+        if (inFlight.decrementAndGet() > maxInFlight / 2 || throttled.isEmpty()) {
+            return;
+        }
+        MessageListenerContainer container = container();
+        // A paused container (drain) keeps its partitions paused; they are resumed by a later completion
+        if (container != null && container.isPauseRequested()) {
+            return;
+        }
+        for (TopicPartition partition : throttled) {
+            if (container != null) {
+                container.resumePartition(partition);
+            }
+        }
+        throttled.clear();
+    }
+
+    /**
+     * Commits the completed prefix of every partition assigned to the given consumer.
+     * Must be called on the consumer's poll thread.
+     */
+    public void commit(Consumer<?, ?> consumer) {
+        commit(consumer, consumer.assignment());
+    }
+
+    private void commit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            OffsetTracker tracker = trackers.get(partition);
+            if (tracker == null) {
+                continue;
+            }
+            OptionalLong committable = tracker.committableOffset();
+            if (committable.isPresent()) {
+                offsets.put(partition, new OffsetAndMetadata(committable.getAsLong()));
+            }
+        }
+        if (offsets.isEmpty()) {
+            return;
+        }
+        consumer.commitSync(offsets);
+        offsets.forEach((partition, offset) -> trackers.get(partition).committed(offset.offset()));
+        logger.debug("Committed completed prefixes {}", offsets);
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        // Give in-flight records of the revoked partitions a chance to finish so the new owner
+        // does not reprocess them; they all drain concurrently within one timeout, and anything
+        // still running after it is redelivered
+        long deadline = System.currentTimeMillis() + drainTimeoutMs;
+        for (TopicPartition partition : partitions) {
+            OffsetTracker tracker = trackers.get(partition);
+            try {
+                if (tracker != null && !tracker.awaitDrained(Math.max(0, deadline - System.currentTimeMillis()))) {
+                    logger.warn("Partition {} still has {} records in flight after revocation",
+                        partition, tracker.inFlightCount());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        try {
+            commit(consumer, partitions);
+        } finally {
+            forget(partitions);
+        }
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        forget(partitions);
+    }
+
+    private void forget(Collection<TopicPartition> partitions) {
+        partitions.forEach(trackers::remove);
+        // A throttled partition would otherwise stay paused if it is assigned back to this pod
+        MessageListenerContainer container = container();
+        for (TopicPartition partition : partitions) {
+            if (throttled.remove(partition) && container != null) {
+                container.resumePartition(partition);
+            }
+        }
+    }
+
+    private MessageListenerContainer container() {
+        return registry.getListenerContainer(ParallelTaskConsumerService.LISTENER_ID);
+    }
+
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    public int getWorkerCount() {
+        return workers.getMaximumPoolSize();
+    }
+
+    /**
+     * Resizes the worker pool. Running records finish on their threads; surplus threads
+     * exit once idle, new threads are started as queued work arrives.
+     */
+    public synchronized void setWorkerCount(int workerCount) {
+        // Core size must never exceed max size, so the order depends on the direction
+        if (workerCount > workers.getMaximumPoolSize()) {
+            workers.setMaximumPoolSize(workerCount);
+            workers.setCorePoolSize(workerCount);
+        } else {
+            workers.setCorePoolSize(workerCount);
+            workers.setMaximumPoolSize(workerCount);
+        }
+        logger.info("Worker pool resized to {} threads", workerCount);
+    }
+
+    @Override
+    public void destroy() {
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.entity.MessageRecord;
+
+import java.util.List;
+
+/**
+ * Destination of the message audit trail (message_records).
+ * Each consumed message is recorded exactly once, after processing, with both its received and
+ * processed timestamps. Implementations write asynchronously, off the processing thread, so the
+ * audit trail is best-effort: records still buffered when the process dies are lost.
+ * Selected with app.audit.sink (jdbc or file).
+ */
+public interface MessageAuditSink {
+
+    void record(MessageRecord messageRecord);
+
+    default void recordAll(List<MessageRecord> messageRecords) {
+        messageRecords.forEach(this::record);
+    }
+}
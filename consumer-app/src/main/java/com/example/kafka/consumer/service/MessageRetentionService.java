@@ -0,0 +1,50 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.repository.MessageRecordPartitionRepository;
+import com.example.kafka.consumer.repository.MessageRollupJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Periodic retention of the audit data: keeps the daily message_records partitions ready and drops
+ * the expired ones ({@link MessageRecordPartitionRepository}), and deletes rollups older than
+ * app.audit.rollups.retention-days. Rollups are kept much longer than the records they summarize.
+ */
+@Service
+public class MessageRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageRetentionService.class);
+
+    private final MessageRecordPartitionRepository partitionRepository;
+    private final MessageRollupJdbcRepository messageRollupJdbcRepository;
+
+    @Value("${app.audit.rollups.retention-days:90}")
+    private int rollupRetentionDays;
+
+    public MessageRetentionService(MessageRecordPartitionRepository partitionRepository,
+                                   MessageRollupJdbcRepository messageRollupJdbcRepository) {
+        this.partitionRepository = partitionRepository;
+        this.messageRollupJdbcRepository = messageRollupJdbcRepository;
+    }
+
+    @Scheduled(initialDelayString = "${app.audit.partitioning.maintenance-interval-ms:3600000}",
+               fixedDelayString = "${app.audit.partitioning.maintenance-interval-ms:3600000}")
+    public void applyRetention() {
+        try {
+            if (partitionRepository.isEnabled()) {
+                partitionRepository.maintain();
+            }
+            int deleted = messageRollupJdbcRepository.deleteBefore(OffsetDateTime.now().minusDays(rollupRetentionDays));
+            if (deleted > 0) {
+                logger.info("Deleted {} message rollups older than {} days", deleted, rollupRetentionDays);
+            }
+        } catch (Exception e) {
+            logger.error("Audit retention failed: {}", e.getMessage());
+        }
+    }
+}
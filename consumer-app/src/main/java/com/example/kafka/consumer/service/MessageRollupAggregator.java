@@ -0,0 +1,185 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.entity.MessageRecord;
+import com.example.kafka.consumer.entity.MessageRollup;
+import com.example.kafka.consumer.repository.MessageRollupJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains the per-minute message_rollups from the audited messages.
+ * Both audit sinks hand every record over; it is only added to an in-memory rollup of its topic,
+ * partition and minute (received_at), and the rollups collected so far are merged into the table
+ * every flush-interval-ms. A minute is therefore written a few times while it is current and its
+ * totals stay exact when several pods or flushes contribute to it.
+ * A record handed over inside a transaction only counts once that transaction commits, so a
+ * rolled-back and redelivered message is not counted twice. Rollups whose merge fails go back to
+ * the in-memory ones and are retried with the next flush.
+ * Like the audit trail, rollups still in memory when the process dies are lost.
+ */
+@Service
+public class MessageRollupAggregator implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageRollupAggregator.class);
+
+    /** Rollup key of records without topic or partition. */
+    private static final String UNKNOWN_TOPIC = "";
+    private static final int UNKNOWN_PARTITION = -1;
+
+    private record Key(OffsetDateTime bucketStart, String topic, int partition) {
+    }
+
+    private static class Accumulator {
+        private long messageCount;
+        private long processedCount;
+        private long durationSum;
+        private final DurationSketch sketch = new DurationSketch();
+
+        void add(Long durationMs) {
+            messageCount++;
+            if (durationMs != null) {
+                processedCount++;
+                durationSum += durationMs;
+                sketch.add(durationMs);
+            }
+        }
+
+        Accumulator merge(Accumulator other) {
+            messageCount += other.messageCount;
+            processedCount += other.processedCount;
+            durationSum += other.durationSum;
+            sketch.merge(other.sketch);
+            return this;
+        }
+    }
+
+    private final MessageRollupJdbcRepository messageRollupJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Key, Accumulator> pending = new ConcurrentHashMap<>();
+
+    public MessageRollupAggregator(MessageRollupJdbcRepository messageRollupJdbcRepository,
+                                   PlatformTransactionManager transactionManager) {
+        this.messageRollupJdbcRepository = messageRollupJdbcRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Adds the record to its rollup, after the commit of the current transaction if there is one.
+     */
+    public void add(MessageRecord messageRecord) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+            uncommitted().add(messageRecord);
+        } else {
+            addNow(messageRecord);
+        }
+    }
+
+    private void addNow(MessageRecord messageRecord) {
+        Key key = new Key(
+            messageRecord.getReceivedAt().withOffsetSameInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.MINUTES),
+            messageRecord.getKafkaTopic() != null ? messageRecord.getKafkaTopic() : UNKNOWN_TOPIC,
+            messageRecord.getPartition() != null ? messageRecord.getPartition() : UNKNOWN_PARTITION);
+        // compute() serializes with the remove() of flush: an accumulator is never changed once taken
+        pending.compute(key, (k, accumulator) -> {
+            Accumulator target = accumulator != null ? accumulator : new Accumulator();
+            target.add(messageRecord.getProcessingDurationMs());
+            return target;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<MessageRecord> uncommitted() {
+        List<MessageRecord> uncommitted = (List<MessageRecord>) TransactionSynchronizationManager.getResource(this);
+        if (uncommitted == null) {
+            List<MessageRecord> added = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, added);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    added.forEach(MessageRollupAggregator.this::addNow);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MessageRollupAggregator.this);
+                }
+            });
+            uncommitted = added;
+        }
+        return uncommitted;
+    }
+
+    /**
+     * Merges everything collected so far into message_rollups.
+     */
+    @Scheduled(fixedDelayString = "${app.audit.rollups.flush-interval-ms:5000}")
+    public void flush() {
+        Map<Key, Accumulator> taken = new LinkedHashMap<>();
+        for (Key key : pending.keySet()) {
+            Accumulator accumulator = pending.remove(key);
+            if (accumulator != null) {
+                taken.put(key, accumulator);
+            }
+        }
+        if (taken.isEmpty()) {
+            return;
+        }
+        List<MessageRollup> rollups = new ArrayList<>(taken.size());
+        taken.forEach((key, accumulator) -> rollups.add(toRollup(key, accumulator)));
+        try {
+            transactionTemplate.executeWithoutResult(status -> messageRollupJdbcRepository.mergeAll(rollups));
+            logger.debug("Merged {} message rollups", rollups.size());
+        } catch (Exception e) {
+            // All statements share one transaction: nothing was merged, so everything is retried next time
+            taken.forEach((key, accumulator) -> pending.merge(key, accumulator, Accumulator::merge));
+            logger.error("Failed to merge {} message rollups, kept for the next flush: {}", rollups.size(), e.getMessage());
+        }
+    }
+
+    private static MessageRollup toRollup(Key key, Accumulator accumulator) {
+        MessageRollup rollup = new MessageRollup();
+        rollup.setBucketStart(key.bucketStart());
+        rollup.setKafkaTopic(key.topic());
+        rollup.setPartition(key.partition());
+        rollup.setMessageCount(accumulator.messageCount);
+        rollup.setProcessedCount(accumulator.processedCount);
+        rollup.setDurationSum(accumulator.durationSum);
+        if (accumulator.processedCount > 0) {
+            rollup.setDurationMin(accumulator.sketch.getMin());
+            rollup.setDurationMax(accumulator.sketch.getMax());
+        }
+        StringBuilder histogram = new StringBuilder("{");
+        accumulator.sketch.getBuckets().forEach((bucket, count) -> {
+            if (histogram.length() > 1) {
+                histogram.append(',');
+            }
+            histogram.append('"').append(bucket).append("\":").append(count);
+        });
+        rollup.setDurationHistogram(histogram.append('}').toString());
+        return rollup;
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.repository.MessageRollupJdbcRepository;
+import com.example.kafka.consumer.repository.MessageRollupJdbcRepository.RollupTotals;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Processing statistics of a time range from the per-minute message_rollups: counts, average,
+ * min and max are exact, percentiles are estimated from the merged {@link DurationSketch}es.
+ * Reads at most one row per topic partition and minute, never message_records.
+ */
+@Service
+public class MessageStatisticsService {
+
+    private final MessageRollupJdbcRepository messageRollupJdbcRepository;
+
+    public MessageStatisticsService(MessageRollupJdbcRepository messageRollupJdbcRepository) {
+        this.messageRollupJdbcRepository = messageRollupJdbcRepository;
+    }
+
+    /**
+     * Statistics of the minutes in [from, to), in total and per topic partition.
+     */
+    public Map<String, Object> getStatistics(OffsetDateTime from, OffsetDateTime to, String topic) {
+        List<RollupTotals> totals = messageRollupJdbcRepository.findTotals(from, to, topic);
+        Summary overall = new Summary();
+        List<Map<String, Object>> partitions = new ArrayList<>();
+        for (RollupTotals partitionTotals : totals) {
+            Summary summary = new Summary();
+            summary.add(partitionTotals);
+            overall.add(partitionTotals);
+            Map<String, Object> partition = new LinkedHashMap<>();
+            partition.put("topic", partitionTotals.topic());
+            partition.put("partition", partitionTotals.partition());
+            partition.putAll(summary.toMap());
+            partitions.add(partition);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("from", from);
+        response.put("to", to);
+        response.putAll(overall.toMap());
+        response.put("partitions", partitions);
+        return response;
+    }
+
+    private static class Summary {
+        private long messageCount;
+        private long processedCount;
+        private long durationSum;
+        private Long durationMin;
+        private Long durationMax;
+        private final DurationSketch sketch = new DurationSketch();
+
+        void add(RollupTotals totals) {
+            messageCount += totals.messageCount();
+            processedCount += totals.processedCount();
+            durationSum += totals.durationSum();
+            if (totals.durationMin() != null) {
+                durationMin = durationMin == null ? totals.durationMin() : Math.min(durationMin, totals.durationMin());
+            }
+            if (totals.durationMax() != null) {
+                durationMax = durationMax == null ? totals.durationMax() : Math.max(durationMax, totals.durationMax());
+            }
+            totals.histogram().forEach(sketch::add);
+        }
+
+        Map<String, Object> toMap() {
+            if (durationMin != null) {
+                sketch.setRange(durationMin, durationMax);
+            }
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("messageCount", messageCount);
+            map.put("processedCount", processedCount);
+            map.put("averageProcessingDurationMs", processedCount > 0 ? (double) durationSum / processedCount : null);
+            map.put("minProcessingDurationMs", durationMin);
+            map.put("maxProcessingDurationMs", durationMax);
+            map.put("p50ProcessingDurationMs", sketch.quantile(0.50));
+            map.put("p95ProcessingDurationMs", sketch.quantile(0.95));
+            map.put("p99ProcessingDurationMs", sketch.quantile(0.99));
+            return map;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.entity.Task;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Stores tasks in the normalized tables through {@link TaskUpsertEngine} (app.persistence.mode=normalized, default).
+ */
+@Service
+@ConditionalOnProperty(name = "app.persistence.mode", havingValue = "normalized", matchIfMissing = true)
+public class NormalizedTaskStore implements TaskStore {
+
+    private final TaskUpsertEngine taskUpsertEngine;
+
+    public NormalizedTaskStore(TaskUpsertEngine taskUpsertEngine) {
+        this.taskUpsertEngine = taskUpsertEngine;
+    }
+
+    @Override
+    public void upsertAll(List<Task> tasks) {
+        taskUpsertEngine.upsertAll(tasks);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.kafka.consumer.service;
+
+import java.util.NavigableSet;
+import java.util.OptionalLong;
+import java.util.TreeSet;
+
+/**
+ * Tracks dispatched and completed offsets of one partition when records complete out of order.
+ * The committable offset is the end of the contiguous completed prefix: the lowest offset still
+ * in flight, or one past the highest dispatched offset when nothing is in flight.
+ */
+public class OffsetTracker {
+
+    private final NavigableSet<Long> inFlight = new TreeSet<>();
+    private long highestDispatched = -1;
+    private long lastCommitted = -1;
+
+    public synchronized void dispatched(long offset) {
+        inFlight.add(offset);
+        highestDispatched = Math.max(highestDispatched, offset);
+    }
+
+    public synchronized void completed(long offset) {
+        inFlight.remove(offset);
+        notifyAll();
+    }
+
+    public synchronized int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Returns the next offset to commit if the completed prefix advanced since the last commit.
+     */
+    public synchronized OptionalLong committableOffset() {
+        if (highestDispatched < 0) {
+            return OptionalLong.empty();
+        }
+        long next = inFlight.isEmpty() ? highestDispatched + 1 : inFlight.first();
+        return next > lastCommitted ? OptionalLong.of(next) : OptionalLong.empty();
+    }
+
+    public synchronized void committed(long offset) {
+        lastCommitted = Math.max(lastCommitted, offset);
+    }
+
+    /**
+     * Waits until no record of the partition is in flight or the timeout elapses.
+     *
+     * @return true if the partition drained
+     */
+    public synchronized boolean awaitDrained(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!inFlight.isEmpty()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.dto.MessagePayload;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Parallel consumer for task-topic (app.processing.mode=parallel).
+ * Hands every polled record to the {@link KeyOrderedDispatcher} and commits the completed prefix
+ * of each partition after each poll, and on idle events when no new records arrive.
+ * The listener never waits for the workers; the dispatcher pauses the partitions instead.
+ */
+@Service
+@ConditionalOnProperty(name = "app.processing.mode", havingValue = "parallel")
+public class ParallelTaskConsumerService {
+    
+    public static final String LISTENER_ID = "parallelTaskListener";
+    
+    private final KeyOrderedDispatcher dispatcher;
+    private final TaskMessageProcessor messageProcessor;
+    
+    public ParallelTaskConsumerService(KeyOrderedDispatcher dispatcher, TaskMessageProcessor messageProcessor) {
+        this.dispatcher = dispatcher;
+        this.messageProcessor = messageProcessor;
+    }
+    
+    @KafkaListener(id = LISTENER_ID, idIsGroup = false, topics = "${app.kafka.topic}",
+        containerFactory = "parallelKafkaListenerContainerFactory")
+    public void consumeBatch(List<ConsumerRecord<String, MessagePayload>> records, Consumer<?, ?> consumer) {
+        for (ConsumerRecord<String, MessagePayload> record : records) {
+            dispatcher.dispatch(record, () -> messageProcessor.process(
+                record.value(), record.topic(), record.partition(), record.offset(), record.key()));
+        }
+        dispatcher.applyBackPressure(consumer);
+        dispatcher.commit(consumer);
+    }
+    
+    // Idle events are published on the consumer thread, so committing here is safe
+    @EventListener(condition = "event.listenerId.startsWith('" + LISTENER_ID + "')")
+    public void onIdle(ListenerContainerIdleEvent event) {
+        dispatcher.commit(event.getConsumer());
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.dto.MessagePayload;
+import com.example.kafka.consumer.entity.TaskSnapshot;
+import com.example.kafka.consumer.repository.TaskSnapshotJdbcRepository;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Rebuilds the task_snapshots read-model from the compacted snapshot topic on startup.
+ * Each partition is read from the beginning up to the end offset captured at startup by its
+ * own consumer, in parallel, and written with bulk upserts (latest record per task wins,
+ * tombstones delete). Once every partition is loaded the snapshot consumer group is moved to
+ * those end offsets and the regular {@link TaskSnapshotConsumer} listener is started.
+ */
+@Service
+@ConditionalOnProperty(name = "app.snapshot.bootstrap.enabled", havingValue = "true")
+public class SnapshotBootstrapService implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotBootstrapService.class);
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private final ConsumerFactory<String, MessagePayload> consumerFactory;
+    private final TaskSnapshotJdbcRepository snapshotJdbcRepository;
+    private final KafkaListenerEndpointRegistry registry;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskSnapshotQueryService queryService;
+    private final ConsumerOffsetStore offsetStore;
+
+    @Value("${app.kafka.snapshot-topic:task-snapshots}")
+    private String snapshotTopic;
+
+    @Value("${app.kafka.snapshot-consumer-group:task-snapshot-consumer-group}")
+    private String snapshotGroup;
+
+    @Value("${app.snapshot.bootstrap.parallelism:8}")
+    private int parallelism;
+
+    @Value("${app.snapshot.bootstrap.fetch-size:2000}")
+    private int fetchSize;
+
+    @Value("${app.snapshot.bootstrap.batch-size:1000}")
+    private int batchSize;
+
+    public SnapshotBootstrapService(ConsumerFactory<String, MessagePayload> consumerFactory,
+                                    TaskSnapshotJdbcRepository snapshotJdbcRepository,
+                                    KafkaListenerEndpointRegistry registry,
+                                    PlatformTransactionManager transactionManager,
+                                    ConsumerOffsetStore offsetStore,
+                                    TaskSnapshotQueryService queryService) {
+        this.consumerFactory = consumerFactory;
+        this.snapshotJdbcRepository = snapshotJdbcRepository;
+        this.registry = registry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.offsetStore = offsetStore;
+        this.queryService = queryService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        long startTime = System.currentTimeMillis();
+
+        Map<TopicPartition, Long> endOffsets;
+        try (Consumer<String, MessagePayload> metadataConsumer = createConsumer("meta")) {
+            List<TopicPartition> partitions = new ArrayList<>();
+            for (PartitionInfo info : metadataConsumer.partitionsFor(snapshotTopic)) {
+                partitions.add(new TopicPartition(info.topic(), info.partition()));
+            }
+            endOffsets = metadataConsumer.endOffsets(partitions);
+        }
+
+        logger.info("Bootstrapping task_snapshots from {} partitions of {} (parallelism {})",
+            endOffsets.size(), snapshotTopic, parallelism);
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(parallelism, endOffsets.size())));
+        long totalRecords = 0;
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (Map.Entry<TopicPartition, Long> entry : endOffsets.entrySet()) {
+                results.add(executor.submit(() -> loadPartition(entry.getKey(), entry.getValue())));
+            }
+            for (Future<Long> result : results) {
+                totalRecords += result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        commitGroupOffsets(endOffsets);
+
+        logger.info("Snapshot bootstrap finished: {} records from {} partitions in {} ms",
+            totalRecords, endOffsets.size(), System.currentTimeMillis() - startTime);
+
+        // The main container plus its retry topic / DLT containers (ids suffixed)
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            String listenerId = container.getListenerId();
+            if (listenerId != null && listenerId.startsWith(TaskSnapshotConsumer.LISTENER_ID) && !container.isRunning()) {
+                container.start();
+                logger.info("Started snapshot listener container {} after bootstrap", listenerId);
+            }
+        }
+    }
+
+    private long loadPartition(TopicPartition partition, long endOffset) {
+        long records = 0;
+        try (Consumer<String, MessagePayload> consumer = createConsumer("p" + partition.partition())) {
+            consumer.assign(List.of(partition));
+            consumer.seekToBeginning(List.of(partition));
+
+            // Coalesce per taskId: a null value marks a tombstone
+            Map<String, ConsumerRecord<String, MessagePayload>> latest = new LinkedHashMap<>();
+            while (consumer.position(partition) < endOffset) {
+                ConsumerRecords<String, MessagePayload> polled = consumer.poll(POLL_TIMEOUT);
+                for (ConsumerRecord<String, MessagePayload> record : polled) {
+                    if (record.offset() >= endOffset) {
+                        break;
+                    }
+                    if (record.key() != null) {
+                        latest.put(record.key(), record);
+                    }
+                    records++;
+                }
+                if (latest.size() >= batchSize) {
+                    flush(latest.values());
+                    latest.clear();
+                }
+            }
+            flush(latest.values());
+        }
+        logger.info("Loaded {} snapshot records from partition {}", records, partition);
+        return records;
+    }
+
+    private void flush(Collection<ConsumerRecord<String, MessagePayload>> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        List<TaskSnapshot> upserts = new ArrayList<>();
+        List<TaskSnapshot> deletes = new ArrayList<>();
+        for (ConsumerRecord<String, MessagePayload> record : records) {
+            TaskSnapshot snapshot = new TaskSnapshot(record.key(), record.value() != null ? record.value().text() : null);
+            snapshot.setKafkaOffset(record.offset());
+            snapshot.setKafkaPartition(record.partition());
+            (record.value() == null ? deletes : upserts).add(snapshot);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!upserts.isEmpty()) {
+                snapshotJdbcRepository.upsertAll(upserts);
+            }
+            if (!deletes.isEmpty()) {
+                snapshotJdbcRepository.deleteAll(deletes);
+            }
+        });
+        queryService.invalidateAll(records.stream().map(ConsumerRecord::key).toList());
+    }
+
+    /**
+     * Moves the snapshot consumer group past the loaded records so the listener does not
+     * replay them. Only possible while the group has no active members; otherwise the
+     * listener resumes from the group's own offsets (the upserts are idempotent).
+     */
+    private void commitGroupOffsets(Map<TopicPartition, Long> endOffsets) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        endOffsets.forEach((tp, offset) -> offsets.put(tp, new OffsetAndMetadata(offset)));
+        // With app.offsets.store=db the listener seeks to these on assignment, active group or not
+        offsetStore.storeAll(snapshotGroup, endOffsets);
+
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.GROUP_ID_CONFIG, snapshotGroup);
+        try (Consumer<String, MessagePayload> consumer =
+                consumerFactory.createConsumer(snapshotGroup, "bootstrap", "-commit", overrides)) {
+            consumer.commitSync(offsets);
+            logger.info("Committed bootstrap end offsets for group {}", snapshotGroup);
+        } catch (Exception e) {
+            logger.warn("Could not commit bootstrap offsets for group {} (group active?): {}",
+                snapshotGroup, e.getMessage());
+        }
+    }
+
+    private Consumer<String, MessagePayload> createConsumer(String suffix) {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, fetchSize);
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        return consumerFactory.createConsumer(snapshotGroup, "bootstrap", "-" + suffix, overrides);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.entity.*;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link TaskPayloadParser} that reads the payload token by token with Jackson's {@link JsonParser}
+ * and creates the entities directly, without building a JsonNode tree (app.processing.parser=streaming,
+ * default). Accepts the same taskId/attributes/values schema as {@link JsonTreeTaskPayloadParser},
+ * including attributes whose "values" come before their "type".
+ */
+@Component
+@ConditionalOnProperty(name = "app.processing.parser", havingValue = "streaming", matchIfMissing = true)
+public class StreamingTaskPayloadParser implements TaskPayloadParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingTaskPayloadParser.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final JsonFactory jsonFactory = objectMapper.getFactory();
+
+    /** Upper bound for the type cache, so arbitrary type strings cannot grow it without limit. */
+    private static final int MAX_CACHED_TYPES = 256;
+
+    private final Map<String, AttributeType> attributeTypes = new ConcurrentHashMap<>();
+
+    @Override
+    public Task parse(String message) throws Exception {
+        try (JsonParser parser = jsonFactory.createParser(message)) {
+            Task task = new Task("unknown", message);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return task;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("taskId".equals(field)) {
+                    task.setTaskId(token == JsonToken.VALUE_NULL ? "unknown" : textOf(parser, ""));
+                } else if ("attributes".equals(field) && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        task.addAttribute(readAttribute(parser));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return task;
+        }
+    }
+
+    private TaskAttribute readAttribute(JsonParser parser) throws IOException {
+        TaskAttribute attribute = new TaskAttribute("", AttributeType.STRING);
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return attribute;
+        }
+        JsonNode valuesBeforeType = null;
+        boolean typeSeen = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "name" -> attribute.setName(textOf(parser, ""));
+                case "type" -> {
+                    attribute.setType(attributeType(textOf(parser, "STRING")));
+                    typeSeen = true;
+                }
+                case "values" -> {
+                    if (token != JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                    } else if (typeSeen) {
+                        readValues(parser, attribute);
+                    } else {
+                        // Type not known yet: keep this one array as a tree and convert it at the end
+                        valuesBeforeType = parser.readValueAsTree();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        if (valuesBeforeType != null) {
+            try (JsonParser values = valuesBeforeType.traverse(objectMapper)) {
+                values.nextToken();
+                readValues(values, attribute);
+            }
+        }
+        return attribute;
+    }
+
+    private void readValues(JsonParser parser, TaskAttribute attribute) throws IOException {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            TaskAttributeValue value = readValue(parser, attribute.getType());
+            if (value != null) {
+                attribute.addValue(value);
+            }
+        }
+    }
+
+    private TaskAttributeValue readValue(JsonParser parser, AttributeType type) throws IOException {
+        JsonToken token = parser.currentToken();
+        try {
+            switch (type) {
+                case NUMERIC:
+                    if (token.isNumeric()) {
+                        // Straight from the number's text, no intermediate String or double
+                        return TaskAttributeValue.ofNumeric(parser.getDecimalValue());
+                    }
+                    break;
+                case DATE:
+                    if (token == JsonToken.VALUE_STRING) {
+                        return TaskAttributeValue.ofDate(
+                            OffsetDateTime.parse(parser.getText(), DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+                    }
+                    break;
+                case BOOLEAN:
+                    if (token.isBoolean()) {
+                        return TaskAttributeValue.ofBoolean(parser.getBooleanValue());
+                    }
+                    break;
+                case ENTITY:
+                    if (token == JsonToken.VALUE_STRING) {
+                        return TaskAttributeValue.ofEntity(parser.getText());
+                    }
+                    break;
+                case TEXT:
+                    return TaskAttributeValue.ofText(textOf(parser, ""));
+                default:
+                case STRING:
+                    return TaskAttributeValue.ofString(textOf(parser, ""));
+            }
+        } catch (Exception e) {
+            logger.warn("Could not parse attribute value: {}", e.getMessage());
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    /**
+     * Text of the current scalar token; objects and arrays are skipped and yield {@code containerText},
+     * like JsonNode.asText() does for container nodes.
+     */
+    private static String textOf(JsonParser parser, String containerText) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return containerText;
+        }
+        return parser.getText();
+    }
+
+    private AttributeType attributeType(String type) {
+        AttributeType cached = attributeTypes.get(type);
+        if (cached != null) {
+            return cached;
+        }
+        AttributeType resolved;
+        try {
+            resolved = AttributeType.valueOf(type.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            resolved = AttributeType.STRING;
+        }
+        if (attributeTypes.size() < MAX_CACHED_TYPES) {
+            attributeTypes.put(type, resolved);
+        }
+        return resolved;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.dto.MessagePayload;
+import com.example.kafka.consumer.entity.MessageRecord;
+import com.example.kafka.consumer.entity.Task;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Batch consumer for task-topic (app.processing.mode=batch).
+ * Receives a whole poll as a list and persists the task changes of the batch ({@link TaskStore})
+ * in a single transaction, hands the batch's MessageRecords to the {@link MessageAuditSink} and
+ * acknowledges the batch at once.
+ * If the batch transaction fails, records are persisted one by one to isolate the bad record,
+ * which is reported to the container's error handler via {@link BatchListenerFailedException}.
+ * With app.offsets.store=db the position is stored with the batch's data and restored on assignment.
+ */
+@Service
+@ConditionalOnProperty(name = "app.processing.mode", havingValue = "batch")
+public class TaskBatchConsumerService implements ConsumerSeekAware {
+
+    public static final String LISTENER_ID = "batchTaskListener";
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskBatchConsumerService.class);
+    private static final Random random = new Random();
+
+    private final MessageAuditSink messageAuditSink;
+    private final TaskStore taskStore;
+    private final TaskPayloadParser taskPayloadParser;
+    private final ConsumerOffsetStore offsetStore;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${spring.kafka.consumer.group-id}")
+    private String groupId;
+
+    @Value("${app.processing.min-delay-seconds}")
+    private int minDelaySeconds;
+
+    @Value("${app.processing.max-delay-seconds}")
+    private int maxDelaySeconds;
+
+    public TaskBatchConsumerService(MessageAuditSink messageAuditSink,
+                                    TaskStore taskStore,
+                                    TaskPayloadParser taskPayloadParser,
+                                    ConsumerOffsetStore offsetStore,
+                                    PlatformTransactionManager transactionManager) {
+        this.messageAuditSink = messageAuditSink;
+        this.taskStore = taskStore;
+        this.taskPayloadParser = taskPayloadParser;
+        this.offsetStore = offsetStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @KafkaListener(id = LISTENER_ID, idIsGroup = false, topics = "${app.kafka.topic}",
+        containerFactory = "batchKafkaListenerContainerFactory")
+    public void consumeBatch(List<ConsumerRecord<String, MessagePayload>> batch, Acknowledgment acknowledgment) {
+        // Partition expansion fences carry no task; the batch ack still commits past them
+        List<ConsumerRecord<String, MessagePayload>> records = batch.stream()
+            .filter(record -> record.value() == null || !record.value().isFence())
+            .toList();
+        if (records.isEmpty()) {
+            offsetStore.acknowledge(partitionsOf(batch), acknowledgment);
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        OffsetDateTime receivedAt = OffsetDateTime.now();
+
+        logger.info("Received batch of {} records (first partition: {}, offset: {}) on thread {}",
+            records.size(), records.get(0).partition(), records.get(0).offset(), Thread.currentThread().getName());
+
+        try {
+            // Simulated business processing runs once per batch, not once per record
+            int delaySeconds = minDelaySeconds + random.nextInt(maxDelaySeconds - minDelaySeconds + 1);
+            logger.info("Simulating processing delay of {} seconds for the batch...", delaySeconds);
+            Thread.sleep(delaySeconds * 1000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Batch processing interrupted", e);
+        }
+
+        long processingTime = System.currentTimeMillis() - startTime;
+
+        List<MessageRecord> messageRecords = new ArrayList<>(records.size());
+        List<Task> tasks = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, MessagePayload> record : records) {
+            MessageRecord messageRecord = new MessageRecord(
+                record.value() != null ? record.value().text() : null, record.topic(), record.partition(), record.offset(), record.key());
+            messageRecord.setReceivedAt(receivedAt);
+            messageRecord.markProcessed(processingTime);
+            messageRecords.add(messageRecord);
+            tasks.add(parseTask(record.value()));
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> persist(tasks, records));
+        } catch (Exception e) {
+            logger.warn("Batch persistence failed ({}), persisting records individually", e.getMessage());
+            persistIndividually(records, messageRecords, tasks);
+        }
+        messageAuditSink.recordAll(messageRecords);
+
+        // One commit for the whole batch
+        offsetStore.acknowledge(partitionsOf(batch), acknowledgment);
+
+        logger.info("Batch of {} records processed in {} ms", records.size(), System.currentTimeMillis() - startTime);
+    }
+
+    private void persistIndividually(List<ConsumerRecord<String, MessagePayload>> records,
+                                     List<MessageRecord> messageRecords, List<Task> tasks) {
+        for (int i = 0; i < records.size(); i++) {
+            Task task = tasks.get(i);
+            ConsumerRecord<String, MessagePayload> record = records.get(i);
+            try {
+                // Records without a task still store their offset
+                transactionTemplate.executeWithoutResult(status ->
+                    persist(task != null ? List.of(task) : List.of(), List.of(record)));
+            } catch (Exception e) {
+                logger.error("Failed to persist record at partition {} offset {}: {}",
+                    record.partition(), record.offset(), e.getMessage());
+                // Records before this one are committed by the error handler, this one is retried
+                messageAuditSink.recordAll(messageRecords.subList(0, i));
+                throw new BatchListenerFailedException("Failed to persist record", e, record);
+            }
+        }
+    }
+
+    private void persist(List<Task> tasks, List<ConsumerRecord<String, MessagePayload>> records) {
+        List<Task> persisted = tasks.stream().filter(Objects::nonNull).toList();
+        if (!persisted.isEmpty()) {
+            taskStore.upsertAll(persisted);
+        }
+        Map<TopicPartition, Long> lastOffsets = new HashMap<>();
+        for (ConsumerRecord<String, MessagePayload> record : records) {
+            lastOffsets.merge(new TopicPartition(record.topic(), record.partition()), record.offset(), Math::max);
+        }
+        lastOffsets.forEach((partition, offset) ->
+            offsetStore.processed(groupId, partition.topic(), partition.partition(), offset));
+    }
+
+    private static Set<TopicPartition> partitionsOf(List<ConsumerRecord<String, MessagePayload>> records) {
+        Set<TopicPartition> partitions = new HashSet<>();
+        records.forEach(record -> partitions.add(new TopicPartition(record.topic(), record.partition())));
+        return partitions;
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        offsetStore.seekToStored(groupId, assignments, callback);
+    }
+
+    private Task parseTask(MessagePayload message) {
+        try {
+            return taskPayloadParser.parse(message);
+        } catch (Exception e) {
+            logger.debug("Message is not in expected Task format, skipping task parsing: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -1,14 +1,11 @@
 package com.example.kafka.consumer.service;
 
-import com.example.kafka.consumer.entity.*;
-import com.example.kafka.consumer.repository.MessageRecordRepository;
-import com.example.kafka.consumer.repository.TaskRepository;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.example.kafka.consumer.dto.MessagePayload;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
@@ -16,174 +13,49 @@ import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Random;
+import java.util.Map;
 
+/**
+ * Record-at-a-time consumer for task-topic (default processing mode).
+ * With app.offsets.store=db the position is stored with the record's data and restored on assignment.
+ */
 @Service
-public class TaskConsumerService {
+@ConditionalOnProperty(name = "app.processing.mode", havingValue = "record", matchIfMissing = true)
+public class TaskConsumerService implements ConsumerSeekAware {
     
-    private static final Logger logger = LoggerFactory.getLogger(TaskConsumerService.class);
-    private static final Random random = new Random();
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    public static final String LISTENER_ID = "taskListener";
     
-    private final MessageRecordRepository messageRecordRepository;
-    private final TaskRepository taskRepository;
+    private final TaskMessageProcessor messageProcessor;
+    private final ConsumerOffsetStore offsetStore;
     
-    @Value("${app.processing.min-delay-seconds}")
-    private int minDelaySeconds;
+    @Value("${spring.kafka.consumer.group-id}")
+    private String groupId;
     
-    @Value("${app.processing.max-delay-seconds}")
-    private int maxDelaySeconds;
-    
-    public TaskConsumerService(MessageRecordRepository messageRecordRepository, 
-                               TaskRepository taskRepository) {
-        this.messageRecordRepository = messageRecordRepository;
-        this.taskRepository = taskRepository;
+    public TaskConsumerService(TaskMessageProcessor messageProcessor, ConsumerOffsetStore offsetStore) {
+        this.messageProcessor = messageProcessor;
+        this.offsetStore = offsetStore;
     }
     
-    @KafkaListener(topics = "${app.kafka.topic}", containerFactory = "kafkaListenerContainerFactory")
+    @KafkaListener(id = LISTENER_ID, idIsGroup = false, topics = "${app.kafka.topic}",
+        containerFactory = "kafkaListenerContainerFactory")
     @Transactional
     public void consumeMessage(
-            @Payload String message,
+            @Payload MessagePayload message,
             @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
             @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
             @Header(KafkaHeaders.OFFSET) long offset,
             @Header(value = KafkaHeaders.RECEIVED_KEY, required = false) String key,
             Acknowledgment acknowledgment) {
         
-        long startTime = System.currentTimeMillis();
-        OffsetDateTime receivedAt = OffsetDateTime.now();
-        
-        logger.info("========================================");
-        logger.info("Received message on topic: {}, partition: {}, offset: {}", topic, partition, offset);
-        logger.info("Key: {}", key);
-        logger.info("Thread: {}", Thread.currentThread().getName());
+        messageProcessor.process(message, topic, partition, offset, key);
+        offsetStore.processed(groupId, topic, partition, offset);
         
-        try {
-            // Create MessageRecord immediately
-            MessageRecord messageRecord = new MessageRecord(message, topic, partition, offset, key);
-            messageRecord.setReceivedAt(receivedAt);
-            messageRecord = messageRecordRepository.save(messageRecord);
-            logger.info("Message record created with ID: {}", messageRecord.getId());
-            
-            // Simulate processing delay (2-20 seconds) - this is the business logic processing time
-            int delaySeconds = minDelaySeconds + random.nextInt(maxDelaySeconds - minDelaySeconds + 1);
-            logger.info("Simulating processing delay of {} seconds...", delaySeconds);
-            Thread.sleep(delaySeconds * 1000L);
-            
-            long processingTime = System.currentTimeMillis() - startTime;
-            
-            // Parse and persist task hierarchy
-            try {
-                parseAndPersistTask(message);
-                logger.info("Task hierarchy persisted successfully");
-            } catch (Exception e) {
-                logger.warn("Could not parse message as Task structure: {}", e.getMessage());
-            }
-            
-            // Mark message as processed (this happens after processing delay, before DB write)
-            messageRecord.markProcessed(processingTime);
-            messageRecordRepository.save(messageRecord);
-            
-            logger.info("Message processed in {} ms (including {} s simulated delay)", processingTime, delaySeconds);
-            logger.info("========================================");
-            
-            // Manual acknowledgment - commit offset only after successful processing
-            acknowledgment.acknowledge();
-            
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            logger.error("Message processing interrupted", e);
-            throw new RuntimeException("Message processing interrupted", e);
-        } catch (Exception e) {
-            logger.error("Error processing message", e);
-            throw new RuntimeException("Error processing message", e);
-        }
-    }
-    
-    private void parseAndPersistTask(String message) {
-        try {
-            JsonNode rootNode = objectMapper.readTree(message);
-            
-            String taskId = rootNode.path("taskId").asText("unknown");
-            Task task = new Task(taskId, message);
-            
-            // Parse attributes if present
-            JsonNode attributesNode = rootNode.path("attributes");
-            if (attributesNode.isArray()) {
-                for (JsonNode attrNode : attributesNode) {
-                    String attrName = attrNode.path("name").asText();
-                    String attrTypeStr = attrNode.path("type").asText("STRING");
-                    AttributeType attrType = parseAttributeType(attrTypeStr);
-                    
-                    TaskAttribute attribute = new TaskAttribute(attrName, attrType);
-                    
-                    // Parse values
-                    JsonNode valuesNode = attrNode.path("values");
-                    if (valuesNode.isArray()) {
-                        for (JsonNode valueNode : valuesNode) {
-                            TaskAttributeValue value = parseAttributeValue(valueNode, attrType);
-                            if (value != null) {
-                                attribute.addValue(value);
-                            }
-                        }
-                    }
-                    
-                    task.addAttribute(attribute);
-                }
-            }
-            
-            taskRepository.save(task);
-            
-        } catch (Exception e) {
-            logger.debug("Message is not in expected Task format, skipping task parsing: {}", e.getMessage());
-        }
-    }
-    
-    private AttributeType parseAttributeType(String typeStr) {
-        try {
-            return AttributeType.valueOf(typeStr.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            return AttributeType.STRING;
-        }
+        // Manual acknowledgment - commit offset only after successful processing
+        offsetStore.acknowledge(topic, partition, acknowledgment);
     }
     
-    private TaskAttributeValue parseAttributeValue(JsonNode valueNode, AttributeType type) {
-        try {
-            switch (type) {
-                case NUMERIC:
-                    if (valueNode.isNumber()) {
-                        return TaskAttributeValue.ofNumeric(new BigDecimal(valueNode.asText()));
-                    }
-                    break;
-                case DATE:
-                    if (valueNode.isTextual()) {
-                        return TaskAttributeValue.ofDate(
-                            OffsetDateTime.parse(valueNode.asText(), DateTimeFormatter.ISO_OFFSET_DATE_TIME)
-                        );
-                    }
-                    break;
-                case BOOLEAN:
-                    if (valueNode.isBoolean()) {
-                        return TaskAttributeValue.ofBoolean(valueNode.asBoolean());
-                    }
-                    break;
-                case ENTITY:
-                    if (valueNode.isTextual()) {
-                        return TaskAttributeValue.ofEntity(valueNode.asText());
-                    }
-                    break;
-                case TEXT:
-                    return TaskAttributeValue.ofText(valueNode.asText());
-                default:
-                case STRING:
-                    return TaskAttributeValue.ofString(valueNode.asText());
-            }
-        } catch (Exception e) {
-            logger.warn("Could not parse attribute value: {}", e.getMessage());
-        }
-        return null;
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        offsetStore.seekToStored(groupId, assignments, callback);
     }
 }
@@ -0,0 +1,186 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.entity.AttributeType;
+import com.example.kafka.consumer.entity.Task;
+import com.example.kafka.consumer.entity.TaskAttribute;
+import com.example.kafka.consumer.entity.TaskAttributeValue;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Binary task document format of app.persistence.mode=document, written with Jackson's Smile
+ * generator (no tree, no field names):
+ * <pre>
+ * [1, [name, type, value, value, ...], [name, type, ...], ...]
+ * </pre>
+ * The leading 1 is the format version. Names and types are shared strings (a repeated one is a
+ * one-byte back-reference); numbers are binary BigDecimals, dates epoch microseconds (the precision
+ * of timestamptz, normalized to UTC), booleans single tokens.
+ * Reads stream the document: {@link #readAttribute} stops at the requested attribute and skips the
+ * values of all others without decoding them.
+ */
+@Component
+public class TaskDocumentCodec {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final SmileFactory smileFactory = SmileFactory.builder()
+        .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+        .build();
+
+    /**
+     * One attribute of a document; values are String, BigDecimal, OffsetDateTime or Boolean by type.
+     */
+    public record DocumentAttribute(String name, AttributeType type, List<Object> values) {
+    }
+
+    public byte[] encode(Task task) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + 32 * task.getAttributes().size());
+        try (JsonGenerator generator = smileFactory.createGenerator(out)) {
+            generator.writeStartArray();
+            generator.writeNumber(FORMAT_VERSION);
+            for (TaskAttribute attribute : task.getAttributes()) {
+                generator.writeStartArray();
+                generator.writeString(attribute.getName());
+                generator.writeString(attribute.getType().name());
+                for (TaskAttributeValue value : attribute.getValues()) {
+                    writeValue(generator, attribute.getType(), value);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not encode task " + task.getTaskId(), e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Rebuilds the task (without raw payload) from its document.
+     */
+    public Task decode(String taskId, byte[] document) {
+        Task task = new Task(taskId, null);
+        for (DocumentAttribute documentAttribute : readAttributes(document)) {
+            TaskAttribute attribute = new TaskAttribute(documentAttribute.name(), documentAttribute.type());
+            for (Object value : documentAttribute.values()) {
+                attribute.addValue(toValue(documentAttribute.type(), value));
+            }
+            task.addAttribute(attribute);
+        }
+        return task;
+    }
+
+    public List<DocumentAttribute> readAttributes(byte[] document) {
+        List<DocumentAttribute> attributes = new ArrayList<>();
+        try (JsonParser parser = open(document)) {
+            while (parser.nextToken() == JsonToken.START_ARRAY) {
+                attributes.add(readAttribute(parser));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt task document", e);
+        }
+        return attributes;
+    }
+
+    /**
+     * The first attribute with the given name; the values of the attributes before it are skipped.
+     */
+    public Optional<DocumentAttribute> readAttribute(byte[] document, String name) {
+        try (JsonParser parser = open(document)) {
+            while (parser.nextToken() == JsonToken.START_ARRAY) {
+                parser.nextToken();
+                if (name.equals(parser.getText())) {
+                    return Optional.of(readValues(parser, name));
+                }
+                // Smile values are only decoded when accessed: this just steps over them
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    // skip
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt task document", e);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Opens a document positioned after its format version.
+     */
+    private JsonParser open(byte[] document) throws IOException {
+        JsonParser parser = smileFactory.createParser(document);
+        if (parser.nextToken() != JsonToken.START_ARRAY || parser.nextToken() != JsonToken.VALUE_NUMBER_INT) {
+            throw new IOException("Not a task document");
+        }
+        int version = parser.getIntValue();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported task document version " + version);
+        }
+        return parser;
+    }
+
+    /**
+     * Reads the attribute array the parser is positioned on (START_ARRAY).
+     */
+    private DocumentAttribute readAttribute(JsonParser parser) throws IOException {
+        parser.nextToken();
+        return readValues(parser, parser.getText());
+    }
+
+    /**
+     * Reads type and values of an attribute, the parser positioned on its name.
+     */
+    private DocumentAttribute readValues(JsonParser parser, String name) throws IOException {
+        parser.nextToken();
+        AttributeType type = AttributeType.valueOf(parser.getText());
+        List<Object> values = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(switch (type) {
+                case NUMERIC -> parser.getDecimalValue();
+                case DATE -> OffsetDateTime.ofInstant(
+                    Instant.EPOCH.plus(parser.getLongValue(), ChronoUnit.MICROS), ZoneOffset.UTC);
+                case BOOLEAN -> parser.getBooleanValue();
+                default -> parser.getText();
+            });
+        }
+        return new DocumentAttribute(name, type, values);
+    }
+
+    private static void writeValue(JsonGenerator generator, AttributeType type, TaskAttributeValue value)
+            throws IOException {
+        switch (type) {
+            case NUMERIC -> generator.writeNumber(value.getNumericValue());
+            case DATE -> generator.writeNumber(ChronoUnit.MICROS.between(Instant.EPOCH, value.getDateValue().toInstant()));
+            case BOOLEAN -> generator.writeBoolean(value.getBooleanValue());
+            case ENTITY -> generator.writeString(value.getEntityRef());
+            case TEXT -> generator.writeString(value.getTextValue());
+            default -> generator.writeString(value.getStringValue());
+        }
+    }
+
+    private static TaskAttributeValue toValue(AttributeType type, Object value) {
+        return switch (type) {
+            case NUMERIC -> TaskAttributeValue.ofNumeric((BigDecimal) value);
+            case DATE -> TaskAttributeValue.ofDate((OffsetDateTime) value);
+            case BOOLEAN -> TaskAttributeValue.ofBoolean((Boolean) value);
+            case ENTITY -> TaskAttributeValue.ofEntity((String) value);
+            case TEXT -> TaskAttributeValue.ofText((String) value);
+            default -> TaskAttributeValue.ofString((String) value);
+        };
+    }
+}
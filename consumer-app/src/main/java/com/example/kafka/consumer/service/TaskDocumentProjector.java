@@ -0,0 +1,142 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.entity.Task;
+import com.example.kafka.consumer.entity.TaskDocument;
+import com.example.kafka.consumer.repository.TaskDocumentJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Projects task documents into the normalized tables (tasks / task_attributes / task_attribute_values)
+ * off the consuming path, for deployments in document mode that still query the normalized schema
+ * (app.persistence.document.projection.enabled=true).
+ * Every run takes the oldest pending documents with FOR UPDATE SKIP LOCKED, applies them through
+ * {@link TaskUpsertEngine} and marks the projected versions, all in one transaction; pods running
+ * the projector concurrently work on disjoint rows. Projected tasks have no raw payload.
+ * <p>
+ * A document that cannot be projected does not hold up the others: a decoding error sets it aside
+ * right away, and when writing the batch fails its documents are projected one per transaction, so
+ * only the failing ones are set aside. A set-aside version keeps its error in projection_error
+ * (counted in task.documents.projection.errors) and is retried once the document is rewritten.
+ */
+@Service
+@ConditionalOnProperty(name = "app.persistence.document.projection.enabled", havingValue = "true")
+public class TaskDocumentProjector {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskDocumentProjector.class);
+
+    private final TaskDocumentJdbcRepository taskDocumentJdbcRepository;
+    private final TaskDocumentCodec codec;
+    private final TaskUpsertEngine taskUpsertEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter projectionErrors;
+    private final int batchSize;
+
+    public TaskDocumentProjector(TaskDocumentJdbcRepository taskDocumentJdbcRepository,
+                                 TaskDocumentCodec codec,
+                                 TaskUpsertEngine taskUpsertEngine,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.persistence.document.projection.batch-size:500}") int batchSize) {
+        this.taskDocumentJdbcRepository = taskDocumentJdbcRepository;
+        this.codec = codec;
+        this.taskUpsertEngine = taskUpsertEngine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.projectionErrors = Counter.builder("task.documents.projection.errors")
+            .description("Task document versions set aside because they could not be projected")
+            .register(meterRegistry);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Projects batches until no pending document is left.
+     */
+    @Scheduled(fixedDelayString = "${app.persistence.document.projection.interval-ms:5000}")
+    public void project() {
+        try {
+            int projected;
+            do {
+                projected = projectBatch();
+            } while (projected == batchSize);
+        } catch (Exception e) {
+            logger.error("Task document projection failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return number of documents taken from the queue, projected or set aside
+     */
+    public int projectBatch() {
+        List<TaskDocument> batch = new ArrayList<>();
+        List<TaskDocument> undecodable = new ArrayList<>();
+        Integer projected;
+        try {
+            projected = transactionTemplate.execute(status -> {
+                batch.addAll(taskDocumentJdbcRepository.findUnprojected(batchSize));
+                List<TaskDocument> decoded = new ArrayList<>();
+                List<Task> tasks = new ArrayList<>();
+                for (TaskDocument document : batch) {
+                    try {
+                        tasks.add(decode(document));
+                        decoded.add(document);
+                    } catch (Exception e) {
+                        setAside(document, e);
+                        undecodable.add(document);
+                    }
+                }
+                taskUpsertEngine.upsertAll(tasks);
+                taskDocumentJdbcRepository.markProjected(decoded);
+                return decoded.size();
+            });
+        } catch (Exception e) {
+            logger.warn("Projection of {} task documents failed ({}), projecting them one by one", batch.size(), e.getMessage());
+            return projectIndividually(batch);
+        }
+        // Counted once committed: after a rollback they are set aside again one by one
+        projectionErrors.increment(undecodable.size());
+        if (projected != null && projected > 0) {
+            logger.debug("Projected {} task documents", projected);
+        }
+        return batch.size();
+    }
+
+    private int projectIndividually(List<TaskDocument> documents) {
+        for (TaskDocument document : documents) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                    // Still pending and not taken by another projector since the batch rolled back
+                    taskDocumentJdbcRepository.lockUnprojected(document).ifPresent(locked -> {
+                        taskUpsertEngine.upsertAll(List.of(decode(locked)));
+                        taskDocumentJdbcRepository.markProjected(List.of(locked));
+                    }));
+            } catch (Exception e) {
+                transactionTemplate.executeWithoutResult(status -> setAside(document, e));
+                projectionErrors.increment();
+            }
+        }
+        return documents.size();
+    }
+
+    private Task decode(TaskDocument document) {
+        Task task = codec.decode(document.getTaskId(), document.getDocument());
+        task.setSourceVersion(document.getSourceVersion());
+        return task;
+    }
+
+    private void setAside(TaskDocument document, Exception error) {
+        logger.error("Could not project task document {} (version {}), setting it aside: {}",
+            document.getTaskId(), document.getVersion(), error.getMessage());
+        taskDocumentJdbcRepository.markFailed(document, error.getClass().getSimpleName() + ": " + error.getMessage());
+    }
+}
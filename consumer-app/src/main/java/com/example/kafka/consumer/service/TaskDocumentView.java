@@ -0,0 +1,61 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.entity.TaskDocument;
+import com.example.kafka.consumer.service.TaskDocumentCodec.DocumentAttribute;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read view of a stored task document. Nothing is decoded until an attribute is asked for:
+ * a single attribute is streamed out of the document, the full attribute list is decoded once
+ * and kept for later calls.
+ */
+public class TaskDocumentView {
+
+    private final TaskDocumentCodec codec;
+    private final TaskDocument document;
+    private List<DocumentAttribute> attributes;
+
+    public TaskDocumentView(TaskDocumentCodec codec, TaskDocument document) {
+        this.codec = codec;
+        this.document = document;
+    }
+
+    public String taskId() {
+        return document.getTaskId();
+    }
+
+    public long version() {
+        return document.getVersion();
+    }
+
+    public OffsetDateTime updatedAt() {
+        return document.getUpdatedAt();
+    }
+
+    public int attributeCount() {
+        return document.getAttributeCount();
+    }
+
+    public int documentSize() {
+        return document.getDocument().length;
+    }
+
+    public synchronized List<DocumentAttribute> attributes() {
+        if (attributes == null) {
+            attributes = codec.readAttributes(document.getDocument());
+        }
+        return attributes;
+    }
+
+    public Optional<DocumentAttribute> attribute(String name) {
+        synchronized (this) {
+            if (attributes != null) {
+                return attributes.stream().filter(attribute -> attribute.name().equals(name)).findFirst();
+            }
+        }
+        return codec.readAttribute(document.getDocument(), name);
+    }
+}
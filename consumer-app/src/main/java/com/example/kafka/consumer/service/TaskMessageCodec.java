@@ -0,0 +1,307 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.dto.AttributeChangeMessage;
+import com.example.kafka.consumer.dto.AttributeMessage;
+import com.example.kafka.consumer.dto.SnapshotMessage;
+import com.example.kafka.consumer.dto.TaskMessage;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Avro binary format of task-topic and task-snapshots records (producer app.serialization.format=avro).
+ * A binary record carries the id of its writer schema in the {@value #SCHEMA_ID_HEADER} header
+ * (8 bytes, big-endian); records without the header are JSON.
+ * The writer schema is looked up in the {@link SchemaRegistryClient} and resolved against the local
+ * schemas of avro/task-messages.avsc, so fields added (with defaults) or removed by a newer producer
+ * do not break this consumer. The dto message records mirror the schemas.
+ */
+@Component
+public class TaskMessageCodec {
+
+    public static final String SCHEMA_ID_HEADER = "schema-id";
+
+    private static final String SCHEMA_FILE = "avro/task-messages.avsc";
+    private static final String NAMESPACE = "com.example.kafka.avro.";
+
+    private final SchemaRegistryClient registry;
+    private final Map<String, Schema> localSchemas;
+    private final Schema attributeTypeSchema;
+    private final Schema attributeSchema;
+    private final Schema decimalSchema;
+    private final Map<Class<?>, Schema> schemasByType;
+    private final Map<Class<?>, Long> schemaIds = new ConcurrentHashMap<>();
+    private final Map<Class<?>, GenericDatumWriter<GenericRecord>> writers = new ConcurrentHashMap<>();
+    private final Map<Long, GenericDatumReader<GenericRecord>> readers = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .enable(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN)
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    public TaskMessageCodec(SchemaRegistryClient registry) {
+        this.registry = registry;
+        Schema.Parser parser = new Schema.Parser();
+        try (InputStream in = new ClassPathResource(SCHEMA_FILE).getInputStream()) {
+            parser.parse(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load " + SCHEMA_FILE, e);
+        }
+        this.localSchemas = parser.getTypes();
+        this.attributeTypeSchema = localSchemas.get(NAMESPACE + "AttributeType");
+        this.attributeSchema = localSchemas.get(NAMESPACE + "Attribute");
+        this.decimalSchema = localSchemas.get(NAMESPACE + "Decimal");
+        this.schemasByType = Map.of(
+            TaskMessage.class, localSchemas.get(NAMESPACE + "Task"),
+            AttributeChangeMessage.class, localSchemas.get(NAMESPACE + "AttributeChange"),
+            SnapshotMessage.class, localSchemas.get(NAMESPACE + "TaskSnapshot"));
+        schemasByType.forEach((type, schema) -> {
+            schemaIds.put(type, registry.register(schema));
+            writers.put(type, new GenericDatumWriter<>(schema));
+        });
+    }
+
+    /**
+     * Id of the schema {@code message} is written with.
+     */
+    public long schemaIdOf(Object message) {
+        Long id = schemaIds.get(message.getClass());
+        if (id == null) {
+            throw new IllegalArgumentException("No schema for " + message.getClass().getSimpleName());
+        }
+        return id;
+    }
+
+    public byte[] encode(Object message) {
+        GenericDatumWriter<GenericRecord> writer = writers.get(message.getClass());
+        if (writer == null) {
+            throw new IllegalArgumentException("No schema for " + message.getClass().getSimpleName());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        try {
+            writer.write(toRecord(message), encoder);
+            encoder.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not encode " + message.getClass().getSimpleName(), e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a binary payload written with the schema {@code schemaId} into its message record.
+     *
+     * @throws IllegalArgumentException if the schema is unknown or the data does not match it
+     */
+    public Object decode(long schemaId, byte[] data) {
+        GenericDatumReader<GenericRecord> reader = readers.computeIfAbsent(schemaId, id -> {
+            Schema writerSchema = registry.getSchema(id);
+            Schema readerSchema = localSchemas.get(writerSchema.getFullName());
+            if (readerSchema == null) {
+                throw new IllegalArgumentException("Unsupported message type " + writerSchema.getFullName());
+            }
+            return new GenericDatumReader<>(writerSchema, readerSchema);
+        });
+        try {
+            return fromRecord(reader.read(null, DecoderFactory.get().binaryDecoder(data, null)));
+        } catch (IOException | AvroRuntimeException e) {
+            throw new IllegalArgumentException("Cannot decode payload with schema " + Long.toHexString(schemaId) +
+                ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Canonical JSON of a message, what raw_message, raw_payload and snapshot_data store for binary
+     * records. It is the producer's payload up to form, not byte for byte: compact, fields in schema
+     * order followed by the extra fields (by name), absent fields (null operation or sourceVersion)
+     * left out, a single {@code value} written as {@code values}, decimals as plain numbers keeping
+     * their scale and the snapshot timestamp as ISO-8601 UTC. The JSON parsers build the same task
+     * from it as the Avro mapper does from the message.
+     */
+    public String toJson(Object message) {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot render " + message.getClass().getSimpleName(), e);
+        }
+    }
+
+    public static byte[] schemaIdHeader(long schemaId) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(schemaId).array();
+    }
+
+    /**
+     * Schema id of a header value, -1 (unknown to every registry) if it is not 8 bytes long.
+     */
+    public static long readSchemaId(byte[] header) {
+        return header.length == Long.BYTES ? ByteBuffer.wrap(header).getLong() : -1;
+    }
+
+    private GenericRecord toRecord(Object message) {
+        GenericData.Record record = new GenericData.Record(schemasByType.get(message.getClass()));
+        if (message instanceof TaskMessage task) {
+            record.put("taskId", task.taskId());
+            record.put("attributes", toRecords(task.attributes()));
+            record.put("extra", task.extra());
+        } else if (message instanceof AttributeChangeMessage change) {
+            record.put("taskId", change.taskId());
+            record.put("attributeName", change.attributeName());
+            record.put("type", typeSymbol(change.type()));
+            record.put("values", toValues(change.values()));
+            record.put("operation", change.operation());
+            record.put("extra", change.extra());
+        } else if (message instanceof SnapshotMessage snapshot) {
+            record.put("taskId", snapshot.taskId());
+            record.put("attributes", toRecords(snapshot.attributes()));
+            record.put("timestamp", snapshot.timestamp().toEpochMilli());
+            record.put("sourceVersion", snapshot.sourceVersion());
+        }
+        return record;
+    }
+
+    private List<GenericRecord> toRecords(List<AttributeMessage> attributes) {
+        List<GenericRecord> records = new ArrayList<>(attributes != null ? attributes.size() : 0);
+        if (attributes != null) {
+            for (AttributeMessage attribute : attributes) {
+                GenericData.Record record = new GenericData.Record(attributeSchema);
+                record.put("name", attribute.name());
+                record.put("type", typeSymbol(attribute.type()));
+                record.put("values", toValues(attribute.values()));
+                record.put("extra", attribute.extra());
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Unknown or missing types are STRING, as in the JSON parsers.
+     */
+    private GenericData.EnumSymbol typeSymbol(String type) {
+        String symbol = type != null && attributeTypeSchema.hasEnumSymbol(type.toUpperCase())
+            ? type.toUpperCase() : "STRING";
+        return new GenericData.EnumSymbol(attributeTypeSchema, symbol);
+    }
+
+    /**
+     * Maps values onto the branches of the values union: integral numbers to long (Decimal beyond
+     * its range), BigDecimal to Decimal - exact, whatever its precision - other numbers to double,
+     * anything else but booleans to its string form.
+     */
+    private List<Object> toValues(List<Object> values) {
+        List<Object> converted = new ArrayList<>(values != null ? values.size() : 0);
+        if (values != null) {
+            for (Object value : values) {
+                if (value == null || value instanceof String || value instanceof Boolean ||
+                        value instanceof Long || value instanceof Double) {
+                    converted.add(value);
+                } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                    converted.add(((Number) value).longValue());
+                } else if (value instanceof BigInteger number && number.bitLength() < Long.SIZE) {
+                    converted.add(number.longValue());
+                } else if (value instanceof BigInteger number) {
+                    converted.add(toDecimal(new BigDecimal(number)));
+                } else if (value instanceof BigDecimal number) {
+                    converted.add(toDecimal(number));
+                } else if (value instanceof Number number) {
+                    converted.add(number.doubleValue());
+                } else {
+                    converted.add(value.toString());
+                }
+            }
+        }
+        return converted;
+    }
+
+    private GenericRecord toDecimal(BigDecimal number) {
+        GenericData.Record decimal = new GenericData.Record(decimalSchema);
+        decimal.put("unscaled", ByteBuffer.wrap(number.unscaledValue().toByteArray()));
+        decimal.put("scale", number.scale());
+        return decimal;
+    }
+
+    private Object fromRecord(GenericRecord record) {
+        String name = record.getSchema().getName();
+        return switch (name) {
+            case "Task" -> new TaskMessage(string(record.get("taskId")), fromRecords(record.get("attributes")),
+                fromExtra(record.get("extra")));
+            case "AttributeChange" -> new AttributeChangeMessage(string(record.get("taskId")),
+                string(record.get("attributeName")), string(record.get("type")), fromValues(record.get("values")),
+                string(record.get("operation")), fromExtra(record.get("extra")));
+            case "TaskSnapshot" -> new SnapshotMessage(string(record.get("taskId")),
+                fromRecords(record.get("attributes")), Instant.ofEpochMilli((Long) record.get("timestamp")),
+                (Long) record.get("sourceVersion"));
+            default -> throw new IllegalArgumentException("Unsupported message type " + record.getSchema().getFullName());
+        };
+    }
+
+    private static List<AttributeMessage> fromRecords(Object records) {
+        List<AttributeMessage> attributes = new ArrayList<>();
+        for (Object item : (List<?>) records) {
+            GenericRecord record = (GenericRecord) item;
+            attributes.add(new AttributeMessage(string(record.get("name")), string(record.get("type")),
+                fromValues(record.get("values")), fromExtra(record.get("extra"))));
+        }
+        return attributes;
+    }
+
+    private static List<Object> fromValues(Object values) {
+        List<Object> converted = new ArrayList<>();
+        for (Object value : (List<?>) values) {
+            // Avro strings are Utf8
+            converted.add(value instanceof CharSequence text ? text.toString()
+                : value instanceof GenericRecord decimal ? fromDecimal(decimal) : value);
+        }
+        return converted;
+    }
+
+    private static BigDecimal fromDecimal(GenericRecord decimal) {
+        ByteBuffer unscaled = ((ByteBuffer) decimal.get("unscaled")).duplicate();
+        byte[] bytes = new byte[unscaled.remaining()];
+        unscaled.get(bytes);
+        return new BigDecimal(new BigInteger(bytes), (Integer) decimal.get("scale"));
+    }
+
+    /**
+     * Extra fields by name (Avro maps keep no order); empty (default) in records of writers that predate them.
+     */
+    private static Map<String, String> fromExtra(Object extra) {
+        Map<String, String> converted = new TreeMap<>();
+        if (extra instanceof Map<?, ?> fields) {
+            fields.forEach((name, json) -> converted.put(name.toString(), json.toString()));
+        }
+        return converted;
+    }
+
+    private static String string(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
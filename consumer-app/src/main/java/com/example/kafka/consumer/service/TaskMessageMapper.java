@@ -0,0 +1,88 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.dto.AttributeChangeMessage;
+import com.example.kafka.consumer.dto.AttributeMessage;
+import com.example.kafka.consumer.dto.MessagePayload;
+import com.example.kafka.consumer.dto.TaskMessage;
+import com.example.kafka.consumer.entity.AttributeType;
+import com.example.kafka.consumer.entity.Task;
+import com.example.kafka.consumer.entity.TaskAttribute;
+import com.example.kafka.consumer.entity.TaskAttributeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Builds the Task graph of a binary (Avro) task-topic payload: the same task the JSON parsers build
+ * from the JSON rendering of the message, without going through JSON.
+ */
+public final class TaskMessageMapper {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskMessageMapper.class);
+
+    private TaskMessageMapper() {
+    }
+
+    public static Task toTask(MessagePayload payload) {
+        Object message = payload.message(Object.class);
+        if (message instanceof TaskMessage taskMessage) {
+            Task task = new Task(taskMessage.taskId(), payload.text());
+            for (AttributeMessage attributeMessage : taskMessage.attributes()) {
+                AttributeType type = typeOf(attributeMessage.type());
+                TaskAttribute attribute = new TaskAttribute(attributeMessage.name(), type);
+                for (Object value : attributeMessage.values()) {
+                    TaskAttributeValue attributeValue = toValue(value, type);
+                    if (attributeValue != null) {
+                        attribute.addValue(attributeValue);
+                    }
+                }
+                task.addAttribute(attribute);
+            }
+            return task;
+        }
+        if (message instanceof AttributeChangeMessage change) {
+            // Like its JSON form: an attribute change carries no attribute list
+            return new Task(change.taskId(), payload.text());
+        }
+        throw new IllegalArgumentException("Not a task message: " + message.getClass().getSimpleName());
+    }
+
+    private static AttributeType typeOf(String type) {
+        try {
+            return AttributeType.valueOf(type);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return AttributeType.STRING;
+        }
+    }
+
+    /**
+     * Value of the given type, null (skipped) if the value does not fit the type - as in the JSON parsers.
+     */
+    private static TaskAttributeValue toValue(Object value, AttributeType type) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return switch (type) {
+                case NUMERIC -> value instanceof BigDecimal number ? TaskAttributeValue.ofNumeric(number)
+                    : value instanceof Long number ? TaskAttributeValue.ofNumeric(BigDecimal.valueOf(number))
+                    : value instanceof Double number ? TaskAttributeValue.ofNumeric(BigDecimal.valueOf(number)) : null;
+                case DATE -> value instanceof String text ? TaskAttributeValue.ofDate(OffsetDateTime.parse(text))
+                    : value instanceof Long millis
+                        ? TaskAttributeValue.ofDate(OffsetDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC))
+                        : null;
+                case BOOLEAN -> value instanceof Boolean flag ? TaskAttributeValue.ofBoolean(flag) : null;
+                case ENTITY -> value instanceof String text ? TaskAttributeValue.ofEntity(text) : null;
+                case TEXT -> TaskAttributeValue.ofText(value.toString());
+                default -> TaskAttributeValue.ofString(value.toString());
+            };
+        } catch (RuntimeException e) {
+            logger.warn("Could not map attribute value: {}", e.getMessage());
+            return null;
+        }
+    }
+}
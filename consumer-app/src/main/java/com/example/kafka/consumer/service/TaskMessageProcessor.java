@@ -0,0 +1,116 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.dto.MessagePayload;
+import com.example.kafka.consumer.entity.MessageRecord;
+import com.example.kafka.consumer.entity.Task;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes a single task-topic record: runs the (simulated) business processing, persists the
+ * task hierarchy and records the message in the audit trail ({@link MessageAuditSink}).
+ * Shared by the record, parallel and async processing modes; offset handling is left to the caller.
+ */
+@Component
+public class TaskMessageProcessor {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TaskMessageProcessor.class);
+    private static final Random random = new Random();
+    
+    private final MessageAuditSink messageAuditSink;
+    private final TaskStore taskStore;
+    private final TaskPayloadParser taskPayloadParser;
+    private final Timer processingTimer;
+    
+    @Value("${app.processing.min-delay-seconds}")
+    private int minDelaySeconds;
+    
+    @Value("${app.processing.max-delay-seconds}")
+    private int maxDelaySeconds;
+    
+    public TaskMessageProcessor(MessageAuditSink messageAuditSink, 
+                                TaskStore taskStore,
+                                TaskPayloadParser taskPayloadParser,
+                                MeterRegistry meterRegistry) {
+        this.messageAuditSink = messageAuditSink;
+        this.taskStore = taskStore;
+        this.taskPayloadParser = taskPayloadParser;
+        // Histogram of per-record processing time, the basis for throughput / time-to-drain estimates
+        this.processingTimer = Timer.builder("task.processing.duration")
+            .description("Processing time of a task-topic record")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+    
+    @Transactional
+    public void process(MessagePayload message, String topic, int partition, long offset, String key) {
+        if (message != null && message.isFence()) {
+            // Partition expansion marker: the producer waits for the group to commit past it
+            logger.info("Passed partition fence on topic: {}, partition: {}, offset: {}", topic, partition, offset);
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        OffsetDateTime receivedAt = OffsetDateTime.now();
+        
+        logger.info("========================================");
+        logger.info("Received message on topic: {}, partition: {}, offset: {}", topic, partition, offset);
+        logger.info("Key: {}", key);
+        logger.info("Thread: {}", Thread.currentThread().getName());
+        
+        try {
+            // Audit record is kept in memory and written once, after processing
+            MessageRecord messageRecord = new MessageRecord(message != null ? message.text() : null, topic, partition, offset, key);
+            messageRecord.setReceivedAt(receivedAt);
+            
+            // Simulate processing delay (2-20 seconds) - this is the business logic processing time
+            int delaySeconds = minDelaySeconds + random.nextInt(maxDelaySeconds - minDelaySeconds + 1);
+            logger.info("Simulating processing delay of {} seconds...", delaySeconds);
+            Thread.sleep(delaySeconds * 1000L);
+            
+            long processingTime = System.currentTimeMillis() - startTime;
+            
+            // Parse and persist task hierarchy
+            try {
+                parseAndPersistTask(message);
+                logger.info("Task hierarchy persisted successfully");
+            } catch (Exception e) {
+                logger.warn("Could not parse message as Task structure: {}", e.getMessage());
+            }
+            
+            // Mark message as processed and hand the single final record to the audit sink
+            messageRecord.markProcessed(processingTime);
+            messageAuditSink.record(messageRecord);
+            processingTimer.record(processingTime, TimeUnit.MILLISECONDS);
+            
+            logger.info("Message processed in {} ms (including {} s simulated delay)", processingTime, delaySeconds);
+            logger.info("========================================");
+            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Message processing interrupted", e);
+            throw new RuntimeException("Message processing interrupted", e);
+        } catch (Exception e) {
+            logger.error("Error processing message", e);
+            throw new RuntimeException("Error processing message", e);
+        }
+    }
+    
+    private void parseAndPersistTask(MessagePayload message) {
+        try {
+            Task task = taskPayloadParser.parse(message);
+            // Only the rows that differ from the stored version of the task are written
+            taskStore.upsert(task);
+        } catch (Exception e) {
+            logger.debug("Message is not in expected Task format, skipping task parsing: {}", e.getMessage());
+        }
+    }
+}
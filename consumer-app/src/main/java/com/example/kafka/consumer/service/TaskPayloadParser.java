@@ -0,0 +1,29 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.dto.MessagePayload;
+import com.example.kafka.consumer.entity.Task;
+
+/**
+ * Parses task-topic payloads into the Task → TaskAttribute → TaskAttributeValue hierarchy.
+ * Shared by every processing mode of the task consumer; the implementation is selected with
+ * app.processing.parser (streaming or tree).
+ */
+public interface TaskPayloadParser {
+
+    /**
+     * Builds an unsaved Task graph from the message.
+     *
+     * @throws Exception if the message is not in the expected Task format
+     */
+    Task parse(String message) throws Exception;
+
+    /**
+     * Builds the Task graph of a record value in either wire format; binary payloads are mapped from
+     * their decoded message ({@link TaskMessageMapper}). The task carries the record's source version.
+     */
+    default Task parse(MessagePayload payload) throws Exception {
+        Task task = payload.isBinary() ? TaskMessageMapper.toTask(payload) : parse(payload.text());
+        task.setSourceVersion(payload.getSourceVersion());
+        return task;
+    }
+}
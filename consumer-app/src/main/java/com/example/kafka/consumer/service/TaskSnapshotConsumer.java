@@ -1,88 +1,180 @@
 package com.example.kafka.consumer.service;
 
+import com.example.kafka.consumer.dto.MessagePayload;
+import com.example.kafka.consumer.dto.SnapshotMessage;
 import com.example.kafka.consumer.entity.TaskSnapshot;
-import com.example.kafka.consumer.repository.TaskSnapshotRepository;
+import com.example.kafka.consumer.repository.TaskSnapshotJdbcRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ConsumerSeekAware;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
 
 /**
  * Consumer service for task snapshot messages.
  * Updates the materialized read-model (task_snapshots table) with complete task state.
+ * Each poll is coalesced to the highest-offset snapshot (or tombstone) per taskId and written with one
+ * multi-row upsert, so a catch-up batch of 500 snapshots of 20 tasks writes 20 rows.
+ * The upsert only replaces a stored snapshot with a newer one (app.snapshot.write-guard), so replays
+ * after a rebalance or a DLT replay are no-ops.
+ * With app.offsets.store=db the position is stored with the snapshots and restored on assignment.
  */
 @Service
-public class TaskSnapshotConsumer {
+public class TaskSnapshotConsumer implements ConsumerSeekAware {
+
+    public static final String LISTENER_ID = "taskSnapshotListener";
 
     private static final Logger logger = LoggerFactory.getLogger(TaskSnapshotConsumer.class);
     
-    private final TaskSnapshotRepository snapshotRepository;
+    private final TaskSnapshotJdbcRepository snapshotJdbcRepository;
+    private final ConsumerOffsetStore offsetStore;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskSnapshotQueryService queryService;
+    private final Counter staleSnapshots;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public TaskSnapshotConsumer(TaskSnapshotRepository snapshotRepository) {
-        this.snapshotRepository = snapshotRepository;
+    @Value("${app.kafka.snapshot-consumer-group:task-snapshot-consumer-group}")
+    private String snapshotGroup;
+
+    public TaskSnapshotConsumer(TaskSnapshotJdbcRepository snapshotJdbcRepository,
+                                ConsumerOffsetStore offsetStore,
+                                PlatformTransactionManager transactionManager,
+                                TaskSnapshotQueryService queryService,
+                                MeterRegistry meterRegistry) {
+        this.snapshotJdbcRepository = snapshotJdbcRepository;
+        this.offsetStore = offsetStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queryService = queryService;
+        this.staleSnapshots = Counter.builder("task.snapshots.stale")
+            .description("Snapshots not written because the stored one is newer (app.snapshot.write-guard)")
+            .register(meterRegistry);
     }
 
+    // Not started automatically while SnapshotBootstrapService rebuilds the read-model
     @KafkaListener(
+        id = LISTENER_ID,
+        autoStartup = "#{!${app.snapshot.bootstrap.enabled:false}}",
         topics = "${app.kafka.snapshot-topic:task-snapshots}",
         groupId = "${app.kafka.snapshot-consumer-group:task-snapshot-consumer-group}",
-        containerFactory = "kafkaListenerContainerFactory"
+        containerFactory = "snapshotKafkaListenerContainerFactory"
     )
-    @Transactional
-    public void consumeSnapshot(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
-        String taskId = record.key();
-        String payload = record.value();
+    public void consumeSnapshots(List<ConsumerRecord<String, MessagePayload>> records, Acknowledgment acknowledgment) {
+        long startTime = System.currentTimeMillis();
         
-        logger.debug("Received snapshot for task {} from partition {} offset {}", 
-            taskId, record.partition(), record.offset());
-        
-        try {
-            // Validate payload
-            @SuppressWarnings("unchecked")
-            Map<String, Object> snapshotData = objectMapper.readValue(payload, Map.class);
-            String extractedTaskId = (String) snapshotData.get("taskId");
-            
-            if (extractedTaskId == null || !extractedTaskId.equals(taskId)) {
-                logger.warn("TaskId mismatch: key={}, payload.taskId={}", taskId, extractedTaskId);
-            }
-            
-            // Find existing snapshot or create new one
-            Optional<TaskSnapshot> existing = snapshotRepository.findByTaskId(taskId);
-            
+        // Latest record per task; a record that cannot be applied ends the batch
+        Map<String, TaskSnapshot> latest = new LinkedHashMap<>();
+        int failedIndex = -1;
+        Exception failure = null;
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, MessagePayload> record = records.get(i);
             TaskSnapshot snapshot;
-            if (existing.isPresent()) {
-                snapshot = existing.get();
-                snapshot.updateSnapshot(payload);
-                logger.debug("Updated snapshot for task {} (version {})", taskId, snapshot.getVersion());
-            } else {
-                snapshot = new TaskSnapshot(taskId, payload);
-                logger.debug("Created new snapshot for task {}", taskId);
+            try {
+                Long sourceVersion = validate(record);
+                snapshot = new TaskSnapshot(record.key(), record.value() != null ? record.value().text() : null);
+                snapshot.setSourceVersion(sourceVersion);
+            } catch (Exception e) {
+                failedIndex = i;
+                failure = e;
+                break;
             }
-            
-            // Store Kafka metadata
             snapshot.setKafkaOffset(record.offset());
             snapshot.setKafkaPartition(record.partition());
-            
-            // Save to database
-            snapshotRepository.save(snapshot);
-            
-            // Commit offset only after successful persistence
-            acknowledgment.acknowledge();
-            
-            logger.info("Successfully processed snapshot for task {} (partition: {}, offset: {})", 
-                taskId, record.partition(), record.offset());
-            
-        } catch (Exception e) {
-            logger.error("Failed to process snapshot for task {}: {}", taskId, e.getMessage(), e);
-            // Don't acknowledge - message will be reprocessed
-            throw new RuntimeException("Failed to process snapshot for task " + taskId, e);
+            latest.merge(record.key(), snapshot,
+                (current, next) -> next.getKafkaOffset() > current.getKafkaOffset() ? next : current);
+        }
+        List<ConsumerRecord<String, MessagePayload>> processed = failedIndex < 0 ? records : records.subList(0, failedIndex);
+        
+        if (!processed.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> write(latest.values(), processed));
+            // Committed: readers may load the new versions from now on
+            queryService.invalidateAll(latest.keySet());
+            logger.info("Applied {} snapshot records as {} task writes in {} ms",
+                processed.size(), latest.size(), System.currentTimeMillis() - startTime);
+        }
+        
+        if (failure != null) {
+            ConsumerRecord<String, MessagePayload> record = records.get(failedIndex);
+            logger.error("Failed to process snapshot for task {} (partition: {}, offset: {}): {}",
+                record.key(), record.partition(), record.offset(), failure.getMessage());
+            // The error handler commits the records before this one and retries / dead-letters it
+            throw new BatchListenerFailedException("Failed to process snapshot for task " + record.key(), failure, failedIndex);
+        }
+        
+        // Commit offset only after successful persistence
+        offsetStore.acknowledge(partitionsOf(processed), acknowledgment);
+    }
+
+    /**
+     * Checks the record and returns the producer's sourceVersion of the snapshot, if any.
+     */
+    private Long validate(ConsumerRecord<String, MessagePayload> record) throws Exception {
+        if (record.key() == null) {
+            throw new IllegalArgumentException("Snapshot without taskId key");
+        }
+        if (record.value() == null) {
+            return null;
+        }
+        if (record.value().isBinary()) {
+            SnapshotMessage snapshot = record.value().message(SnapshotMessage.class);
+            checkTaskId(record.key(), snapshot.taskId());
+            return snapshot.sourceVersion();
         }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> snapshotData = objectMapper.readValue(record.value().text(), Map.class);
+        checkTaskId(record.key(), snapshotData.get("taskId"));
+        return snapshotData.get("sourceVersion") instanceof Number version ? version.longValue() : null;
+    }
+
+    private static void checkTaskId(String key, Object payloadTaskId) {
+        if (!key.equals(payloadTaskId)) {
+            logger.warn("TaskId mismatch: key={}, payload.taskId={}", key, payloadTaskId);
+        }
+    }
+
+    private void write(Collection<TaskSnapshot> latest, List<ConsumerRecord<String, MessagePayload>> processed) {
+        List<TaskSnapshot> upserts = new ArrayList<>();
+        List<TaskSnapshot> deletes = new ArrayList<>();
+        for (TaskSnapshot snapshot : latest) {
+            // A null payload is a tombstone - the task was deleted upstream
+            (snapshot.getSnapshotData() == null ? deletes : upserts).add(snapshot);
+        }
+        if (!upserts.isEmpty()) {
+            int written = snapshotJdbcRepository.upsertAll(upserts);
+            staleSnapshots.increment(upserts.size() - written);
+        }
+        if (!deletes.isEmpty()) {
+            int deleted = snapshotJdbcRepository.deleteAll(deletes);
+            logger.info("Processed {} tombstones ({} snapshots removed)", deletes.size(), deleted);
+        }
+        
+        Map<TopicPartition, Long> lastOffsets = new HashMap<>();
+        for (ConsumerRecord<String, MessagePayload> record : processed) {
+            lastOffsets.merge(new TopicPartition(record.topic(), record.partition()), record.offset(), Math::max);
+        }
+        lastOffsets.forEach((partition, offset) ->
+            offsetStore.processed(snapshotGroup, partition.topic(), partition.partition(), offset));
+    }
+
+    private static Set<TopicPartition> partitionsOf(List<ConsumerRecord<String, MessagePayload>> records) {
+        Set<TopicPartition> partitions = new HashSet<>();
+        records.forEach(record -> partitions.add(new TopicPartition(record.topic(), record.partition())));
+        return partitions;
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        offsetStore.seekToStored(snapshotGroup, assignments, callback);
     }
 }
@@ -0,0 +1,116 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.entity.TaskSnapshot;
+import com.example.kafka.consumer.repository.TaskSnapshotRepository;
+import com.example.kafka.consumer.repository.TaskSnapshotSearchRepository;
+import com.example.kafka.consumer.repository.TaskSnapshotSearchRepository.AttributePredicate;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * Read side of the task_snapshots read-model (GET /api/snapshots).
+ * Single and multi-gets go through a bounded Caffeine cache; the snapshot listener and the bootstrap
+ * invalidate the tasks they wrote once their transaction has committed. Invalidations only reach the
+ * pod that consumed the write, so entries also expire after app.snapshot.cache.expire-after-write-ms,
+ * which bounds how stale another pod's copy can be. Listings are keyset-paged by (updated_at, id),
+ * attribute searches by id; both read from the database.
+ */
+@Service
+public class TaskSnapshotQueryService {
+
+    private final TaskSnapshotRepository snapshotRepository;
+    private final TaskSnapshotSearchRepository searchRepository;
+    private final Cache<String, SnapshotView> cache;
+
+    public TaskSnapshotQueryService(TaskSnapshotRepository snapshotRepository,
+                                    TaskSnapshotSearchRepository searchRepository,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.snapshot.cache.max-size:10000}") long maxSize,
+                                    @Value("${app.snapshot.cache.expire-after-write-ms:10000}") long expireAfterWriteMs) {
+        this.snapshotRepository = snapshotRepository;
+        this.searchRepository = searchRepository;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofMillis(expireAfterWriteMs))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "taskSnapshots");
+    }
+
+    public Optional<SnapshotView> find(String taskId) {
+        // A load in progress finishes before a concurrent invalidate removes its result
+        return Optional.ofNullable(cache.get(taskId, id ->
+            snapshotRepository.findByTaskId(id).map(SnapshotView::of).orElse(null)));
+    }
+
+    /**
+     * Snapshots of the given tasks in request order; unknown tasks are left out.
+     * All cache misses are loaded with one query.
+     */
+    public List<SnapshotView> findAll(Collection<String> taskIds) {
+        Map<String, SnapshotView> found = cache.getAll(new LinkedHashSet<>(taskIds), missing -> {
+            Map<String, SnapshotView> loaded = new HashMap<>();
+            snapshotRepository.findAllByTaskIdIn(toCollection(missing))
+                .forEach(snapshot -> loaded.put(snapshot.getTaskId(), SnapshotView.of(snapshot)));
+            return loaded;
+        });
+        return new LinkedHashSet<>(taskIds).stream()
+            .map(found::get)
+            .filter(Objects::nonNull)
+            .toList();
+    }
+
+    /**
+     * One page of snapshots ordered by (updated_at, id), starting after the given position
+     * (both null for the first page).
+     */
+    public List<SnapshotView> list(OffsetDateTime updatedAfter, Long afterId, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        List<TaskSnapshot> snapshots = updatedAfter == null
+            ? snapshotRepository.findAllByOrderByUpdatedAtAscIdAsc(page)
+            : snapshotRepository.findPageAfter(updatedAfter, afterId != null ? afterId : 0L, page);
+        return snapshots.stream().map(SnapshotView::of).toList();
+    }
+
+    /**
+     * One page of the snapshots matching all predicates, ordered by id and starting after afterId.
+     */
+    public List<SnapshotView> search(List<AttributePredicate> predicates, long afterId, int limit) {
+        return searchRepository.search(predicates, afterId, limit).stream().map(SnapshotView::of).toList();
+    }
+
+    /**
+     * Must be called after the transaction that wrote the snapshots has committed.
+     */
+    public void invalidateAll(Collection<String> taskIds) {
+        cache.invalidateAll(taskIds);
+    }
+
+    private static <T> Collection<T> toCollection(Iterable<? extends T> items) {
+        List<T> list = new ArrayList<>();
+        items.forEach(list::add);
+        return list;
+    }
+
+    /**
+     * Snapshot as returned by the query API; the snapshot data is embedded as JSON.
+     */
+    public record SnapshotView(Long id, String taskId, @JsonRawValue String snapshotData, long version,
+                               OffsetDateTime updatedAt) {
+
+        static SnapshotView of(TaskSnapshot snapshot) {
+            return new SnapshotView(snapshot.getId(), snapshot.getTaskId(), snapshot.getSnapshotData(),
+                snapshot.getVersion(), snapshot.getUpdatedAt());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.entity.Task;
+
+import java.util.List;
+
+/**
+ * Persistence of parsed tasks, selected with app.persistence.mode:
+ * <ul>
+ *   <li>normalized - tasks / task_attributes / task_attribute_values, diffed row by row (default)</li>
+ *   <li>document - the whole attribute set as one binary document per task in task_documents</li>
+ * </ul>
+ * Implementations write in the caller's transaction.
+ */
+public interface TaskStore {
+
+    /**
+     * Stores the given tasks; when the same taskId occurs more than once, the last one wins.
+     */
+    void upsertAll(List<Task> tasks);
+
+    default void upsert(Task task) {
+        upsertAll(List.of(task));
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.entity.Task;
+import com.example.kafka.consumer.entity.TaskAttribute;
+import com.example.kafka.consumer.entity.TaskAttributeValue;
+import com.example.kafka.consumer.repository.TaskJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * Applies incoming task versions as a diff against the stored hierarchy.
+ * Existing tasks are bulk-loaded, attributes are matched by name and values by content, and only
+ * the INSERT/UPDATE/DELETE statements for what actually changed are issued (batched per table).
+ * New tasks are inserted with ON CONFLICT (task_id) DO NOTHING; a task created concurrently by
+ * another consumer is reloaded and diffed instead. Must run inside the caller's transaction.
+ * A task whose source version is not newer than the stored one is skipped: the retry topics and DLT
+ * replays redeliver a record after later records of its key, and it must not undo their state
+ * (the task-topic counterpart of the snapshot write guard).
+ */
+@Component
+public class TaskUpsertEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskUpsertEngine.class);
+
+    /** Scale of task_attribute_values.numeric_value, applied before comparing numbers. */
+    private static final int NUMERIC_SCALE = 4;
+
+    private final TaskJdbcRepository taskJdbcRepository;
+
+    public TaskUpsertEngine(TaskJdbcRepository taskJdbcRepository) {
+        this.taskJdbcRepository = taskJdbcRepository;
+    }
+
+    public void upsert(Task task) {
+        upsertAll(List.of(task));
+    }
+
+    /**
+     * Upserts the given tasks. When the same taskId occurs more than once, the last one wins.
+     */
+    public void upsertAll(List<Task> tasks) {
+        Map<String, Task> incoming = new LinkedHashMap<>();
+        for (Task task : tasks) {
+            incoming.put(task.getTaskId(), task);
+        }
+        if (incoming.isEmpty()) {
+            return;
+        }
+
+        Map<String, Task> stored = taskJdbcRepository.findAllByTaskId(incoming.keySet());
+        List<Task> created = incoming.values().stream()
+            .filter(task -> !stored.containsKey(task.getTaskId()))
+            .toList();
+
+        Changes changes = new Changes();
+        List<Task> inserted = taskJdbcRepository.insertTasksIfAbsent(created);
+        inserted.forEach(task -> changes.insertedAttributes.addAll(task.getAttributes()));
+
+        if (inserted.size() < created.size()) {
+            // Lost the insert race for some tasks: diff against the concurrently stored version
+            Set<String> lost = new HashSet<>();
+            created.stream().filter(task -> !inserted.contains(task)).forEach(task -> lost.add(task.getTaskId()));
+            stored.putAll(taskJdbcRepository.findAllByTaskId(lost));
+        }
+        int stale = 0;
+        for (Task task : incoming.values()) {
+            Task current = stored.get(task.getTaskId());
+            if (current == null) {
+                continue;
+            }
+            if (isStale(current, task)) {
+                stale++;
+                logger.info("Skipped task {} version {}, version {} is already stored",
+                    task.getTaskId(), task.getSourceVersion(), current.getSourceVersion());
+                continue;
+            }
+            diffTask(current, task, changes);
+        }
+
+        changes.apply(taskJdbcRepository);
+        logger.debug("Upserted {} tasks ({} stale): {}", incoming.size() - stale, stale, changes);
+    }
+
+    private static boolean isStale(Task current, Task incoming) {
+        return current.getSourceVersion() != null && incoming.getSourceVersion() != null
+            && incoming.getSourceVersion() <= current.getSourceVersion();
+    }
+
+    private void diffTask(Task current, Task incoming, Changes changes) {
+        incoming.setId(current.getId());
+        if (incoming.getSourceVersion() == null) {
+            // Records without a version (older producers) keep the stored one
+            incoming.setSourceVersion(current.getSourceVersion());
+        }
+        if (!Objects.equals(current.getRawPayload(), incoming.getRawPayload())
+                || !Objects.equals(current.getSourceVersion(), incoming.getSourceVersion())) {
+            changes.updatedTasks.add(incoming);
+        }
+
+        Map<String, Deque<TaskAttribute>> currentByName = new HashMap<>();
+        for (TaskAttribute attribute : current.getAttributes()) {
+            currentByName.computeIfAbsent(attribute.getName(), name -> new ArrayDeque<>()).add(attribute);
+        }
+        for (TaskAttribute attribute : incoming.getAttributes()) {
+            Deque<TaskAttribute> candidates = currentByName.get(attribute.getName());
+            TaskAttribute existing = candidates != null ? candidates.poll() : null;
+            if (existing == null) {
+                changes.insertedAttributes.add(attribute);
+                continue;
+            }
+            attribute.setId(existing.getId());
+            if (existing.getType() != attribute.getType()) {
+                changes.updatedAttributes.add(attribute);
+            }
+            diffValues(existing, attribute, changes);
+        }
+        currentByName.values().forEach(changes.deletedAttributes::addAll);
+    }
+
+    /**
+     * Values have no natural key: equal values are kept, the remaining incoming values reuse the
+     * rows of the remaining stored values (UPDATE), and only the surplus is inserted or deleted.
+     */
+    private void diffValues(TaskAttribute current, TaskAttribute incoming, Changes changes) {
+        List<TaskAttributeValue> unmatched = new ArrayList<>(current.getValues());
+        List<TaskAttributeValue> added = new ArrayList<>();
+        for (TaskAttributeValue value : incoming.getValues()) {
+            TaskAttributeValue same = unmatched.stream()
+                .filter(candidate -> sameValue(candidate, value))
+                .findFirst()
+                .orElse(null);
+            if (same != null) {
+                unmatched.remove(same);
+                value.setId(same.getId());
+            } else {
+                added.add(value);
+            }
+        }
+        Iterator<TaskAttributeValue> reusable = unmatched.iterator();
+        for (TaskAttributeValue value : added) {
+            if (reusable.hasNext()) {
+                value.setId(reusable.next().getId());
+                reusable.remove();
+                changes.updatedValues.add(value);
+            } else {
+                changes.insertedValues.add(value);
+            }
+        }
+        changes.deletedValues.addAll(unmatched);
+    }
+
+    private static boolean sameValue(TaskAttributeValue a, TaskAttributeValue b) {
+        return Objects.equals(a.getStringValue(), b.getStringValue())
+            && sameNumber(a.getNumericValue(), b.getNumericValue())
+            && sameInstant(a.getDateValue(), b.getDateValue())
+            && Objects.equals(a.getBooleanValue(), b.getBooleanValue())
+            && Objects.equals(a.getEntityRef(), b.getEntityRef())
+            && Objects.equals(a.getTextValue(), b.getTextValue());
+    }
+
+    private static boolean sameNumber(BigDecimal a, BigDecimal b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.setScale(NUMERIC_SCALE, RoundingMode.HALF_UP).compareTo(b.setScale(NUMERIC_SCALE, RoundingMode.HALF_UP)) == 0;
+    }
+
+    private static boolean sameInstant(OffsetDateTime a, OffsetDateTime b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.isEqual(b);
+    }
+
+    /**
+     * Statements collected over all tasks of one upsert, applied parents-first.
+     */
+    private static class Changes {
+
+        final List<Task> updatedTasks = new ArrayList<>();
+        final List<TaskAttribute> insertedAttributes = new ArrayList<>();
+        final List<TaskAttribute> updatedAttributes = new ArrayList<>();
+        final List<TaskAttribute> deletedAttributes = new ArrayList<>();
+        final List<TaskAttributeValue> insertedValues = new ArrayList<>();
+        final List<TaskAttributeValue> updatedValues = new ArrayList<>();
+        final List<TaskAttributeValue> deletedValues = new ArrayList<>();
+
+        void apply(TaskJdbcRepository repository) {
+            if (!updatedTasks.isEmpty()) {
+                repository.updateTaskPayloads(updatedTasks);
+            }
+            if (!deletedAttributes.isEmpty()) {
+                repository.deleteAttributes(deletedAttributes);
+            }
+            if (!deletedValues.isEmpty()) {
+                repository.deleteValues(deletedValues);
+            }
+            if (!updatedAttributes.isEmpty()) {
+                repository.updateAttributeTypes(updatedAttributes);
+            }
+            if (!updatedValues.isEmpty()) {
+                repository.updateValues(updatedValues);
+            }
+            repository.insertAttributes(insertedAttributes);
+            repository.insertValues(insertedValues);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("tasks ~%d, attributes +%d ~%d -%d, values +%d ~%d -%d",
+                updatedTasks.size(), insertedAttributes.size(), updatedAttributes.size(), deletedAttributes.size(),
+                insertedValues.size(), updatedValues.size(), deletedValues.size());
+        }
+    }
+}
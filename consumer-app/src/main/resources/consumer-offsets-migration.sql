@@ -0,0 +1,27 @@
+-- PostgreSQL migration: consumer_offsets table for app.offsets.store=db
+-- Run once against an existing consumer database BEFORE switching a deployment to OFFSET_STORE=db
+-- when Hibernate does not manage the schema (ddl-auto other than update). On a fresh database with
+-- ddl-auto: update Hibernate creates the table itself.
+--
+-- No rows need to be seeded: a partition without a row keeps the position committed to the broker,
+-- and its first processed record stores the next offset in the same transaction as its data.
+
+-- ============================================================================
+-- 1. Create the table (one row per consumer group and partition)
+-- ============================================================================
+CREATE TABLE IF NOT EXISTS consumer_offsets (
+    group_id    VARCHAR(255)             NOT NULL,
+    topic       VARCHAR(255)             NOT NULL,
+    partition   INTEGER                  NOT NULL,
+    next_offset BIGINT                   NOT NULL,
+    updated_at  TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (group_id, topic, partition)
+);
+
+-- ============================================================================
+-- 2. Verify
+-- ============================================================================
+SELECT column_name, data_type, is_nullable
+FROM information_schema.columns
+WHERE table_name = 'consumer_offsets'
+ORDER BY ordinal_position;
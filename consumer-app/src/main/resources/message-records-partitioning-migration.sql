@@ -0,0 +1,40 @@
+-- PostgreSQL migration: prepare a large message_records table for the conversion to daily
+-- range partitions by received_at (app.audit.partitioning.enabled: true).
+-- On startup the consumer renames the table to message_records_legacy, creates the partitioned
+-- message_records and attaches the old table as the partition of everything before the next UTC
+-- midnight (later records go to the daily partitions, or message_records_default if none covers
+-- them). Without the preparation below, the ATTACH scans the whole table and the index on
+-- (received_at, id) is built, both under an exclusive lock that stops the audit writes.
+-- Run the statements outside a transaction, on the UTC day of the deployment.
+
+-- ============================================================================
+-- 1. Keyset index of the recent-message listing (attached, not rebuilt, by the conversion)
+-- ============================================================================
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_message_records_received_id
+    ON message_records (received_at, id);
+
+-- ============================================================================
+-- 2. Range of the existing rows, validated without blocking writes.
+--    The bound is the UTC midnight that ends the current day, the one the conversion attaches
+--    the table with when it runs the same UTC day: the ATTACH then skips its scan
+-- ============================================================================
+DO $$ BEGIN
+    EXECUTE format('ALTER TABLE message_records ADD CONSTRAINT message_records_legacy_range '
+        'CHECK (received_at IS NOT NULL AND received_at < %L) NOT VALID',
+        date_trunc('day', now(), 'UTC') + interval '1 day');
+END $$;
+
+ALTER TABLE message_records VALIDATE CONSTRAINT message_records_legacy_range;
+
+-- ============================================================================
+-- 3. After the deployment: verify the partitions and retention
+-- ============================================================================
+SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) AS bound
+FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+WHERE i.inhparent = 'message_records'::regclass
+ORDER BY c.relname;
+
+-- Only the partitions of the last hour are scanned
+EXPLAIN SELECT id FROM message_records
+WHERE received_at >= now() - interval '1 hour'
+ORDER BY received_at DESC, id DESC LIMIT 100;
@@ -0,0 +1,83 @@
+-- PostgreSQL migration: attribute names and types -> attribute_definitions dictionary
+-- Run once against an existing consumer database BEFORE deploying the version that writes
+-- task_attributes.definition_id (it no longer writes attribute_name / attribute_type, which are
+-- NOT NULL in the old schema). On a fresh database Hibernate (ddl-auto: update) creates the
+-- dictionary and the columns, and the consumer creates the search indexes on startup.
+--
+-- Steps 1-3 run in one transaction; the indexes of step 4 are built CONCURRENTLY outside of it.
+
+BEGIN;
+
+-- ============================================================================
+-- 1. Dictionary of the distinct (name, type) pairs
+-- ============================================================================
+CREATE TABLE IF NOT EXISTS attribute_definitions (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    attribute_name VARCHAR(255) NOT NULL,
+    attribute_type VARCHAR(255) NOT NULL,
+    CONSTRAINT uk_attribute_definitions_name_type UNIQUE (attribute_name, attribute_type)
+);
+
+INSERT INTO attribute_definitions (attribute_name, attribute_type)
+SELECT DISTINCT attribute_name, attribute_type FROM task_attributes
+ON CONFLICT (attribute_name, attribute_type) DO NOTHING;
+
+-- ============================================================================
+-- 2. task_attributes: (attribute_name, attribute_type) -> definition_id
+-- ============================================================================
+ALTER TABLE task_attributes ADD COLUMN IF NOT EXISTS definition_id INTEGER;
+
+UPDATE task_attributes a
+SET definition_id = d.id
+FROM attribute_definitions d
+WHERE d.attribute_name = a.attribute_name AND d.attribute_type = a.attribute_type;
+
+ALTER TABLE task_attributes ALTER COLUMN definition_id SET NOT NULL;
+ALTER TABLE task_attributes DROP COLUMN attribute_name;
+ALTER TABLE task_attributes DROP COLUMN attribute_type;
+
+-- ============================================================================
+-- 3. task_attribute_values: copy of the attribute's definition_id (replaces attribute_name)
+-- ============================================================================
+ALTER TABLE task_attribute_values ADD COLUMN IF NOT EXISTS definition_id INTEGER;
+
+UPDATE task_attribute_values v
+SET definition_id = a.definition_id
+FROM task_attributes a
+WHERE a.id = v.attribute_id;
+
+ALTER TABLE task_attribute_values ALTER COLUMN definition_id SET NOT NULL;
+-- Also drops the attribute_name search indexes of the previous version
+ALTER TABLE task_attribute_values DROP COLUMN IF EXISTS attribute_name;
+
+COMMIT;
+
+-- The UPDATEs left a dead version of every row behind: reclaim it before measuring sizes
+VACUUM (ANALYZE) task_attributes;
+VACUUM (ANALYZE) task_attribute_values;
+
+-- ============================================================================
+-- 4. Indexes: foreign keys and one partial search index per typed column
+-- ============================================================================
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_attribute_values_attribute_id ON task_attribute_values (attribute_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_task_attributes_task_id ON task_attributes (task_id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_attribute_values_def_string ON task_attribute_values
+    (definition_id, string_value, id) WHERE string_value IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_attribute_values_def_numeric ON task_attribute_values
+    (definition_id, numeric_value, id) WHERE numeric_value IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_attribute_values_def_date ON task_attribute_values
+    (definition_id, date_value, id) WHERE date_value IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_attribute_values_def_boolean ON task_attribute_values
+    (definition_id, boolean_value, id) WHERE boolean_value IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_attribute_values_def_entity ON task_attribute_values
+    (definition_id, entity_ref, id) WHERE entity_ref IS NOT NULL;
+
+-- ============================================================================
+-- 5. Verify: table and index sizes
+-- ============================================================================
+SELECT relname, pg_size_pretty(pg_relation_size(oid)) AS size
+FROM pg_class
+WHERE relname IN ('attribute_definitions', 'task_attributes', 'task_attribute_values')
+   OR relname LIKE 'idx_attribute_values_%' OR relname = 'idx_task_attributes_task_id'
+ORDER BY pg_relation_size(oid) DESC;
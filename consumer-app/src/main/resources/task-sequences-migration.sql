@@ -0,0 +1,41 @@
+-- PostgreSQL migration: IDENTITY columns -> pooled sequences (allocationSize 50)
+-- Run once against an existing consumer database BEFORE deploying the version that uses
+-- @SequenceGenerator. On a fresh database Hibernate (ddl-auto: update) creates the sequences itself.
+--
+-- Each sequence is positioned past the current MAX(id): Hibernate's pooled optimizer (and
+-- SequenceIdAllocator) treat a sequence value v as the id block [v - 49, v].
+
+-- ============================================================================
+-- 1. Create the sequences (INCREMENT BY must match allocationSize)
+-- ============================================================================
+CREATE SEQUENCE IF NOT EXISTS tasks_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS task_attributes_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS task_attribute_values_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS message_records_seq INCREMENT BY 50;
+
+-- ============================================================================
+-- 2. Move the sequences past the existing ids
+-- ============================================================================
+SELECT setval('tasks_seq', COALESCE((SELECT MAX(id) FROM tasks), 0) + 50);
+SELECT setval('task_attributes_seq', COALESCE((SELECT MAX(id) FROM task_attributes), 0) + 50);
+SELECT setval('task_attribute_values_seq', COALESCE((SELECT MAX(id) FROM task_attribute_values), 0) + 50);
+SELECT setval('message_records_seq', COALESCE((SELECT MAX(id) FROM message_records), 0) + 50);
+
+-- ============================================================================
+-- 3. Drop the identity/serial defaults (ids are always supplied by the application now)
+-- ============================================================================
+ALTER TABLE tasks ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE tasks ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE task_attributes ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE task_attributes ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE task_attribute_values ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE task_attribute_values ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE message_records ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE message_records ALTER COLUMN id DROP DEFAULT;
+
+-- ============================================================================
+-- 4. Verify
+-- ============================================================================
+SELECT sequencename, increment_by, last_value
+FROM pg_sequences
+WHERE sequencename IN ('tasks_seq', 'task_attributes_seq', 'task_attribute_values_seq', 'message_records_seq');
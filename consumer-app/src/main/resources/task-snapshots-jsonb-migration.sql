@@ -0,0 +1,25 @@
+-- PostgreSQL migration: task_snapshots.snapshot_data TEXT -> jsonb with a GIN index
+-- (app.snapshot.storage: jsonb). The consumer performs the same conversion on startup, but
+-- converting rewrites the table under an exclusive lock: run this ahead of the deployment
+-- on large tables. The index is built CONCURRENTLY, so run the statements outside a transaction.
+
+-- ============================================================================
+-- 1. Convert the column (fails on a row that is not valid JSON)
+-- ============================================================================
+ALTER TABLE task_snapshots ALTER COLUMN snapshot_data TYPE jsonb USING snapshot_data::jsonb;
+
+-- ============================================================================
+-- 2. GIN index for containment (@>) and jsonpath (@?, @@) queries
+-- ============================================================================
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_snapshot_data_gin
+    ON task_snapshots USING GIN (snapshot_data jsonb_path_ops);
+
+-- ============================================================================
+-- 3. Verify
+-- ============================================================================
+SELECT data_type
+FROM information_schema.columns
+WHERE table_name = 'task_snapshots' AND column_name = 'snapshot_data';
+
+EXPLAIN SELECT id FROM task_snapshots
+WHERE snapshot_data @> '{"attributes": [{"name": "status", "values": ["DONE"]}]}';
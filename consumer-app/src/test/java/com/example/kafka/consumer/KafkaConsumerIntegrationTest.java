@@ -1,35 +1,85 @@
 package com.example.kafka.consumer;
 
+import com.example.kafka.consumer.dto.AttributeMessage;
+import com.example.kafka.consumer.dto.MessagePayload;
+import com.example.kafka.consumer.dto.TaskMessage;
+import com.example.kafka.consumer.entity.AttributeType;
 import com.example.kafka.consumer.entity.MessageRecord;
+import com.example.kafka.consumer.entity.Task;
+import com.example.kafka.consumer.entity.TaskAttribute;
+import com.example.kafka.consumer.entity.TaskAttributeValue;
+import com.example.kafka.consumer.entity.TaskSnapshot;
+import com.example.kafka.consumer.repository.MessageRecordJdbcRepository;
+import com.example.kafka.consumer.repository.MessageRecordJdbcRepository.MessageSummary;
 import com.example.kafka.consumer.repository.MessageRecordRepository;
+import com.example.kafka.consumer.repository.TaskAttributeSearchRepository;
+import com.example.kafka.consumer.repository.TaskDocumentJdbcRepository;
+import com.example.kafka.consumer.repository.TaskJdbcRepository;
+import com.example.kafka.consumer.repository.TaskAttributeSearchRepository.AttributeHit;
+import com.example.kafka.consumer.repository.TaskAttributeSearchRepository.AttributeSearch;
+import com.example.kafka.consumer.repository.TaskRepository;
+import com.example.kafka.consumer.repository.TaskSnapshotJdbcRepository;
+import com.example.kafka.consumer.repository.TaskSnapshotRepository;
+import com.example.kafka.consumer.repository.TaskSnapshotSearchRepository;
+import com.example.kafka.consumer.repository.TaskSnapshotSearchRepository.AttributePredicate;
+import com.example.kafka.consumer.service.ConsumerOffsetStore;
+import com.example.kafka.consumer.service.MessageRollupAggregator;
+import com.example.kafka.consumer.service.MessageStatisticsService;
+import com.example.kafka.consumer.service.TaskDocumentCodec;
+import com.example.kafka.consumer.service.TaskDocumentCodec.DocumentAttribute;
+import com.example.kafka.consumer.service.TaskDocumentProjector;
+import com.example.kafka.consumer.service.TaskDocumentStore;
+import com.example.kafka.consumer.service.TaskDocumentView;
+import com.example.kafka.consumer.service.SnapshotBootstrapService;
+import com.example.kafka.consumer.service.TaskMessageCodec;
+import com.example.kafka.consumer.service.TaskSnapshotConsumer;
+import com.example.kafka.consumer.service.TaskSnapshotQueryService;
+import com.example.kafka.consumer.service.TaskUpsertEngine;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.test.context.EmbeddedKafka;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.awaitility.Awaitility.await;
 
 @SpringBootTest
 @Testcontainers
-@EmbeddedKafka(partitions = 3, topics = {"task-topic"})
+@EmbeddedKafka(partitions = 3, topics = {"task-topic", KafkaConsumerIntegrationTest.BOOTSTRAP_TOPIC})
 @DirtiesContext
 public class KafkaConsumerIntegrationTest {
     
+    static final String BOOTSTRAP_TOPIC = "task-snapshots-bootstrap";
+    
     @Container
     static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
         .withDatabaseName("testdb")
@@ -41,17 +91,84 @@ public class KafkaConsumerIntegrationTest {
         registry.add("spring.datasource.url", postgres::getJdbcUrl);
         registry.add("spring.datasource.username", postgres::getUsername);
         registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.jpa.properties.hibernate.generate_statistics", () -> "true");
     }
     
     @Autowired
     private KafkaTemplate<String, String> kafkaTemplate;
     
+    @Autowired
+    private KafkaTemplate<String, MessagePayload> payloadKafkaTemplate;
+    
+    @Autowired
+    private TaskMessageCodec messageCodec;
+    
     @Autowired
     private MessageRecordRepository messageRecordRepository;
     
     @Autowired
     private ObjectMapper objectMapper;
     
+    @Autowired
+    private TaskRepository taskRepository;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Autowired
+    private TaskSnapshotJdbcRepository snapshotJdbcRepository;
+    
+    @Autowired
+    private TaskSnapshotSearchRepository snapshotSearchRepository;
+    
+    @Autowired
+    private TaskAttributeSearchRepository attributeSearchRepository;
+    
+    @Autowired
+    private TaskJdbcRepository taskJdbcRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TaskDocumentCodec documentCodec;
+    
+    @Autowired
+    private TaskDocumentJdbcRepository documentJdbcRepository;
+    
+    @Autowired
+    private TaskUpsertEngine taskUpsertEngine;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private MessageRecordJdbcRepository messageRecordJdbcRepository;
+    
+    @Autowired
+    private MessageRollupAggregator rollupAggregator;
+    
+    @Autowired
+    private MessageStatisticsService statisticsService;
+    
+    @Autowired
+    private TaskSnapshotRepository snapshotRepository;
+    
+    @Autowired
+    private TaskSnapshotConsumer snapshotConsumer;
+    
+    @Autowired
+    private ConsumerFactory<String, MessagePayload> consumerFactory;
+    
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+    
+    @Autowired
+    private ConsumerOffsetStore offsetStore;
+    
+    @Autowired
+    private TaskSnapshotQueryService snapshotQueryService;
+    
     @BeforeEach
     void setUp() {
         messageRecordRepository.deleteAll();
@@ -160,4 +277,292 @@ public class KafkaConsumerIntegrationTest {
                 assertThat(record.getProcessedAt()).isNotNull();
             });
     }
+    
+    @Test
+    void testAvroAndJsonMessagesAreConsumedSideBySide() throws Exception {
+        // Given - the same kind of task once as Avro (schema-id header) and once as JSON
+        TaskMessage avroTask = new TaskMessage("TASK-AVRO", List.of(
+            new AttributeMessage("priority", "NUMERIC", List.of(5L)),
+            new AttributeMessage("dueDate", "DATE", List.of("2025-12-31T23:59:59Z"))));
+        String jsonTask = objectMapper.writeValueAsString(Map.of("taskId", "TASK-JSON", "attributes", List.of(
+            Map.of("name", "priority", "type", "NUMERIC", "values", List.of(7)))));
+        
+        // When
+        payloadKafkaTemplate.send("task-topic", "client-1",
+                MessagePayload.binary(messageCodec.encode(avroTask), messageCodec.schemaIdOf(avroTask), messageCodec))
+            .get(10, TimeUnit.SECONDS);
+        kafkaTemplate.send("task-topic", "client-1", jsonTask).get(10, TimeUnit.SECONDS);
+        
+        // Then - both tasks are persisted; the audit trail holds the JSON rendering of the Avro record
+        await()
+            .atMost(60, TimeUnit.SECONDS)
+            .pollInterval(1, TimeUnit.SECONDS)
+            .untilAsserted(() -> {
+                List<MessageRecord> records = messageRecordRepository.findAll();
+                assertThat(records).extracting(MessageRecord::getRawMessage)
+                    .anyMatch(raw -> raw.contains("\"taskId\":\"TASK-AVRO\"") && raw.contains("\"priority\""))
+                    .anyMatch(raw -> raw.contains("TASK-JSON"));
+                assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM task_attributes a " +
+                    "JOIN tasks t ON t.id = a.task_id WHERE t.task_id = 'TASK-AVRO'", Long.class)).isEqualTo(2);
+            });
+    }
+    
+    @Test
+    void testCascadedTaskInsertsAreBatched() {
+        // Given - one task with 50 attributes of 10 values each (551 rows)
+        Task task = new Task("TASK-BATCH", "{}");
+        for (int a = 0; a < 50; a++) {
+            TaskAttribute attribute = new TaskAttribute("attr-" + a, AttributeType.STRING);
+            for (int v = 0; v < 10; v++) {
+                attribute.addValue(TaskAttributeValue.ofString("value-" + v));
+            }
+            task.addAttribute(attribute);
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        
+        // When
+        taskRepository.save(task);
+        
+        // Then - every row inserted, but with a few dozen statements instead of one per row
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(551);
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(60);
+    }
+    
+    @Test
+    void testTypedAttributeSearchIsKeysetPaged() {
+        // Given - five tasks with a numeric "weight" 10, 20, ... 50
+        for (int i = 1; i <= 5; i++) {
+            Task task = new Task("TASK-WEIGHT-" + i, "{}");
+            TaskAttribute attribute = new TaskAttribute("weight", AttributeType.NUMERIC);
+            attribute.addValue(TaskAttributeValue.ofNumeric(new BigDecimal(i * 10)));
+            task.addAttribute(attribute);
+            taskRepository.save(task);
+        }
+        
+        // When - weights in [20, 40], two per page
+        List<AttributeHit> first = attributeSearchRepository.search(new AttributeSearch("weight", AttributeType.NUMERIC,
+            new BigDecimal("20"), new BigDecimal("40"), null, null, 2));
+        AttributeHit last = first.get(first.size() - 1);
+        List<AttributeHit> second = attributeSearchRepository.search(new AttributeSearch("weight", AttributeType.NUMERIC,
+            new BigDecimal("20"), new BigDecimal("40"), last.value(), last.valueId(), 2));
+        
+        // Then - ordered by value, the second page continues after the first
+        assertThat(first).extracting(AttributeHit::taskId).containsExactly("TASK-WEIGHT-2", "TASK-WEIGHT-3");
+        assertThat(second).extracting(AttributeHit::taskId).containsExactly("TASK-WEIGHT-4");
+    }
+    
+    @Test
+    void testAttributeNamesAreDictionaryEncoded() {
+        // Given - two tasks sharing attribute names
+        for (String taskId : List.of("TASK-DICT-1", "TASK-DICT-2")) {
+            Task task = new Task(taskId, "{}");
+            task.addAttribute(new TaskAttribute("dict-status", AttributeType.STRING));
+            task.addAttribute(new TaskAttribute("dict-weight", AttributeType.NUMERIC));
+            task.getAttributes().forEach(attribute -> attribute.addValue(TaskAttributeValue.ofString("x")));
+            taskRepository.save(task);
+        }
+        
+        // Then - one dictionary entry per name, referenced by the attributes and their values
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM attribute_definitions WHERE attribute_name LIKE 'dict-%'", Long.class)).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT COUNT(DISTINCT v.definition_id) FROM task_attribute_values v " +
+            "JOIN task_attributes a ON a.id = v.attribute_id AND a.definition_id = v.definition_id " +
+            "JOIN tasks t ON t.id = a.task_id WHERE t.task_id LIKE 'TASK-DICT-%'", Long.class)).isEqualTo(2);
+        // And - names and types are resolved again when the graph is read
+        Task stored = taskJdbcRepository.findAllByTaskId(List.of("TASK-DICT-1")).get("TASK-DICT-1");
+        assertThat(stored.getAttributes()).extracting(TaskAttribute::getName, TaskAttribute::getType)
+            .containsExactlyInAnyOrder(
+                tuple("dict-status", AttributeType.STRING),
+                tuple("dict-weight", AttributeType.NUMERIC));
+    }
+    
+    @Test
+    void testTaskDocumentIsWrittenInOneStatementAndProjected() {
+        // Given - a task with typed attributes, stored in document mode
+        Task task = new Task("TASK-DOC", "{}");
+        TaskAttribute status = new TaskAttribute("status", AttributeType.STRING);
+        status.addValue(TaskAttributeValue.ofString("OPEN"));
+        TaskAttribute weight = new TaskAttribute("weight", AttributeType.NUMERIC);
+        weight.addValue(TaskAttributeValue.ofNumeric(new BigDecimal("12.5")));
+        weight.addValue(TaskAttributeValue.ofNumeric(new BigDecimal("7")));
+        TaskAttribute due = new TaskAttribute("due", AttributeType.DATE);
+        due.addValue(TaskAttributeValue.ofDate(OffsetDateTime.parse("2025-03-01T10:15:30.123456Z")));
+        task.addAttribute(status);
+        task.addAttribute(weight);
+        task.addAttribute(due);
+        TaskDocumentStore store = new TaskDocumentStore(documentCodec, documentJdbcRepository);
+        
+        // When
+        store.upsert(task);
+        store.upsert(task);
+        
+        // Then - one row, rewritten in place, read back attribute by attribute
+        TaskDocumentView view = new TaskDocumentView(documentCodec, documentJdbcRepository.findByTaskId("TASK-DOC").orElseThrow());
+        assertThat(view.version()).isEqualTo(2);
+        assertThat(view.attribute("weight")).map(DocumentAttribute::values).hasValue(
+            List.of(new BigDecimal("12.5"), new BigDecimal("7")));
+        assertThat(view.attribute("due")).map(DocumentAttribute::values).hasValue(
+            List.of(OffsetDateTime.parse("2025-03-01T10:15:30.123456Z")));
+        assertThat(view.attribute("missing")).isEmpty();
+        assertThat(view.attributes()).extracting(DocumentAttribute::name).containsExactly("status", "weight", "due");
+        
+        // And - the projector copies it into the normalized tables once
+        TaskDocumentProjector projector = new TaskDocumentProjector(documentJdbcRepository, documentCodec,
+            taskUpsertEngine, transactionManager, new SimpleMeterRegistry(), 100);
+        projector.project();
+        assertThat(documentJdbcRepository.findByTaskId("TASK-DOC").orElseThrow().isProjected()).isTrue();
+        Task projected = taskJdbcRepository.findAllByTaskId(List.of("TASK-DOC")).get("TASK-DOC");
+        assertThat(projected.getAttributes()).extracting(TaskAttribute::getName)
+            .containsExactlyInAnyOrder("status", "weight", "due");
+        assertThat(projector.projectBatch()).isZero();
+    }
+    
+    @Test
+    void testStatisticsAreServedFromRollups() {
+        // Given - 100 audited messages of one partition taking 1 .. 100 ms
+        OffsetDateTime receivedAt = OffsetDateTime.now().minusMinutes(5);
+        List<MessageRecord> records = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            MessageRecord record = new MessageRecord("{}", "stats-topic", 3, (long) i, "KEY-" + i);
+            record.setReceivedAt(receivedAt.plusSeconds(i % 50));
+            record.markProcessed(i);
+            records.add(record);
+            rollupAggregator.add(record);
+        }
+        messageRecordJdbcRepository.insertAll(records);
+        
+        // When - merged in two flushes
+        rollupAggregator.flush();
+        rollupAggregator.flush();
+        Map<String, Object> statistics = statisticsService.getStatistics(
+            receivedAt.minusMinutes(1), receivedAt.plusMinutes(2), "stats-topic");
+        
+        // Then - exact count, average and extremes, estimated percentiles
+        assertThat(statistics.get("messageCount")).isEqualTo(100L);
+        assertThat(statistics.get("averageProcessingDurationMs")).isEqualTo(50.5);
+        assertThat(statistics.get("minProcessingDurationMs")).isEqualTo(1L);
+        assertThat(statistics.get("maxProcessingDurationMs")).isEqualTo(100L);
+        assertThat((Long) statistics.get("p95ProcessingDurationMs")).isBetween(89L, 100L);
+        // And - message_records is partitioned, recent records are listed in keyset pages
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT relkind::text FROM pg_class WHERE oid = to_regclass('message_records')", String.class)).isEqualTo("p");
+        List<MessageSummary> first = messageRecordJdbcRepository.findRecent(receivedAt.minusMinutes(1), "stats-topic", null, null, 60);
+        MessageSummary last = first.get(first.size() - 1);
+        List<MessageSummary> second = messageRecordJdbcRepository.findRecent(
+            receivedAt.minusMinutes(1), "stats-topic", last.receivedAt(), last.id(), 60);
+        assertThat(first).hasSize(60);
+        assertThat(second).hasSize(40);
+        assertThat(second).extracting(MessageSummary::id).doesNotContainAnyElementsOf(
+            first.stream().map(MessageSummary::id).toList());
+    }
+    
+    @Test
+    void testStaleSnapshotIsNotWritten() {
+        // Given - a stored snapshot from offset 10 (producer version 5)
+        assertThat(snapshotJdbcRepository.upsertAll(List.of(snapshot("TASK-GUARD", "{\"v\":5}", 10, 5L)))).isEqualTo(1);
+        
+        // When - a replayed older snapshot and tombstone arrive
+        int staleWrites = snapshotJdbcRepository.upsertAll(List.of(snapshot("TASK-GUARD", "{\"v\":3}", 5, 3L)));
+        int staleDeletes = snapshotJdbcRepository.deleteAll(List.of(snapshot("TASK-GUARD", null, 7, null)));
+        
+        // Then - both are no-ops, a newer snapshot still applies
+        assertThat(staleWrites).isZero();
+        assertThat(staleDeletes).isZero();
+        assertThat(snapshotJdbcRepository.upsertAll(List.of(snapshot("TASK-GUARD", "{\"v\":6}", 20, 6L)))).isEqualTo(1);
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+            "SELECT snapshot_data, version, kafka_offset FROM task_snapshots WHERE task_id = 'TASK-GUARD'");
+        assertThat(row.get("snapshot_data")).isEqualTo("{\"v\":6}");
+        assertThat(((Number) row.get("version")).longValue()).isEqualTo(2);
+        assertThat(((Number) row.get("kafka_offset")).longValue()).isEqualTo(20);
+    }
+    
+    @Test
+    void testSnapshotTombstoneRemovesTaskFromReadModel() {
+        // Given - a consumed snapshot of TASK-TOMBSTONE
+        snapshotConsumer.consumeSnapshots(List.of(
+            snapshotRecord("task-snapshots", 0, 100, "TASK-TOMBSTONE", "{\"taskId\":\"TASK-TOMBSTONE\"}")), () -> { });
+        assertThat(snapshotRepository.findByTaskId("TASK-TOMBSTONE")).isPresent();
+        
+        // When - its tombstone follows
+        snapshotConsumer.consumeSnapshots(List.of(
+            snapshotRecord("task-snapshots", 0, 101, "TASK-TOMBSTONE", null)), () -> { });
+        
+        // Then - the task is gone from the read-model
+        assertThat(snapshotRepository.findByTaskId("TASK-TOMBSTONE")).isEmpty();
+    }
+    
+    @Test
+    void testSnapshotBootstrapRebuildsReadModelFromTopic() throws Exception {
+        // Given - a snapshot topic with two versions of one task, a second task and a deleted third one
+        for (String[] record : new String[][] {
+                {"TASK-BOOT-1", "{\"taskId\":\"TASK-BOOT-1\",\"v\":1}"},
+                {"TASK-BOOT-2", "{\"taskId\":\"TASK-BOOT-2\",\"v\":1}"},
+                {"TASK-BOOT-3", "{\"taskId\":\"TASK-BOOT-3\",\"v\":1}"},
+                {"TASK-BOOT-1", "{\"taskId\":\"TASK-BOOT-1\",\"v\":2}"},
+                {"TASK-BOOT-3", null}}) {
+            payloadKafkaTemplate.send(BOOTSTRAP_TOPIC, record[0], record[1] != null ? MessagePayload.json(record[1]) : null)
+                .get(10, TimeUnit.SECONDS);
+        }
+        snapshotJdbcRepository.upsertAll(List.of(snapshot("TASK-BOOT-3", "{\"taskId\":\"TASK-BOOT-3\"}", 0, null)));
+        SnapshotBootstrapService bootstrap = new SnapshotBootstrapService(consumerFactory, snapshotJdbcRepository,
+            listenerRegistry, transactionManager, offsetStore, snapshotQueryService);
+        ReflectionTestUtils.setField(bootstrap, "snapshotTopic", BOOTSTRAP_TOPIC);
+        ReflectionTestUtils.setField(bootstrap, "snapshotGroup", "bootstrap-test-group");
+        ReflectionTestUtils.setField(bootstrap, "parallelism", 3);
+        ReflectionTestUtils.setField(bootstrap, "fetchSize", 2);
+        ReflectionTestUtils.setField(bootstrap, "batchSize", 1);
+        
+        // When
+        bootstrap.run(null);
+        
+        // Then - the latest snapshot of each live task, the tombstoned task removed
+        assertThat(snapshotRepository.findByTaskId("TASK-BOOT-1")).map(TaskSnapshot::getSnapshotData)
+            .hasValue("{\"taskId\":\"TASK-BOOT-1\",\"v\":2}");
+        assertThat(snapshotRepository.findByTaskId("TASK-BOOT-2")).isPresent();
+        assertThat(snapshotRepository.findByTaskId("TASK-BOOT-3")).isEmpty();
+    }
+    
+    @Test
+    void testSnapshotAttributeSearch() {
+        // Given - snapshots with a string and a numeric attribute
+        snapshotJdbcRepository.upsertAll(List.of(
+            snapshot("TASK-SEARCH-1", attributes("DONE", 1), 1, null),
+            snapshot("TASK-SEARCH-2", attributes("DONE", 5), 2, null),
+            snapshot("TASK-SEARCH-3", attributes("OPEN", 7), 3, null)));
+        
+        // When / Then - equality, membership, existence and range predicates, combined with AND
+        assertThat(searchTaskIds("status:eq:DONE")).containsExactly("TASK-SEARCH-1", "TASK-SEARCH-2");
+        assertThat(searchTaskIds("status:in:OPEN|CLOSED")).containsExactly("TASK-SEARCH-3");
+        assertThat(searchTaskIds("priority:eq:5")).containsExactly("TASK-SEARCH-2");
+        assertThat(searchTaskIds("status:eq:DONE", "priority:gte:5")).containsExactly("TASK-SEARCH-2");
+        assertThat(searchTaskIds("priority:lt:6", "owner:exists")).isEmpty();
+    }
+    
+    private List<String> searchTaskIds(String... where) {
+        List<AttributePredicate> predicates = Arrays.stream(where).map(AttributePredicate::parse).toList();
+        return snapshotSearchRepository.search(predicates, 0, 100).stream()
+            .map(TaskSnapshot::getTaskId)
+            .filter(taskId -> taskId.startsWith("TASK-SEARCH-"))
+            .toList();
+    }
+    
+    private static String attributes(String status, int priority) {
+        return "{\"attributes\":[{\"name\":\"status\",\"type\":\"STRING\",\"values\":[\"" + status + "\"]}," +
+            "{\"name\":\"priority\",\"type\":\"NUMERIC\",\"values\":[" + priority + "]}]}";
+    }
+    
+    private static ConsumerRecord<String, MessagePayload> snapshotRecord(String topic, int partition, long offset,
+                                                                         String taskId, String data) {
+        return new ConsumerRecord<>(topic, partition, offset, taskId, data != null ? MessagePayload.json(data) : null);
+    }
+    
+    private static TaskSnapshot snapshot(String taskId, String data, long offset, Long sourceVersion) {
+        TaskSnapshot snapshot = new TaskSnapshot(taskId, data);
+        snapshot.setKafkaPartition(0);
+        snapshot.setKafkaOffset(offset);
+        snapshot.setSourceVersion(sourceVersion);
+        return snapshot;
+    }
 }
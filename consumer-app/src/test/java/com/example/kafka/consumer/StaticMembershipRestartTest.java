@@ -0,0 +1,281 @@
+package com.example.kafka.consumer;
+
+import com.example.kafka.consumer.config.KafkaConsumerConfig;
+import com.example.kafka.consumer.dto.MessagePayload;
+import com.example.kafka.consumer.service.TaskMessageCodec;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpoint;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.AcknowledgingMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Partition downtime while one of two pods restarts, with listener containers built by the
+ * application's container factory against an embedded broker (no Docker needed).
+ * Downtime is measured from the moment the restarted pod's container has stopped to the first record
+ * its replacement consumes from each of its partitions; every step waits on a rebalance callback or a
+ * consumed record, the restart itself takes no time.
+ */
+@EmbeddedKafka(partitions = StaticMembershipRestartTest.PARTITIONS, topics = StaticMembershipRestartTest.TOPIC,
+    brokerProperties = "group.initial.rebalance.delay.ms=0")
+class StaticMembershipRestartTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(StaticMembershipRestartTest.class);
+
+    static final String TOPIC = "restart-topic";
+    static final int PARTITIONS = 6;
+
+    private static final String LISTENER_ID = "taskListener";
+    private static final int SESSION_TIMEOUT_MS = 30000;
+
+    @Test
+    void testStaticMemberGetsItsPartitionsBackWithinTheSessionTimeout(EmbeddedKafkaBroker broker) throws Exception {
+        Pods pods = new Pods(broker, "static-restart-group", true);
+        try {
+            Pod restarted = pods.start("pod-0");
+            Pod other = pods.start("pod-1");
+            pods.awaitBalanced(restarted, other);
+            Set<TopicPartition> before = restarted.owned();
+            Set<TopicPartition> otherBefore = other.owned();
+            int otherRebalances = other.rebalances();
+
+            restarted.stop();
+            long stoppedAt = System.nanoTime();
+            pods.sendOneRecordPerPartition();
+            Pod replacement = pods.start("pod-0");
+            Map<TopicPartition, Long> downtime = replacement.awaitConsumed(before, stoppedAt);
+            logger.info("Static member restart: partition downtime {} ms", new TreeMap<>(byPartition(downtime)));
+
+            assertThat(replacement.owned()).isEqualTo(before);
+            // The closed member never left the group: the other pod was not rebalanced and kept its partitions
+            assertThat(other.rebalances()).isEqualTo(otherRebalances);
+            assertThat(other.owned()).isEqualTo(otherBefore);
+            assertThat(other.consumedFrom(stoppedAt)).doesNotContainAnyElementsOf(before);
+            // Consumed again without waiting for the session of the closed member to time out
+            assertThat(downtime).hasSize(before.size())
+                .allSatisfy((partition, ms) -> assertThat(ms).isLessThan(SESSION_TIMEOUT_MS));
+        } finally {
+            pods.stopAll();
+        }
+    }
+
+    @Test
+    void testDynamicMemberRestartMovesItsPartitionsToTheOtherPod(EmbeddedKafkaBroker broker) throws Exception {
+        Pods pods = new Pods(broker, "dynamic-restart-group", false);
+        try {
+            Pod restarted = pods.start("pod-0");
+            Pod other = pods.start("pod-1");
+            pods.awaitBalanced(restarted, other);
+            Set<TopicPartition> before = restarted.owned();
+
+            restarted.stop();
+            long stoppedAt = System.nanoTime();
+            pods.sendOneRecordPerPartition();
+            // Leaving the group hands the partitions to the other pod
+            Map<TopicPartition, Long> downtime = other.awaitConsumed(before, stoppedAt);
+            logger.info("Dynamic member restart: partition downtime {} ms", new TreeMap<>(byPartition(downtime)));
+            assertThat(other.owned()).hasSize(PARTITIONS);
+
+            Pod replacement = pods.start("pod-0");
+            pods.awaitBalanced(replacement, other);
+        } finally {
+            pods.stopAll();
+        }
+    }
+
+    private static Map<Integer, Long> byPartition(Map<TopicPartition, Long> downtime) {
+        Map<Integer, Long> byPartition = new HashMap<>();
+        downtime.forEach((partition, ms) -> byPartition.put(partition.partition(), ms));
+        return byPartition;
+    }
+
+    /**
+     * Pods of one consumer group, each a task listener container of the application's factory.
+     */
+    private static class Pods {
+
+        private final EmbeddedKafkaBroker broker;
+        private final String groupId;
+        private final boolean staticMembership;
+        private final KafkaTemplate<String, String> template;
+        private final List<Pod> started = new ArrayList<>();
+
+        Pods(EmbeddedKafkaBroker broker, String groupId, boolean staticMembership) {
+            this.broker = broker;
+            this.groupId = groupId;
+            this.staticMembership = staticMembership;
+            this.template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(
+                KafkaTestUtils.producerProps(broker), new StringSerializer(), new StringSerializer()));
+        }
+
+        Pod start(String podName) {
+            Pod pod = new Pod(container(podName));
+            started.add(pod);
+            pod.container.start();
+            return pod;
+        }
+
+        /**
+         * Waits until the two pods share every partition and have each consumed a record from theirs.
+         */
+        void awaitBalanced(Pod first, Pod second) throws Exception {
+            await().atMost(60, TimeUnit.SECONDS).until(() -> !first.owned().isEmpty() && !second.owned().isEmpty()
+                && first.owned().size() + second.owned().size() == PARTITIONS);
+            long sentAt = System.nanoTime();
+            sendOneRecordPerPartition();
+            first.awaitConsumed(first.owned(), sentAt);
+            second.awaitConsumed(second.owned(), sentAt);
+        }
+
+        void sendOneRecordPerPartition() throws Exception {
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                template.send(TOPIC, partition, "client-" + partition, "{}").get(30, TimeUnit.SECONDS);
+            }
+        }
+
+        void stopAll() {
+            started.forEach(Pod::stop);
+            template.destroy();
+        }
+
+        private ConcurrentMessageListenerContainer<String, MessagePayload> container(String podName) {
+            KafkaConsumerConfig config = new KafkaConsumerConfig(mock(TaskMessageCodec.class));
+            ReflectionTestUtils.setField(config, "bootstrapServers", broker.getBrokersAsString());
+            ReflectionTestUtils.setField(config, "groupId", groupId);
+            ReflectionTestUtils.setField(config, "autoOffsetReset", "earliest");
+            ReflectionTestUtils.setField(config, "maxPollRecords", 100);
+            ReflectionTestUtils.setField(config, "maxPollIntervalMs", 300000);
+            ReflectionTestUtils.setField(config, "sessionTimeoutMs", SESSION_TIMEOUT_MS);
+            ReflectionTestUtils.setField(config, "heartbeatIntervalMs", 1000);
+            ReflectionTestUtils.setField(config, "concurrency", 1);
+            ReflectionTestUtils.setField(config, "offsetStore", "kafka");
+            ReflectionTestUtils.setField(config, "staticMembership", staticMembership);
+            ReflectionTestUtils.setField(config, "instanceId", podName);
+            ConcurrentKafkaListenerContainerFactory<String, MessagePayload> factory = config.kafkaListenerContainerFactory();
+
+            KafkaListenerEndpoint endpoint = mock(KafkaListenerEndpoint.class);
+            when(endpoint.getId()).thenReturn(LISTENER_ID);
+            when(endpoint.getTopics()).thenReturn(List.of(TOPIC));
+            // The factory's concurrency applies
+            when(endpoint.getConcurrency()).thenReturn(null);
+            return factory.createListenerContainer(endpoint);
+        }
+    }
+
+    /**
+     * One pod's container with the partitions it owns, the rebalances it went through and the time of
+     * the last record it consumed from each partition.
+     */
+    private static class Pod {
+
+        private final ConcurrentMessageListenerContainer<String, MessagePayload> container;
+        private final Set<TopicPartition> owned = new HashSet<>();
+        private final Map<TopicPartition, Long> consumedAt = new HashMap<>();
+        private int rebalances;
+
+        Pod(ConcurrentMessageListenerContainer<String, MessagePayload> container) {
+            this.container = container;
+            container.getContainerProperties().setConsumerRebalanceListener(new ConsumerAwareRebalanceListener() {
+                @Override
+                public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                    synchronized (Pod.this) {
+                        owned.removeAll(partitions);
+                        rebalances++;
+                    }
+                }
+
+                @Override
+                public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                    onPartitionsRevokedBeforeCommit(consumer, partitions);
+                }
+
+                @Override
+                public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                    synchronized (Pod.this) {
+                        owned.addAll(partitions);
+                        rebalances++;
+                    }
+                }
+            });
+            container.setupMessageListener((AcknowledgingMessageListener<String, MessagePayload>) (record, ack) -> {
+                synchronized (Pod.this) {
+                    consumedAt.put(new TopicPartition(record.topic(), record.partition()), System.nanoTime());
+                }
+                ack.acknowledge();
+            });
+        }
+
+        /**
+         * Milliseconds from {@code since} to the first record consumed from each of {@code partitions}
+         * after it.
+         */
+        Map<TopicPartition, Long> awaitConsumed(Set<TopicPartition> partitions, long since) {
+            await().atMost(60, TimeUnit.SECONDS).until(() -> partitions.stream().allMatch(partition -> {
+                Long at = consumedAt(partition);
+                return at != null && at >= since;
+            }));
+            Map<TopicPartition, Long> elapsed = new HashMap<>();
+            partitions.forEach(partition ->
+                elapsed.put(partition, TimeUnit.NANOSECONDS.toMillis(consumedAt(partition) - since)));
+            return elapsed;
+        }
+
+        void stop() {
+            if (container.isRunning()) {
+                container.stop();
+            }
+        }
+
+        synchronized Set<TopicPartition> owned() {
+            return new HashSet<>(owned);
+        }
+
+        /**
+         * Partitions this pod consumed a record from after {@code since}.
+         */
+        synchronized Set<TopicPartition> consumedFrom(long since) {
+            Set<TopicPartition> partitions = new HashSet<>();
+            consumedAt.forEach((partition, at) -> {
+                if (at >= since) {
+                    partitions.add(partition);
+                }
+            });
+            return partitions;
+        }
+
+        synchronized int rebalances() {
+            return rebalances;
+        }
+
+        private synchronized Long consumedAt(TopicPartition partition) {
+            return consumedAt.get(partition);
+        }
+    }
+}
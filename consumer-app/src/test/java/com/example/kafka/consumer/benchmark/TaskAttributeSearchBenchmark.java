@@ -0,0 +1,152 @@
+package com.example.kafka.consumer.benchmark;
+
+import com.example.kafka.consumer.entity.AttributeType;
+import com.example.kafka.consumer.repository.AttributeDefinitionRegistry;
+import com.example.kafka.consumer.repository.TaskAttributeSearchRepository;
+import com.example.kafka.consumer.repository.TaskAttributeSearchRepository.AttributeHit;
+import com.example.kafka.consumer.repository.TaskAttributeSearchRepository.AttributeSearch;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Typed attribute searches (TaskAttributeSearchRepository) on a generated dataset of 1M and 5M
+ * attribute values, with the partial (definition_id, typed column, id) indexes and with index scans
+ * disabled for the session (what the search costs without them).
+ * Attributes reference the attribute_definitions dictionary, as in the consumer's schema.
+ * The dataset is generated server-side in the schema attribute_search_bench (left in place and
+ * reused by later runs of the same size). Needs a PostgreSQL database:
+ * DATASOURCE_URL=jdbc:postgresql://localhost:5432/consumerdb DATASOURCE_USERNAME=... DATASOURCE_PASSWORD=...
+ * mvn -pl consumer-app test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.example.kafka.consumer.benchmark.TaskAttributeSearchBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskAttributeSearchBenchmark {
+
+    private static final String SCHEMA = "attribute_search_bench";
+
+    /** Attributes per task (one per searchable type) and values per attribute. */
+    private static final int ATTRIBUTES_PER_TASK = 4;
+    private static final int VALUES_PER_ATTRIBUTE = 5;
+
+    @Param({"1000000", "5000000"})
+    public int values;
+
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    private SingleConnectionDataSource dataSource;
+    private TaskAttributeSearchRepository repository;
+
+    @Setup
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource(System.getenv("DATASOURCE_URL"),
+            System.getenv("DATASOURCE_USERNAME"), System.getenv("DATASOURCE_PASSWORD"), true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + SCHEMA);
+        jdbcTemplate.execute("SET search_path TO " + SCHEMA);
+        generate(jdbcTemplate);
+        AttributeDefinitionRegistry registry =
+            new AttributeDefinitionRegistry(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+        registry.afterSingletonsInstantiated();
+        repository = new TaskAttributeSearchRepository(jdbcTemplate, registry, true);
+        repository.afterSingletonsInstantiated();
+        jdbcTemplate.execute("ANALYZE task_attribute_values");
+        String enabled = indexed ? "on" : "off";
+        jdbcTemplate.execute("SET enable_indexscan = " + enabled);
+        jdbcTemplate.execute("SET enable_indexonlyscan = " + enabled);
+        jdbcTemplate.execute("SET enable_bitmapscan = " + enabled);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    /** About 1% of the priorities (0 - 10000). */
+    @Benchmark
+    public List<AttributeHit> numericRange() {
+        return repository.search(new AttributeSearch("priority", AttributeType.NUMERIC,
+            new BigDecimal("5000"), new BigDecimal("5100"), null, null, 100));
+    }
+
+    /** A page deep into the numeric range: the keyset position is an index condition. */
+    @Benchmark
+    public List<AttributeHit> numericRangeDeepPage() {
+        return repository.search(new AttributeSearch("priority", AttributeType.NUMERIC,
+            new BigDecimal("5000"), new BigDecimal("9000"), new BigDecimal("8500"), 0L, 100));
+    }
+
+    /** One week of due dates (spread over a year). */
+    @Benchmark
+    public List<AttributeHit> dateRange() {
+        return repository.search(new AttributeSearch("due", AttributeType.DATE,
+            OffsetDateTime.parse("2025-06-01T00:00:00Z"), OffsetDateTime.parse("2025-06-08T00:00:00Z"),
+            null, null, 100));
+    }
+
+    /** Tasks referencing one of 10000 entities. */
+    @Benchmark
+    public List<AttributeHit> entityEquals() {
+        return repository.search(new AttributeSearch("owner", AttributeType.ENTITY,
+            "ENT-4242", "ENT-4242", null, null, 100));
+    }
+
+    private void generate(JdbcTemplate jdbcTemplate) {
+        int tasks = values / (ATTRIBUTES_PER_TASK * VALUES_PER_ATTRIBUTE);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS tasks (id BIGINT PRIMARY KEY, task_id VARCHAR(255) UNIQUE, " +
+            "raw_payload TEXT, created_at TIMESTAMPTZ NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS attribute_definitions (id INTEGER PRIMARY KEY, " +
+            "attribute_name VARCHAR(255) NOT NULL, attribute_type VARCHAR(255) NOT NULL, " +
+            "UNIQUE (attribute_name, attribute_type))");
+        jdbcTemplate.execute("INSERT INTO attribute_definitions VALUES (1, 'priority', 'NUMERIC'), (2, 'due', 'DATE'), " +
+            "(3, 'status', 'STRING'), (4, 'owner', 'ENTITY') ON CONFLICT DO NOTHING");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS task_attributes (id BIGINT PRIMARY KEY, " +
+            "task_id BIGINT NOT NULL REFERENCES tasks, definition_id INTEGER NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS task_attribute_values (id BIGINT PRIMARY KEY, " +
+            "attribute_id BIGINT NOT NULL REFERENCES task_attributes, definition_id INTEGER NOT NULL, " +
+            "string_value VARCHAR(255), numeric_value NUMERIC(19, 4), date_value TIMESTAMPTZ, " +
+            "boolean_value BOOLEAN, entity_ref VARCHAR(255), text_value TEXT)");
+        Long existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tasks", Long.class);
+        if (existing != null && existing == tasks) {
+            return;
+        }
+        jdbcTemplate.execute("TRUNCATE tasks, task_attributes, task_attribute_values");
+        jdbcTemplate.update("INSERT INTO tasks (id, task_id, created_at) " +
+            "SELECT g, 'TASK-' || g, now() FROM generate_series(1, ?) g", tasks);
+        jdbcTemplate.update("INSERT INTO task_attributes (id, task_id, definition_id) " +
+            "SELECT (t - 1) * 4 + k, t, k FROM generate_series(1, ?) t, generate_series(1, 4) k", tasks);
+        jdbcTemplate.update("INSERT INTO task_attribute_values (id, attribute_id, definition_id, " +
+            "numeric_value, date_value, string_value, entity_ref) " +
+            "SELECT (a.id - 1) * ? + n, a.id, a.definition_id, " +
+            "CASE WHEN a.definition_id = 1 THEN round((random() * 10000)::numeric, 4) END, " +
+            "CASE WHEN a.definition_id = 2 THEN timestamptz '2025-01-01' + random() * interval '365 days' END, " +
+            "CASE WHEN a.definition_id = 3 THEN (ARRAY['OPEN', 'IN_PROGRESS', 'DONE', 'CLOSED'])[1 + floor(random() * 4)::int] END, " +
+            "CASE WHEN a.definition_id = 4 THEN 'ENT-' || floor(random() * 10000)::int END " +
+            "FROM task_attributes a, generate_series(1, ?) n", VALUES_PER_ATTRIBUTE, VALUES_PER_ATTRIBUTE);
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_attribute_values_attribute_id ON task_attribute_values (attribute_id)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_task_attributes_task_id ON task_attributes (task_id)");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(TaskAttributeSearchBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
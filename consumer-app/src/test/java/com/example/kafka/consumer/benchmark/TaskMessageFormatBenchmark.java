@@ -0,0 +1,91 @@
+package com.example.kafka.consumer.benchmark;
+
+import com.example.kafka.consumer.dto.AttributeMessage;
+import com.example.kafka.consumer.dto.MessagePayload;
+import com.example.kafka.consumer.dto.TaskMessage;
+import com.example.kafka.consumer.entity.Task;
+import com.example.kafka.consumer.service.InMemorySchemaRegistryClient;
+import com.example.kafka.consumer.service.StreamingTaskPayloadParser;
+import com.example.kafka.consumer.service.TaskMessageCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-record cost of the two wire formats of task-topic, on the payloads of
+ * {@link TaskPayloadParserBenchmark}: the streaming JSON parser against Avro decoding, alone and
+ * mapped to the Task graph (which includes rendering the JSON kept in raw_payload).
+ * Run with:
+ * mvn -pl consumer-app test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.example.kafka.consumer.benchmark.TaskMessageFormatBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskMessageFormatBenchmark {
+
+    @Param({"5x2", "50x10", "200x20"})
+    public String shape;
+
+    private byte[] json;
+    private byte[] avro;
+    private long schemaId;
+    private TaskMessageCodec codec;
+    private StreamingTaskPayloadParser parser;
+
+    @Setup
+    public void setUp() throws Exception {
+        String[] dimensions = shape.split("x");
+        String payload = TaskPayloadParserBenchmark.payload(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]));
+        codec = new TaskMessageCodec(new InMemorySchemaRegistryClient());
+        parser = new StreamingTaskPayloadParser();
+        TaskMessage message = toMessage(payload);
+        json = MessagePayload.json(payload).getData();
+        avro = codec.encode(message);
+        schemaId = codec.schemaIdOf(message);
+    }
+
+    @Benchmark
+    public Task jsonStreaming() throws Exception {
+        return parser.parse(MessagePayload.json(json));
+    }
+
+    @Benchmark
+    public Object avroDecode() {
+        return codec.decode(schemaId, avro);
+    }
+
+    @Benchmark
+    public Task avroTask() throws Exception {
+        return parser.parse(MessagePayload.binary(avro, schemaId, codec));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TaskMessage toMessage(String payload) throws Exception {
+        Map<String, Object> task = new ObjectMapper().readValue(payload, Map.class);
+        List<AttributeMessage> attributes = new ArrayList<>();
+        for (Map<String, Object> attribute : (List<Map<String, Object>>) task.get("attributes")) {
+            attributes.add(new AttributeMessage((String) attribute.get("name"), (String) attribute.get("type"),
+                (List<Object>) attribute.get("values")));
+        }
+        return new TaskMessage((String) task.get("taskId"), attributes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(TaskMessageFormatBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.kafka.consumer.benchmark;
+
+import com.example.kafka.consumer.entity.Task;
+import com.example.kafka.consumer.service.JsonTreeTaskPayloadParser;
+import com.example.kafka.consumer.service.StreamingTaskPayloadParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the JsonNode tree parser with the streaming parser on generated task payloads of
+ * increasing size (attributes x values per attribute, all attribute types mixed).
+ * Run with (add -prof gc through org.openjdk.jmh.Main to compare allocations):
+ * mvn -pl consumer-app test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.example.kafka.consumer.benchmark.TaskPayloadParserBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskPayloadParserBenchmark {
+
+    private static final String[] TYPES = {"STRING", "NUMERIC", "DATE", "BOOLEAN", "ENTITY", "TEXT"};
+
+    @Param({"5x2", "50x10", "200x20"})
+    public String shape;
+
+    private String payload;
+    private JsonTreeTaskPayloadParser treeParser;
+    private StreamingTaskPayloadParser streamingParser;
+
+    @Setup
+    public void setUp() {
+        String[] dimensions = shape.split("x");
+        payload = payload(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]));
+        treeParser = new JsonTreeTaskPayloadParser();
+        streamingParser = new StreamingTaskPayloadParser();
+    }
+
+    @Benchmark
+    public Task tree() throws Exception {
+        return treeParser.parse(payload);
+    }
+
+    @Benchmark
+    public Task streaming() throws Exception {
+        return streamingParser.parse(payload);
+    }
+
+    static String payload(int attributes, int valuesPerAttribute) {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder("{\"taskId\":\"TASK-BENCH\",\"attributes\":[");
+        for (int a = 0; a < attributes; a++) {
+            String type = TYPES[a % TYPES.length];
+            json.append(a > 0 ? "," : "")
+                .append("{\"name\":\"attribute").append(a)
+                .append("\",\"type\":\"").append(type)
+                .append("\",\"values\":[");
+            for (int v = 0; v < valuesPerAttribute; v++) {
+                json.append(v > 0 ? "," : "").append(value(type, random));
+            }
+            json.append("]}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String value(String type, Random random) {
+        return switch (type) {
+            case "NUMERIC" -> String.format("%d.%04d", random.nextInt(100000), random.nextInt(10000));
+            case "DATE" -> "\"2025-" + String.format("%02d", 1 + random.nextInt(12)) + "-15T10:30:00Z\"";
+            case "BOOLEAN" -> String.valueOf(random.nextBoolean());
+            case "ENTITY" -> "\"ENT-" + random.nextInt(1000) + "\"";
+            case "TEXT" -> "\"" + "Lorem ipsum dolor sit amet, consectetur adipiscing elit. ".repeat(4) + "\"";
+            default -> "\"value-" + random.nextInt(100000) + "\"";
+        };
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(TaskPayloadParserBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.kafka.consumer.config;
+
+import com.example.kafka.consumer.dto.MessagePayload;
+import com.example.kafka.consumer.service.ConsumerFailureMetrics;
+import com.example.kafka.consumer.service.TaskMessageCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpoint;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Consumer properties of the listener containers built by the factories, without a broker.
+ */
+class KafkaConsumerConfigTest {
+
+    @Test
+    void testStaticMembershipGivesEveryListenerItsOwnInstanceId() {
+        ConcurrentKafkaListenerContainerFactory<String, MessagePayload> factory =
+            config(true, "consumer-app-0").kafkaListenerContainerFactory();
+
+        ConcurrentMessageListenerContainer<String, MessagePayload> tasks = container(factory, "taskListener");
+        ConcurrentMessageListenerContainer<String, MessagePayload> retries = container(factory, "taskListener-retry-1000");
+
+        assertThat(instanceId(tasks)).isEqualTo("consumer-app-0-taskListener");
+        assertThat(instanceId(retries)).isEqualTo("consumer-app-0-taskListener-retry-1000");
+        // Each container got its own copy, the factory's shared properties are untouched
+        assertThat(instanceId(factory.getContainerProperties().getKafkaConsumerProperties())).isNull();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testEveryContainerFactoryAppliesStaticMembership() {
+        KafkaConsumerConfig config = config(true, "consumer-app-1");
+
+        assertThat(instanceId(container(config.batchKafkaListenerContainerFactory(
+                mock(KafkaTemplate.class), new ConsumerFailureMetrics(new SimpleMeterRegistry())), "batchTaskListener")))
+            .isEqualTo("consumer-app-1-batchTaskListener");
+        assertThat(instanceId(container(config.snapshotKafkaListenerContainerFactory(
+                mock(KafkaTemplate.class), new ConsumerFailureMetrics(new SimpleMeterRegistry())), "snapshotListener")))
+            .isEqualTo("consumer-app-1-snapshotListener");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBatchFactoryAppliesTheDbOffsetStoreAndDeadLetters() {
+        KafkaConsumerConfig config = config(false, "");
+        ReflectionTestUtils.setField(config, "offsetStore", "db");
+        ReflectionTestUtils.setField(config, "brokerCommitIntervalMs", 5000L);
+        ReflectionTestUtils.setField(config, "deadLetterEnabled", true);
+        ReflectionTestUtils.setField(config, "dltSuffix", "-dlt");
+        ReflectionTestUtils.setField(config, "batchRetryAttempts", 0L);
+        KafkaTemplate<String, MessagePayload> template = mock(KafkaTemplate.class);
+        when(template.send(any(ProducerRecord.class))).thenAnswer(invocation -> CompletableFuture.completedFuture(
+            new SendResult<>(invocation.getArgument(0), new RecordMetadata(new TopicPartition("task-topic-dlt", 0), 0, 0, 0L, 0, 0))));
+
+        ConcurrentKafkaListenerContainerFactory<String, MessagePayload> factory = config.batchKafkaListenerContainerFactory(
+            template, new ConsumerFailureMetrics(new SimpleMeterRegistry()));
+
+        assertThat(factory.getContainerProperties().isSyncCommits()).isFalse();
+        assertThat(factory.getContainerProperties().getIdlePartitionEventInterval()).isEqualTo(5000L);
+        // A record that exhausted its retries is published to the task DLT, not skipped
+        ConsumerRecord<String, MessagePayload> record =
+            new ConsumerRecord<>("task-topic", 1, 42, "client-1", MessagePayload.json("{}"));
+        container(factory, "batchTaskListener").getCommonErrorHandler().handleOne(
+            new IllegalStateException("constraint violated"), record, mock(Consumer.class), mock(MessageListenerContainer.class));
+        ArgumentCaptor<ProducerRecord<String, MessagePayload>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(template).send(sent.capture());
+        assertThat(sent.getValue().topic()).isEqualTo("task-topic-dlt");
+    }
+
+    @Test
+    void testNoInstanceIdWhenStaticMembershipIsDisabled() {
+        ConcurrentKafkaListenerContainerFactory<String, MessagePayload> factory =
+            config(false, "consumer-app-0").kafkaListenerContainerFactory();
+
+        assertThat(instanceId(container(factory, "taskListener"))).isNull();
+    }
+
+    @Test
+    void testNoInstanceIdWithoutAPodName() {
+        // Enabled, but POD_NAME is not set: dynamic membership rather than one instance id shared by all pods
+        ConcurrentKafkaListenerContainerFactory<String, MessagePayload> factory =
+            config(true, "").kafkaListenerContainerFactory();
+
+        assertThat(instanceId(container(factory, "taskListener"))).isNull();
+    }
+
+    private static KafkaConsumerConfig config(boolean staticMembership, String instanceId) {
+        KafkaConsumerConfig config = new KafkaConsumerConfig(mock(TaskMessageCodec.class));
+        ReflectionTestUtils.setField(config, "bootstrapServers", "localhost:9092");
+        ReflectionTestUtils.setField(config, "groupId", "task-consumer-group");
+        ReflectionTestUtils.setField(config, "autoOffsetReset", "earliest");
+        ReflectionTestUtils.setField(config, "maxPollRecords", 100);
+        ReflectionTestUtils.setField(config, "maxPollIntervalMs", 300000);
+        ReflectionTestUtils.setField(config, "sessionTimeoutMs", 45000);
+        ReflectionTestUtils.setField(config, "heartbeatIntervalMs", 3000);
+        ReflectionTestUtils.setField(config, "concurrency", 3);
+        ReflectionTestUtils.setField(config, "offsetStore", "kafka");
+        ReflectionTestUtils.setField(config, "batchMaxPollRecords", 500);
+        ReflectionTestUtils.setField(config, "snapshotMaxPollRecords", 500);
+        ReflectionTestUtils.setField(config, "staticMembership", staticMembership);
+        ReflectionTestUtils.setField(config, "instanceId", instanceId);
+        return config;
+    }
+
+    private static ConcurrentMessageListenerContainer<String, MessagePayload> container(
+            ConcurrentKafkaListenerContainerFactory<String, MessagePayload> factory, String listenerId) {
+        KafkaListenerEndpoint endpoint = mock(KafkaListenerEndpoint.class);
+        when(endpoint.getId()).thenReturn(listenerId);
+        when(endpoint.getTopics()).thenReturn(List.of("task-topic"));
+        // The factory's concurrency applies
+        when(endpoint.getConcurrency()).thenReturn(null);
+        return factory.createListenerContainer(endpoint);
+    }
+
+    private static String instanceId(ConcurrentMessageListenerContainer<String, MessagePayload> container) {
+        return instanceId(container.getContainerProperties().getKafkaConsumerProperties());
+    }
+
+    private static String instanceId(Properties properties) {
+        return properties.getProperty(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.kafka.consumer.controller;
+
+import com.example.kafka.consumer.entity.TaskSnapshot;
+import com.example.kafka.consumer.repository.TaskSnapshotRepository;
+import com.example.kafka.consumer.repository.TaskSnapshotSearchRepository;
+import com.example.kafka.consumer.service.TaskSnapshotQueryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Conditional GETs of a snapshot through the query service's cache, with the stored row changed
+ * the way the snapshot listener changes it: upsert or tombstone, then invalidation.
+ */
+class TaskSnapshotControllerTest {
+
+    private static final String TASK_ID = "TASK-1";
+
+    private final TaskSnapshotRepository repository = mock(TaskSnapshotRepository.class);
+    private final AtomicReference<TaskSnapshot> stored = new AtomicReference<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private TaskSnapshotQueryService queryService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findByTaskId(TASK_ID)).thenAnswer(invocation -> Optional.ofNullable(stored.get()));
+        queryService = new TaskSnapshotQueryService(repository, mock(TaskSnapshotSearchRepository.class),
+            new SimpleMeterRegistry(), 100, 60_000);
+        mockMvc = MockMvcBuilders.standaloneSetup(new TaskSnapshotController(queryService)).build();
+    }
+
+    @Test
+    void testMatchingETagAnswersNotModified() throws Exception {
+        create("{\"status\":\"OPEN\"}", "2025-01-01T10:00:00Z");
+        String etag = etag();
+
+        mockMvc.perform(get("/api/snapshots/" + TASK_ID).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    @Test
+    void testUpdateChangesTheETag() throws Exception {
+        create("{\"status\":\"OPEN\"}", "2025-01-01T10:00:00Z");
+        String etag = etag();
+
+        update("{\"status\":\"DONE\"}", "2025-01-01T10:05:00Z");
+
+        mockMvc.perform(get("/api/snapshots/" + TASK_ID).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.snapshotData.status").value("DONE"));
+        assertThat(etag()).isNotEqualTo(etag);
+    }
+
+    @Test
+    void testTombstoneRemovesTheSnapshot() throws Exception {
+        create("{\"status\":\"OPEN\"}", "2025-01-01T10:00:00Z");
+        String etag = etag();
+
+        tombstone();
+
+        mockMvc.perform(get("/api/snapshots/" + TASK_ID).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testTaskCreatedAgainAfterATombstoneNeverMatchesTheOldETag() throws Exception {
+        create("{\"status\":\"OPEN\"}", "2025-01-01T10:00:00Z");
+        String etag = etag();
+
+        tombstone();
+        // Version 1 again, as on the first create
+        create("{\"status\":\"REOPENED\"}", "2025-01-02T10:00:00Z");
+
+        mockMvc.perform(get("/api/snapshots/" + TASK_ID).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.version").value(1))
+            .andExpect(jsonPath("$.snapshotData.status").value("REOPENED"));
+    }
+
+    private String etag() throws Exception {
+        return mockMvc.perform(get("/api/snapshots/" + TASK_ID))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private void create(String data, String at) {
+        TaskSnapshot snapshot = new TaskSnapshot(TASK_ID, data);
+        snapshot.setId(nextId.getAndIncrement());
+        snapshot.setVersion(1L);
+        snapshot.setCreatedAt(OffsetDateTime.parse(at));
+        snapshot.setUpdatedAt(OffsetDateTime.parse(at));
+        stored.set(snapshot);
+        queryService.invalidateAll(List.of(TASK_ID));
+    }
+
+    private void update(String data, String at) {
+        TaskSnapshot snapshot = stored.get();
+        TaskSnapshot updated = new TaskSnapshot(TASK_ID, data);
+        updated.setId(snapshot.getId());
+        updated.setVersion(snapshot.getVersion() + 1);
+        updated.setCreatedAt(snapshot.getCreatedAt());
+        updated.setUpdatedAt(OffsetDateTime.parse(at));
+        stored.set(updated);
+        queryService.invalidateAll(List.of(TASK_ID));
+    }
+
+    private void tombstone() {
+        stored.set(null);
+        queryService.invalidateAll(List.of(TASK_ID));
+    }
+}
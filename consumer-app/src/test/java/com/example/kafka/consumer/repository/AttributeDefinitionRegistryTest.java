@@ -0,0 +1,96 @@
+package com.example.kafka.consumer.repository;
+
+import com.example.kafka.consumer.entity.AttributeDefinition;
+import com.example.kafka.consumer.entity.AttributeType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AttributeDefinitionRegistryTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private AttributeDefinitionRegistry registry;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(jdbcTemplate.queryForObject(anyString(), any(RowMapper.class), eq("status"), eq("STRING")))
+            .thenAnswer(invocation -> new AttributeDefinition(nextId.getAndIncrement(), "status", AttributeType.STRING));
+        registry = new AttributeDefinitionRegistry(jdbcTemplate, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clear();
+        }
+    }
+
+    @Test
+    void testNewDefinitionInATransactionUsesItsConnectionAndIsCachedOnCommit() {
+        beginTransaction();
+
+        int id = registry.resolve("status", AttributeType.STRING);
+        // Resolved again in the same transaction: no second insert
+        assertThat(registry.resolve("status", AttributeType.STRING)).isEqualTo(id);
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(registry.resolve("status", AttributeType.STRING)).isEqualTo(id);
+        verify(jdbcTemplate, times(1)).update(anyString(), eq("status"), eq("STRING"));
+        // Never a transaction (and connection) of its own
+        verify(transactionManager, never()).getTransaction(any());
+    }
+
+    @Test
+    void testDefinitionOfARolledBackTransactionIsNotCached() {
+        beginTransaction();
+        int rolledBack = registry.resolve("status", AttributeType.STRING);
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        int id = registry.resolve("status", AttributeType.STRING);
+
+        assertThat(id).isNotEqualTo(rolledBack);
+        verify(jdbcTemplate, times(2)).update(anyString(), eq("status"), eq("STRING"));
+    }
+
+    @Test
+    void testNewDefinitionOutsideATransactionIsCommittedAndCachedRightAway() {
+        int id = registry.resolve("status", AttributeType.STRING);
+
+        assertThat(registry.resolve("status", AttributeType.STRING)).isEqualTo(id);
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(jdbcTemplate, times(1)).update(anyString(), eq("status"), eq("STRING"));
+    }
+
+    private static void beginTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    private static void completeTransaction(int status) {
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(), status);
+        TransactionSynchronizationManager.clear();
+    }
+}
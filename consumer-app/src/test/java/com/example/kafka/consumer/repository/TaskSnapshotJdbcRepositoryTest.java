@@ -0,0 +1,68 @@
+package com.example.kafka.consumer.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Boot-time jsonb conversion of task_snapshots.snapshot_data (app.snapshot.storage=jsonb).
+ */
+class TaskSnapshotJdbcRepositoryTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @Test
+    void testConvertedTableIsNotLocked() {
+        stored("jsonb", true);
+
+        repository("jsonb").afterSingletonsInstantiated();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void testTextColumnIsConvertedUnderTheTableLock() {
+        stored("text", false);
+
+        repository("jsonb").afterSingletonsInstantiated();
+
+        verify(jdbcTemplate).execute(contains("LOCK TABLE task_snapshots IN ACCESS EXCLUSIVE MODE"));
+    }
+
+    @Test
+    void testMissingIndexIsCreated() {
+        stored("jsonb", false);
+
+        repository("jsonb").afterSingletonsInstantiated();
+
+        verify(jdbcTemplate).execute(contains("CREATE INDEX IF NOT EXISTS idx_snapshot_data_gin"));
+    }
+
+    @Test
+    void testTextStorageLeavesTheTableAlone() {
+        repository("text").afterSingletonsInstantiated();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stored(String columnType, boolean indexExists) {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(false);
+        when(jdbcTemplate.queryForObject(contains("information_schema.columns"), eq(String.class))).thenReturn(columnType);
+        when(jdbcTemplate.queryForObject(contains("idx_snapshot_data_gin"), eq(Boolean.class))).thenReturn(indexExists);
+    }
+
+    private TaskSnapshotJdbcRepository repository(String storage) {
+        return new TaskSnapshotJdbcRepository(jdbcTemplate, "version", storage);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.dto.MessagePayload;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AsyncTaskConsumerServiceTest {
+
+    private static final TopicPartition PARTITION_0 = new TopicPartition("task-topic", 0);
+    private static final TopicPartition PARTITION_1 = new TopicPartition("task-topic", 1);
+
+    private final TaskMessageProcessor processor = mock(TaskMessageProcessor.class);
+    private final MessageListenerContainer container = mock(MessageListenerContainer.class);
+    private final ConsumerRecordRecoverer recoverer = mock(ConsumerRecordRecoverer.class);
+    private final Map<TopicPartition, List<Long>> acknowledged = new ConcurrentHashMap<>();
+    private AsyncTaskConsumerService consumer;
+
+    @BeforeEach
+    void setUp() {
+        KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+        when(registry.getListenerContainer(AsyncTaskConsumerService.LISTENER_ID)).thenReturn(container);
+        consumer = new AsyncTaskConsumerService(processor, registry, recoverer, 8);
+        ReflectionTestUtils.setField(consumer, "retryAttempts", 2);
+        ReflectionTestUtils.setField(consumer, "drainTimeoutMs", 10_000L);
+        ReflectionTestUtils.setField(consumer, "recoveryRetryIntervalMs", 20L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        consumer.destroy();
+    }
+
+    @Test
+    void testPartitionIsPausedWhileBusyAndAcknowledgedInOffsetOrder() {
+        doAnswer(invocation -> {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+            return null;
+        }).when(processor).process(any(), anyString(), anyInt(), anyLong(), any());
+
+        // Two partitions interleaved, as the container hands them over
+        for (long offset = 0; offset < 30; offset++) {
+            consume(PARTITION_0, offset);
+            consume(PARTITION_1, offset);
+        }
+
+        await().atMost(30, TimeUnit.SECONDS).until(() -> consumer.getInFlightCount() == 0);
+        List<Long> expected = LongStream.range(0, 30).boxed().toList();
+        assertThat(acknowledged.get(PARTITION_0)).isEqualTo(expected);
+        assertThat(acknowledged.get(PARTITION_1)).isEqualTo(expected);
+        for (TopicPartition partition : List.of(PARTITION_0, PARTITION_1)) {
+            InOrder order = inOrder(container);
+            order.verify(container).pausePartition(partition);
+            order.verify(container).resumePartition(partition);
+        }
+    }
+
+    @Test
+    void testPartitionStaysPausedUntilItsLastRecordCompletes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> release.await(10, TimeUnit.SECONDS))
+            .when(processor).process(any(), anyString(), anyInt(), anyLong(), any());
+
+        consume(PARTITION_0, 0);
+        consume(PARTITION_0, 1);
+
+        verify(container, times(1)).pausePartition(PARTITION_0);
+        verify(container, times(0)).resumePartition(PARTITION_0);
+        assertThat(consumer.getInFlightCount()).isEqualTo(2);
+
+        release.countDown();
+        await().atMost(10, TimeUnit.SECONDS).until(() -> consumer.getInFlightCount() == 0);
+        verify(container, times(1)).resumePartition(PARTITION_0);
+        assertThat(acknowledged.get(PARTITION_0)).containsExactly(0L, 1L);
+    }
+
+    @Test
+    void testRecordFailingItsRetriesIsDeadLetteredThenAcknowledged() {
+        doThrow(new IllegalStateException("broken"))
+            .when(processor).process(any(), anyString(), eq(0), eq(0L), any());
+
+        ConsumerRecord<String, MessagePayload> failing = consume(PARTITION_0, 0);
+        consume(PARTITION_0, 1);
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> consumer.getInFlightCount() == 0);
+        verify(processor, times(3)).process(any(), anyString(), eq(0), eq(0L), any());
+        verify(recoverer).accept(same(failing), any(IllegalStateException.class));
+        assertThat(acknowledged.get(PARTITION_0)).containsExactly(0L, 1L);
+    }
+
+    @Test
+    void testRecordIsAcknowledgedOnlyOnceItIsDeadLettered() {
+        AtomicBoolean deadLetterTopicDown = new AtomicBoolean(true);
+        doThrow(new IllegalStateException("broken"))
+            .when(processor).process(any(), anyString(), eq(0), eq(0L), any());
+        doAnswer(invocation -> {
+            if (deadLetterTopicDown.get()) {
+                throw new IllegalStateException("DLT unavailable");
+            }
+            return null;
+        }).when(recoverer).accept(any(), any());
+
+        consume(PARTITION_0, 0);
+        consume(PARTITION_0, 1);
+
+        // The partition stays paused and nothing is acknowledged while the recoverer fails
+        verify(recoverer, timeout(10_000).atLeast(3)).accept(any(), any());
+        assertThat(acknowledged).doesNotContainKey(PARTITION_0);
+        verify(container, never()).resumePartition(PARTITION_0);
+        assertThat(consumer.getInFlightCount()).isEqualTo(2);
+
+        deadLetterTopicDown.set(false);
+        await().atMost(10, TimeUnit.SECONDS).until(() -> consumer.getInFlightCount() == 0);
+        assertThat(acknowledged.get(PARTITION_0)).containsExactly(0L, 1L);
+        verify(container).resumePartition(PARTITION_0);
+    }
+
+    @Test
+    void testRevokedPartitionDoesNotAcknowledgeARecordThatWasNotDeadLettered() {
+        doThrow(new IllegalStateException("broken"))
+            .when(processor).process(any(), anyString(), eq(0), eq(0L), any());
+        doThrow(new IllegalStateException("DLT unavailable")).when(recoverer).accept(any(), any());
+        consume(PARTITION_0, 0);
+        consume(PARTITION_0, 1);
+        verify(recoverer, timeout(10_000).atLeastOnce()).accept(any(), any());
+
+        consumer.onPartitionsRevokedBeforeCommit(mock(Consumer.class), List.of(PARTITION_0));
+
+        // Both are redelivered to the new owner
+        assertThat(consumer.getInFlightCount()).isZero();
+        assertThat(acknowledged).doesNotContainKey(PARTITION_0);
+        verify(processor, never()).process(any(), anyString(), eq(0), eq(1L), any());
+    }
+
+    @Test
+    void testRevokeWaitsForInFlightWorkAndResumesThePartition() {
+        doAnswer(invocation -> {
+            Thread.sleep(100);
+            return null;
+        }).when(processor).process(any(), anyString(), anyInt(), anyLong(), any());
+        consume(PARTITION_0, 0);
+        consume(PARTITION_1, 0);
+
+        consumer.onPartitionsRevokedBeforeCommit(mock(Consumer.class), List.of(PARTITION_0, PARTITION_1));
+
+        assertThat(acknowledged.get(PARTITION_0)).containsExactly(0L);
+        assertThat(acknowledged.get(PARTITION_1)).containsExactly(0L);
+        verify(container, atLeastOnce()).resumePartition(PARTITION_0);
+        verify(container, atLeastOnce()).resumePartition(PARTITION_1);
+    }
+
+    private ConsumerRecord<String, MessagePayload> consume(TopicPartition partition, long offset) {
+        ConsumerRecord<String, MessagePayload> record = new ConsumerRecord<>(
+            partition.topic(), partition.partition(), offset, "client-" + offset, MessagePayload.json("{}"));
+        consumer.consume(record, () -> acknowledged
+            .computeIfAbsent(partition, tp -> Collections.synchronizedList(new ArrayList<>()))
+            .add(offset));
+        return record;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.service.ConcurrencyPolicy.Decision;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyPolicyTest {
+
+    private static final long COOLDOWN_MS = 30_000;
+    private static final double TARGET_DRAIN_SECONDS = 300;
+
+    private final ConcurrencyPolicy policy = new ConcurrencyPolicy(2, 3);
+
+    @Test
+    void testNeededFollowsLittlesLaw() {
+        // 6 000 records at 0.5 s each, drained in 300 s: 10 threads
+        assertThat(ConcurrencyPolicy.needed(6_000, 0.5, 60, 4, TARGET_DRAIN_SECONDS)).isEqualTo(10);
+        assertThat(ConcurrencyPolicy.needed(6_001, 0.5, 60, 4, TARGET_DRAIN_SECONDS)).isEqualTo(11);
+    }
+
+    @Test
+    void testNoLagNeedsNoThreads() {
+        assertThat(ConcurrencyPolicy.needed(0, 0.5, 0, 4, TARGET_DRAIN_SECONDS)).isZero();
+    }
+
+    @Test
+    void testWithoutLatencyTheCurrentSizeIsScaledByTheTimeToDrain() {
+        assertThat(ConcurrencyPolicy.needed(1_000, Double.NaN, 600, 4, TARGET_DRAIN_SECONDS)).isEqualTo(8);
+        assertThat(ConcurrencyPolicy.needed(1_000, Double.NaN, 150, 4, TARGET_DRAIN_SECONDS)).isEqualTo(2);
+    }
+
+    @Test
+    void testLagWithoutProgressAsksForOneMoreThread() {
+        assertThat(ConcurrencyPolicy.needed(1_000, Double.NaN, -1, 4, TARGET_DRAIN_SECONDS)).isEqualTo(5);
+    }
+
+    @Test
+    void testScaleUpWaitsForConsecutiveSignalsThenJumpsToTheNeed() {
+        assertThat(decide(4, 9, 0)).isEqualTo(Decision.hold(4, "hysteresis"));
+
+        Decision decision = decide(4, 9, 1_000);
+
+        assertThat(decision).isEqualTo(new Decision(9, "up", "lag"));
+        assertThat(decision.changed()).isTrue();
+    }
+
+    @Test
+    void testAnInterruptedSignalStartsOver() {
+        decide(4, 9, 0);
+        decide(4, 4, 1_000);
+
+        assertThat(decide(4, 9, 2_000).reason()).isEqualTo("hysteresis");
+    }
+
+    @Test
+    void testScaleDownGoesOneThreadAtATime() {
+        decide(8, 2, 0);
+        decide(8, 2, 1_000);
+
+        assertThat(decide(8, 2, 2_000)).isEqualTo(new Decision(7, "down", "lag"));
+    }
+
+    @Test
+    void testNeedIsBounded() {
+        assertThat(decide(10, 50, 0)).isEqualTo(Decision.hold(10, "bounds"));
+        assertThat(decide(2, 0, 1_000)).isEqualTo(Decision.hold(2, "bounds"));
+        assertThat(decide(5, 5, 2_000)).isEqualTo(Decision.hold(5, "steady"));
+
+        decide(4, 50, 3_000);
+        assertThat(decide(4, 50, 4_000).size()).isEqualTo(10);
+    }
+
+    @Test
+    void testNoChangeWithinTheCooldownOfThePreviousOne() {
+        decide(4, 9, 0);
+        decide(4, 9, 1_000);
+
+        decide(9, 20, 2_000);
+        assertThat(decide(9, 20, 3_000)).isEqualTo(Decision.hold(9, "cooldown"));
+
+        // Signals kept accumulating during the cooldown
+        assertThat(decide(9, 20, 1_000 + COOLDOWN_MS).size()).isEqualTo(10);
+    }
+
+    private Decision decide(int current, int needed, long now) {
+        return policy.decide(current, needed, 2, 10, COOLDOWN_MS, COOLDOWN_MS + now, "lag");
+    }
+}
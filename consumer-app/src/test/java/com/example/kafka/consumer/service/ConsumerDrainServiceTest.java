@@ -0,0 +1,144 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.service.ConsumerDrainService.State;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConsumerDrainServiceTest {
+
+    private final KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final KeyOrderedDispatcher dispatcher = mock(KeyOrderedDispatcher.class);
+    private final AsyncTaskConsumerService asyncConsumer = mock(AsyncTaskConsumerService.class);
+
+    @Test
+    void testDrainGoesFromRunningToDrainedAndRefusesTrafficFirst() {
+        MessageListenerContainer container = container(true);
+        ConsumerDrainService service = service(List.of(container), 60_000);
+        assertThat(service.getState()).isEqualTo(State.RUNNING);
+        assertThat(service.isDraining()).isFalse();
+
+        CompletableFuture<State> drain = service.startDrain();
+
+        assertThat(service.isDraining()).isTrue();
+        assertThat(drain.join()).isEqualTo(State.DRAINED);
+        assertThat(service.getState()).isEqualTo(State.DRAINED);
+        assertThat(readiness()).isEqualTo(ReadinessState.REFUSING_TRAFFIC);
+        verify(container).pause();
+        verify(container).stop();
+    }
+
+    @Test
+    void testContainersAreStoppedOnlyOnceNothingIsInFlight() {
+        MessageListenerContainer container = container(true);
+        ConsumerDrainService service = service(List.of(container), 60_000);
+        when(dispatcher.getInFlightCount()).thenReturn(3, 1, 0);
+        when(asyncConsumer.getInFlightCount()).thenReturn(2, 0);
+
+        assertThat(service.drainAndWait()).isEqualTo(1);
+
+        InOrder order = inOrder(container, dispatcher);
+        order.verify(container).pause();
+        order.verify(dispatcher, atLeast(3)).getInFlightCount();
+        order.verify(container).stop();
+    }
+
+    @Test
+    void testTimeoutStopsWithRecordsStillInFlight() {
+        MessageListenerContainer container = container(true);
+        ConsumerDrainService service = service(List.of(container), 0);
+        when(dispatcher.getInFlightCount()).thenReturn(5);
+
+        assertThat(service.startDrain().join()).isEqualTo(State.DRAINED);
+        verify(container).stop();
+    }
+
+    @Test
+    void testStoppedContainersAreLeftAlone() {
+        MessageListenerContainer running = container(true);
+        MessageListenerContainer stopped = container(false);
+        ConsumerDrainService service = service(List.of(running, stopped), 60_000);
+
+        assertThat(service.drainAndWait()).isEqualTo(1);
+        verify(stopped, never()).pause();
+        verify(stopped, never()).stop();
+    }
+
+    @Test
+    void testLaterCallsJoinTheSameDrain() {
+        MessageListenerContainer container = container(true);
+        ConsumerDrainService service = service(List.of(container), 60_000);
+
+        CompletableFuture<State> first = service.startDrain();
+        CompletableFuture<State> second = service.startDrain();
+        service.drainAndWait();
+
+        assertThat(second).isSameAs(first);
+        verify(container, times(1)).pause();
+        verify(container, times(1)).stop();
+        verify(eventPublisher, times(1)).publishEvent(any(AvailabilityChangeEvent.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConsumerDrainService service(List<MessageListenerContainer> containers, long timeoutMs) {
+        when(registry.getAllListenerContainers()).thenReturn(containers);
+        ObjectProvider<KeyOrderedDispatcher> dispatcherProvider = mock(ObjectProvider.class);
+        when(dispatcherProvider.getIfAvailable()).thenReturn(dispatcher);
+        ObjectProvider<AsyncTaskConsumerService> asyncProvider = mock(ObjectProvider.class);
+        when(asyncProvider.getIfAvailable()).thenReturn(asyncConsumer);
+        ConsumerDrainService service = new ConsumerDrainService(registry, eventPublisher, dispatcherProvider, asyncProvider);
+        ReflectionTestUtils.setField(service, "timeoutMs", timeoutMs);
+        return service;
+    }
+
+    /**
+     * A container that reports itself paused once asked to pause (its poll thread is back in poll)
+     * and not running once stopped.
+     */
+    private static MessageListenerContainer container(boolean running) {
+        MessageListenerContainer container = mock(MessageListenerContainer.class);
+        AtomicBoolean isRunning = new AtomicBoolean(running);
+        AtomicBoolean paused = new AtomicBoolean();
+        when(container.isRunning()).thenAnswer(invocation -> isRunning.get());
+        when(container.isContainerPaused()).thenAnswer(invocation -> paused.get());
+        doAnswer(invocation -> {
+            paused.set(true);
+            return null;
+        }).when(container).pause();
+        doAnswer(invocation -> {
+            isRunning.set(false);
+            return null;
+        }).when(container).stop();
+        return container;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readiness() {
+        ArgumentCaptor<AvailabilityChangeEvent<?>> captor = ArgumentCaptor.forClass(AvailabilityChangeEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        return captor.getValue().getState();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.service.ConsumerLagMonitor.GroupLag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ConsumerLagMonitorTest {
+
+    @Test
+    void testFirstSampleHasNoRate() {
+        assertThat(ConsumerLagMonitor.consumeRate(null, 5_000, 10_000, 0.3)).isZero();
+    }
+
+    @Test
+    void testRateIsTheCommittedProgressPerSecondSmoothedWithThePreviousRate() {
+        // 2 000 records committed in 10 s: 200/s, weighted 0.3 against the previous 100/s
+        GroupLag previous = sample(1_000, 100, 0);
+
+        double rate = ConsumerLagMonitor.consumeRate(previous, 3_000, 10_000, 0.3);
+
+        assertThat(rate).isCloseTo(0.3 * 200 + 0.7 * 100, within(1e-9));
+    }
+
+    @Test
+    void testRateWithoutSmoothingIsTheInstantRate() {
+        GroupLag previous = sample(1_000, 100, 0);
+
+        assertThat(ConsumerLagMonitor.consumeRate(previous, 1_500, 5_000, 1.0)).isCloseTo(100, within(1e-9));
+    }
+
+    @Test
+    void testStalledGroupDecaysTowardsZero() {
+        GroupLag previous = sample(1_000, 100, 0);
+
+        double rate = ConsumerLagMonitor.consumeRate(previous, 1_000, 10_000, 0.3);
+
+        assertThat(rate).isCloseTo(70, within(1e-9));
+    }
+
+    @Test
+    void testOffsetsGoingBackCountAsNoProgress() {
+        GroupLag previous = sample(1_000, 0, 0);
+
+        assertThat(ConsumerLagMonitor.consumeRate(previous, 200, 10_000, 0.3)).isZero();
+    }
+
+    @Test
+    void testSampleAtTheSameInstantKeepsThePreviousRate() {
+        GroupLag previous = sample(1_000, 42, 10_000);
+
+        assertThat(ConsumerLagMonitor.consumeRate(previous, 5_000, 10_000, 0.3)).isEqualTo(42);
+    }
+
+    @Test
+    void testTimeToDrainIsTheLagOverTheRate() {
+        assertThat(ConsumerLagMonitor.timeToDrain(3_000, 150)).isCloseTo(20, within(1e-9));
+    }
+
+    @Test
+    void testNoLagDrainsImmediatelyEvenWithoutProgress() {
+        assertThat(ConsumerLagMonitor.timeToDrain(0, 0)).isZero();
+        assertThat(ConsumerLagMonitor.timeToDrain(0, 150)).isZero();
+    }
+
+    @Test
+    void testLagWithoutProgressNeverDrains() {
+        assertThat(ConsumerLagMonitor.timeToDrain(3_000, 0)).isEqualTo(-1);
+    }
+
+    private static GroupLag sample(long committedTotal, double rate, long sampledAt) {
+        return new GroupLag("task-consumer-group", "task-topic", 0, committedTotal, rate, 0, sampledAt, List.of());
+    }
+}
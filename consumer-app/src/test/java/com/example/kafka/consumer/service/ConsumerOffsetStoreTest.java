@@ -0,0 +1,204 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.dto.MessagePayload;
+import com.example.kafka.consumer.repository.ConsumerOffsetJdbcRepository;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.event.ListenerContainerPartitionIdleEvent;
+import org.springframework.kafka.listener.ConsumerSeekAware.ConsumerSeekCallback;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConsumerOffsetStoreTest {
+
+    private static final String GROUP = "task-consumer-group";
+    private static final String TOPIC = "task-topic";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+    /** consumer_offsets rows, surviving the "crash" of a consumer like the database does. */
+    private final Map<TopicPartition, Long> table = new HashMap<>();
+    /** The group's committed position on the broker. */
+    private final AtomicLong brokerCommitted = new AtomicLong();
+    private final List<Long> processedOffsets = new ArrayList<>();
+    private final ConsumerOffsetJdbcRepository repository = mock(ConsumerOffsetJdbcRepository.class);
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> table.put(
+            new TopicPartition(invocation.getArgument(1), invocation.getArgument(2)), invocation.getArgument(3)))
+            .when(repository).save(eq(GROUP), anyString(), anyInt(), anyLong());
+        when(repository.findAll(eq(GROUP), any())).thenAnswer(invocation -> {
+            Collection<TopicPartition> partitions = invocation.getArgument(1);
+            Map<TopicPartition, Long> stored = new HashMap<>(table);
+            stored.keySet().retainAll(partitions);
+            return stored;
+        });
+    }
+
+    @Test
+    void testCrashAfterDbCommitBeforeBrokerCommitDoesNotReprocess() {
+        // Given - a consumer that processed offsets 0-4; only the ack of offset 0 reached the broker
+        TaskConsumerService consumer = consumer(store("db", 60_000));
+        consumeFrom(consumer, assign(consumer, brokerCommitted.get()), 5);
+        assertThat(brokerCommitted.get()).isEqualTo(1);
+        assertThat(table).containsEntry(PARTITION, 5L);
+
+        // When - the pod crashes and its replacement is assigned the partition at the broker position
+        TaskConsumerService replacement = consumer(store("db", 60_000));
+        long position = assign(replacement, brokerCommitted.get());
+        consumeFrom(replacement, position, 6);
+
+        // Then - it resumes after the last record committed to the database
+        assertThat(position).isEqualTo(5);
+        assertThat(processedOffsets).containsExactly(0L, 1L, 2L, 3L, 4L, 5L);
+    }
+
+    @Test
+    void testFailedRecordLeavesTheStoredOffsetUnchanged() {
+        TaskMessageProcessor processor = mock(TaskMessageProcessor.class);
+        doAnswer(invocation -> {
+            throw new IllegalStateException("constraint violated");
+        }).when(processor).process(any(), anyString(), anyInt(), anyLong(), any());
+        TaskConsumerService consumer = new TaskConsumerService(processor, store("db", 60_000));
+        ReflectionTestUtils.setField(consumer, "groupId", GROUP);
+
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+        try {
+            consumer.consumeMessage(MessagePayload.json("{}"), TOPIC, 0, 0, "TASK-1", acknowledgment);
+        } catch (IllegalStateException expected) {
+            // the container's error handler takes over
+        }
+
+        assertThat(table).isEmpty();
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    void testIdlePartitionGetsItsSkippedBrokerCommit() {
+        ConsumerOffsetStore store = store("db", 60_000);
+        Acknowledgment first = mock(Acknowledgment.class);
+        Acknowledgment second = mock(Acknowledgment.class);
+        Acknowledgment third = mock(Acknowledgment.class);
+
+        store.acknowledge(TOPIC, 0, first);
+        store.acknowledge(TOPIC, 0, second);
+        store.acknowledge(TOPIC, 0, third);
+        verify(first).acknowledge();
+        verify(third, never()).acknowledge();
+
+        store.onPartitionIdle(idle(PARTITION));
+        store.onPartitionIdle(idle(PARTITION));
+
+        // Only the latest skipped ack is sent, and only once
+        verify(second, never()).acknowledge();
+        verify(third, times(1)).acknowledge();
+    }
+
+    @Test
+    void testIdlePartitionSendsASkippedBatchAckOnce() {
+        ConsumerOffsetStore store = store("db", 60_000);
+        TopicPartition other = new TopicPartition(TOPIC, 1);
+        Acknowledgment first = mock(Acknowledgment.class);
+        Acknowledgment batch = mock(Acknowledgment.class);
+        store.acknowledge(List.of(PARTITION, other), first);
+        store.acknowledge(List.of(PARTITION, other), batch);
+
+        store.onPartitionIdle(idle(PARTITION));
+        store.onPartitionIdle(idle(other));
+
+        verify(batch, times(1)).acknowledge();
+    }
+
+    @Test
+    void testReassignedPartitionDropsTheSkippedAckOfItsEarlierAssignment() {
+        ConsumerOffsetStore store = store("db", 60_000);
+        Acknowledgment first = mock(Acknowledgment.class);
+        Acknowledgment stale = mock(Acknowledgment.class);
+        store.acknowledge(TOPIC, 0, first);
+        store.acknowledge(TOPIC, 0, stale);
+
+        store.seekToStored(GROUP, Map.of(PARTITION, 0L), mock(ConsumerSeekCallback.class));
+        store.onPartitionIdle(idle(PARTITION));
+
+        verify(stale, never()).acknowledge();
+    }
+
+    @Test
+    void testKafkaStoreAcknowledgesEveryRecordAndNeverSeeks() {
+        ConsumerOffsetStore store = store("kafka", 60_000);
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+        ConsumerSeekCallback callback = mock(ConsumerSeekCallback.class);
+        table.put(PARTITION, 42L);
+
+        store.acknowledge(TOPIC, 0, acknowledgment);
+        store.acknowledge(TOPIC, 0, acknowledgment);
+        store.seekToStored(GROUP, Map.of(PARTITION, 0L), callback);
+
+        verify(acknowledgment, times(2)).acknowledge();
+        verify(callback, never()).seek(anyString(), anyInt(), anyLong());
+    }
+
+    private ConsumerOffsetStore store(String type, long brokerCommitIntervalMs) {
+        ConsumerOffsetStore store = new ConsumerOffsetStore(repository, type);
+        ReflectionTestUtils.setField(store, "brokerCommitIntervalMs", brokerCommitIntervalMs);
+        return store;
+    }
+
+    private TaskConsumerService consumer(ConsumerOffsetStore store) {
+        TaskMessageProcessor processor = mock(TaskMessageProcessor.class);
+        doAnswer(invocation -> processedOffsets.add(invocation.getArgument(3)))
+            .when(processor).process(any(), anyString(), anyInt(), anyLong(), any());
+        TaskConsumerService consumer = new TaskConsumerService(processor, store);
+        ReflectionTestUtils.setField(consumer, "groupId", GROUP);
+        return consumer;
+    }
+
+    /**
+     * Assigns the partition to the consumer and returns the offset it starts from: the stored one it
+     * seeks to, or else the broker position.
+     */
+    private static long assign(TaskConsumerService consumer, long brokerPosition) {
+        AtomicLong position = new AtomicLong(brokerPosition);
+        ConsumerSeekCallback callback = mock(ConsumerSeekCallback.class);
+        doAnswer(invocation -> {
+            position.set(invocation.getArgument(2));
+            return null;
+        }).when(callback).seek(eq(TOPIC), eq(0), anyLong());
+        consumer.onPartitionsAssigned(Map.of(PARTITION, brokerPosition), callback);
+        return position.get();
+    }
+
+    private void consumeFrom(TaskConsumerService consumer, long from, long to) {
+        for (long offset = from; offset < to; offset++) {
+            long next = offset + 1;
+            consumer.consumeMessage(MessagePayload.json("{\"taskId\":\"TASK-" + offset + "\"}"),
+                TOPIC, 0, offset, "TASK-" + offset, () -> brokerCommitted.set(next));
+        }
+    }
+
+    private static ListenerContainerPartitionIdleEvent idle(TopicPartition partition) {
+        return new ListenerContainerPartitionIdleEvent(new Object(), new Object(), 60_000, "taskListener-0",
+            partition, null, false);
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.config.MessagePayloadDeserializer;
+import com.example.kafka.consumer.dto.MessagePayload;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeadLetterServiceTest {
+
+    private static final String DLT = "task-topic-dlt";
+
+    private final Map<TopicPartition, OffsetAndMetadata> committed = new HashMap<>();
+    private final MockConsumer<String, MessagePayload> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST) {
+        @Override
+        public synchronized void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+            super.commitSync(offsets);
+            committed.putAll(offsets);
+        }
+    };
+    @SuppressWarnings("unchecked")
+    private final ConsumerFactory<String, MessagePayload> consumerFactory = mock(ConsumerFactory.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, MessagePayload> kafkaTemplate = mock(KafkaTemplate.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DeadLetterService service;
+
+    @BeforeEach
+    void setUp() {
+        when(consumerFactory.createConsumer(anyString(), anyString(), isNull(), any(Properties.class))).thenReturn(consumer);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+        service = new DeadLetterService(consumerFactory, kafkaTemplate, new ConsumerFailureMetrics(meterRegistry));
+        ReflectionTestUtils.setField(service, "groupId", "task-consumer-group");
+        ReflectionTestUtils.setField(service, "dltSuffix", "-dlt");
+    }
+
+    @Test
+    void testReplayRepublishesToTheOriginalTopicWithoutRetryHeaders() {
+        deadLetters(2, 3);
+
+        int replayed = service.replay("task-topic", 100);
+
+        assertThat(replayed).isEqualTo(3);
+        List<ProducerRecord<String, MessagePayload>> sent = sent(3);
+        assertThat(sent).extracting(ProducerRecord::topic).containsOnly("task-topic");
+        assertThat(sent).extracting(ProducerRecord::key).containsExactlyInAnyOrder("TASK-0", "TASK-1", "TASK-2");
+        ProducerRecord<String, MessagePayload> first = sent.get(0);
+        assertThat(first.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_TOPIC)).isNull();
+        assertThat(first.headers().lastHeader("retry_topic-attempts")).isNull();
+        // The source version survives the replay, so the task stores can still reject stale state
+        assertThat(first.headers().lastHeader(MessagePayloadDeserializer.SOURCE_VERSION_HEADER)).isNotNull();
+        assertThat(committed).containsEntry(new TopicPartition(DLT, 0), new OffsetAndMetadata(2))
+            .containsEntry(new TopicPartition(DLT, 1), new OffsetAndMetadata(1));
+    }
+
+    @Test
+    void testReplayStopsAtMaxRecordsAndCommitsOnlyWhatWasReplayed() {
+        deadLetters(1, 5);
+
+        int replayed = service.replay("task-topic", 2);
+
+        assertThat(replayed).isEqualTo(2);
+        sent(2);
+        assertThat(committed).containsExactly(Map.entry(new TopicPartition(DLT, 0), new OffsetAndMetadata(2)));
+    }
+
+    @Test
+    void testReplayOfAMissingDeadLetterTopicReplaysNothing() {
+        int replayed = service.replay("task-topic", 100);
+
+        assertThat(replayed).isZero();
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+        assertThat(committed).isEmpty();
+        assertThat(consumer.closed()).isTrue();
+    }
+
+    @Test
+    void testReplayOfADeadLetterTopicWithoutPartitionsReplaysNothing() {
+        consumer.updatePartitions(DLT, List.of());
+
+        assertThat(service.replay("task-topic", 100)).isZero();
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+    }
+
+    @Test
+    void testDeadLetterIsCountedByOriginalTopicAndRootCause() {
+        ConsumerRecord<String, MessagePayload> record = deadLetter(0, 0, "TASK-0");
+
+        service.handleDeadLetter(record);
+
+        assertThat(meterRegistry.get("kafka.consumer.dead.letters")
+            .tag("topic", "task-topic").tag("failure", "IllegalStateException").counter().count()).isEqualTo(1);
+    }
+
+    /**
+     * Creates the DLT with the given number of partitions and spreads {@code count} dead letters over them.
+     */
+    private void deadLetters(int partitions, int count) {
+        List<PartitionInfo> infos = new ArrayList<>();
+        Map<TopicPartition, Long> beginning = new HashMap<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            infos.add(new PartitionInfo(DLT, partition, null, null, null));
+            beginning.put(new TopicPartition(DLT, partition), 0L);
+        }
+        consumer.updatePartitions(DLT, infos);
+        consumer.updateBeginningOffsets(beginning);
+        // Records can only be added once the service has assigned the partitions
+        consumer.schedulePollTask(() -> {
+            long[] offsets = new long[partitions];
+            for (int i = 0; i < count; i++) {
+                int partition = i % partitions;
+                consumer.addRecord(deadLetter(partition, offsets[partition]++, "TASK-" + i));
+            }
+        });
+    }
+
+    private static ConsumerRecord<String, MessagePayload> deadLetter(int partition, long offset, String taskId) {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(KafkaHeaders.DLT_ORIGINAL_TOPIC, "task-topic".getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.DLT_EXCEPTION_CAUSE_FQCN, IllegalStateException.class.getName().getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.DLT_EXCEPTION_MESSAGE, "constraint violated".getBytes(StandardCharsets.UTF_8));
+        headers.add("retry_topic-attempts", ByteBuffer.allocate(Integer.BYTES).putInt(4).array());
+        headers.add(MessagePayloadDeserializer.SOURCE_VERSION_HEADER, ByteBuffer.allocate(Long.BYTES).putLong(42).array());
+        return new ConsumerRecord<>(DLT, partition, offset, 0L, TimestampType.CREATE_TIME,
+            0, 0, taskId, MessagePayload.json("{\"taskId\":\"" + taskId + "\"}"), headers, Optional.empty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ProducerRecord<String, MessagePayload>> sent(int count) {
+        ArgumentCaptor<ProducerRecord<String, MessagePayload>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(count)).send(captor.capture());
+        return captor.getAllValues();
+    }
+}
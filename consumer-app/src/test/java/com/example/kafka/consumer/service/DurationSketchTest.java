@@ -0,0 +1,86 @@
+package com.example.kafka.consumer.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class DurationSketchTest {
+
+    @Test
+    void testSmallDurationsHaveABucketEach() {
+        for (long duration = 0; duration < 8; duration++) {
+            int bucket = DurationSketch.bucketOf(duration);
+            assertThat(bucket).isEqualTo((int) duration);
+            assertThat(DurationSketch.lowerBound(bucket)).isEqualTo(duration);
+            assertThat(DurationSketch.upperBound(bucket)).isEqualTo(duration);
+        }
+    }
+
+    @Test
+    void testEveryPowerOfTwoIsSplitIntoEightBuckets() {
+        assertThat(DurationSketch.bucketOf(8)).isEqualTo(8);
+        assertThat(DurationSketch.bucketOf(15)).isEqualTo(15);
+        assertThat(DurationSketch.bucketOf(16)).isEqualTo(16);
+        assertThat(DurationSketch.bucketOf(17)).isEqualTo(16);
+        assertThat(DurationSketch.bucketOf(31)).isEqualTo(23);
+        assertThat(DurationSketch.bucketOf(1024)).isEqualTo(64);
+        assertThat(DurationSketch.lowerBound(64)).isEqualTo(1024);
+        assertThat(DurationSketch.upperBound(64)).isEqualTo(1151);
+    }
+
+    @Test
+    void testBucketsAreContiguousAndNarrowerThanAnEighthOfTheirValues() {
+        for (int bucket = 0; bucket < 200; bucket++) {
+            assertThat(DurationSketch.lowerBound(bucket + 1)).isEqualTo(DurationSketch.upperBound(bucket) + 1);
+        }
+        for (long duration = 0; duration < 100_000; duration++) {
+            int bucket = DurationSketch.bucketOf(duration);
+            long lower = DurationSketch.lowerBound(bucket);
+            long upper = DurationSketch.upperBound(bucket);
+            assertThat(duration).isBetween(lower, upper);
+            assertThat(upper - lower + 1).isLessThanOrEqualTo(Math.max(1, duration / 8));
+        }
+    }
+
+    @Test
+    void testNegativeDurationsCountAsZero() {
+        assertThat(DurationSketch.bucketOf(-5)).isZero();
+    }
+
+    @Test
+    void testQuantilesAreWithinASixteenthOfTheTrueValue() {
+        DurationSketch sketch = new DurationSketch();
+        for (long duration = 1; duration <= 10_000; duration++) {
+            sketch.add(duration);
+        }
+
+        assertThat(sketch.getCount()).isEqualTo(10_000);
+        assertThat(sketch.quantile(0.5)).isCloseTo(5_000L, within(5_000L / 16));
+        assertThat(sketch.quantile(0.95)).isCloseTo(9_500L, within(9_500L / 16));
+        assertThat(sketch.quantile(0.99)).isCloseTo(9_900L, within(9_900L / 16));
+        // Never outside the exact extremes
+        assertThat(sketch.quantile(0)).isEqualTo(1L);
+        assertThat(sketch.quantile(1)).isCloseTo(10_000L, within(10_000L / 16)).isLessThanOrEqualTo(10_000L);
+        assertThat(new DurationSketch().quantile(0.5)).isNull();
+    }
+
+    @Test
+    void testMergedSketchEqualsTheSketchOfAllDurations() {
+        DurationSketch first = new DurationSketch();
+        DurationSketch second = new DurationSketch();
+        DurationSketch all = new DurationSketch();
+        for (long duration = 0; duration < 5_000; duration += 7) {
+            (duration % 2 == 0 ? first : second).add(duration);
+            all.add(duration);
+        }
+
+        first.merge(second);
+
+        assertThat(first.getBuckets()).isEqualTo(all.getBuckets());
+        assertThat(first.getCount()).isEqualTo(all.getCount());
+        assertThat(first.getMin()).isEqualTo(all.getMin());
+        assertThat(first.getMax()).isEqualTo(all.getMax());
+        assertThat(first.quantile(0.9)).isEqualTo(all.quantile(0.9));
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.entity.MessageRecord;
+import com.example.kafka.consumer.repository.MessageRecordJdbcRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JdbcMessageAuditSinkTest {
+
+    private final MessageRecordJdbcRepository repository = mock(MessageRecordJdbcRepository.class);
+    private final MessageRollupAggregator rollupAggregator = mock(MessageRollupAggregator.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<Long>> written = new ArrayList<>();
+    private JdbcMessageAuditSink sink;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        doAnswer(invocation -> {
+            List<MessageRecord> batch = invocation.getArgument(0);
+            written.add(batch.stream().map(MessageRecord::getOffsetValue).toList());
+            return null;
+        }).when(repository).insertAll(anyList());
+        sink = new JdbcMessageAuditSink(repository, rollupAggregator, transactionManager, meterRegistry, 5, 2);
+    }
+
+    @Test
+    void testRecordNeverWritesOnTheCallingThread() {
+        for (long offset = 0; offset < 4; offset++) {
+            sink.record(record(offset));
+        }
+
+        verify(repository, never()).insertAll(anyList());
+        verify(transactionManager, never()).getTransaction(any());
+        assertThat(sink.getQueuedCount()).isEqualTo(4);
+    }
+
+    @Test
+    void testFlushWritesEachBatchInItsOwnTransaction() {
+        for (long offset = 0; offset < 5; offset++) {
+            sink.record(record(offset));
+        }
+
+        sink.scheduledFlush();
+
+        assertThat(written).containsExactly(List.of(0L, 1L), List.of(2L, 3L), List.of(4L));
+        verify(transactionManager, times(3)).getTransaction(any());
+        verify(transactionManager, times(3)).commit(any(TransactionStatus.class));
+        assertThat(sink.getQueuedCount()).isZero();
+    }
+
+    @Test
+    void testFullQueueHoldsTheCallerBackUntilTheFlusherMakesRoom() throws Exception {
+        for (long offset = 0; offset < 5; offset++) {
+            sink.record(record(offset));
+        }
+        CountDownLatch recorded = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            sink.record(record(5));
+            recorded.countDown();
+        });
+        producer.start();
+
+        assertThat(recorded.await(200, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(sink.getQueuedCount()).isEqualTo(5);
+        // Every record reaches the rollups, the audit row waits for room
+        verify(rollupAggregator, times(6)).add(any());
+
+        sink.scheduledFlush();
+
+        assertThat(recorded.await(10, TimeUnit.SECONDS)).isTrue();
+        producer.join();
+        assertThat(meterRegistry.counter("audit.records.backpressure").count()).isEqualTo(1);
+
+        sink.scheduledFlush();
+
+        assertThat(written).flatMap(batch -> batch).containsExactly(0L, 1L, 2L, 3L, 4L, 5L);
+    }
+
+    @Test
+    void testFailedBatchIsKeptAndWrittenFirstOnTheNextFlush() {
+        AtomicBoolean databaseDown = new AtomicBoolean(true);
+        doAnswer(invocation -> {
+            if (databaseDown.get()) {
+                throw new IllegalStateException("connection refused");
+            }
+            List<MessageRecord> batch = invocation.getArgument(0);
+            written.add(batch.stream().map(MessageRecord::getOffsetValue).toList());
+            return null;
+        }).when(repository).insertAll(anyList());
+        for (long offset = 0; offset < 4; offset++) {
+            sink.record(record(offset));
+        }
+
+        sink.scheduledFlush();
+
+        // The flush stops at the failed batch, nothing is lost
+        assertThat(written).isEmpty();
+        verify(transactionManager).rollback(any(TransactionStatus.class));
+        assertThat(meterRegistry.counter("audit.records.retried").count()).isEqualTo(2);
+        assertThat(sink.getQueuedCount()).isEqualTo(4);
+
+        sink.record(record(4));
+        databaseDown.set(false);
+        sink.scheduledFlush();
+
+        assertThat(written).containsExactly(List.of(0L, 1L), List.of(2L, 3L), List.of(4L));
+        assertThat(sink.getQueuedCount()).isZero();
+    }
+
+    @Test
+    void testRecordInsideATransactionIsQueuedOnlyOnCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            sink.record(record(0));
+            sink.record(record(1));
+
+            assertThat(sink.getQueuedCount()).isZero();
+
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clear();
+        }
+
+        assertThat(sink.getQueuedCount()).isEqualTo(2);
+        assertThat(TransactionSynchronizationManager.getResourceMap()).isEmpty();
+    }
+
+    @Test
+    void testRecordOfARolledBackTransactionIsNeverQueued() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            sink.record(record(0));
+
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clear();
+        }
+
+        sink.scheduledFlush();
+
+        assertThat(sink.getQueuedCount()).isZero();
+        assertThat(written).isEmpty();
+        assertThat(TransactionSynchronizationManager.getResourceMap()).isEmpty();
+    }
+
+    private static MessageRecord record(long offset) {
+        MessageRecord record = new MessageRecord("{}", "task-topic", 0, offset, "TASK-" + offset);
+        record.setReceivedAt(OffsetDateTime.now());
+        return record;
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.dto.MessagePayload;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KeyOrderedDispatcherTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("task-topic", 0);
+
+    private final KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+    private final MessageListenerContainer container = mock(MessageListenerContainer.class);
+    private final ConsumerRecordRecoverer recoverer = mock(ConsumerRecordRecoverer.class);
+    private final Consumer<?, ?> consumer = mock(Consumer.class);
+    private KeyOrderedDispatcher dispatcher;
+
+    private KeyOrderedDispatcher dispatcher(int workers, int maxInFlight) {
+        when(registry.getListenerContainer(ParallelTaskConsumerService.LISTENER_ID)).thenReturn(container);
+        when(consumer.assignment()).thenReturn(Set.of(PARTITION));
+        dispatcher = new KeyOrderedDispatcher(workers, maxInFlight, registry, recoverer);
+        ReflectionTestUtils.setField(dispatcher, "retryAttempts", 2);
+        ReflectionTestUtils.setField(dispatcher, "drainTimeoutMs", 10_000L);
+        ReflectionTestUtils.setField(dispatcher, "recoveryRetryIntervalMs", 20L);
+        return dispatcher;
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.destroy();
+    }
+
+    @Test
+    void testRecordsOfOneKeyRunInOffsetOrder() {
+        dispatcher(8, 1000);
+        Map<String, List<Long>> processed = new ConcurrentHashMap<>();
+
+        // 4 keys interleaved in one partition, each record taking a random time
+        for (long offset = 0; offset < 200; offset++) {
+            ConsumerRecord<String, MessagePayload> record = record(offset, "client-" + offset % 4);
+            dispatcher.dispatch(record, () -> {
+                sleep(ThreadLocalRandom.current().nextInt(3));
+                processed.computeIfAbsent(record.key(), key -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(record.offset());
+            });
+        }
+
+        await().atMost(30, TimeUnit.SECONDS).until(() -> dispatcher.getInFlightCount() == 0);
+        assertThat(processed).hasSize(4);
+        processed.forEach((key, offsets) -> assertThat(offsets).hasSize(50).isSorted());
+        dispatcher.commit(consumer);
+        verify(consumer).commitSync(Map.of(PARTITION, new OffsetAndMetadata(200)));
+    }
+
+    @Test
+    void testPartitionsArePausedInsteadOfBlockingThePollThread() throws Exception {
+        dispatcher(1, 2);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Three slow records of one key exceed max-in-flight; dispatching returns anyway
+        for (long offset = 0; offset < 3; offset++) {
+            dispatcher.dispatch(record(offset, "slow-key"), () -> awaitLatch(release));
+        }
+        dispatcher.applyBackPressure(consumer);
+
+        verify(container).pausePartition(PARTITION);
+        verify(container, never()).resumePartition(any());
+
+        release.countDown();
+        await().atMost(10, TimeUnit.SECONDS).until(() -> dispatcher.getInFlightCount() == 0);
+        verify(container).resumePartition(PARTITION);
+    }
+
+    @Test
+    void testBelowMaxInFlightNothingIsPaused() {
+        dispatcher(1, 10);
+        dispatcher.dispatch(record(0, "key"), () -> { });
+        dispatcher.applyBackPressure(consumer);
+
+        verify(container, never()).pausePartition(any());
+    }
+
+    @Test
+    void testRecordFailingItsRetriesIsDeadLetteredBeforeItsOffsetIsCommitted() {
+        dispatcher(2, 10);
+        ConsumerRecord<String, MessagePayload> failing = record(0, "key");
+        List<Integer> attempts = Collections.synchronizedList(new ArrayList<>());
+
+        dispatcher.dispatch(failing, () -> {
+            attempts.add(attempts.size());
+            throw new IllegalStateException("broken");
+        });
+        dispatcher.dispatch(record(1, "key"), () -> { });
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> dispatcher.getInFlightCount() == 0);
+        assertThat(attempts).hasSize(3);
+        verify(recoverer).accept(same(failing), any(IllegalStateException.class));
+        dispatcher.commit(consumer);
+        verify(consumer).commitSync(Map.of(PARTITION, new OffsetAndMetadata(2)));
+    }
+
+    @Test
+    void testRecordIsNotCommittedPastUntilItIsDeadLettered() {
+        dispatcher(2, 10);
+        AtomicBoolean deadLetterTopicDown = new AtomicBoolean(true);
+        doAnswer(invocation -> {
+            if (deadLetterTopicDown.get()) {
+                throw new IllegalStateException("DLT unavailable");
+            }
+            return null;
+        }).when(recoverer).accept(any(), any());
+        List<Long> processed = Collections.synchronizedList(new ArrayList<>());
+
+        dispatcher.dispatch(record(0, "key"), () -> {
+            throw new IllegalStateException("broken");
+        });
+        dispatcher.dispatch(record(1, "key"), () -> processed.add(1L));
+        dispatcher.dispatch(record(2, "other"), () -> processed.add(2L));
+
+        // The recoverer keeps failing: other keys go on, the failed key and the commit wait
+        verify(recoverer, timeout(10_000).atLeast(3)).accept(any(), any());
+        await().atMost(10, TimeUnit.SECONDS).until(() -> processed.contains(2L));
+        assertThat(processed).containsExactly(2L);
+        dispatcher.commit(consumer);
+        verify(consumer).commitSync(Map.of(PARTITION, new OffsetAndMetadata(0)));
+
+        deadLetterTopicDown.set(false);
+        await().atMost(10, TimeUnit.SECONDS).until(() -> dispatcher.getInFlightCount() == 0);
+        assertThat(processed).containsExactly(2L, 1L);
+        dispatcher.commit(consumer);
+        verify(consumer).commitSync(Map.of(PARTITION, new OffsetAndMetadata(3)));
+    }
+
+    @Test
+    void testRevokedPartitionLeavesARecordThatWasNotDeadLetteredUncommitted() {
+        dispatcher(2, 10);
+        ReflectionTestUtils.setField(dispatcher, "drainTimeoutMs", 200L);
+        doThrow(new IllegalStateException("DLT unavailable")).when(recoverer).accept(any(), any());
+
+        dispatcher.dispatch(record(0, "key"), () -> {
+            throw new IllegalStateException("broken");
+        });
+        dispatcher.dispatch(record(1, "other"), () -> { });
+        verify(recoverer, timeout(10_000).atLeastOnce()).accept(any(), any());
+
+        dispatcher.onPartitionsRevokedBeforeCommit(consumer, List.of(PARTITION));
+
+        // Redelivered to the new owner from the failed record on
+        verify(consumer).commitSync(Map.of(PARTITION, new OffsetAndMetadata(0)));
+        await().atMost(10, TimeUnit.SECONDS).until(() -> dispatcher.getInFlightCount() == 0);
+        verify(consumer, never()).commitSync(Map.of(PARTITION, new OffsetAndMetadata(2)));
+    }
+
+    @Test
+    void testRevokedPartitionDrainsAndCommitsItsCompletedRecords() {
+        dispatcher(2, 10);
+        dispatcher.dispatch(record(0, "a"), () -> sleep(100));
+        dispatcher.dispatch(record(1, "b"), () -> sleep(100));
+
+        dispatcher.onPartitionsRevokedBeforeCommit(consumer, List.of(PARTITION));
+
+        verify(consumer).commitSync(Map.of(PARTITION, new OffsetAndMetadata(2)));
+    }
+
+    private static ConsumerRecord<String, MessagePayload> record(long offset, String key) {
+        return new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset, key, MessagePayload.json("{}"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitLatch(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
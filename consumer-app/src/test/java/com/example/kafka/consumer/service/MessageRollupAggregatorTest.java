@@ -0,0 +1,152 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.entity.MessageRecord;
+import com.example.kafka.consumer.entity.MessageRollup;
+import com.example.kafka.consumer.repository.MessageRollupJdbcRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MessageRollupAggregatorTest {
+
+    private static final String TOPIC = "tasks";
+
+    private final MessageRollupJdbcRepository repository = mock(MessageRollupJdbcRepository.class);
+    private final List<MessageRollup> merged = new ArrayList<>();
+    private MessageRollupAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            merged.addAll(invocation.getArgument(0));
+            return null;
+        }).when(repository).mergeAll(anyList());
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        aggregator = new MessageRollupAggregator(repository, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clear();
+        }
+    }
+
+    @Test
+    void testRecordsOfAMinuteAreMergedAsOneRollup() {
+        aggregator.add(record(0, "2025-01-01T10:00:05Z", 100L));
+        aggregator.add(record(0, "2025-01-01T10:00:55Z", 300L));
+        aggregator.add(record(0, "2025-01-01T10:00:30Z", null));
+        aggregator.add(record(1, "2025-01-01T10:00:30Z", 50L));
+
+        aggregator.flush();
+
+        assertThat(merged).hasSize(2);
+        MessageRollup rollup = rollup(0);
+        assertThat(rollup.getBucketStart()).isEqualTo(OffsetDateTime.parse("2025-01-01T10:00:00Z"));
+        assertThat(rollup.getMessageCount()).isEqualTo(3);
+        assertThat(rollup.getProcessedCount()).isEqualTo(2);
+        assertThat(rollup.getDurationSum()).isEqualTo(400);
+        assertThat(rollup.getDurationMin()).isEqualTo(100);
+        assertThat(rollup.getDurationMax()).isEqualTo(300);
+    }
+
+    @Test
+    void testRecordsOfATransactionCountOnlyOnCommit() {
+        beginTransaction();
+        aggregator.add(record(0, "2025-01-01T10:00:05Z", 100L));
+        aggregator.flush();
+        assertThat(merged).isEmpty();
+        commit();
+
+        aggregator.flush();
+
+        assertThat(rollup(0).getMessageCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testRecordsOfARolledBackTransactionAreNotCounted() {
+        beginTransaction();
+        aggregator.add(record(0, "2025-01-01T10:00:05Z", 100L));
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        // Redelivered and processed again
+        beginTransaction();
+        aggregator.add(record(0, "2025-01-01T10:00:05Z", 120L));
+        commit();
+
+        aggregator.flush();
+
+        assertThat(rollup(0).getMessageCount()).isEqualTo(1);
+        assertThat(rollup(0).getDurationSum()).isEqualTo(120);
+    }
+
+    @Test
+    void testFailedMergeIsRetriedTogetherWithNewRecords() {
+        aggregator.add(record(0, "2025-01-01T10:00:05Z", 100L));
+        doThrow(new DataAccessResourceFailureException("connection refused")).doAnswer(invocation -> {
+            merged.addAll(invocation.getArgument(0));
+            return null;
+        }).when(repository).mergeAll(anyList());
+        aggregator.flush();
+        assertThat(merged).isEmpty();
+
+        aggregator.add(record(0, "2025-01-01T10:00:10Z", 20L));
+        aggregator.flush();
+
+        assertThat(merged).hasSize(1);
+        MessageRollup rollup = rollup(0);
+        assertThat(rollup.getMessageCount()).isEqualTo(2);
+        assertThat(rollup.getDurationSum()).isEqualTo(120);
+        assertThat(rollup.getDurationMin()).isEqualTo(20);
+        assertThat(rollup.getDurationMax()).isEqualTo(100);
+        assertThat(rollup.getDurationHistogram()).isEqualTo("{\"" + DurationSketch.bucketOf(20) + "\":1,\""
+            + DurationSketch.bucketOf(100) + "\":1}");
+    }
+
+    private MessageRollup rollup(int partition) {
+        return merged.stream().filter(rollup -> rollup.getPartition() == partition).findFirst().orElseThrow();
+    }
+
+    private static MessageRecord record(int partition, String receivedAt, Long durationMs) {
+        MessageRecord messageRecord = new MessageRecord("{}", TOPIC, partition, 0L, "TASK-1");
+        messageRecord.setReceivedAt(OffsetDateTime.parse(receivedAt));
+        if (durationMs != null) {
+            messageRecord.markProcessed(durationMs);
+        }
+        return messageRecord;
+    }
+
+    private static void beginTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    private static void commit() {
+        TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+    }
+
+    private static void completeTransaction(int status) {
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(), status);
+        TransactionSynchronizationManager.clear();
+    }
+}
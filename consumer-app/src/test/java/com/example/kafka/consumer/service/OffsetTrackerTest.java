@@ -0,0 +1,68 @@
+package com.example.kafka.consumer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffsetTrackerTest {
+
+    @Test
+    void testNothingIsCommittableBeforeTheFirstDispatch() {
+        assertThat(new OffsetTracker().committableOffset()).isEmpty();
+    }
+
+    @Test
+    void testOnlyTheContiguousCompletedPrefixIsCommittable() {
+        OffsetTracker tracker = new OffsetTracker();
+        for (long offset = 10; offset < 15; offset++) {
+            tracker.dispatched(offset);
+        }
+
+        // Out of order: 10, 11 and 13 done, 12 still running
+        tracker.completed(13);
+        tracker.completed(10);
+        tracker.completed(11);
+        assertThat(tracker.committableOffset()).isEqualTo(OptionalLong.of(12));
+
+        tracker.completed(12);
+        assertThat(tracker.committableOffset()).isEqualTo(OptionalLong.of(14));
+
+        tracker.completed(14);
+        assertThat(tracker.committableOffset()).isEqualTo(OptionalLong.of(15));
+        assertThat(tracker.inFlightCount()).isZero();
+    }
+
+    @Test
+    void testCommittedOffsetIsNotOfferedAgainAndNeverMovesBack() {
+        OffsetTracker tracker = new OffsetTracker();
+        tracker.dispatched(0);
+        tracker.dispatched(1);
+        tracker.completed(0);
+        tracker.committed(tracker.committableOffset().getAsLong());
+
+        // Nothing new completed since the commit of offset 1
+        assertThat(tracker.committableOffset()).isEmpty();
+
+        tracker.committed(0);
+        tracker.completed(1);
+        assertThat(tracker.committableOffset()).isEqualTo(OptionalLong.of(2));
+    }
+
+    @Test
+    void testAwaitDrainedWaitsForTheLastRecord() throws Exception {
+        OffsetTracker tracker = new OffsetTracker();
+        tracker.dispatched(0);
+        tracker.dispatched(1);
+        tracker.completed(0);
+
+        assertThat(tracker.awaitDrained(0)).isFalse();
+
+        CompletableFuture.runAsync(() -> tracker.completed(1),
+            CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+        assertThat(tracker.awaitDrained(10_000)).isTrue();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.dto.MessagePayload;
+import com.example.kafka.consumer.entity.MessageRecord;
+import com.example.kafka.consumer.entity.Task;
+import com.example.kafka.consumer.repository.ConsumerOffsetJdbcRepository;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TaskBatchConsumerServiceTest {
+
+    private final MessageAuditSink auditSink = mock(MessageAuditSink.class);
+    private final TaskStore taskStore = mock(TaskStore.class);
+    private final Acknowledgment acknowledgment = mock(Acknowledgment.class);
+    private final ConsumerOffsetJdbcRepository offsetRepository = mock(ConsumerOffsetJdbcRepository.class);
+    private PlatformTransactionManager transactionManager;
+    private final List<String> persisted = new ArrayList<>();
+    private TaskBatchConsumerService consumer;
+
+    @BeforeEach
+    void setUp() {
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        // TASK-BAD violates a constraint: every transaction containing it fails
+        doAnswer(invocation -> {
+            List<Task> tasks = invocation.getArgument(0);
+            if (tasks.stream().anyMatch(task -> task.getTaskId().equals("TASK-BAD"))) {
+                throw new IllegalStateException("constraint violated");
+            }
+            tasks.forEach(task -> persisted.add(task.getTaskId()));
+            return null;
+        }).when(taskStore).upsertAll(anyList());
+        consumer = consumer("kafka");
+    }
+
+    private TaskBatchConsumerService consumer(String offsetStore) {
+        TaskBatchConsumerService consumer = new TaskBatchConsumerService(auditSink, taskStore,
+            new StreamingTaskPayloadParser(), new ConsumerOffsetStore(offsetRepository, offsetStore), transactionManager);
+        ReflectionTestUtils.setField(consumer, "minDelaySeconds", 0);
+        ReflectionTestUtils.setField(consumer, "maxDelaySeconds", 0);
+        ReflectionTestUtils.setField(consumer, "groupId", "task-consumer-group");
+        return consumer;
+    }
+
+    @Test
+    void testBatchIsPersistedAndAcknowledgedAtOnce() {
+        List<ConsumerRecord<String, MessagePayload>> batch = List.of(task(0, "TASK-1"), task(1, "TASK-2"), task(2, "TASK-3"));
+
+        consumer.consumeBatch(batch, acknowledgment);
+
+        assertThat(persisted).containsExactly("TASK-1", "TASK-2", "TASK-3");
+        verify(acknowledgment).acknowledge();
+        assertThat(auditedOffsets()).containsExactly(0L, 1L, 2L);
+    }
+
+    @Test
+    void testMidBatchFailureReportsTheFailedRecord() {
+        // Given - the second of three records cannot be persisted
+        List<ConsumerRecord<String, MessagePayload>> batch = List.of(task(0, "TASK-1"), task(1, "TASK-BAD"), task(2, "TASK-3"));
+
+        // When
+        BatchListenerFailedException failure = catchThrowableOfType(
+            () -> consumer.consumeBatch(batch, acknowledgment), BatchListenerFailedException.class);
+
+        // Then - the records before it are persisted and audited, the failed record goes to the error
+        // handler (which commits its predecessors and retries it), nothing is acknowledged
+        assertThat(failure).isNotNull();
+        assertThat(failure.getRecord()).isSameAs(batch.get(1));
+        assertThat(persisted).containsExactly("TASK-1");
+        assertThat(auditedOffsets()).containsExactly(0L);
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    void testFailureIsReportedByRecordWhenFencesAreFilteredOut() {
+        // Given - a fence marker in front of the failing record shifts the listener's own indexes
+        List<ConsumerRecord<String, MessagePayload>> batch = List.of(
+            new ConsumerRecord<>("task-topic", 0, 0, null, MessagePayload.fence("{}".getBytes())),
+            task(1, "TASK-BAD"));
+
+        BatchListenerFailedException failure = catchThrowableOfType(
+            () -> consumer.consumeBatch(batch, acknowledgment), BatchListenerFailedException.class);
+
+        assertThat(failure.getRecord()).isSameAs(batch.get(1));
+    }
+
+    @Test
+    void testDbStoreSavesTheNextOffsetWithTheBatch() {
+        consumer = consumer("db");
+
+        consumer.consumeBatch(List.of(task(0, "TASK-1"), task(1, "TASK-2"), task(2, "TASK-3")), acknowledgment);
+
+        verify(offsetRepository).save("task-consumer-group", "task-topic", 0, 3L);
+        // First batch of the partition: the broker commit is due
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void testDbStoreSavesTheOffsetOfEveryRecordPersistedBeforeAFailure() {
+        consumer = consumer("db");
+        List<ConsumerRecord<String, MessagePayload>> batch = List.of(task(0, "TASK-1"), task(1, "TASK-BAD"), task(2, "TASK-3"));
+
+        catchThrowableOfType(() -> consumer.consumeBatch(batch, acknowledgment), BatchListenerFailedException.class);
+
+        verify(offsetRepository).save("task-consumer-group", "task-topic", 0, 1L);
+        verify(offsetRepository, never()).save(anyString(), anyString(), anyInt(), eq(2L));
+        verify(offsetRepository, never()).save(anyString(), anyString(), anyInt(), eq(3L));
+    }
+
+    private List<Long> auditedOffsets() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<MessageRecord>> captor = ArgumentCaptor.forClass(List.class);
+        verify(auditSink, atLeast(0)).recordAll(captor.capture());
+        return captor.getAllValues().stream().flatMap(List::stream).map(MessageRecord::getOffsetValue).toList();
+    }
+
+    private static ConsumerRecord<String, MessagePayload> task(long offset, String taskId) {
+        return new ConsumerRecord<>("task-topic", 0, offset, "client-1",
+            MessagePayload.json("{\"taskId\":\"" + taskId + "\",\"attributes\":[]}"));
+    }
+}
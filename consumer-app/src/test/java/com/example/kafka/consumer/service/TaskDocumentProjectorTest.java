@@ -0,0 +1,130 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.entity.Task;
+import com.example.kafka.consumer.entity.TaskDocument;
+import com.example.kafka.consumer.repository.TaskDocumentJdbcRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TaskDocumentProjectorTest {
+
+    private static final int BATCH_SIZE = 10;
+
+    private final TaskDocumentJdbcRepository repository = mock(TaskDocumentJdbcRepository.class);
+    private final TaskDocumentCodec codec = mock(TaskDocumentCodec.class);
+    private final TaskUpsertEngine engine = mock(TaskUpsertEngine.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    /** Pending documents by taskId, the queue findUnprojected reads. */
+    private final Map<String, TaskDocument> pending = new HashMap<>();
+    private final Map<String, String> setAside = new HashMap<>();
+    private final List<String> projected = new ArrayList<>();
+    private TaskDocumentProjector projector;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findUnprojected(anyInt())).thenAnswer(invocation -> new ArrayList<>(pending.values()));
+        when(repository.lockUnprojected(any())).thenAnswer(invocation ->
+            Optional.ofNullable(pending.get(((TaskDocument) invocation.getArgument(0)).getTaskId())));
+        doAnswer(invocation -> {
+            Collection<TaskDocument> documents = invocation.getArgument(0);
+            documents.forEach(document -> {
+                projected.add(document.getTaskId());
+                pending.remove(document.getTaskId());
+            });
+            return null;
+        }).when(repository).markProjected(any());
+        doAnswer(invocation -> {
+            TaskDocument document = invocation.getArgument(0);
+            setAside.put(document.getTaskId(), invocation.getArgument(1));
+            pending.remove(document.getTaskId());
+            return null;
+        }).when(repository).markFailed(any(), anyString());
+        when(codec.decode(anyString(), any())).thenAnswer(invocation -> {
+            String content = new String((byte[]) invocation.getArgument(1), StandardCharsets.UTF_8);
+            if (content.equals("corrupt")) {
+                throw new IllegalArgumentException("Unexpected end of Smile content");
+            }
+            return new Task(invocation.getArgument(0), null);
+        });
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        projector = new TaskDocumentProjector(repository, codec, engine, transactionManager, meterRegistry, BATCH_SIZE);
+    }
+
+    @Test
+    void testUndecodableDocumentIsSetAsideAndTheOthersAreProjected() {
+        document("TASK-1", "ok");
+        document("TASK-2", "corrupt");
+        document("TASK-3", "ok");
+
+        assertThat(projector.projectBatch()).isEqualTo(3);
+
+        assertThat(projected).containsExactlyInAnyOrder("TASK-1", "TASK-3");
+        assertThat(setAside).containsOnlyKeys("TASK-2");
+        assertThat(setAside.get("TASK-2")).startsWith("IllegalArgumentException");
+        assertThat(errors()).isEqualTo(1);
+    }
+
+    @Test
+    void testFailedBatchIsProjectedOneByOneAndOnlyTheFailingDocumentIsSetAside() {
+        document("TASK-1", "ok");
+        document("TASK-2", "ok");
+        document("TASK-3", "ok");
+        doAnswer(invocation -> {
+            List<Task> tasks = invocation.getArgument(0);
+            if (tasks.stream().anyMatch(task -> task.getTaskId().equals("TASK-2"))) {
+                throw new IllegalStateException("value too long for type character varying(255)");
+            }
+            return null;
+        }).when(engine).upsertAll(anyList());
+
+        assertThat(projector.projectBatch()).isEqualTo(3);
+
+        assertThat(projected).containsExactlyInAnyOrder("TASK-1", "TASK-3");
+        assertThat(setAside).containsOnlyKeys("TASK-2");
+        assertThat(errors()).isEqualTo(1);
+    }
+
+    @Test
+    void testSetAsideDocumentsDoNotStopTheRun() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            document("TASK-" + i, i % 2 == 0 ? "corrupt" : "ok");
+        }
+
+        projector.project();
+
+        assertThat(pending).isEmpty();
+        assertThat(projected).hasSize(BATCH_SIZE / 2);
+        assertThat(errors()).isEqualTo(BATCH_SIZE / 2);
+    }
+
+    private void document(String taskId, String content) {
+        pending.put(taskId, new TaskDocument(taskId, content.getBytes(StandardCharsets.UTF_8), 0));
+    }
+
+    private double errors() {
+        return meterRegistry.get("task.documents.projection.errors").counter().count();
+    }
+}
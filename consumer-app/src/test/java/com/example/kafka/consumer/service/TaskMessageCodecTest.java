@@ -0,0 +1,263 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.dto.AttributeChangeMessage;
+import com.example.kafka.consumer.dto.AttributeMessage;
+import com.example.kafka.consumer.dto.MessagePayload;
+import com.example.kafka.consumer.dto.SnapshotMessage;
+import com.example.kafka.consumer.dto.TaskMessage;
+import com.example.kafka.consumer.entity.Task;
+import com.example.kafka.consumer.entity.TaskAttribute;
+import com.example.kafka.consumer.entity.TaskAttributeValue;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskMessageCodecTest {
+
+    /** avro/task-messages.avsc before the Decimal branch and the extra fields. */
+    private static final String V1_SCHEMAS = """
+        [
+          {"type": "enum", "name": "AttributeType", "namespace": "com.example.kafka.avro",
+           "symbols": ["STRING", "NUMERIC", "DATE", "BOOLEAN", "ENTITY", "TEXT"], "default": "STRING"},
+          {"type": "record", "name": "Attribute", "namespace": "com.example.kafka.avro", "fields": [
+            {"name": "name", "type": "string"},
+            {"name": "type", "type": "AttributeType", "default": "STRING"},
+            {"name": "values", "type": {"type": "array", "items": ["null", "string", "long", "double", "boolean"]}, "default": []}]},
+          {"type": "record", "name": "Task", "namespace": "com.example.kafka.avro", "fields": [
+            {"name": "taskId", "type": "string"},
+            {"name": "attributes", "type": {"type": "array", "items": "Attribute"}, "default": []}]}
+        ]
+        """;
+
+    private static final Set<String> TASK_FIELDS = Set.of("taskId", "attributes");
+    private static final Set<String> ATTRIBUTE_FIELDS = Set.of("name", "type", "values");
+
+    private final InMemorySchemaRegistryClient registry = new InMemorySchemaRegistryClient();
+    private final TaskMessageCodec codec = new TaskMessageCodec(registry);
+    private final StreamingTaskPayloadParser jsonParser = new StreamingTaskPayloadParser();
+    private final ObjectMapper mapper = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+    @Test
+    void testTaskRoundTripKeepsDecimalsAndExtraFieldsExactly() {
+        TaskMessage task = new TaskMessage("TASK-1", List.of(
+            new AttributeMessage("amount", "NUMERIC", Arrays.asList(new BigDecimal("12345678901234567890.123456789"),
+                new BigDecimal("1.50"), new BigDecimal("-0.001"), new BigDecimal("1E+3"), 42L, 0.25, null),
+                Map.of("unit", "\"EUR\"", "limits", "{\"max\":10}")),
+            new AttributeMessage("urgent", "BOOLEAN", List.of(true)),
+            new AttributeMessage("notes", "TEXT", List.of("é ✓"))),
+            Map.of("meta", "{\"source\":\"crm\",\"tags\":[1,2]}"));
+
+        assertThat(roundTrip(task)).isEqualTo(task);
+    }
+
+    @Test
+    void testIntegersBeyondLongAreDecimals() {
+        BigInteger huge = new BigInteger("123456789012345678901234567890");
+        TaskMessage task = new TaskMessage("TASK-1",
+            List.of(new AttributeMessage("big", "NUMERIC", List.of(huge, BigInteger.TEN, 7))));
+
+        TaskMessage decoded = (TaskMessage) roundTrip(task);
+
+        assertThat(decoded.attributes().get(0).values()).containsExactly(new BigDecimal(huge), 10L, 7L);
+    }
+
+    @Test
+    void testAttributeChangeAndSnapshotRoundTrip() {
+        AttributeChangeMessage change = new AttributeChangeMessage("TASK-1", "amount", "NUMERIC",
+            List.of(new BigDecimal("0.1000000000000000055511151231257827")), "UPSERT",
+            Map.of("changedBy", "\"USER-42\""));
+        SnapshotMessage snapshot = new SnapshotMessage("TASK-1",
+            List.of(new AttributeMessage("amount", "NUMERIC", List.of(new BigDecimal("99.990")), Map.of("taskId", "\"TASK-1\""))),
+            Instant.ofEpochMilli(1_735_689_600_000L), 17L);
+
+        assertThat(roundTrip(change)).isEqualTo(change);
+        assertThat(roundTrip(snapshot)).isEqualTo(snapshot);
+    }
+
+    /**
+     * A payload published as Avro must give the task the JSON parsers build from the payload itself.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+        """
+        {"taskId":"TASK-001","attributes":[
+          {"name":"priority","type":"STRING","values":["HIGH"]},
+          {"name":"amount","type":"NUMERIC","values":[1500.75, 42, -0.001, 1.50, 12345678901234567890.123456789]},
+          {"name":"dueDate","type":"DATE","values":["2025-12-31T23:59:59Z","2025-06-01T08:00:00+02:00"]},
+          {"name":"urgent","type":"BOOLEAN","values":[true,false]},
+          {"name":"owner","type":"ENTITY","values":["USER-42"]},
+          {"name":"notes","type":"TEXT","values":["Lorem ipsum dolor sit amet"]}]}
+        """,
+        """
+        {"meta":{"source":"crm"},"attributes":[
+          {"values":[1.5, 2],"type":"numeric","name":"score","unit":"pts"},
+          {"name":"kind","type":"CUSTOM","values":["a","b"]}],"taskId":"TASK-002"}
+        """,
+        """
+        {"taskId":"TASK-003","attributes":[
+          {"name":"amount","type":"NUMERIC","values":["12.5", true, null, 7]},
+          {"name":"dueDate","type":"DATE","values":["not a date", "2025-01-01T00:00:00Z"]},
+          {"name":"urgent","type":"BOOLEAN","values":["true", 1, false]},
+          {"name":"owner","type":"ENTITY","values":[42, "USER-1"]}]}
+        """,
+        "{\"taskId\":\"TASK-004\",\"attributes\":[]}"
+    })
+    void testAvroPayloadGivesTheTaskOfItsJson(String json) throws Exception {
+        TaskMessage message = toMessage(json);
+        MessagePayload binary = MessagePayload.binary(codec.encode(message), codec.schemaIdOf(message), codec);
+
+        List<String> task = describe(TaskMessageMapper.toTask(binary));
+        assertThat(task).isEqualTo(describe(jsonParser.parse(json)));
+        // The stored canonical JSON parses back into the same task
+        assertThat(describe(jsonParser.parse(binary.text()))).isEqualTo(task);
+    }
+
+    @Test
+    void testCanonicalJsonOfATask() throws Exception {
+        TaskMessage message = toMessage("""
+            {"taskId":"TASK-1", "meta":{"source":"crm"}, "attributes":[
+              {"unit":"EUR", "name":"amount", "type":"NUMERIC", "values":[1.50, 1e3, null], "limits":{"max":2}}]}
+            """);
+
+        assertThat(canonicalJson(message)).isEqualTo("{\"taskId\":\"TASK-1\",\"attributes\":[{\"name\":\"amount\","
+            + "\"type\":\"NUMERIC\",\"values\":[1.50,1000,null],\"limits\":{\"max\":2},\"unit\":\"EUR\"}],"
+            + "\"meta\":{\"source\":\"crm\"}}");
+    }
+
+    @Test
+    void testCanonicalJsonOfAnAttributeChangeAndASnapshot() {
+        AttributeChangeMessage change = new AttributeChangeMessage("TASK-1", "status", "STRING", List.of("DONE"), null);
+        SnapshotMessage snapshot = new SnapshotMessage("TASK-1",
+            List.of(new AttributeMessage("amount", "NUMERIC", List.of(new BigDecimal("99.990")),
+                Map.of("taskId", "\"TASK-1\"", "attributeName", "\"amount\""))),
+            Instant.ofEpochMilli(1_735_689_600_000L), 17L);
+
+        assertThat(canonicalJson(change)).isEqualTo(
+            "{\"taskId\":\"TASK-1\",\"attributeName\":\"status\",\"type\":\"STRING\",\"values\":[\"DONE\"]}");
+        assertThat(canonicalJson(snapshot)).isEqualTo("{\"taskId\":\"TASK-1\",\"attributes\":[{\"name\":\"amount\","
+            + "\"type\":\"NUMERIC\",\"values\":[99.990],\"attributeName\":\"amount\",\"taskId\":\"TASK-1\"}],"
+            + "\"timestamp\":\"2025-01-01T00:00:00Z\",\"sourceVersion\":17}");
+    }
+
+    @Test
+    void testRecordOfAnOlderWriterSchemaIsRead() throws Exception {
+        Schema.Parser parser = new Schema.Parser();
+        parser.parse(V1_SCHEMAS);
+        Schema taskSchema = parser.getTypes().get("com.example.kafka.avro.Task");
+        Schema attributeSchema = parser.getTypes().get("com.example.kafka.avro.Attribute");
+        GenericData.Record attribute = new GenericData.Record(attributeSchema);
+        attribute.put("name", "amount");
+        attribute.put("type", new GenericData.EnumSymbol(attributeSchema.getField("type").schema(), "NUMERIC"));
+        attribute.put("values", List.of(12.5, 3L));
+        GenericData.Record task = new GenericData.Record(taskSchema);
+        task.put("taskId", "TASK-1");
+        task.put("attributes", List.of(attribute));
+
+        Object decoded = codec.decode(registry.register(taskSchema), write(taskSchema, task));
+
+        assertThat(decoded).isEqualTo(new TaskMessage("TASK-1",
+            List.of(new AttributeMessage("amount", "NUMERIC", List.of(12.5, 3L)))));
+    }
+
+    @Test
+    void testFieldsOfANewerWriterSchemaAreSkipped() throws Exception {
+        Schema.Parser parser = new Schema.Parser();
+        parser.parse(V1_SCHEMAS.replace(
+            "{\"name\": \"taskId\", \"type\": \"string\"},\n    {\"name\": \"attributes\"",
+            "{\"name\": \"taskId\", \"type\": \"string\"},\n    {\"name\": \"labels\", \"type\": {\"type\": \"array\", \"items\": \"string\"}, \"default\": []},\n    {\"name\": \"attributes\""));
+        Schema newer = parser.getTypes().get("com.example.kafka.avro.Task");
+        assertThat(newer.getField("labels")).isNotNull();
+        GenericData.Record task = new GenericData.Record(newer);
+        task.put("taskId", "TASK-1");
+        task.put("labels", List.of("a", "b"));
+        task.put("attributes", List.of());
+
+        Object decoded = codec.decode(registry.register(newer), write(newer, task));
+
+        assertThat(decoded).isEqualTo(new TaskMessage("TASK-1", List.of()));
+    }
+
+    /**
+     * What a binary record of the message stores as JSON.
+     */
+    private String canonicalJson(Object message) {
+        return MessagePayload.binary(codec.encode(message), codec.schemaIdOf(message), codec).text();
+    }
+
+    private Object roundTrip(Object message) {
+        return codec.decode(codec.schemaIdOf(message), codec.encode(message));
+    }
+
+    private static byte[] write(Schema schema, GenericRecord record) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        new GenericDatumWriter<GenericRecord>(schema).write(record, encoder);
+        encoder.flush();
+        return out.toByteArray();
+    }
+
+    /**
+     * The task message of a JSON payload, as the producer builds it for Avro publishing.
+     */
+    @SuppressWarnings("unchecked")
+    private TaskMessage toMessage(String json) throws Exception {
+        Map<String, Object> payload = mapper.readValue(json, Map.class);
+        List<AttributeMessage> attributes = new ArrayList<>();
+        for (Map<String, Object> attribute : (List<Map<String, Object>>) payload.get("attributes")) {
+            attributes.add(new AttributeMessage((String) attribute.get("name"), (String) attribute.get("type"),
+                (List<Object>) attribute.get("values"), extraOf(attribute, ATTRIBUTE_FIELDS)));
+        }
+        return new TaskMessage((String) payload.get("taskId"), attributes, extraOf(payload, TASK_FIELDS));
+    }
+
+    private Map<String, String> extraOf(Map<String, Object> payload, Set<String> known) throws Exception {
+        Map<String, String> extra = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> field : payload.entrySet()) {
+            if (!known.contains(field.getKey())) {
+                extra.put(field.getKey(), mapper.writeValueAsString(field.getValue()));
+            }
+        }
+        return extra;
+    }
+
+    /**
+     * Canonical form of the Task graph, numerics exactly as parsed (scale included).
+     */
+    private static List<String> describe(Task task) {
+        List<String> lines = new ArrayList<>();
+        lines.add("task " + task.getTaskId());
+        for (TaskAttribute attribute : task.getAttributes()) {
+            lines.add("  attribute " + attribute.getName() + " " + attribute.getType());
+            for (TaskAttributeValue value : attribute.getValues()) {
+                lines.add("    value " + value.getStringValue()
+                    + " " + (value.getNumericValue() != null ? value.getNumericValue().toPlainString() : null)
+                    + " " + (value.getDateValue() != null ? value.getDateValue().toInstant() : null)
+                    + " " + value.getBooleanValue()
+                    + " " + value.getEntityRef()
+                    + " " + value.getTextValue());
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.entity.Task;
+import com.example.kafka.consumer.entity.TaskAttribute;
+import com.example.kafka.consumer.entity.TaskAttributeValue;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * The streaming parser must build the same Task graph as the tree parser, its reference
+ * implementation, for well-formed and malformed payloads alike.
+ */
+class TaskPayloadParserParityTest {
+
+    private final JsonTreeTaskPayloadParser treeParser = new JsonTreeTaskPayloadParser();
+    private final StreamingTaskPayloadParser streamingParser = new StreamingTaskPayloadParser();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        // Producer sample payload, every attribute type
+        """
+        {"taskId":"TASK-001","attributes":[
+          {"name":"priority","type":"STRING","values":["HIGH"]},
+          {"name":"amount","type":"NUMERIC","values":[1500.75, 42, -0.001, 12345678.9012]},
+          {"name":"dueDate","type":"DATE","values":["2025-12-31T23:59:59Z","2025-06-01T08:00:00+02:00"]},
+          {"name":"urgent","type":"BOOLEAN","values":[true,false]},
+          {"name":"owner","type":"ENTITY","values":["USER-42"]},
+          {"name":"notes","type":"TEXT","values":["Lorem ipsum dolor sit amet"]}]}
+        """,
+        // Values before type, unknown fields, lower-case and unknown types
+        """
+        {"meta":{"source":"crm","tags":[1,2]},"attributes":[
+          {"values":[1.5, 2],"type":"numeric","name":"score","extra":[{"a":1}]},
+          {"name":"kind","type":"CUSTOM","values":["a","b"]}],"taskId":"TASK-002"}
+        """,
+        // No attributes, empty attributes and empty values
+        "{\"taskId\":\"TASK-003\"}",
+        "{\"taskId\":\"TASK-004\",\"attributes\":[]}",
+        "{\"taskId\":\"TASK-005\",\"attributes\":[{\"name\":\"empty\",\"type\":\"DATE\",\"values\":[]}]}"
+    })
+    void testWellFormedPayloadsGiveTheSameTask(String payload) throws Exception {
+        assertThat(describe(streamingParser.parse(payload))).isEqualTo(describe(treeParser.parse(payload)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        // Values of the wrong type are dropped, not converted
+        """
+        {"taskId":"TASK-010","attributes":[
+          {"name":"amount","type":"NUMERIC","values":["12.5", true, null, 7]},
+          {"name":"dueDate","type":"DATE","values":["not a date", 20250101, "2025-01-01T00:00:00Z"]},
+          {"name":"urgent","type":"BOOLEAN","values":["true", 1, false]},
+          {"name":"owner","type":"ENTITY","values":[42, "USER-1", {"id":"USER-2"}]},
+          {"name":"label","type":"STRING","values":[3, true, null, {"nested":"x"}, ["a"]]}]}
+        """,
+        // taskId of the wrong type, null or missing
+        "{\"taskId\":42,\"attributes\":[]}",
+        "{\"taskId\":null}",
+        "{\"taskId\":{\"id\":\"TASK-011\"}}",
+        "{\"attributes\":[{\"name\":\"a\",\"values\":[\"x\"]}]}",
+        // attributes / values that are not arrays, attributes that are not objects
+        "{\"taskId\":\"TASK-012\",\"attributes\":{\"name\":\"a\"}}",
+        "{\"taskId\":\"TASK-013\",\"attributes\":[1, \"a\", null, [], {\"name\":\"b\",\"values\":\"x\"}]}",
+        "{\"taskId\":\"TASK-014\",\"attributes\":[{\"name\":[\"a\"],\"type\":{\"t\":1},\"values\":[\"x\"]}]}",
+        // Top-level value that is not an object
+        "[{\"taskId\":\"TASK-015\"}]",
+        "\"TASK-016\"",
+        "null",
+        "42"
+    })
+    void testMalformedPayloadsGiveTheSameTask(String payload) throws Exception {
+        assertThat(describe(streamingParser.parse(payload))).isEqualTo(describe(treeParser.parse(payload)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "{\"taskId\":\"TASK-020\",\"attributes\":[",
+        "{\"taskId\":\"TASK-021\",}",
+        "{taskId:\"TASK-022\"}",
+        "{\"taskId\":\"TASK-023\"} trailing",
+        "not json"
+    })
+    void testInvalidJsonIsRejectedByBoth(String payload) {
+        Throwable tree = catchThrowable(() -> treeParser.parse(payload));
+        Throwable streaming = catchThrowable(() -> streamingParser.parse(payload));
+
+        // The tree parser does not look past the first value, so neither does the comparison
+        if (tree == null) {
+            assertThat(streaming).isNull();
+        } else {
+            assertThat(streaming).isNotNull();
+        }
+    }
+
+    /**
+     * Canonical form of the Task graph. Numerics are compared by value: the tree parser reads them
+     * through a double, which drops trailing zeros (1.50 becomes 1.5) but not digits for these fixtures.
+     */
+    private static List<String> describe(Task task) {
+        List<String> lines = new ArrayList<>();
+        lines.add("task " + task.getTaskId() + " " + task.getRawPayload());
+        for (TaskAttribute attribute : task.getAttributes()) {
+            lines.add("  attribute " + attribute.getName() + " " + attribute.getType());
+            for (TaskAttributeValue value : attribute.getValues()) {
+                lines.add("    value " + value.getStringValue()
+                    + " " + (value.getNumericValue() != null ? value.getNumericValue().stripTrailingZeros().toPlainString() : null)
+                    + " " + (value.getDateValue() != null ? value.getDateValue().toInstant() : null)
+                    + " " + value.getBooleanValue()
+                    + " " + value.getEntityRef()
+                    + " " + value.getTextValue());
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.dto.MessagePayload;
+import com.example.kafka.consumer.entity.TaskSnapshot;
+import com.example.kafka.consumer.repository.TaskSnapshotJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TaskSnapshotConsumerTest {
+
+    private static final String TOPIC = "task-snapshots";
+    private static final String GROUP = "task-snapshot-consumer-group";
+    private static final int PARTITIONS = 3;
+
+    /** task_snapshots rows, keyed by taskId. */
+    private final Map<String, TaskSnapshot> table = new HashMap<>();
+    private final List<Integer> upsertBatchSizes = new ArrayList<>();
+    private final TaskSnapshotJdbcRepository repository = mock(TaskSnapshotJdbcRepository.class);
+    private final ConsumerOffsetStore offsetStore = mock(ConsumerOffsetStore.class);
+    private final TaskSnapshotQueryService queryService = mock(TaskSnapshotQueryService.class);
+    private TaskSnapshotConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.upsertAll(anyList())).thenAnswer(invocation -> {
+            List<TaskSnapshot> snapshots = invocation.getArgument(0);
+            upsertBatchSizes.add(snapshots.size());
+            snapshots.forEach(snapshot -> table.put(snapshot.getTaskId(), snapshot));
+            return snapshots.size();
+        });
+        when(repository.deleteAll(anyList())).thenAnswer(invocation -> {
+            List<TaskSnapshot> tombstones = invocation.getArgument(0);
+            tombstones.forEach(tombstone -> table.remove(tombstone.getTaskId()));
+            return tombstones.size();
+        });
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        consumer = new TaskSnapshotConsumer(repository, offsetStore, transactionManager, queryService, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(consumer, "snapshotGroup", GROUP);
+    }
+
+    @Test
+    void testCatchUpBatchWritesOneRowPerTaskAtItsLatestVersion() {
+        // 500 snapshots of 20 tasks, 25 versions each, interleaved like a catch-up poll
+        List<ConsumerRecord<String, MessagePayload>> records = new ArrayList<>();
+        long[] offsets = new long[PARTITIONS];
+        for (int version = 1; version <= 25; version++) {
+            for (int task = 0; task < 20; task++) {
+                int partition = task % PARTITIONS;
+                records.add(record(partition, offsets[partition]++, "TASK-" + task, version));
+            }
+        }
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+
+        consumer.consumeSnapshots(records, acknowledgment);
+
+        assertThat(records).hasSize(500);
+        assertThat(upsertBatchSizes).containsExactly(20);
+        assertThat(table).hasSize(20);
+        table.values().forEach(snapshot -> {
+            assertThat(snapshot.getSourceVersion()).isEqualTo(25L);
+            assertThat(snapshot.getSnapshotData()).contains("\"version\":25");
+        });
+        verify(repository, never()).deleteAll(anyList());
+        // The position of each partition is its last record, not the last written snapshot's
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            verify(offsetStore).processed(GROUP, TOPIC, partition, offsets[partition] - 1);
+        }
+        verify(offsetStore).acknowledge(anySet(), eq(acknowledgment));
+        verify(queryService, times(1)).invalidateAll(table.keySet());
+    }
+
+    @Test
+    void testOnlyTheLastRecordOfATaskCountsWhetherSnapshotOrTombstone() {
+        table.put("TASK-1", new TaskSnapshot("TASK-1", "{\"taskId\":\"TASK-1\"}"));
+
+        consumer.consumeSnapshots(List.of(
+            record(0, 0, "TASK-1", 1),
+            tombstone(0, 1, "TASK-1"),
+            tombstone(1, 0, "TASK-2"),
+            record(1, 1, "TASK-2", 2)), mock(Acknowledgment.class));
+
+        assertThat(table).containsOnlyKeys("TASK-2");
+        assertThat(table.get("TASK-2").getSourceVersion()).isEqualTo(2L);
+        assertThat(upsertBatchSizes).containsExactly(1);
+    }
+
+    private static ConsumerRecord<String, MessagePayload> record(int partition, long offset, String taskId, long version) {
+        String json = "{\"taskId\":\"" + taskId + "\",\"sourceVersion\":" + version + ",\"version\":" + version + "}";
+        return new ConsumerRecord<>(TOPIC, partition, offset, taskId, MessagePayload.json(json));
+    }
+
+    private static ConsumerRecord<String, MessagePayload> tombstone(int partition, long offset, String taskId) {
+        return new ConsumerRecord<>(TOPIC, partition, offset, taskId, null);
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.kafka.consumer.service;
+
+import com.example.kafka.consumer.entity.AttributeType;
+import com.example.kafka.consumer.entity.Task;
+import com.example.kafka.consumer.entity.TaskAttribute;
+import com.example.kafka.consumer.entity.TaskAttributeValue;
+import com.example.kafka.consumer.repository.TaskJdbcRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TaskUpsertEngineTest {
+
+    private final TaskJdbcRepository repository = mock(TaskJdbcRepository.class);
+    private final TaskUpsertEngine engine = new TaskUpsertEngine(repository);
+    private long nextId = 1;
+
+    @Test
+    void testNewTaskIsInsertedWithAllAttributes() {
+        stored();
+        when(repository.insertTasksIfAbsent(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        Task task = task("TASK-NEW", "{}", attribute("status", AttributeType.STRING, TaskAttributeValue.ofString("OPEN")));
+
+        engine.upsert(task);
+
+        assertThat(captured(TaskJdbcRepository::insertAttributes)).containsExactlyElementsOf(task.getAttributes());
+        verify(repository, never()).updateTaskPayloads(anyList());
+        verify(repository, never()).deleteAttributes(anyList());
+    }
+
+    @Test
+    void testUnchangedTaskIssuesNoStatements() {
+        stored(task("TASK-1", "{\"v\":1}",
+            attribute("status", AttributeType.STRING, TaskAttributeValue.ofString("OPEN")),
+            // Stored with the column's scale and another offset: still the same values
+            attribute("weight", AttributeType.NUMERIC, TaskAttributeValue.ofNumeric(new BigDecimal("1.5000"))),
+            attribute("due", AttributeType.DATE, TaskAttributeValue.ofDate(OffsetDateTime.parse("2025-01-01T12:00:00+02:00")))));
+
+        engine.upsert(task("TASK-1", "{\"v\":1}",
+            attribute("status", AttributeType.STRING, TaskAttributeValue.ofString("OPEN")),
+            attribute("weight", AttributeType.NUMERIC, TaskAttributeValue.ofNumeric(new BigDecimal("1.5"))),
+            attribute("due", AttributeType.DATE, TaskAttributeValue.ofDate(OffsetDateTime.parse("2025-01-01T10:00:00Z")))));
+
+        verify(repository, never()).updateTaskPayloads(anyList());
+        verify(repository, never()).updateAttributeTypes(anyList());
+        verify(repository, never()).deleteAttributes(anyList());
+        verify(repository, never()).updateValues(anyList());
+        verify(repository, never()).deleteValues(anyList());
+        assertThat(captured(TaskJdbcRepository::insertAttributes)).isEmpty();
+        assertThat(captured(TaskJdbcRepository::insertValues)).isEmpty();
+    }
+
+    @Test
+    void testChangedPayloadUpdatesTheTaskRow() {
+        Task current = task("TASK-1", "{\"v\":1}");
+        stored(current);
+        Task incoming = task("TASK-1", "{\"v\":2}");
+
+        engine.upsert(incoming);
+
+        assertThat(captured(TaskJdbcRepository::updateTaskPayloads)).containsExactly(incoming);
+        assertThat(incoming.getId()).isEqualTo(current.getId());
+    }
+
+    @Test
+    void testAttributesAreInsertedRetypedAndDeletedByName() {
+        Task current = task("TASK-1", "{}",
+            attribute("kept", AttributeType.STRING, TaskAttributeValue.ofString("a")),
+            attribute("retyped", AttributeType.STRING, TaskAttributeValue.ofString("5")),
+            attribute("removed", AttributeType.STRING, TaskAttributeValue.ofString("x")));
+        stored(current);
+        TaskAttribute added = attribute("added", AttributeType.BOOLEAN, TaskAttributeValue.ofBoolean(true));
+        TaskAttribute retyped = attribute("retyped", AttributeType.NUMERIC, TaskAttributeValue.ofNumeric(BigDecimal.valueOf(5)));
+
+        engine.upsert(task("TASK-1", "{}",
+            attribute("kept", AttributeType.STRING, TaskAttributeValue.ofString("a")), retyped, added));
+
+        assertThat(captured(TaskJdbcRepository::insertAttributes)).containsExactly(added);
+        assertThat(captured(TaskJdbcRepository::updateAttributeTypes)).containsExactly(retyped);
+        assertThat(retyped.getId()).isEqualTo(current.getAttributes().get(1).getId());
+        assertThat(captured(TaskJdbcRepository::deleteAttributes)).containsExactly(current.getAttributes().get(2));
+    }
+
+    @Test
+    void testChangedValuesReuseStoredRowsAndOnlyTheSurplusIsInsertedOrDeleted() {
+        Task current = task("TASK-1", "{}",
+            attribute("grown", AttributeType.STRING, TaskAttributeValue.ofString("a"), TaskAttributeValue.ofString("b")),
+            attribute("shrunk", AttributeType.STRING, TaskAttributeValue.ofString("x"), TaskAttributeValue.ofString("y"),
+                TaskAttributeValue.ofString("z")));
+        stored(current);
+        List<TaskAttributeValue> storedGrown = current.getAttributes().get(0).getValues();
+        List<TaskAttributeValue> storedShrunk = current.getAttributes().get(1).getValues();
+        TaskAttributeValue kept = TaskAttributeValue.ofString("a");
+        TaskAttributeValue changed = TaskAttributeValue.ofString("c");
+        TaskAttributeValue surplus = TaskAttributeValue.ofString("d");
+        TaskAttributeValue keptZ = TaskAttributeValue.ofString("z");
+
+        engine.upsert(task("TASK-1", "{}",
+            attribute("grown", AttributeType.STRING, kept, changed, surplus),
+            attribute("shrunk", AttributeType.STRING, keptZ)));
+
+        // "a" stays as is, "c" overwrites the row of "b", "d" is new
+        assertThat(kept.getId()).isEqualTo(storedGrown.get(0).getId());
+        assertThat(captured(TaskJdbcRepository::updateValues)).containsExactly(changed);
+        assertThat(changed.getId()).isEqualTo(storedGrown.get(1).getId());
+        assertThat(captured(TaskJdbcRepository::insertValues)).containsExactly(surplus);
+        // "z" stays, "x" and "y" are deleted
+        assertThat(keptZ.getId()).isEqualTo(storedShrunk.get(2).getId());
+        assertThat(captured(TaskJdbcRepository::deleteValues)).containsExactly(storedShrunk.get(0), storedShrunk.get(1));
+    }
+
+    @Test
+    void testTaskCreatedConcurrentlyIsDiffedAgainstTheWinner() {
+        Task winner = task("TASK-RACE", "{\"v\":1}", attribute("status", AttributeType.STRING, TaskAttributeValue.ofString("OPEN")));
+        when(repository.findAllByTaskId(anyCollection()))
+            .thenReturn(new HashMap<>())
+            .thenReturn(new HashMap<>(Map.of("TASK-RACE", winner)));
+        when(repository.insertTasksIfAbsent(anyList())).thenReturn(List.of());
+        Task incoming = task("TASK-RACE", "{\"v\":2}", attribute("status", AttributeType.STRING, TaskAttributeValue.ofString("DONE")));
+
+        engine.upsert(incoming);
+
+        assertThat(incoming.getId()).isEqualTo(winner.getId());
+        assertThat(captured(TaskJdbcRepository::updateTaskPayloads)).containsExactly(incoming);
+        assertThat(captured(TaskJdbcRepository::updateValues)).containsExactlyElementsOf(incoming.getAttributes().get(0).getValues());
+        assertThat(captured(TaskJdbcRepository::insertAttributes)).isEmpty();
+    }
+
+    @Test
+    void testLastVersionOfADuplicateTaskIdWins() {
+        stored(task("TASK-1", "{\"v\":1}"));
+        Task last = task("TASK-1", "{\"v\":3}");
+
+        engine.upsertAll(List.of(task("TASK-1", "{\"v\":2}"), last));
+
+        assertThat(captured(TaskJdbcRepository::updateTaskPayloads)).containsExactly(last);
+    }
+
+    @Test
+    void testRedeliveredOlderVersionDoesNotOverwriteNewerState() {
+        // A retry topic delivers version 5 after version 7 of the same task was applied
+        stored(versioned(task("TASK-1", "{\"v\":7}", attribute("status", AttributeType.STRING, TaskAttributeValue.ofString("DONE"))), 7L));
+
+        engine.upsert(versioned(task("TASK-1", "{\"v\":5}", attribute("status", AttributeType.STRING, TaskAttributeValue.ofString("OPEN"))), 5L));
+        engine.upsert(versioned(task("TASK-1", "{\"v\":7}", attribute("status", AttributeType.STRING, TaskAttributeValue.ofString("OPEN"))), 7L));
+
+        verify(repository, never()).updateTaskPayloads(anyList());
+        verify(repository, never()).updateValues(anyList());
+        assertThat(captured(TaskJdbcRepository::insertAttributes)).isEmpty();
+    }
+
+    @Test
+    void testNewerVersionIsAppliedAndStoresItsVersion() {
+        stored(versioned(task("TASK-1", "{\"v\":5}"), 5L));
+        Task incoming = versioned(task("TASK-1", "{\"v\":5}"), 8L);
+
+        engine.upsert(incoming);
+
+        // Same payload, but the stored version has to move on
+        assertThat(captured(TaskJdbcRepository::updateTaskPayloads)).containsExactly(incoming);
+        assertThat(incoming.getSourceVersion()).isEqualTo(8L);
+    }
+
+    @Test
+    void testRecordWithoutVersionIsAppliedAndKeepsTheStoredVersion() {
+        stored(versioned(task("TASK-1", "{\"v\":1}"), 5L));
+        Task incoming = task("TASK-1", "{\"v\":2}");
+
+        engine.upsert(incoming);
+
+        assertThat(captured(TaskJdbcRepository::updateTaskPayloads)).containsExactly(incoming);
+        assertThat(incoming.getSourceVersion()).isEqualTo(5L);
+    }
+
+    /**
+     * Stubs the stored hierarchy; tasks missing from it are new.
+     */
+    private void stored(Task... tasks) {
+        Map<String, Task> stored = new HashMap<>();
+        for (Task task : tasks) {
+            task.setId(nextId++);
+            for (TaskAttribute attribute : task.getAttributes()) {
+                attribute.setId(nextId++);
+                attribute.getValues().forEach(value -> value.setId(nextId++));
+            }
+            stored.put(task.getTaskId(), task);
+        }
+        when(repository.findAllByTaskId(anyCollection())).thenReturn(stored);
+        when(repository.insertTasksIfAbsent(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    private static Task task(String taskId, String payload, TaskAttribute... attributes) {
+        Task task = new Task(taskId, payload);
+        for (TaskAttribute attribute : attributes) {
+            task.addAttribute(attribute);
+        }
+        return task;
+    }
+
+    private static Task versioned(Task task, Long sourceVersion) {
+        task.setSourceVersion(sourceVersion);
+        return task;
+    }
+
+    private static TaskAttribute attribute(String name, AttributeType type, TaskAttributeValue... values) {
+        TaskAttribute attribute = new TaskAttribute(name, type);
+        for (TaskAttributeValue value : values) {
+            attribute.addValue(value);
+        }
+        return attribute;
+    }
+
+    /**
+     * Everything passed to the given list-taking repository method (empty if it was not called).
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> captured(BiConsumer<TaskJdbcRepository, List<T>> method) {
+        ArgumentCaptor<List<T>> captor = ArgumentCaptor.forClass(List.class);
+        method.accept(verify(repository, atLeast(0)), captor.capture());
+        List<T> all = new ArrayList<>();
+        captor.getAllValues().forEach(all::addAll);
+        return all;
+    }
+}
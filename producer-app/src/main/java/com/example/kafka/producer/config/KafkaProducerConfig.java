@@ -1,6 +1,7 @@
 package com.example.kafka.producer.config;
 
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -24,22 +25,90 @@ public class KafkaProducerConfig {
     @Value("${spring.kafka.producer.retries}")
     private Integer retries;
     
+    @Value("${app.kafka.topic}")
+    private String topic;
+    
+    @Value("${app.kafka.partitioner.strategy:default}")
+    private String partitionerStrategy;
+    
+    @Value("${app.kafka.partitioner.virtual-nodes:64}")
+    private int partitionerVirtualNodes;
+    
+    @Value("${app.kafka.partitioner.overrides:}")
+    private String partitionerOverrides;
+    
+    @Value("${app.kafka.partitioner.hot-keys:}")
+    private String partitionerHotKeys;
+    
     @Bean
     public ProducerFactory<String, String> producerFactory() {
+        Map<String, Object> props = producerProps();
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        
+        return new DefaultKafkaProducerFactory<>(props);
+    }
+    
+    @Bean
+    public KafkaTemplate<String, String> kafkaTemplate() {
+        return new KafkaTemplate<>(producerFactory());
+    }
+    
+    /**
+     * Producer of the Avro records (app.serialization.format=avro), encoded by TaskMessageCodec.
+     */
+    @Bean
+    public ProducerFactory<String, byte[]> binaryProducerFactory() {
+        Map<String, Object> props = producerProps();
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        
+        return new DefaultKafkaProducerFactory<>(props);
+    }
+    
+    @Bean
+    public KafkaTemplate<String, byte[]> binaryKafkaTemplate() {
+        return new KafkaTemplate<>(binaryProducerFactory());
+    }
+    
+    private Map<String, Object> producerProps() {
         Map<String, Object> props = new HashMap<>();
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         props.put(ProducerConfig.ACKS_CONFIG, acks);
         props.put(ProducerConfig.RETRIES_CONFIG, retries);
         props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
         props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
-        
-        return new DefaultKafkaProducerFactory<>(props);
+        props.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, TaskPartitioner.class);
+        props.putAll(partitionerConfigs());
+        return props;
     }
     
+    /**
+     * Partition count of task-topic shared by every partitioner instance, moved by partition expansions.
+     */
     @Bean
-    public KafkaTemplate<String, String> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    public PartitionLayout partitionLayout() {
+        return new PartitionLayout();
+    }
+    
+    /**
+     * Instance used by the publisher for hot keys, whose partition depends on the sub-key
+     * (configured like the producers' own instances).
+     */
+    @Bean
+    public TaskPartitioner taskPartitioner() {
+        TaskPartitioner partitioner = new TaskPartitioner();
+        partitioner.configure(partitionerConfigs());
+        return partitioner;
+    }
+    
+    private Map<String, Object> partitionerConfigs() {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(TaskPartitioner.TOPIC_CONFIG, topic);
+        configs.put(TaskPartitioner.STRATEGY_CONFIG, partitionerStrategy);
+        configs.put(TaskPartitioner.VIRTUAL_NODES_CONFIG, partitionerVirtualNodes);
+        configs.put(TaskPartitioner.OVERRIDES_CONFIG, partitionerOverrides);
+        configs.put(TaskPartitioner.HOT_KEYS_CONFIG, partitionerHotKeys);
+        configs.put(TaskPartitioner.LAYOUT_CONFIG, partitionLayout());
+        return configs;
     }
 }
@@ -0,0 +1,67 @@
+package com.example.kafka.producer.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+/**
+ * Declarative topic provisioning.
+ * Spring Boot's KafkaAdmin creates (or grows) these topics on startup, so the
+ * snapshot topic always gets log compaction instead of relying on broker auto-creation.
+ */
+@Configuration
+public class KafkaTopicConfig {
+
+    @Value("${app.kafka.topic}")
+    private String topic;
+
+    @Value("${app.kafka.snapshot-topic:task-snapshots}")
+    private String snapshotTopic;
+
+    @Value("${app.kafka.topics.replication-factor:1}")
+    private short replicationFactor;
+
+    @Value("${app.kafka.topics.task-topic.partitions:3}")
+    private int taskTopicPartitions;
+
+    @Value("${app.kafka.topics.task-snapshots.partitions:3}")
+    private int snapshotPartitions;
+
+    @Value("${app.kafka.topics.task-snapshots.segment-ms:3600000}")
+    private long snapshotSegmentMs;
+
+    @Value("${app.kafka.topics.task-snapshots.segment-bytes:104857600}")
+    private int snapshotSegmentBytes;
+
+    @Value("${app.kafka.topics.task-snapshots.min-cleanable-dirty-ratio:0.1}")
+    private double snapshotMinCleanableDirtyRatio;
+
+    @Value("${app.kafka.topics.task-snapshots.delete-retention-ms:86400000}")
+    private long snapshotDeleteRetentionMs;
+
+    @Bean
+    public NewTopic taskTopic() {
+        return TopicBuilder.name(topic)
+            .partitions(taskTopicPartitions)
+            .replicas(replicationFactor)
+            .build();
+    }
+
+    @Bean
+    public NewTopic taskSnapshotTopic() {
+        // Compacted: only the latest snapshot per taskId is retained, tombstones
+        // (null values) remove a task after delete.retention.ms
+        return TopicBuilder.name(snapshotTopic)
+            .partitions(snapshotPartitions)
+            .replicas(replicationFactor)
+            .config(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_COMPACT)
+            .config(TopicConfig.SEGMENT_MS_CONFIG, String.valueOf(snapshotSegmentMs))
+            .config(TopicConfig.SEGMENT_BYTES_CONFIG, String.valueOf(snapshotSegmentBytes))
+            .config(TopicConfig.MIN_CLEANABLE_DIRTY_RATIO_CONFIG, String.valueOf(snapshotMinCleanableDirtyRatio))
+            .config(TopicConfig.DELETE_RETENTION_MS_CONFIG, String.valueOf(snapshotDeleteRetentionMs))
+            .build();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.kafka.producer.config;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Partition count the {@link TaskPartitioner} routes task-topic keys over, shared by the producers'
+ * partitioner instances and the publisher (passed through the producer configs).
+ * The count is pinned to the topic's partition count at first use, so partitions added to the topic
+ * do not remap keys by themselves; only an expansion (PartitionExpansionService) moves the layout to
+ * the new count. During an expansion the old partitions that still hold records of moved keys are
+ * draining: records of those keys are held back by the relay until their old partition is drained.
+ */
+public class PartitionLayout {
+
+    private volatile int partitions;
+    private volatile Expansion expansion;
+
+    /**
+     * Partitions to route over, given the partition count of the topic's metadata.
+     */
+    public int partitionCount(int topicPartitions) {
+        if (partitions == 0) {
+            pin(topicPartitions);
+        }
+        return Math.min(partitions, topicPartitions);
+    }
+
+    /**
+     * Pins the layout to {@code count} partitions if nothing was routed yet.
+     */
+    public synchronized void pin(int count) {
+        if (partitions == 0) {
+            partitions = count;
+        }
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * Switches the layout to {@code to} partitions; every old partition drains until {@link #drained}.
+     */
+    public synchronized void beginExpansion(int from, int to) {
+        Set<Integer> draining = ConcurrentHashMap.newKeySet();
+        for (int partition = 0; partition < from; partition++) {
+            draining.add(partition);
+        }
+        expansion = new Expansion(from, to, draining);
+        partitions = to;
+    }
+
+    /**
+     * Restores an expansion switched before a restart, with the old partitions already {@code drained}.
+     */
+    public synchronized void resume(int from, int to, Set<Integer> drained) {
+        beginExpansion(from, to);
+        drained.forEach(this::drained);
+    }
+
+    /**
+     * The consumers have passed the fence of an old partition: its moved keys are released.
+     * Ends the expansion once every old partition is drained.
+     */
+    public synchronized void drained(int partition) {
+        Expansion current = expansion;
+        if (current != null) {
+            current.draining().remove(partition);
+            if (current.draining().isEmpty()) {
+                expansion = null;
+            }
+        }
+    }
+
+    /**
+     * The expansion in progress, null if there is none.
+     */
+    public Expansion getExpansion() {
+        return expansion;
+    }
+
+    /**
+     * Expansion from {@code fromPartitions} to {@code toPartitions}; {@code draining} holds the old
+     * partitions whose fence the consumers have not passed yet.
+     */
+    public record Expansion(int fromPartitions, int toPartitions, Set<Integer> draining) {
+    }
+}
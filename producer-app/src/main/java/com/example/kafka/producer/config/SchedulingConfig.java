@@ -0,0 +1,16 @@
+package com.example.kafka.producer.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Schedules the outbox pollers and aggregators.
+ * Off when the producer runs as the partition skew CLI (app.skew-analysis.cli=true), which only
+ * reads the outbox and must not publish it.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "app.skew-analysis.cli", havingValue = "false", matchIfMissing = true)
+public class SchedulingConfig {
+}
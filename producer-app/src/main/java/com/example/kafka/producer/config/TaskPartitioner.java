@@ -0,0 +1,237 @@
+package com.example.kafka.producer.config;
+
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Partitioner of the task topic (app.kafka.partitioner), installed as the producer's partitioner.class.
+ * In order of precedence a key goes to:
+ * <ol>
+ *   <li>its explicit override partition ({@code overrides: client-0=5,client-1=6})</li>
+ *   <li>for a hot key ({@code hot-keys: client-0=4}), one of a subset of partitions chosen by the
+ *   record's sub-key (the taskId): the subset starts at the key's own partition, the same sub-key
+ *   always lands on the same partition, so the order per task is kept while the key's load is spread</li>
+ *   <li>its partition by strategy: {@code default} hashes like Kafka's built-in partitioner
+ *   (murmur2 modulo partition count), {@code consistent-hash} uses a ring of virtual nodes per
+ *   partition, so adding partitions only moves the keys that land on the new partitions' nodes</li>
+ * </ol>
+ * The sub-key is not part of Kafka's Partitioner API: the publisher asks this class for the partition
+ * of a hot key ({@link #partition(String, String, String, int)}) and sends the record to it explicitly.
+ * Other topics (task-snapshots) keep the built-in partitioning.
+ * Keys are routed over the partition count of the {@link PartitionLayout} ({@code task.partitioner.layout}),
+ * not over the topic's current count, so adding partitions only remaps keys through an expansion.
+ * Overrides and hot keys are read once, at startup, and changing them is not fenced: a key whose
+ * partition changes with the new configuration is sent to its new partition right away, where its
+ * records can overtake those still unconsumed on the old one (a key made hot keeps its order per
+ * sub-key only). To keep the order, restart with the new configuration once the consumers have no
+ * lag on task-topic for the keys concerned.
+ */
+public class TaskPartitioner implements Partitioner {
+
+    public static final String TOPIC_CONFIG = "task.partitioner.topic";
+    public static final String STRATEGY_CONFIG = "task.partitioner.strategy";
+    public static final String VIRTUAL_NODES_CONFIG = "task.partitioner.virtual-nodes";
+    public static final String OVERRIDES_CONFIG = "task.partitioner.overrides";
+    public static final String HOT_KEYS_CONFIG = "task.partitioner.hot-keys";
+    public static final String LAYOUT_CONFIG = "task.partitioner.layout";
+
+    public static final String STRATEGY_DEFAULT = "default";
+    public static final String STRATEGY_CONSISTENT_HASH = "consistent-hash";
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskPartitioner.class);
+
+    private Map<String, ?> configs = Collections.emptyMap();
+    private String topic;
+    private boolean consistentHash;
+    private int virtualNodes;
+    private Map<String, Integer> overrides = Collections.emptyMap();
+    private Map<String, Integer> hotKeys = Collections.emptyMap();
+    private PartitionLayout layout;
+    /** Ring per partition count: hash position to partition. */
+    private final Map<Integer, NavigableMap<Integer, Integer>> rings = new ConcurrentHashMap<>();
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        this.configs = new HashMap<>(configs);
+        this.topic = String.valueOf(configs.get(TOPIC_CONFIG));
+        this.consistentHash = STRATEGY_CONSISTENT_HASH.equals(configs.get(STRATEGY_CONFIG));
+        Object nodes = configs.get(VIRTUAL_NODES_CONFIG);
+        this.virtualNodes = nodes != null ? Integer.parseInt(nodes.toString()) : 64;
+        this.overrides = parseKeyMap(configs.get(OVERRIDES_CONFIG));
+        this.hotKeys = parseKeyMap(configs.get(HOT_KEYS_CONFIG));
+        overrides.forEach((key, partition) -> {
+            if (partition < 0) {
+                throw new IllegalArgumentException("Override partition of " + key + " must not be negative: " + partition);
+            }
+        });
+        hotKeys.forEach((key, width) -> {
+            if (width < 1) {
+                throw new IllegalArgumentException("Hot key " + key + " needs at least one partition: " + width);
+            }
+        });
+        this.layout = configs.get(LAYOUT_CONFIG) instanceof PartitionLayout shared ? shared : null;
+        logger.info("Partitioner for {}: strategy {}, overrides {}, hot keys {}",
+            topic, getStrategy(), overrides, hotKeys);
+    }
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        int numPartitions = cluster.partitionCountForTopic(topic);
+        if (keyBytes == null) {
+            return ThreadLocalRandom.current().nextInt(numPartitions);
+        }
+        if (!topic.equals(this.topic)) {
+            return Utils.toPositive(Utils.murmur2(keyBytes)) % numPartitions;
+        }
+        return partition(topic, String.valueOf(key), null, partitionCount(numPartitions));
+    }
+
+    /**
+     * Partitions task-topic keys are routed over, given the topic's current partition count.
+     */
+    public int partitionCount(int topicPartitions) {
+        return layout != null ? layout.partitionCount(topicPartitions) : topicPartitions;
+    }
+
+    /**
+     * Whether a record of {@code key} has to wait for an expansion: its partition moves and its old
+     * partition is not drained yet. For a hot key without {@code subKey}, whether any of its records
+     * may have to wait: one of the old partitions it spreads over is not drained yet.
+     */
+    public boolean isHeld(String key, String subKey) {
+        PartitionLayout.Expansion expansion = layout != null ? layout.getExpansion() : null;
+        if (expansion == null || key == null) {
+            return false;
+        }
+        Integer split = hotKeys.get(key);
+        if (split != null && subKey == null && !isOverridden(key, expansion.fromPartitions())) {
+            int base = partition(topic, key, null, expansion.fromPartitions());
+            int width = Math.min(split, expansion.fromPartitions());
+            for (int offset = 0; offset < width; offset++) {
+                if (expansion.draining().contains((base + offset) % expansion.fromPartitions())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        int from = partition(topic, key, subKey, expansion.fromPartitions());
+        return expansion.draining().contains(from) && from != partition(topic, key, subKey, expansion.toPartitions());
+    }
+
+    /**
+     * Partition of a keyed record; {@code subKey} only matters for hot keys.
+     */
+    public int partition(String topic, String key, String subKey, int numPartitions) {
+        if (!topic.equals(this.topic)) {
+            return Utils.toPositive(Utils.murmur2(bytes(key))) % numPartitions;
+        }
+        if (isOverridden(key, numPartitions)) {
+            return overrides.get(key);
+        }
+        int partition = consistentHash ? ringPartition(key, numPartitions)
+            : Utils.toPositive(Utils.murmur2(bytes(key))) % numPartitions;
+        Integer split = hotKeys.get(key);
+        if (split != null && subKey != null) {
+            int width = Math.min(split, numPartitions);
+            partition = (partition + Utils.toPositive(Utils.murmur2(bytes(subKey))) % width) % numPartitions;
+        }
+        return partition;
+    }
+
+    private boolean isOverridden(String key, int numPartitions) {
+        Integer override = overrides.get(key);
+        return override != null && override < numPartitions;
+    }
+
+    public boolean isHotKey(String key) {
+        return hotKeys.containsKey(key);
+    }
+
+    public String getStrategy() {
+        return consistentHash ? STRATEGY_CONSISTENT_HASH : STRATEGY_DEFAULT;
+    }
+
+    /**
+     * A partitioner configured like this one but with another strategy, for what-if analysis.
+     *
+     * @throws IllegalArgumentException if the strategy is unknown
+     */
+    public TaskPartitioner withStrategy(String strategy) {
+        if (!STRATEGY_DEFAULT.equals(strategy) && !STRATEGY_CONSISTENT_HASH.equals(strategy)) {
+            throw new IllegalArgumentException("Unknown partitioner strategy " + strategy);
+        }
+        Map<String, Object> copy = new HashMap<>(configs);
+        copy.put(STRATEGY_CONFIG, strategy);
+        TaskPartitioner partitioner = new TaskPartitioner();
+        partitioner.configure(copy);
+        return partitioner;
+    }
+
+    private int ringPartition(String key, int numPartitions) {
+        NavigableMap<Integer, Integer> ring = rings.computeIfAbsent(numPartitions, this::buildRing);
+        Map.Entry<Integer, Integer> node = ring.ceilingEntry(Utils.murmur2(bytes(key)));
+        return (node != null ? node : ring.firstEntry()).getValue();
+    }
+
+    /**
+     * Node positions depend only on partition and node number, so a partition keeps its nodes
+     * when partitions are added.
+     */
+    private NavigableMap<Integer, Integer> buildRing(int numPartitions) {
+        NavigableMap<Integer, Integer> ring = new TreeMap<>();
+        for (int partition = 0; partition < numPartitions; partition++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.putIfAbsent(Utils.murmur2(bytes("partition-" + partition + "-" + node)), partition);
+            }
+        }
+        return ring;
+    }
+
+    /**
+     * Parses {@code key=number,key=number}; blank entries are ignored.
+     *
+     * @throws IllegalArgumentException if an entry has no key or no number
+     */
+    static Map<String, Integer> parseKeyMap(Object value) {
+        Map<String, Integer> map = new HashMap<>();
+        if (value == null) {
+            return map;
+        }
+        for (String entry : value.toString().split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.lastIndexOf('=');
+            String key = separator > 0 ? entry.substring(0, separator).trim() : "";
+            if (key.isEmpty()) {
+                throw new IllegalArgumentException("Malformed entry '" + entry.trim() + "', expected key=number");
+            }
+            try {
+                map.put(key, Integer.parseInt(entry.substring(separator + 1).trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed entry '" + entry.trim() + "', expected key=number");
+            }
+        }
+        return map;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+    }
+}
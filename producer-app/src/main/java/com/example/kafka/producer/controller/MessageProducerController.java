@@ -4,7 +4,9 @@ import com.example.kafka.producer.dto.BatchRequest;
 import com.example.kafka.producer.dto.MessageRequest;
 import com.example.kafka.producer.entity.OutboxMessage;
 import com.example.kafka.producer.repository.OutboxMessageRepository;
+import com.example.kafka.producer.service.OutboxAggregatorService;
 import com.example.kafka.producer.service.OutboxPollingService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -22,6 +24,10 @@ public class MessageProducerController {
     
     private final OutboxMessageRepository outboxRepository;
     private final OutboxPollingService outboxPollingService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    @Value("${app.kafka.snapshot-topic:task-snapshots}")
+    private String snapshotTopic;
     
     @Value("${app.kafka.topic}")
     private String topic;
@@ -95,6 +101,40 @@ public class MessageProducerController {
         }
     }
     
+    /**
+     * Records a task deletion in the outbox. The aggregator turns it into a tombstone
+     * on the compacted snapshot topic, which removes the task from every read-model.
+     */
+    @DeleteMapping("/tasks/{taskId}")
+    public ResponseEntity<Map<String, Object>> deleteTask(@PathVariable String taskId) {
+        try {
+            logger.info("Adding delete operation for task {} to outbox", taskId);
+            
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("taskId", taskId);
+            payload.put("operation", OutboxAggregatorService.OPERATION_DELETE);
+            
+            OutboxMessage outboxMessage = new OutboxMessage(
+                objectMapper.writeValueAsString(payload), taskId, snapshotTopic, null);
+            outboxMessage.setTaskId(taskId);
+            outboxRepository.save(outboxMessage);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "success");
+            response.put("message", "Task delete added to outbox");
+            response.put("outboxId", outboxMessage.getId());
+            response.put("taskId", taskId);
+            
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error adding task delete to outbox", e);
+            Map<String, Object> error = new HashMap<>();
+            error.put("status", "error");
+            error.put("error", e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+    
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> health() {
         Map<String, Object> health = new HashMap<>();
@@ -0,0 +1,57 @@
+package com.example.kafka.producer.controller;
+
+import com.example.kafka.producer.service.PartitionExpansionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Online partition expansion of task-topic: POST /api/partitions/expansion?partitions=6 grows the
+ * topic and starts the fenced switch, GET reports its progress (pending, draining partitions and
+ * their fence offsets, idle).
+ */
+@RestController
+@RequestMapping("/api/partitions/expansion")
+public class PartitionExpansionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionExpansionController.class);
+
+    private final PartitionExpansionService expansionService;
+
+    public PartitionExpansionController(PartitionExpansionService expansionService) {
+        this.expansionService = expansionService;
+    }
+
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> expand(@RequestParam int partitions) {
+        try {
+            return ResponseEntity.ok(expansionService.expand(partitions));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("status", "error");
+            error.put("error", e.getMessage());
+            HttpStatus status = e instanceof IllegalStateException ? HttpStatus.CONFLICT : HttpStatus.BAD_REQUEST;
+            return ResponseEntity.status(status).body(error);
+        } catch (Exception e) {
+            logger.error("Error expanding partitions", e);
+            Map<String, Object> error = new HashMap<>();
+            error.put("status", "error");
+            error.put("error", e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    @GetMapping
+    public Map<String, Object> status() {
+        return expansionService.status();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.kafka.producer.controller;
+
+import com.example.kafka.producer.service.PartitionSkewAnalyzer;
+import com.example.kafka.producer.service.PartitionSkewAnalyzer.History;
+import com.example.kafka.producer.service.PartitionSkewAnalyzer.Recommendation;
+import com.example.kafka.producer.service.PartitionSkewAnalyzer.SkewReport;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Partition skew of task-topic over the outbox history of the last {@code hours} hours:
+ * GET /api/partitions/skew reports the current layout (and the live send counters),
+ * /what-if any partition counts, strategies and key designs, and /recommendation the minimal
+ * partition count and key design for a target load per consumer (messages per second).
+ */
+@RestController
+@RequestMapping("/api/partitions")
+public class PartitionSkewController {
+
+    private final PartitionSkewAnalyzer analyzer;
+
+    public PartitionSkewController(PartitionSkewAnalyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
+    @GetMapping("/skew")
+    public Map<String, Object> skew(
+            @RequestParam(defaultValue = "24") long hours,
+            @RequestParam(required = false) Integer partitions,
+            @RequestParam(required = false) String strategy,
+            @RequestParam(defaultValue = PartitionSkewAnalyzer.KEY_DESIGN_KEY) String keyDesign) {
+        History history = analyzer.history(Duration.ofHours(hours));
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("history", analyzer.analyze(history,
+                partitions != null ? partitions : analyzer.getPartitions(), strategy, keyDesign));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        response.put("live", analyzer.live());
+        return response;
+    }
+
+    @GetMapping("/what-if")
+    public List<SkewReport> whatIf(
+            @RequestParam(defaultValue = "24") long hours,
+            @RequestParam List<Integer> partitions,
+            @RequestParam(required = false) List<String> strategies,
+            @RequestParam(required = false) List<String> keyDesigns) {
+        History history = analyzer.history(Duration.ofHours(hours));
+        try {
+            return analyzer.whatIf(history, partitions,
+                strategies != null ? strategies : PartitionSkewAnalyzer.STRATEGIES,
+                keyDesigns != null ? keyDesigns : PartitionSkewAnalyzer.KEY_DESIGNS);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/recommendation")
+    public Recommendation recommendation(
+            @RequestParam(defaultValue = "24") long hours,
+            @RequestParam double targetPerConsumer,
+            @RequestParam(defaultValue = "64") int maxPartitions) {
+        History history = analyzer.history(Duration.ofHours(hours));
+        try {
+            return analyzer.recommend(history, targetPerConsumer, maxPartitions);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
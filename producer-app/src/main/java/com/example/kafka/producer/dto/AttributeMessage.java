@@ -0,0 +1,28 @@
+package com.example.kafka.producer.dto;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Attribute record of avro/task-messages.avsc: name, type (AttributeType symbol), values
+ * (String, Long, Double, BigDecimal, Boolean or null) and the other fields of the attribute payload,
+ * each as JSON text (rendered back inline as JSON).
+ */
+public record AttributeMessage(String name, String type, List<Object> values, @JsonIgnore Map<String, String> extra) {
+
+    public AttributeMessage {
+        extra = extra != null ? extra : Map.of();
+    }
+
+    public AttributeMessage(String name, String type, List<Object> values) {
+        this(name, type, values, Map.of());
+    }
+
+    @JsonAnyGetter
+    Map<String, Object> extraFields() {
+        return ExtraFields.rendered(extra);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.kafka.producer.dto;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The extra fields of a message record (field name to JSON text) as raw JSON values, so that
+ * rendering the record writes them back as they were in the payload.
+ */
+final class ExtraFields {
+
+    private ExtraFields() {
+    }
+
+    static Map<String, Object> rendered(Map<String, String> extra) {
+        Map<String, Object> rendered = new LinkedHashMap<>();
+        extra.forEach((name, json) -> rendered.put(name, new RawValue(json)));
+        return rendered;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.kafka.producer.entity;
+
+import jakarta.persistence.*;
+import java.time.OffsetDateTime;
+
+/**
+ * Partition-count expansion of a topic, kept so a restarted relay resumes it where it stopped.
+ * PENDING: the topic was grown and the relay has not switched yet; DRAINING: the relay routes over
+ * {@code to_partitions} and holds moved keys until the old partitions pass their fences
+ * ({@link PartitionExpansionFence}); COMPLETE: every old partition drained.
+ */
+@Entity
+@Table(name = "partition_expansions", indexes = {
+    @Index(name = "idx_partition_expansions_topic", columnList = "topic,id")
+})
+public class PartitionExpansion {
+
+    public enum State {
+        PENDING, DRAINING, COMPLETE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "topic", nullable = false)
+    private String topic;
+
+    @Column(name = "from_partitions", nullable = false)
+    private Integer fromPartitions;
+
+    @Column(name = "to_partitions", nullable = false)
+    private Integer toPartitions;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", nullable = false, length = 16)
+    private State state;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private OffsetDateTime completedAt;
+
+    public PartitionExpansion() {
+        this.createdAt = OffsetDateTime.now();
+    }
+
+    public PartitionExpansion(String topic, int fromPartitions, int toPartitions) {
+        this();
+        this.topic = topic;
+        this.fromPartitions = fromPartitions;
+        this.toPartitions = toPartitions;
+        this.state = State.PENDING;
+    }
+
+    public void markComplete() {
+        this.state = State.COMPLETE;
+        this.completedAt = OffsetDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public Integer getFromPartitions() {
+        return fromPartitions;
+    }
+
+    public void setFromPartitions(Integer fromPartitions) {
+        this.fromPartitions = fromPartitions;
+    }
+
+    public Integer getToPartitions() {
+        return toPartitions;
+    }
+
+    public void setToPartitions(Integer toPartitions) {
+        this.toPartitions = toPartitions;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(OffsetDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public OffsetDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(OffsetDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.kafka.producer.entity;
+
+import jakarta.persistence.*;
+import java.time.OffsetDateTime;
+
+/**
+ * Fence marker written to an old partition by an expansion ({@link PartitionExpansion}), with the
+ * offset the consumer groups have to reach before the moved keys of that partition are released.
+ */
+@Entity
+@Table(name = "partition_expansion_fences", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_partition_expansion_fence", columnNames = {"expansion_id", "partition_number"})
+})
+public class PartitionExpansionFence {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "expansion_id", nullable = false)
+    private Long expansionId;
+
+    // "partition" is reserved in Oracle
+    @Column(name = "partition_number", nullable = false)
+    private Integer partitionNumber;
+
+    @Column(name = "fence_offset", nullable = false)
+    private Long fenceOffset;
+
+    @Column(name = "drained_at")
+    private OffsetDateTime drainedAt;
+
+    public PartitionExpansionFence() {
+    }
+
+    public PartitionExpansionFence(Long expansionId, int partitionNumber, long fenceOffset) {
+        this.expansionId = expansionId;
+        this.partitionNumber = partitionNumber;
+        this.fenceOffset = fenceOffset;
+    }
+
+    public void markDrained() {
+        this.drainedAt = OffsetDateTime.now();
+    }
+
+    public boolean isDrained() {
+        return drainedAt != null;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getExpansionId() {
+        return expansionId;
+    }
+
+    public void setExpansionId(Long expansionId) {
+        this.expansionId = expansionId;
+    }
+
+    public Integer getPartitionNumber() {
+        return partitionNumber;
+    }
+
+    public void setPartitionNumber(Integer partitionNumber) {
+        this.partitionNumber = partitionNumber;
+    }
+
+    public Long getFenceOffset() {
+        return fenceOffset;
+    }
+
+    public void setFenceOffset(Long fenceOffset) {
+        this.fenceOffset = fenceOffset;
+    }
+
+    public OffsetDateTime getDrainedAt() {
+        return drainedAt;
+    }
+
+    public void setDrainedAt(OffsetDateTime drainedAt) {
+        this.drainedAt = drainedAt;
+    }
+}
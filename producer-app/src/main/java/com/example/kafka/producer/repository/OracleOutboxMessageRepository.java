@@ -9,14 +9,27 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OracleOutboxMessageRepository extends JpaRepository<OracleOutboxMessage, Long> {
     
-    @Query("SELECT o FROM OracleOutboxMessage o WHERE o.published = false ORDER BY o.createdAt ASC")
+    // Rows with a task_id belong to the snapshot aggregator and are never relayed one by one
+    @Query("SELECT o FROM OracleOutboxMessage o WHERE o.published = false AND o.taskId IS NULL ORDER BY o.createdAt ASC")
     List<OracleOutboxMessage> findUnpublishedMessages(Pageable pageable);
     
+    // Same page without the keys a partition expansion holds back, so they cannot fill it
+    @Query("SELECT o FROM OracleOutboxMessage o WHERE o.published = false AND o.taskId IS NULL " +
+           "AND NOT (o.topic = :topic AND o.messageKey IN :heldKeys) ORDER BY o.createdAt ASC")
+    List<OracleOutboxMessage> findUnpublishedMessagesExcept(@Param("topic") String topic,
+                                                            @Param("heldKeys") Collection<String> heldKeys,
+                                                            Pageable pageable);
+    
+    @Query("SELECT DISTINCT o.messageKey FROM OracleOutboxMessage o WHERE o.published = false AND o.taskId IS NULL " +
+           "AND o.topic = :topic")
+    List<String> findUnpublishedMessageKeys(@Param("topic") String topic);
+    
     @Query("SELECT o FROM OracleOutboxMessage o WHERE o.published = false AND o.taskId IS NOT NULL " +
            "AND o.createdAt < :threshold ORDER BY o.createdAt ASC")
     List<OracleOutboxMessage> findUnpublishedOlderThan(@Param("threshold") OffsetDateTime threshold);
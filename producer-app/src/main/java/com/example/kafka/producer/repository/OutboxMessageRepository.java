@@ -9,14 +9,27 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
     
-    @Query("SELECT o FROM OutboxMessage o WHERE o.published = false ORDER BY o.createdAt ASC")
+    // Rows with a task_id belong to the snapshot aggregator and are never relayed one by one
+    @Query("SELECT o FROM OutboxMessage o WHERE o.published = false AND o.taskId IS NULL ORDER BY o.createdAt ASC")
     List<OutboxMessage> findUnpublishedMessages(Pageable pageable);
     
+    // Same page without the keys a partition expansion holds back, so they cannot fill it
+    @Query("SELECT o FROM OutboxMessage o WHERE o.published = false AND o.taskId IS NULL " +
+           "AND NOT (o.topic = :topic AND o.messageKey IN :heldKeys) ORDER BY o.createdAt ASC")
+    List<OutboxMessage> findUnpublishedMessagesExcept(@Param("topic") String topic,
+                                                      @Param("heldKeys") Collection<String> heldKeys,
+                                                      Pageable pageable);
+    
+    @Query("SELECT DISTINCT o.messageKey FROM OutboxMessage o WHERE o.published = false AND o.taskId IS NULL " +
+           "AND o.topic = :topic")
+    List<String> findUnpublishedMessageKeys(@Param("topic") String topic);
+    
     @Query("SELECT o FROM OutboxMessage o WHERE o.published = false AND o.taskId IS NOT NULL " +
            "AND o.createdAt < :threshold ORDER BY o.createdAt ASC")
     List<OutboxMessage> findUnpublishedOlderThan(@Param("threshold") OffsetDateTime threshold);
@@ -30,4 +43,11 @@ public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Lo
     void markAsPublished(@Param("ids") List<Long> ids, @Param("publishedAt") OffsetDateTime publishedAt);
     
     long countByPublished(boolean published);
+    
+    /**
+     * Outbox traffic of a topic since {@code since}, as rows of message key, client id, task id and count.
+     */
+    @Query("SELECT o.messageKey, o.clientId, o.taskId, COUNT(o) FROM OutboxMessage o " +
+           "WHERE o.topic = :topic AND o.createdAt >= :since GROUP BY o.messageKey, o.clientId, o.taskId")
+    List<Object[]> countByKeySince(@Param("topic") String topic, @Param("since") OffsetDateTime since);
 }
@@ -0,0 +1,13 @@
+package com.example.kafka.producer.repository;
+
+import com.example.kafka.producer.entity.PartitionExpansionFence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PartitionExpansionFenceRepository extends JpaRepository<PartitionExpansionFence, Long> {
+    
+    List<PartitionExpansionFence> findByExpansionId(Long expansionId);
+}
@@ -0,0 +1,13 @@
+package com.example.kafka.producer.repository;
+
+import com.example.kafka.producer.entity.PartitionExpansion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface PartitionExpansionRepository extends JpaRepository<PartitionExpansion, Long> {
+    
+    Optional<PartitionExpansion> findFirstByTopicOrderByIdDesc(String topic);
+}
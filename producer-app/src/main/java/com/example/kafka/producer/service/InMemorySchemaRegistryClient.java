@@ -0,0 +1,36 @@
+package com.example.kafka.producer.service;
+
+import org.apache.avro.Schema;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-local schema registry (app.schema-registry.type=memory, default): knows the schemas this
+ * application registers itself, which is enough as long as producers and consumers run the same
+ * avro/task-messages.avsc. Schemas evolved on the producer side need a shared registry (file).
+ */
+@Service
+@ConditionalOnProperty(name = "app.schema-registry.type", havingValue = "memory", matchIfMissing = true)
+public class InMemorySchemaRegistryClient implements SchemaRegistryClient {
+
+    private final Map<Long, Schema> schemas = new ConcurrentHashMap<>();
+
+    @Override
+    public long register(Schema schema) {
+        long id = SchemaRegistryClient.idOf(schema);
+        schemas.putIfAbsent(id, schema);
+        return id;
+    }
+
+    @Override
+    public Schema getSchema(long id) {
+        Schema schema = schemas.get(id);
+        if (schema == null) {
+            throw new IllegalArgumentException("Unknown schema id " + Long.toHexString(id));
+        }
+        return schema;
+    }
+}
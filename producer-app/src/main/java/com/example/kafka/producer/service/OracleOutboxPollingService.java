@@ -7,13 +7,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Oracle-specific outbox polling service.
@@ -27,7 +27,8 @@ public class OracleOutboxPollingService {
     private static final Logger logger = LoggerFactory.getLogger(OracleOutboxPollingService.class);
 
     private final OracleOutboxMessageRepository repository;
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final TaskMessagePublisher publisher;
+    private final PartitionExpansionService expansionService;
 
     @Value("${app.outbox.poll-interval-ms:1000}")
     private long pollIntervalMs;
@@ -36,19 +37,32 @@ public class OracleOutboxPollingService {
     private int batchSize;
 
     public OracleOutboxPollingService(OracleOutboxMessageRepository repository,
-                                     KafkaTemplate<String, String> kafkaTemplate) {
+                                     TaskMessagePublisher publisher,
+                                     PartitionExpansionService expansionService) {
         this.repository = repository;
-        this.kafkaTemplate = kafkaTemplate;
+        this.publisher = publisher;
+        this.expansionService = expansionService;
     }
 
     @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:1000}")
     @Transactional
     public void pollAndPublish() {
         try {
+            expansionService.onRelayCycle();
+            
+            // Partition expansion: keys moved off an old partition stay unpublished until it is drained
+            Set<String> heldKeys = expansionService.isDraining()
+                ? expansionService.heldKeys(repository.findUnpublishedMessageKeys(expansionService.getTopic()))
+                : Set.of();
+            if (!heldKeys.isEmpty()) {
+                logger.info("Holding back {} keys moved by the partition expansion", heldKeys.size());
+            }
+
             // Fetch unpublished messages from Oracle outbox
-            List<OracleOutboxMessage> messages = repository.findUnpublishedMessages(
-                PageRequest.of(0, batchSize)
-            );
+            List<OracleOutboxMessage> messages = heldKeys.isEmpty()
+                ? repository.findUnpublishedMessages(PageRequest.of(0, batchSize))
+                : repository.findUnpublishedMessagesExcept(expansionService.getTopic(), heldKeys,
+                    PageRequest.of(0, batchSize));
 
             if (messages.isEmpty()) {
                 return;
@@ -57,9 +71,10 @@ public class OracleOutboxPollingService {
             logger.debug("Processing {} unpublished messages from Oracle outbox", messages.size());
 
             for (OracleOutboxMessage message : messages) {
+                String subKey = publisher.subKeyOf(message.getMessageKey(), message.getPayload(), message.getId());
                 try {
                     // Publish to Kafka
-                    kafkaTemplate.send(message.getTopic(), message.getMessageKey(), message.getPayload())
+                    publisher.publish(message.getTopic(), message.getMessageKey(), subKey, message.getPayload(), message.getId())
                         .whenComplete((result, ex) -> {
                             if (ex == null) {
                                 logger.debug("Successfully published message {} to topic {} with key {}",
@@ -3,12 +3,12 @@ package com.example.kafka.producer.service;
 import com.example.kafka.producer.entity.OutboxMessage;
 import com.example.kafka.producer.repository.OutboxMessageRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -27,11 +27,14 @@ import java.util.stream.Collectors;
 @ConditionalOnProperty(name = "app.outbox.use-oracle", havingValue = "false", matchIfMissing = true)
 public class OutboxAggregatorService {
 
+    public static final String OPERATION_DELETE = "DELETE";
+
     private static final Logger logger = LoggerFactory.getLogger(OutboxAggregatorService.class);
 
     private final OutboxMessageRepository outboxRepo;
-    private final KafkaTemplate<String, String> kafka;
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final TaskMessagePublisher publisher;
+    // NUMERIC values keep their precision on the way to the snapshot
+    private final ObjectMapper mapper = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
 
     @Value("${app.outbox.aggregator-interval-ms:500}")
     private long aggregatorIntervalMs;
@@ -43,9 +46,9 @@ public class OutboxAggregatorService {
     private String snapshotTopic;
 
     public OutboxAggregatorService(OutboxMessageRepository outboxRepo, 
-                                  KafkaTemplate<String, String> kafka) {
+                                  TaskMessagePublisher publisher) {
         this.outboxRepo = outboxRepo;
-        this.kafka = kafka;
+        this.publisher = publisher;
     }
 
     @Scheduled(fixedDelayString = "${app.outbox.aggregator-interval-ms:500}")
@@ -72,16 +75,25 @@ public class OutboxAggregatorService {
             var group = entry.getValue();
             
             try {
-                // Build snapshot from attribute payloads (merge logic depends on domain)
-                Map<String, Object> snapshot = new HashMap<>();
-                snapshot.put("taskId", taskId);
-                snapshot.put("attributes", mergeAttributes(group));
-                snapshot.put("timestamp", OffsetDateTime.now().toString());
+                if (isDeleted(group)) {
+                    // Tombstone: null value removes the task from the compacted topic and the read-model
+                    publisher.publishTombstone(snapshotTopic, taskId);
+                    
+                    List<Long> ids = group.stream()
+                        .map(OutboxMessage::getId)
+                        .collect(Collectors.toList());
+                    outboxRepo.markAsPublished(ids, OffsetDateTime.now());
+                    
+                    logger.info("Published tombstone for deleted task {} ({} messages)", taskId, group.size());
+                    continue;
+                }
                 
-                String payload = mapper.writeValueAsString(snapshot);
+                // Highest outbox id of the group: increases with every snapshot of the task, so the
+                // consumer can drop snapshots older than the stored one (replays, rebalances)
+                long sourceVersion = group.stream().mapToLong(OutboxMessage::getId).max().orElse(0);
                 
-                // Publish snapshot keyed by taskId to ensure ordering per task
-                kafka.send(snapshotTopic, taskId, payload);
+                // Build snapshot from attribute payloads (merge logic depends on domain), keyed by taskId
+                publisher.publishSnapshot(snapshotTopic, taskId, mergeAttributes(group), sourceVersion);
                 
                 // Mark original rows as published
                 List<Long> ids = group.stream()
@@ -115,6 +127,11 @@ public class OutboxAggregatorService {
         
         for (OutboxMessage m : msgs) {
             Map<String, Object> p = parsePayload(m.getPayload());
+            if (isDeleteOperation(p)) {
+                // Changes recorded before a delete no longer belong to the task
+                attrs.clear();
+                continue;
+            }
             String name = (String) p.get("attributeName");
             if (name != null) {
                 attrs.put(name, p);
@@ -137,6 +154,18 @@ public class OutboxAggregatorService {
         return new ArrayList<>(attrs.values());
     }
 
+    /**
+     * A task is deleted when the most recent outbox entry of the group is a DELETE operation.
+     */
+    private boolean isDeleted(List<OutboxMessage> msgs) {
+        OutboxMessage last = msgs.get(msgs.size() - 1);
+        return isDeleteOperation(parsePayload(last.getPayload()));
+    }
+
+    private boolean isDeleteOperation(Map<String, Object> payload) {
+        return OPERATION_DELETE.equals(payload.get("operation"));
+    }
+
     private Map<String, Object> parsePayload(String payload) {
         try {
             @SuppressWarnings("unchecked")
@@ -4,19 +4,19 @@ import com.example.kafka.producer.entity.OutboxMessage;
 import com.example.kafka.producer.repository.OutboxMessageRepository;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -31,7 +31,8 @@ public class OutboxPollingService {
     private static final Logger logger = LoggerFactory.getLogger(OutboxPollingService.class);
     
     private final OutboxMessageRepository outboxRepository;
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final TaskMessagePublisher publisher;
+    private final PartitionExpansionService expansionService;
     private final Counter publishedCounter;
     private final Counter failedCounter;
     
@@ -39,10 +40,12 @@ public class OutboxPollingService {
     private int batchSize;
     
     public OutboxPollingService(OutboxMessageRepository outboxRepository,
-                                KafkaTemplate<String, String> kafkaTemplate,
+                                TaskMessagePublisher publisher,
+                                PartitionExpansionService expansionService,
                                 MeterRegistry meterRegistry) {
         this.outboxRepository = outboxRepository;
-        this.kafkaTemplate = kafkaTemplate;
+        this.publisher = publisher;
+        this.expansionService = expansionService;
         this.publishedCounter = Counter.builder("outbox.messages.published")
             .description("Number of messages published from outbox")
             .register(meterRegistry);
@@ -53,9 +56,19 @@ public class OutboxPollingService {
     
     @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms}")
     public void pollAndPublish() {
-        List<OutboxMessage> unpublishedMessages = outboxRepository.findUnpublishedMessages(
-            PageRequest.of(0, batchSize)
-        );
+        expansionService.onRelayCycle();
+        
+        // Partition expansion: keys moved off an old partition stay unpublished until it is drained
+        Set<String> heldKeys = expansionService.isDraining()
+            ? expansionService.heldKeys(outboxRepository.findUnpublishedMessageKeys(expansionService.getTopic()))
+            : Set.of();
+        List<OutboxMessage> unpublishedMessages = heldKeys.isEmpty()
+            ? outboxRepository.findUnpublishedMessages(PageRequest.of(0, batchSize))
+            : outboxRepository.findUnpublishedMessagesExcept(expansionService.getTopic(), heldKeys,
+                PageRequest.of(0, batchSize));
+        if (!heldKeys.isEmpty()) {
+            logger.info("Holding back {} keys moved by the partition expansion", heldKeys.size());
+        }
         
         if (unpublishedMessages.isEmpty()) {
             return;
@@ -78,14 +91,16 @@ public class OutboxPollingService {
             outboxMessage.getId(), outboxMessage.getTopic(), outboxMessage.getMessageKey());
         
         try {
-            CompletableFuture<SendResult<String, String>> future = kafkaTemplate.send(
+            CompletableFuture<RecordMetadata> future = publisher.publish(
                 outboxMessage.getTopic(),
                 outboxMessage.getMessageKey(),
-                outboxMessage.getPayload()
+                publisher.subKeyOf(outboxMessage.getMessageKey(), outboxMessage.getPayload(), outboxMessage.getId()),
+                outboxMessage.getPayload(),
+                outboxMessage.getId()
             );
             
             // Wait for the send to complete with timeout to prevent indefinite blocking
-            SendResult<String, String> result = future.get(30, java.util.concurrent.TimeUnit.SECONDS);
+            RecordMetadata metadata = future.get(30, java.util.concurrent.TimeUnit.SECONDS);
             
             // Mark as published in a transaction
             markAsPublished(outboxMessage);
@@ -93,7 +108,7 @@ public class OutboxPollingService {
             logger.info("Successfully published message {} (client: {}) to partition {}", 
                 outboxMessage.getId(), 
                 outboxMessage.getClientId(),
-                result.getRecordMetadata().partition());
+                metadata.partition());
             
         } catch (Exception e) {
             logger.error("Failed to publish message {}: {}", outboxMessage.getId(), e.getMessage());
@@ -0,0 +1,336 @@
+package com.example.kafka.producer.service;
+
+import com.example.kafka.producer.config.PartitionLayout;
+import com.example.kafka.producer.config.PartitionLayout.Expansion;
+import com.example.kafka.producer.config.TaskPartitioner;
+import com.example.kafka.producer.entity.PartitionExpansion;
+import com.example.kafka.producer.entity.PartitionExpansionFence;
+import com.example.kafka.producer.repository.PartitionExpansionFenceRepository;
+import com.example.kafka.producer.repository.PartitionExpansionRepository;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.NewPartitions;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Online partition-count expansion of task-topic that keeps the order per key.
+ * <ol>
+ *   <li>{@link #expand(int)} grows the topic; the {@link PartitionLayout} keeps routing over the old count.</li>
+ *   <li>On its next cycle the relay switches the layout to the new count and writes a fence marker
+ *   (header {@value #FENCE_HEADER}) to every old partition ({@link #onRelayCycle()}). From then on it
+ *   holds back the records of keys whose partition moves ({@link #heldKeys}), so every record of a
+ *   moved key on an old partition lies before that partition's fence.</li>
+ *   <li>Once the committed offset of every consumer group (app.kafka.expansion.consumer-groups) has
+ *   reached the fence of an old partition, its moved keys are released to their new partitions.</li>
+ * </ol>
+ * Keys that keep their partition are never held. Each step is stored (partition_expansions and
+ * partition_expansion_fences) before it takes effect, and a restarted relay resumes the expansion
+ * from there: the layout of the last complete expansion, a pending switch, or the drain with the
+ * fences written so far. The expansion assumes a single relay.
+ */
+@Service
+public class PartitionExpansionService implements SmartInitializingSingleton, DisposableBean {
+
+    public static final String FENCE_HEADER = "partition-fence";
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionExpansionService.class);
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final AdminClient adminClient;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final KafkaTemplate<String, byte[]> binaryKafkaTemplate;
+    private final PartitionLayout layout;
+    private final TaskPartitioner partitioner;
+    private final PartitionExpansionRepository expansionRepository;
+    private final PartitionExpansionFenceRepository fenceRepository;
+    /** Own transactions: the relay's transaction must not hold back (or roll back) a step. */
+    private final TransactionTemplate transactionTemplate;
+    /** Target of a requested expansion the relay has not switched to yet, 0 if none. */
+    private volatile int pendingPartitions;
+    /** Row of the expansion pending or in progress, null if none. */
+    private volatile Long expansionId;
+    /** Fence per old partition of the expansion in progress. */
+    private final Map<Integer, PartitionExpansionFence> fences = new ConcurrentHashMap<>();
+
+    @Value("${app.kafka.topic}")
+    private String topic;
+
+    @Value("${app.kafka.expansion.consumer-groups:task-consumer-group}")
+    private List<String> consumerGroups;
+
+    public PartitionExpansionService(KafkaAdmin kafkaAdmin,
+                                     KafkaTemplate<String, String> kafkaTemplate,
+                                     KafkaTemplate<String, byte[]> binaryKafkaTemplate,
+                                     PartitionLayout layout,
+                                     TaskPartitioner partitioner,
+                                     PartitionExpansionRepository expansionRepository,
+                                     PartitionExpansionFenceRepository fenceRepository,
+                                     PlatformTransactionManager transactionManager) {
+        this.adminClient = AdminClient.create(kafkaAdmin.getConfigurationProperties());
+        this.kafkaTemplate = kafkaTemplate;
+        this.binaryKafkaTemplate = binaryKafkaTemplate;
+        this.layout = layout;
+        this.partitioner = partitioner;
+        this.expansionRepository = expansionRepository;
+        this.fenceRepository = fenceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Resumes the last expansion of the topic before the relay's first cycle (scheduling starts
+     * once the context is refreshed).
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        PartitionExpansion expansion = expansionRepository.findFirstByTopicOrderByIdDesc(topic).orElse(null);
+        if (expansion == null) {
+            return;
+        }
+        switch (expansion.getState()) {
+            case COMPLETE -> {
+                layout.pin(expansion.getToPartitions());
+                logger.info("Routing {} over {} partitions, as of its last expansion", topic, expansion.getToPartitions());
+            }
+            case PENDING -> {
+                layout.pin(expansion.getFromPartitions());
+                expansionId = expansion.getId();
+                pendingPartitions = expansion.getToPartitions();
+                logger.info("Resuming the expansion of {} from {} to {} partitions before its switch",
+                    topic, expansion.getFromPartitions(), expansion.getToPartitions());
+            }
+            case DRAINING -> {
+                List<PartitionExpansionFence> written = fenceRepository.findByExpansionId(expansion.getId());
+                Set<Integer> drained = written.stream()
+                    .filter(PartitionExpansionFence::isDrained)
+                    .map(PartitionExpansionFence::getPartitionNumber)
+                    .collect(Collectors.toSet());
+                layout.resume(expansion.getFromPartitions(), expansion.getToPartitions(), drained);
+                expansionId = expansion.getId();
+                written.forEach(fence -> fences.put(fence.getPartitionNumber(), fence));
+                logger.info("Resuming the drain of {} from {} to {} partitions with {} of {} fences written, {} drained",
+                    topic, expansion.getFromPartitions(), expansion.getToPartitions(), written.size(),
+                    expansion.getFromPartitions(), drained.size());
+                if (layout.getExpansion() == null) {
+                    complete(expansion.getToPartitions());
+                }
+            }
+        }
+    }
+
+    /**
+     * Grows task-topic to {@code partitions} partitions and schedules the switch of the layout.
+     *
+     * @throws IllegalArgumentException if the count does not grow the current layout
+     * @throws IllegalStateException    if an expansion is already in progress
+     */
+    public synchronized Map<String, Object> expand(int partitions) throws Exception {
+        if (pendingPartitions != 0 || layout.getExpansion() != null) {
+            throw new IllegalStateException("An expansion is already in progress");
+        }
+        int topicPartitions = adminClient.describeTopics(List.of(topic)).allTopicNames()
+            .get(TIMEOUT_SECONDS, TimeUnit.SECONDS).get(topic).partitions().size();
+        // Nothing routed yet: the current count is the old layout
+        layout.pin(topicPartitions);
+        int current = layout.getPartitions();
+        if (partitions <= current) {
+            throw new IllegalArgumentException("Topic " + topic + " is routed over " + current +
+                " partitions; an expansion needs more");
+        }
+        if (topicPartitions < partitions) {
+            adminClient.createPartitions(Map.of(topic, NewPartitions.increaseTo(partitions)))
+                .all().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            logger.info("Grew {} from {} to {} partitions", topic, topicPartitions, partitions);
+        }
+        expansionId = transactionTemplate.execute(status ->
+            expansionRepository.save(new PartitionExpansion(topic, current, partitions)).getId());
+        pendingPartitions = partitions;
+        return status();
+    }
+
+    /**
+     * Called by the relay before each poll, on the relay thread: switches a requested expansion and
+     * writes the fences missing so far (a failed fence is written again on the next cycle).
+     */
+    public void onRelayCycle() {
+        int target = pendingPartitions;
+        if (target != 0) {
+            int from = layout.getPartitions();
+            // Stored first: a relay restarted after the switch has to keep holding the moved keys
+            updateExpansion(expansion -> expansion.setState(PartitionExpansion.State.DRAINING));
+            layout.beginExpansion(from, target);
+            pendingPartitions = 0;
+            fences.clear();
+            logger.info("Switched {} from {} to {} partitions, holding moved keys until the old partitions drain",
+                topic, from, target);
+        }
+        Expansion expansion = layout.getExpansion();
+        if (expansion == null || fences.size() == expansion.fromPartitions()) {
+            return;
+        }
+        // Records of moved keys sent before the switch must be written before the fences
+        kafkaTemplate.flush();
+        binaryKafkaTemplate.flush();
+        String fence = "{\"fence\":\"partition-expansion\",\"fromPartitions\":" + expansion.fromPartitions() +
+            ",\"toPartitions\":" + expansion.toPartitions() + "}";
+        for (int partition = 0; partition < expansion.fromPartitions(); partition++) {
+            if (fences.containsKey(partition)) {
+                continue;
+            }
+            try {
+                ProducerRecord<String, String> record = new ProducerRecord<>(topic, partition, null, fence);
+                record.headers().add(FENCE_HEADER,
+                    String.valueOf(expansion.toPartitions()).getBytes(StandardCharsets.UTF_8));
+                RecordMetadata metadata = kafkaTemplate.send(record).get(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .getRecordMetadata();
+                PartitionExpansionFence written = new PartitionExpansionFence(expansionId, partition, metadata.offset());
+                fences.put(partition, transactionTemplate.execute(status -> fenceRepository.save(written)));
+                logger.info("Fence of partition {} written at offset {}", partition, metadata.offset());
+            } catch (Exception e) {
+                logger.warn("Could not write the fence of partition {}: {}", partition, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Whether an expansion is draining, i.e. the relay may have keys to hold back.
+     */
+    public boolean isDraining() {
+        return layout.getExpansion() != null;
+    }
+
+    /**
+     * Keys among the unpublished relay {@code keys} of the topic whose records the relay has to hold
+     * back. A hot key's records are spread by task and each task keeps its order, but the keys are not
+     * told apart by task here: a hot key is held whole while any of its old partitions drains.
+     */
+    public Set<String> heldKeys(Collection<String> keys) {
+        return keys.stream()
+            .filter(key -> partitioner.isHeld(key, null))
+            .collect(Collectors.toSet());
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * Releases the old partitions whose fence every consumer group has reached.
+     */
+    @Scheduled(fixedDelayString = "${app.kafka.expansion.check-interval-ms:5000}")
+    public void checkDrained() {
+        Expansion expansion = layout.getExpansion();
+        if (expansion == null || fences.isEmpty()) {
+            return;
+        }
+        try {
+            Map<TopicPartition, OffsetSpec> request = new HashMap<>();
+            fences.keySet().forEach(partition -> request.put(new TopicPartition(topic, partition), OffsetSpec.earliest()));
+            Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> earliest =
+                adminClient.listOffsets(request).all().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            Map<String, Map<TopicPartition, OffsetAndMetadata>> committed = new LinkedHashMap<>();
+            for (String group : consumerGroups) {
+                committed.put(group, adminClient.listConsumerGroupOffsets(group)
+                    .partitionsToOffsetAndMetadata().get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            }
+            for (Map.Entry<Integer, PartitionExpansionFence> fence : fences.entrySet()) {
+                int partition = fence.getKey();
+                if (!expansion.draining().contains(partition)) {
+                    continue;
+                }
+                TopicPartition topicPartition = new TopicPartition(topic, partition);
+                boolean passed = true;
+                for (Map<TopicPartition, OffsetAndMetadata> offsets : committed.values()) {
+                    OffsetAndMetadata commit = offsets.get(topicPartition);
+                    // Without a commit only a partition with nothing before its fence is drained
+                    long position = commit != null ? commit.offset() : earliest.get(topicPartition).offset();
+                    passed &= position >= fence.getValue().getFenceOffset();
+                }
+                if (passed) {
+                    PartitionExpansionFence drained = fence.getValue();
+                    drained.markDrained();
+                    fence.setValue(transactionTemplate.execute(status -> fenceRepository.save(drained)));
+                    layout.drained(partition);
+                    logger.info("Partition {} drained up to its fence, releasing its moved keys", partition);
+                }
+            }
+            if (layout.getExpansion() == null) {
+                complete(expansion.toPartitions());
+            }
+        } catch (Exception e) {
+            logger.warn("Could not check the fences of {}: {}", topic, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        Expansion expansion = layout.getExpansion();
+        status.put("topic", topic);
+        status.put("partitions", layout.getPartitions());
+        if (pendingPartitions != 0) {
+            status.put("state", "pending");
+            status.put("toPartitions", pendingPartitions);
+        } else if (expansion != null) {
+            status.put("state", "draining");
+            status.put("fromPartitions", expansion.fromPartitions());
+            status.put("toPartitions", expansion.toPartitions());
+            status.put("draining", expansion.draining().stream().sorted().toList());
+            status.put("fences", fences.values().stream().collect(Collectors.toMap(
+                PartitionExpansionFence::getPartitionNumber, PartitionExpansionFence::getFenceOffset,
+                (first, second) -> first, TreeMap::new)));
+        } else {
+            status.put("state", "idle");
+        }
+        return status;
+    }
+
+    private void complete(int partitions) {
+        updateExpansion(PartitionExpansion::markComplete);
+        expansionId = null;
+        fences.clear();
+        logger.info("Expansion of {} to {} partitions complete", topic, partitions);
+    }
+
+    private void updateExpansion(Consumer<PartitionExpansion> update) {
+        transactionTemplate.executeWithoutResult(status -> {
+            PartitionExpansion expansion = expansionRepository.findById(expansionId)
+                .orElseThrow(() -> new IllegalStateException("PartitionExpansion not found: " + expansionId));
+            update.accept(expansion);
+            expansionRepository.save(expansion);
+        });
+    }
+
+    @Override
+    public void destroy() {
+        adminClient.close();
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.kafka.producer.service;
+
+import com.example.kafka.producer.config.PartitionLayout;
+import com.example.kafka.producer.config.TaskPartitioner;
+import com.example.kafka.producer.repository.OutboxMessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Partition skew of task-topic: replays the configured {@link TaskPartitioner} over the outbox history
+ * (message_key, client_id, task_id of the rows created in a window) for any partition count, strategy
+ * and key design, and reads the live per-partition send counters (task.messages.sent).
+ * Key designs: {@code key} (message_key, as published), {@code client} (client_id), {@code task}
+ * (task_id) and {@code key-task} (message_key:task_id); the last three fall back to message_key on
+ * rows without a client or task. The further a design moves from message_key, the less ordering is
+ * kept: {@code task} and {@code key-task} only keep the order per task.
+ * Rates are averages over the window, so the window should cover the peak to size for it.
+ */
+@Service
+public class PartitionSkewAnalyzer {
+
+    public static final String KEY_DESIGN_KEY = "key";
+    public static final String KEY_DESIGN_CLIENT = "client";
+    public static final String KEY_DESIGN_TASK = "task";
+    public static final String KEY_DESIGN_KEY_TASK = "key-task";
+    /** In the order of preference of the recommendation: strongest ordering first. */
+    public static final List<String> KEY_DESIGNS =
+        List.of(KEY_DESIGN_KEY, KEY_DESIGN_CLIENT, KEY_DESIGN_TASK, KEY_DESIGN_KEY_TASK);
+    public static final List<String> STRATEGIES =
+        List.of(TaskPartitioner.STRATEGY_DEFAULT, TaskPartitioner.STRATEGY_CONSISTENT_HASH);
+
+    private static final int TOP_KEYS = 10;
+    /**
+     * Relay rows of a hot key are spread by the taskId of their payload, or their outbox id, which the
+     * history does not group by; this many sub-keys are replayed per group.
+     */
+    private static final int ID_SAMPLES = 1024;
+
+    private final OutboxMessageRepository outboxRepository;
+    private final TaskPartitioner partitioner;
+    private final PartitionLayout layout;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.kafka.topic}")
+    private String topic;
+
+    @Value("${app.kafka.topics.task-topic.partitions:3}")
+    private int partitions;
+
+    public PartitionSkewAnalyzer(OutboxMessageRepository outboxRepository,
+                                 TaskPartitioner partitioner,
+                                 PartitionLayout layout,
+                                 MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.partitioner = partitioner;
+        this.layout = layout;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Outbox rows of the task topic created in the last {@code window}, grouped by key, client and task.
+     */
+    public History history(Duration window) {
+        List<KeyLoad> loads = new ArrayList<>();
+        for (Object[] row : outboxRepository.countByKeySince(topic, OffsetDateTime.now().minus(window))) {
+            loads.add(new KeyLoad((String) row[0], (String) row[1], (String) row[2], ((Number) row[3]).longValue()));
+        }
+        return new History(loads, window.toSeconds());
+    }
+
+    /**
+     * Load per partition of the history for {@code partitions} partitions.
+     *
+     * @param strategy  partitioner strategy, null for the configured one
+     * @param keyDesign one of {@link #KEY_DESIGNS}
+     * @throws IllegalArgumentException if the strategy, key design or partition count is invalid
+     */
+    public SkewReport analyze(History history, int partitions, String strategy, String keyDesign) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Partition count must be positive");
+        }
+        TaskPartitioner replayed = partitioner(strategy);
+        Map<String, Long> keyTotals = new HashMap<>();
+        long[] loads = loads(history, replayed, partitions, keyDesign, keyTotals);
+
+        long total = history.totalMessages();
+        List<KeyShare> topKeys = keyTotals.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+            .limit(TOP_KEYS)
+            .map(entry -> new KeyShare(entry.getKey(), entry.getValue(), share(entry.getValue(), total),
+                replayed.partition(topic, entry.getKey(), null, partitions), replayed.isHotKey(entry.getKey())))
+            .toList();
+        return new SkewReport(topic, partitions, replayed.getStrategy(), keyDesign, total, history.windowSeconds(),
+            loads, rate(max(loads), history.windowSeconds()), skew(loads), coefficientOfVariation(loads), topKeys);
+    }
+
+    /**
+     * One report per combination of partition count, strategy and key design.
+     */
+    public List<SkewReport> whatIf(History history, List<Integer> partitionCounts, List<String> strategies,
+                                   List<String> keyDesigns) {
+        List<SkewReport> reports = new ArrayList<>();
+        for (String keyDesign : keyDesigns) {
+            for (String strategy : strategies) {
+                for (int count : partitionCounts) {
+                    reports.add(analyze(history, count, strategy, keyDesign));
+                }
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Minimal partition count, per key design and strategy, at which no partition receives more than
+     * {@code targetPerConsumer} messages per second (one consumer per partition). The recommendation
+     * is the smallest count found, ties going to the design that keeps the most ordering.
+     */
+    public Recommendation recommend(History history, double targetPerConsumer, int maxPartitions) {
+        if (targetPerConsumer <= 0) {
+            throw new IllegalArgumentException("Target per consumer must be positive");
+        }
+        double totalRate = rate(history.totalMessages(), history.windowSeconds());
+        int lowerBound = Math.max(1, (int) Math.ceil(totalRate / targetPerConsumer));
+        List<Candidate> candidates = new ArrayList<>();
+        for (String keyDesign : KEY_DESIGNS) {
+            for (String strategy : STRATEGIES) {
+                TaskPartitioner replayed = partitioner(strategy);
+                Candidate candidate = new Candidate(keyDesign, strategy, null, null, null);
+                for (int count = lowerBound; count <= maxPartitions; count++) {
+                    long[] loads = loads(history, replayed, count, keyDesign, null);
+                    double maxRate = rate(max(loads), history.windowSeconds());
+                    if (maxRate <= targetPerConsumer) {
+                        candidate = new Candidate(keyDesign, strategy, count, maxRate, skew(loads));
+                        break;
+                    }
+                }
+                candidates.add(candidate);
+            }
+        }
+        Candidate best = candidates.stream()
+            .filter(candidate -> candidate.partitions() != null)
+            .min(Comparator.comparingInt(Candidate::partitions))
+            .orElse(null);
+        return new Recommendation(targetPerConsumer, totalRate, maxPartitions, best, candidates);
+    }
+
+    /**
+     * Messages acknowledged per partition of the task topic since this producer started.
+     */
+    public LiveLoad live() {
+        long[] loads = new long[partitions];
+        for (Counter counter : meterRegistry.find("task.messages.sent").tag("topic", topic).counters()) {
+            int partition = Integer.parseInt(counter.getId().getTag("partition"));
+            if (partition >= loads.length) {
+                loads = Arrays.copyOf(loads, partition + 1);
+            }
+            loads[partition] = (long) counter.count();
+        }
+        return new LiveLoad(topic, loads, skew(loads), coefficientOfVariation(loads));
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * Partition count the task topic is routed over (the {@link PartitionLayout}), which only an
+     * expansion changes; the provisioned count (app.kafka.topics.task-topic.partitions) until the
+     * layout is pinned.
+     */
+    public int getPartitions() {
+        int routed = layout.getPartitions();
+        return routed > 0 ? routed : partitions;
+    }
+
+    private TaskPartitioner partitioner(String strategy) {
+        return strategy == null || strategy.equals(partitioner.getStrategy()) ? partitioner
+            : partitioner.withStrategy(strategy);
+    }
+
+    private long[] loads(History history, TaskPartitioner replayed, int count, String keyDesign,
+                         Map<String, Long> keyTotals) {
+        if (!KEY_DESIGNS.contains(keyDesign)) {
+            throw new IllegalArgumentException("Unknown key design " + keyDesign);
+        }
+        long[] loads = new long[count];
+        for (KeyLoad load : history.loads()) {
+            String key = routingKey(load, keyDesign);
+            if (keyTotals != null) {
+                keyTotals.merge(key, load.messages(), Long::sum);
+            }
+            if (load.taskId() != null || !replayed.isHotKey(key)) {
+                loads[replayed.partition(topic, key, load.taskId(), count)] += load.messages();
+            } else {
+                // The publisher spreads these rows by task or outbox id, assumed to be many
+                int samples = (int) Math.min(load.messages(), ID_SAMPLES);
+                for (int id = 0; id < samples; id++) {
+                    long messages = load.messages() / samples + (id < load.messages() % samples ? 1 : 0);
+                    loads[replayed.partition(topic, key, String.valueOf(id), count)] += messages;
+                }
+            }
+        }
+        return loads;
+    }
+
+    private static String routingKey(KeyLoad load, String keyDesign) {
+        return switch (keyDesign) {
+            case KEY_DESIGN_CLIENT -> load.clientId() != null ? load.clientId() : load.messageKey();
+            case KEY_DESIGN_TASK -> load.taskId() != null ? load.taskId() : load.messageKey();
+            case KEY_DESIGN_KEY_TASK -> load.taskId() != null ? load.messageKey() + ":" + load.taskId() : load.messageKey();
+            default -> load.messageKey();
+        };
+    }
+
+    private static long max(long[] loads) {
+        long max = 0;
+        for (long load : loads) {
+            max = Math.max(max, load);
+        }
+        return max;
+    }
+
+    /**
+     * Busiest partition over the mean: 1 is an even spread, the partition count means everything
+     * lands on one partition.
+     */
+    static double skew(long[] loads) {
+        long total = 0;
+        for (long load : loads) {
+            total += load;
+        }
+        return total == 0 ? 0 : max(loads) * (double) loads.length / total;
+    }
+
+    static double coefficientOfVariation(long[] loads) {
+        double mean = 0;
+        for (long load : loads) {
+            mean += load;
+        }
+        mean /= loads.length;
+        if (mean == 0) {
+            return 0;
+        }
+        double variance = 0;
+        for (long load : loads) {
+            variance += (load - mean) * (load - mean);
+        }
+        return Math.sqrt(variance / loads.length) / mean;
+    }
+
+    private static double rate(long messages, long windowSeconds) {
+        return windowSeconds > 0 ? (double) messages / windowSeconds : 0;
+    }
+
+    private static double share(long messages, long total) {
+        return total > 0 ? (double) messages / total : 0;
+    }
+
+    public record KeyLoad(String messageKey, String clientId, String taskId, long messages) {
+    }
+
+    public record History(List<KeyLoad> loads, long windowSeconds) {
+
+        public long totalMessages() {
+            return loads.stream().mapToLong(KeyLoad::messages).sum();
+        }
+    }
+
+    public record KeyShare(String key, long messages, double share, int partition, boolean hot) {
+    }
+
+    public record SkewReport(String topic, int partitions, String strategy, String keyDesign,
+                             long totalMessages, long windowSeconds, long[] partitionLoads,
+                             double maxRatePerSecond, double skew, double coefficientOfVariation,
+                             List<KeyShare> topKeys) {
+    }
+
+    public record LiveLoad(String topic, long[] partitionLoads, double skew, double coefficientOfVariation) {
+    }
+
+    /**
+     * Minimal partition count of a key design and strategy, null if none up to the maximum suffices
+     * (a single key above the target under the {@code key} design, unless it is a hot key).
+     */
+    public record Candidate(String keyDesign, String strategy, Integer partitions, Double maxRatePerSecond,
+                            Double skew) {
+    }
+
+    public record Recommendation(double targetPerConsumer, double totalRatePerSecond, int maxPartitions,
+                                 Candidate best, List<Candidate> candidates) {
+    }
+}
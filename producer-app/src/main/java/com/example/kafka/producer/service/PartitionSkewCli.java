@@ -0,0 +1,134 @@
+package com.example.kafka.producer.service;
+
+import com.example.kafka.producer.service.PartitionSkewAnalyzer.Candidate;
+import com.example.kafka.producer.service.PartitionSkewAnalyzer.History;
+import com.example.kafka.producer.service.PartitionSkewAnalyzer.KeyShare;
+import com.example.kafka.producer.service.PartitionSkewAnalyzer.Recommendation;
+import com.example.kafka.producer.service.PartitionSkewAnalyzer.SkewReport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Service;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command-line run of the {@link PartitionSkewAnalyzer} (app.skew-analysis.cli=true): prints the
+ * what-if reports of app.skew-analysis.partitions / strategies / key-designs and, with
+ * target-per-consumer set, the recommendation, then exits. Scheduling is off in this mode, so the
+ * outbox is only read.
+ */
+@Service
+@ConditionalOnProperty(name = "app.skew-analysis.cli", havingValue = "true")
+public class PartitionSkewCli implements ApplicationRunner {
+
+    private final PartitionSkewAnalyzer analyzer;
+    private final ConfigurableApplicationContext context;
+    private final PrintStream out = System.out;
+
+    @Value("${app.skew-analysis.hours:24}")
+    private long hours;
+
+    /** Comma-separated partition counts; the provisioned count when empty. */
+    @Value("${app.skew-analysis.partitions:}")
+    private String partitions;
+
+    @Value("${app.skew-analysis.strategies:}")
+    private String strategies;
+
+    @Value("${app.skew-analysis.key-designs:key}")
+    private String keyDesigns;
+
+    /** Messages per second one consumer sustains; no recommendation when 0. */
+    @Value("${app.skew-analysis.target-per-consumer:0}")
+    private double targetPerConsumer;
+
+    @Value("${app.skew-analysis.max-partitions:64}")
+    private int maxPartitions;
+
+    public PartitionSkewCli(PartitionSkewAnalyzer analyzer, ConfigurableApplicationContext context) {
+        this.analyzer = analyzer;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int exitCode = 0;
+        try {
+            History history = analyzer.history(Duration.ofHours(hours));
+            out.printf("Outbox history of %s, last %dh: %d messages (%.2f/s)%n", analyzer.getTopic(), hours,
+                history.totalMessages(), history.windowSeconds() > 0
+                    ? (double) history.totalMessages() / history.windowSeconds() : 0);
+
+            List<Integer> counts = new ArrayList<>();
+            for (String count : split(partitions)) {
+                counts.add(Integer.parseInt(count));
+            }
+            if (counts.isEmpty()) {
+                counts.add(analyzer.getPartitions());
+            }
+            List<String> strategyList = split(strategies);
+            for (SkewReport report : analyzer.whatIf(history, counts,
+                    strategyList.isEmpty() ? PartitionSkewAnalyzer.STRATEGIES : strategyList, split(keyDesigns))) {
+                print(report);
+            }
+            if (targetPerConsumer > 0) {
+                print(analyzer.recommend(history, targetPerConsumer, maxPartitions));
+            }
+        } catch (RuntimeException e) {
+            out.println("Skew analysis failed: " + e.getMessage());
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+    private void print(SkewReport report) {
+        out.printf("%npartitions=%d strategy=%s key-design=%s: skew %.2f, cv %.2f, busiest partition %.2f/s%n",
+            report.partitions(), report.strategy(), report.keyDesign(), report.skew(),
+            report.coefficientOfVariation(), report.maxRatePerSecond());
+        long[] loads = report.partitionLoads();
+        for (int partition = 0; partition < loads.length; partition++) {
+            out.printf("  partition %3d: %10d  %5.1f%%%n", partition, loads[partition],
+                report.totalMessages() > 0 ? 100.0 * loads[partition] / report.totalMessages() : 0);
+        }
+        out.println("  top keys:");
+        for (KeyShare key : report.topKeys()) {
+            out.printf("    %-32s %10d  %5.1f%%  partition %d%s%n", key.key(), key.messages(), 100 * key.share(),
+                key.partition(), key.hot() ? " (hot, spread)" : "");
+        }
+    }
+
+    private void print(Recommendation recommendation) {
+        out.printf("%nTarget %.2f/s per consumer, %.2f/s in total, up to %d partitions:%n",
+            recommendation.targetPerConsumer(), recommendation.totalRatePerSecond(), recommendation.maxPartitions());
+        for (Candidate candidate : recommendation.candidates()) {
+            out.printf("  key-design=%-8s strategy=%-15s %s%n", candidate.keyDesign(), candidate.strategy(),
+                candidate.partitions() != null
+                    ? String.format("%d partitions (busiest %.2f/s, skew %.2f)", candidate.partitions(),
+                        candidate.maxRatePerSecond(), candidate.skew())
+                    : "not reachable");
+        }
+        Candidate best = recommendation.best();
+        out.println(best != null
+            ? String.format("Recommended: %d partitions, key design %s, strategy %s", best.partitions(),
+                best.keyDesign(), best.strategy())
+            : "No key design reaches the target; declare the busiest keys as hot keys or raise max-partitions");
+    }
+
+    private static List<String> split(String value) {
+        List<String> items = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.isBlank()) {
+                items.add(item.trim());
+            }
+        }
+        return items;
+    }
+}
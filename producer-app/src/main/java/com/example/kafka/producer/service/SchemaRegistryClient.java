@@ -0,0 +1,28 @@
+package com.example.kafka.producer.service;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+
+/**
+ * Registry of the Avro writer schemas referenced by the schema-id header of binary records
+ * (app.schema-registry.type). A schema's id is its 64-bit parsing-form fingerprint, so every
+ * process computes the same id for the same schema and registering is idempotent.
+ */
+public interface SchemaRegistryClient {
+
+    /**
+     * Registers the schema, if not registered yet, and returns its id.
+     */
+    long register(Schema schema);
+
+    /**
+     * Schema with the given id.
+     *
+     * @throws IllegalArgumentException if no schema is registered under the id
+     */
+    Schema getSchema(long id);
+
+    static long idOf(Schema schema) {
+        return SchemaNormalization.parsingFingerprint64(schema);
+    }
+}
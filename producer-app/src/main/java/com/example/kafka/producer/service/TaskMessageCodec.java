@@ -0,0 +1,183 @@
+package com.example.kafka.producer.service;
+
+import com.example.kafka.producer.dto.AttributeChangeMessage;
+import com.example.kafka.producer.dto.AttributeMessage;
+import com.example.kafka.producer.dto.SnapshotMessage;
+import com.example.kafka.producer.dto.TaskMessage;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Avro binary format of task-topic and task-snapshots records (app.serialization.format=avro).
+ * Messages are written with the schemas of avro/task-messages.avsc, registered on startup; the id of
+ * the writer schema goes into the {@value #SCHEMA_ID_HEADER} header (8 bytes, big-endian), which is
+ * how consumers tell binary records from JSON ones. The dto message records mirror the schemas.
+ */
+@Component
+public class TaskMessageCodec {
+
+    public static final String SCHEMA_ID_HEADER = "schema-id";
+
+    private static final String SCHEMA_FILE = "avro/task-messages.avsc";
+    private static final String NAMESPACE = "com.example.kafka.avro.";
+
+    private final Schema attributeTypeSchema;
+    private final Schema attributeSchema;
+    private final Schema decimalSchema;
+    private final Map<Class<?>, Schema> schemasByType;
+    private final Map<Class<?>, Long> schemaIds = new ConcurrentHashMap<>();
+    private final Map<Class<?>, GenericDatumWriter<GenericRecord>> writers = new ConcurrentHashMap<>();
+
+    public TaskMessageCodec(SchemaRegistryClient registry) {
+        Schema.Parser parser = new Schema.Parser();
+        try (InputStream in = new ClassPathResource(SCHEMA_FILE).getInputStream()) {
+            parser.parse(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load " + SCHEMA_FILE, e);
+        }
+        Map<String, Schema> localSchemas = parser.getTypes();
+        this.attributeTypeSchema = localSchemas.get(NAMESPACE + "AttributeType");
+        this.attributeSchema = localSchemas.get(NAMESPACE + "Attribute");
+        this.decimalSchema = localSchemas.get(NAMESPACE + "Decimal");
+        this.schemasByType = Map.of(
+            TaskMessage.class, localSchemas.get(NAMESPACE + "Task"),
+            AttributeChangeMessage.class, localSchemas.get(NAMESPACE + "AttributeChange"),
+            SnapshotMessage.class, localSchemas.get(NAMESPACE + "TaskSnapshot"));
+        schemasByType.forEach((type, schema) -> {
+            schemaIds.put(type, registry.register(schema));
+            writers.put(type, new GenericDatumWriter<>(schema));
+        });
+    }
+
+    /**
+     * Id of the schema {@code message} is written with.
+     */
+    public long schemaIdOf(Object message) {
+        Long id = schemaIds.get(message.getClass());
+        if (id == null) {
+            throw new IllegalArgumentException("No schema for " + message.getClass().getSimpleName());
+        }
+        return id;
+    }
+
+    public byte[] encode(Object message) {
+        GenericDatumWriter<GenericRecord> writer = writers.get(message.getClass());
+        if (writer == null) {
+            throw new IllegalArgumentException("No schema for " + message.getClass().getSimpleName());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        try {
+            writer.write(toRecord(message), encoder);
+            encoder.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not encode " + message.getClass().getSimpleName(), e);
+        }
+        return out.toByteArray();
+    }
+
+    public static byte[] schemaIdHeader(long schemaId) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(schemaId).array();
+    }
+
+    private GenericRecord toRecord(Object message) {
+        GenericData.Record record = new GenericData.Record(schemasByType.get(message.getClass()));
+        if (message instanceof TaskMessage task) {
+            record.put("taskId", task.taskId());
+            record.put("attributes", toRecords(task.attributes()));
+            record.put("extra", task.extra());
+        } else if (message instanceof AttributeChangeMessage change) {
+            record.put("taskId", change.taskId());
+            record.put("attributeName", change.attributeName());
+            record.put("type", typeSymbol(change.type()));
+            record.put("values", toValues(change.values()));
+            record.put("operation", change.operation());
+            record.put("extra", change.extra());
+        } else if (message instanceof SnapshotMessage snapshot) {
+            record.put("taskId", snapshot.taskId());
+            record.put("attributes", toRecords(snapshot.attributes()));
+            record.put("timestamp", snapshot.timestamp().toEpochMilli());
+            record.put("sourceVersion", snapshot.sourceVersion());
+        }
+        return record;
+    }
+
+    private List<GenericRecord> toRecords(List<AttributeMessage> attributes) {
+        List<GenericRecord> records = new ArrayList<>(attributes != null ? attributes.size() : 0);
+        if (attributes != null) {
+            for (AttributeMessage attribute : attributes) {
+                GenericData.Record record = new GenericData.Record(attributeSchema);
+                record.put("name", attribute.name());
+                record.put("type", typeSymbol(attribute.type()));
+                record.put("values", toValues(attribute.values()));
+                record.put("extra", attribute.extra());
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Unknown or missing types are STRING, as in the JSON parsers.
+     */
+    private GenericData.EnumSymbol typeSymbol(String type) {
+        String symbol = type != null && attributeTypeSchema.hasEnumSymbol(type.toUpperCase())
+            ? type.toUpperCase() : "STRING";
+        return new GenericData.EnumSymbol(attributeTypeSchema, symbol);
+    }
+
+    /**
+     * Maps values onto the branches of the values union: integral numbers to long (Decimal beyond
+     * its range), BigDecimal to Decimal - exact, whatever its precision - other numbers to double,
+     * anything else but booleans to its string form.
+     */
+    private List<Object> toValues(List<Object> values) {
+        List<Object> converted = new ArrayList<>(values != null ? values.size() : 0);
+        if (values != null) {
+            for (Object value : values) {
+                if (value == null || value instanceof String || value instanceof Boolean ||
+                        value instanceof Long || value instanceof Double) {
+                    converted.add(value);
+                } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                    converted.add(((Number) value).longValue());
+                } else if (value instanceof BigInteger number && number.bitLength() < Long.SIZE) {
+                    converted.add(number.longValue());
+                } else if (value instanceof BigInteger number) {
+                    converted.add(toDecimal(new BigDecimal(number)));
+                } else if (value instanceof BigDecimal number) {
+                    converted.add(toDecimal(number));
+                } else if (value instanceof Number number) {
+                    converted.add(number.doubleValue());
+                } else {
+                    converted.add(value.toString());
+                }
+            }
+        }
+        return converted;
+    }
+
+    private GenericRecord toDecimal(BigDecimal number) {
+        GenericData.Record decimal = new GenericData.Record(decimalSchema);
+        decimal.put("unscaled", ByteBuffer.wrap(number.unscaledValue().toByteArray()));
+        decimal.put("scale", number.scale());
+        return decimal;
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.kafka.producer.service;
+
+import com.example.kafka.producer.config.TaskPartitioner;
+import com.example.kafka.producer.dto.AttributeChangeMessage;
+import com.example.kafka.producer.dto.AttributeMessage;
+import com.example.kafka.producer.dto.SnapshotMessage;
+import com.example.kafka.producer.dto.TaskMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publishes outbox payloads and task snapshots in the configured wire format (app.serialization.format):
+ * json (default) or avro - the schema-based binary format of {@link TaskMessageCodec}, with the
+ * schema-id header. Consumers read both, so producers can be switched one at a time.
+ * In avro mode outbox payloads that are neither a task nor an attribute change are still published
+ * as they are (JSON).
+ * Records of a hot key go to the partition the {@link TaskPartitioner} picks for their sub-key; every
+ * acknowledged record is counted per partition (task.messages.sent), the basis of per-partition send rates.
+ * Outbox payloads carry the outbox id in the {@value #SOURCE_VERSION_HEADER} header (8 bytes, big-endian),
+ * like the sourceVersion of snapshots, so consumers can ignore a redelivered record older than what they stored.
+ */
+@Service
+public class TaskMessagePublisher {
+
+    public static final String FORMAT_AVRO = "avro";
+    public static final String SOURCE_VERSION_HEADER = "source-version";
+
+    private static final Set<String> TASK_FIELDS = Set.of("taskId", "attributes");
+    private static final Set<String> CHANGE_FIELDS = Set.of("taskId", "attributeName", "type", "values", "value", "operation");
+    private static final Set<String> ATTRIBUTE_FIELDS = Set.of("name", "attributeName", "type", "values", "value");
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskMessagePublisher.class);
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final KafkaTemplate<String, byte[]> binaryKafkaTemplate;
+    private final TaskMessageCodec codec;
+    private final TaskPartitioner partitioner;
+    private final MeterRegistry meterRegistry;
+    private final boolean avro;
+    // Decimals stay BigDecimal, so NUMERIC values keep their precision in both formats
+    private final ObjectMapper mapper = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    private final Map<TopicPartition, Counter> sentCounters = new ConcurrentHashMap<>();
+
+    public TaskMessagePublisher(KafkaTemplate<String, String> kafkaTemplate,
+                                KafkaTemplate<String, byte[]> binaryKafkaTemplate,
+                                TaskMessageCodec codec,
+                                TaskPartitioner partitioner,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.serialization.format:json}") String format) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.binaryKafkaTemplate = binaryKafkaTemplate;
+        this.codec = codec;
+        this.partitioner = partitioner;
+        this.meterRegistry = meterRegistry;
+        this.avro = FORMAT_AVRO.equalsIgnoreCase(format);
+        logger.info("Publishing task messages as {}", avro ? "Avro" : "JSON");
+    }
+
+    /**
+     * Publishes an outbox payload to its topic.
+     *
+     * @param subKey        spreads the records of a hot key over its partitions (the taskId); records with
+     *                      the same sub-key stay in order
+     * @param sourceVersion the outbox id of the payload
+     */
+    public CompletableFuture<RecordMetadata> publish(String topic, String key, String subKey, String payload,
+                                                     long sourceVersion) {
+        Integer partition = hotKeyPartition(topic, key, subKey);
+        Object message = avro ? toMessage(payload) : null;
+        if (message != null) {
+            return sendBinary(topic, partition, key, message, sourceVersion);
+        }
+        ProducerRecord<String, String> record = new ProducerRecord<>(topic, partition, key, payload);
+        record.headers().add(SOURCE_VERSION_HEADER, sourceVersionHeader(sourceVersion));
+        return counted(kafkaTemplate.send(record).thenApply(SendResult::getRecordMetadata));
+    }
+
+    /**
+     * Sub-key of an outbox payload under a hot key: the payload's taskId, so the records of a task
+     * stay on one partition and in order; the outbox id for payloads without a task, which keep no
+     * order beyond their key. Null for any other key, which is routed by the key alone.
+     */
+    public String subKeyOf(String key, String payload, long outboxId) {
+        if (key == null || !partitioner.isHotKey(key)) {
+            return null;
+        }
+        try {
+            JsonNode taskId = mapper.readTree(payload).get("taskId");
+            if (taskId != null && taskId.isTextual()) {
+                return taskId.asText();
+            }
+        } catch (Exception e) {
+            // Not JSON: no task to keep together
+        }
+        return String.valueOf(outboxId);
+    }
+
+    /**
+     * Publishes the snapshot of a task, keyed by taskId to keep the snapshots of a task in order.
+     *
+     * @param attributes the merged attribute payloads of the task
+     */
+    public CompletableFuture<RecordMetadata> publishSnapshot(String topic, String taskId,
+                                                             List<Map<String, Object>> attributes,
+                                                             long sourceVersion) throws JsonProcessingException {
+        if (avro) {
+            return sendBinary(topic, null, taskId,
+                new SnapshotMessage(taskId, toAttributes(attributes), Instant.now(), sourceVersion), null);
+        }
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("taskId", taskId);
+        snapshot.put("attributes", attributes);
+        snapshot.put("timestamp", OffsetDateTime.now().toString());
+        snapshot.put("sourceVersion", sourceVersion);
+        return counted(kafkaTemplate.send(topic, taskId, mapper.writeValueAsString(snapshot))
+            .thenApply(SendResult::getRecordMetadata));
+    }
+
+    /**
+     * Tombstone: a null value removes the task from the compacted topic and the read-models.
+     */
+    public CompletableFuture<RecordMetadata> publishTombstone(String topic, String taskId) {
+        return counted(kafkaTemplate.send(topic, taskId, null).thenApply(SendResult::getRecordMetadata));
+    }
+
+    private CompletableFuture<RecordMetadata> sendBinary(String topic, Integer partition, String key, Object message,
+                                                         Long sourceVersion) {
+        ProducerRecord<String, byte[]> record = new ProducerRecord<>(topic, partition, key, codec.encode(message));
+        record.headers().add(TaskMessageCodec.SCHEMA_ID_HEADER, TaskMessageCodec.schemaIdHeader(codec.schemaIdOf(message)));
+        if (sourceVersion != null) {
+            record.headers().add(SOURCE_VERSION_HEADER, sourceVersionHeader(sourceVersion));
+        }
+        return counted(binaryKafkaTemplate.send(record).thenApply(SendResult::getRecordMetadata));
+    }
+
+    private static byte[] sourceVersionHeader(long sourceVersion) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(sourceVersion).array();
+    }
+
+    /**
+     * Explicit partition of a hot key's record, null (left to the producer's partitioner) for any other.
+     */
+    private Integer hotKeyPartition(String topic, String key, String subKey) {
+        if (key == null || subKey == null || !partitioner.isHotKey(key)) {
+            return null;
+        }
+        return partitioner.partition(topic, key, subKey, partitioner.partitionCount(kafkaTemplate.partitionsFor(topic).size()));
+    }
+
+    private CompletableFuture<RecordMetadata> counted(CompletableFuture<RecordMetadata> send) {
+        return send.whenComplete((metadata, ex) -> {
+            if (metadata != null) {
+                sentCounters.computeIfAbsent(new TopicPartition(metadata.topic(), metadata.partition()),
+                    partition -> Counter.builder("task.messages.sent")
+                        .description("Records acknowledged by the broker, per topic partition")
+                        .tag("topic", partition.topic())
+                        .tag("partition", String.valueOf(partition.partition()))
+                        .register(meterRegistry))
+                    .increment();
+            }
+        });
+    }
+
+    /**
+     * The message of an outbox payload: an attribute change ({@code attributeName}) or a task
+     * ({@code attributes}); null for anything else. Fields the schema has no field for go along as extra.
+     */
+    private Object toMessage(String payload) {
+        Map<String, Object> map;
+        try {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> parsed = mapper.readValue(payload, Map.class);
+            map = parsed;
+        } catch (Exception e) {
+            return null;
+        }
+        if (!(map.get("taskId") instanceof String taskId)) {
+            return null;
+        }
+        if (map.get("attributeName") instanceof String attributeName) {
+            return new AttributeChangeMessage(taskId, attributeName, stringOf(map.get("type")), valuesOf(map),
+                stringOf(map.get("operation")), extraOf(map, CHANGE_FIELDS));
+        }
+        if (map.get("attributes") instanceof List<?> attributes) {
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> attributeMaps = (List<Map<String, Object>>) attributes;
+            return new TaskMessage(taskId, toAttributes(attributeMaps), extraOf(map, TASK_FIELDS));
+        }
+        return null;
+    }
+
+    /**
+     * Attribute payloads ({@code name} or {@code attributeName}, {@code type}, {@code values} or a
+     * single {@code value}) as schema attributes; their other fields go along as extra.
+     */
+    private List<AttributeMessage> toAttributes(List<Map<String, Object>> attributes) {
+        List<AttributeMessage> messages = new ArrayList<>(attributes.size());
+        for (Map<String, Object> attribute : attributes) {
+            Object name = attribute.containsKey("name") ? attribute.get("name") : attribute.get("attributeName");
+            if (name != null) {
+                messages.add(new AttributeMessage(name.toString(), stringOf(attribute.get("type")), valuesOf(attribute),
+                    extraOf(attribute, ATTRIBUTE_FIELDS)));
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * The fields of a payload other than {@code known}, each as JSON text.
+     */
+    private Map<String, String> extraOf(Map<String, Object> payload, Set<String> known) {
+        Map<String, String> extra = new LinkedHashMap<>();
+        payload.forEach((name, value) -> {
+            if (!known.contains(name)) {
+                try {
+                    extra.put(name, mapper.writeValueAsString(value));
+                } catch (JsonProcessingException e) {
+                    throw new IllegalArgumentException("Cannot render field " + name, e);
+                }
+            }
+        });
+        return extra;
+    }
+
+    private static List<Object> valuesOf(Map<String, Object> attribute) {
+        if (attribute.get("values") instanceof List<?> values) {
+            return new ArrayList<>(values);
+        }
+        List<Object> values = new ArrayList<>(1);
+        if (attribute.get("value") != null) {
+            values.add(attribute.get("value"));
+        }
+        return values;
+    }
+
+    private static String stringOf(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
@@ -1,12 +1,21 @@
 package com.example.kafka.producer;
 
 import com.example.kafka.producer.entity.OutboxMessage;
+import com.example.kafka.producer.entity.PartitionExpansion;
 import com.example.kafka.producer.repository.OutboxMessageRepository;
+import com.example.kafka.producer.repository.PartitionExpansionRepository;
 import com.example.kafka.producer.service.OutboxPollingService;
+import com.example.kafka.producer.service.PartitionExpansionService;
+import com.example.kafka.producer.service.PartitionSkewAnalyzer;
+import com.example.kafka.producer.service.PartitionSkewAnalyzer.History;
+import com.example.kafka.producer.service.PartitionSkewAnalyzer.SkewReport;
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.utils.Utils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,7 +31,10 @@ import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -58,6 +70,15 @@ public class OutboxPatternIntegrationTest {
     @Autowired
     private EmbeddedKafkaBroker embeddedKafkaBroker;
     
+    @Autowired
+    private PartitionSkewAnalyzer skewAnalyzer;
+    
+    @Autowired
+    private PartitionExpansionService expansionService;
+    
+    @Autowired
+    private PartitionExpansionRepository expansionRepository;
+    
     @BeforeEach
     void setUp() {
         outboxRepository.deleteAll();
@@ -190,4 +211,90 @@ public class OutboxPatternIntegrationTest {
         assertThat(unpublished).isEqualTo(2);
         assertThat(published).isEqualTo(3);
     }
+    
+    @Test
+    void testSkewAnalysisReplaysPartitionerOverOutboxHistory() {
+        // Given - one key with three quarters of the traffic, spread over 30 tasks
+        for (int i = 0; i < 40; i++) {
+            String clientId = i < 30 ? "client-0" : "client-1";
+            OutboxMessage message = new OutboxMessage("Message " + i, clientId, "task-topic", clientId);
+            message.setTaskId("task-" + i);
+            outboxRepository.save(message);
+        }
+        History history = skewAnalyzer.history(Duration.ofHours(1));
+        
+        // When
+        SkewReport byKey = skewAnalyzer.analyze(history, 3, null, PartitionSkewAnalyzer.KEY_DESIGN_KEY);
+        SkewReport byTask = skewAnalyzer.analyze(history, 3, null, PartitionSkewAnalyzer.KEY_DESIGN_TASK);
+        
+        // Then - the default strategy places keys like Kafka's built-in partitioner
+        int partition = Utils.toPositive(Utils.murmur2("client-0".getBytes(StandardCharsets.UTF_8))) % 3;
+        assertThat(byKey.totalMessages()).isEqualTo(40);
+        assertThat(byKey.partitionLoads()[partition]).isGreaterThanOrEqualTo(30);
+        assertThat(byKey.topKeys().get(0).key()).isEqualTo("client-0");
+        assertThat(byKey.topKeys().get(0).partition()).isEqualTo(partition);
+        assertThat(byKey.skew()).isGreaterThanOrEqualTo(2.25);
+        assertThat(Arrays.stream(byTask.partitionLoads()).sum()).isEqualTo(40);
+        assertThat(byTask.skew()).isLessThan(byKey.skew());
+        
+        // A target above the whole traffic needs a single partition
+        assertThat(skewAnalyzer.recommend(history, 1, 8).best().partitions()).isEqualTo(1);
+    }
+    
+    @Test
+    void testPartitionExpansionHoldsMovedKeysUntilOldPartitionsDrain() throws Exception {
+        // Given - a key that keeps its partition and one that moves when task-topic grows from 3 to 6
+        String kept = null;
+        String moved = null;
+        for (int i = 0; kept == null || moved == null; i++) {
+            String key = "client-" + i;
+            int hash = Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8)));
+            if (hash % 3 == hash % 6) {
+                kept = kept != null ? kept : key;
+            } else {
+                moved = moved != null ? moved : key;
+            }
+        }
+        // A record of the moved key on its old partition, not yet consumed
+        outboxRepository.save(new OutboxMessage("Before expansion", moved, "task-topic", moved));
+        outboxPollingService.pollAndPublish();
+        assertThat(outboxRepository.countByPublished(false)).isZero();
+        
+        // When - the topic grows and the relay switches on its next cycle
+        expansionService.expand(6);
+        OutboxMessage keptMessage = outboxRepository.save(new OutboxMessage("Kept", kept, "task-topic", kept));
+        OutboxMessage movedMessage = outboxRepository.save(new OutboxMessage("Moved", moved, "task-topic", moved));
+        outboxPollingService.pollAndPublish();
+        
+        // Then - only the moved key waits for its old partition to drain
+        assertThat(outboxRepository.findById(keptMessage.getId()).orElseThrow().getPublished()).isTrue();
+        assertThat(outboxRepository.findById(movedMessage.getId()).orElseThrow().getPublished()).isFalse();
+        Map<String, Object> status = expansionService.status();
+        assertThat(status.get("state")).isEqualTo("draining");
+        
+        // When - the consumer group commits up to the fences
+        @SuppressWarnings("unchecked")
+        Map<Integer, Long> fences = (Map<Integer, Long>) status.get("fences");
+        assertThat(fences).hasSize(3);
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        fences.forEach((partition, offset) ->
+            offsets.put(new TopicPartition("task-topic", partition), new OffsetAndMetadata(offset)));
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps(
+            embeddedKafkaBroker.getBrokersAsString(), "task-consumer-group", "false");
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(
+                consumerProps, new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            consumer.commitSync(offsets);
+        }
+        expansionService.checkDrained();
+        outboxPollingService.pollAndPublish();
+        
+        // Then - the expansion is complete and the moved key is released
+        assertThat(expansionService.status().get("state")).isEqualTo("idle");
+        assertThat(expansionService.status().get("partitions")).isEqualTo(6);
+        assertThat(outboxRepository.findById(movedMessage.getId()).orElseThrow().getPublished()).isTrue();
+        // and stored, so a restarted producer keeps routing over 6 partitions
+        PartitionExpansion stored = expansionRepository.findFirstByTopicOrderByIdDesc("task-topic").orElseThrow();
+        assertThat(stored.getState()).isEqualTo(PartitionExpansion.State.COMPLETE);
+        assertThat(stored.getToPartitions()).isEqualTo(6);
+    }
 }
@@ -0,0 +1,135 @@
+package com.example.kafka.producer.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TaskPartitionerTest {
+
+    private static final String TOPIC = "task-topic";
+    private static final int KEYS = 10_000;
+
+    @Test
+    void testConsistentHashOnlyMovesKeysToTheAddedPartitions() {
+        TaskPartitioner partitioner = partitioner(TaskPartitioner.STRATEGY_CONSISTENT_HASH, "", "");
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "client-" + i;
+            int before = partitioner.partition(TOPIC, key, null, 6);
+            int after = partitioner.partition(TOPIC, key, null, 8);
+            if (before != after) {
+                moved++;
+                assertThat(after).isIn(6, 7);
+            }
+        }
+
+        // About 2/8 of the keys; murmur2 modulo would move about 3/4
+        assertThat(moved).isBetween(KEYS / 8, KEYS * 3 / 8);
+    }
+
+    @Test
+    void testOverrideWinsOverStrategyAndHotKey() {
+        TaskPartitioner partitioner = partitioner(TaskPartitioner.STRATEGY_CONSISTENT_HASH, "client-0=5", "client-0=3");
+
+        for (int task = 0; task < 100; task++) {
+            assertThat(partitioner.partition(TOPIC, "client-0", "TASK-" + task, 6)).isEqualTo(5);
+        }
+    }
+
+    @Test
+    void testOverrideBeyondThePartitionCountIsIgnored() {
+        TaskPartitioner overridden = partitioner(TaskPartitioner.STRATEGY_DEFAULT, "client-0=9", "");
+        TaskPartitioner plain = partitioner(TaskPartitioner.STRATEGY_DEFAULT, "", "");
+
+        assertThat(overridden.partition(TOPIC, "client-0", null, 6)).isEqualTo(plain.partition(TOPIC, "client-0", null, 6));
+        assertThat(overridden.partition(TOPIC, "client-0", null, 10)).isEqualTo(9);
+    }
+
+    @Test
+    void testHotKeySpreadsOverConsecutivePartitionsFromItsOwn() {
+        TaskPartitioner partitioner = partitioner(TaskPartitioner.STRATEGY_DEFAULT, "", "client-0=3");
+        int home = partitioner(TaskPartitioner.STRATEGY_DEFAULT, "", "").partition(TOPIC, "client-0", null, 12);
+
+        Set<Integer> partitions = new HashSet<>();
+        for (int task = 0; task < 1_000; task++) {
+            partitions.add(partitioner.partition(TOPIC, "client-0", "TASK-" + task, 12));
+        }
+
+        assertThat(partitions).containsExactlyInAnyOrder(home, (home + 1) % 12, (home + 2) % 12);
+        // Without a sub-key (Kafka's partitioner API) the key stays on its own partition
+        assertThat(partitioner.partition(TOPIC, "client-0", null, 12)).isEqualTo(home);
+        assertThat(partitioner.isHotKey("client-0")).isTrue();
+        assertThat(partitioner.isHotKey("client-1")).isFalse();
+    }
+
+    @Test
+    void testHotKeyWidthIsCappedByThePartitionCount() {
+        TaskPartitioner partitioner = partitioner(TaskPartitioner.STRATEGY_DEFAULT, "", "client-0=10");
+
+        Set<Integer> partitions = new HashSet<>();
+        for (int task = 0; task < 1_000; task++) {
+            partitions.add(partitioner.partition(TOPIC, "client-0", "TASK-" + task, 4));
+        }
+
+        assertThat(partitions).containsExactlyInAnyOrder(0, 1, 2, 3);
+    }
+
+    @Test
+    void testSameSubKeyAlwaysGoesToTheSamePartition() {
+        TaskPartitioner partitioner = partitioner(TaskPartitioner.STRATEGY_CONSISTENT_HASH, "", "client-0=4");
+        TaskPartitioner other = partitioner(TaskPartitioner.STRATEGY_CONSISTENT_HASH, "", "client-0=4");
+
+        for (int task = 0; task < 100; task++) {
+            int partition = partitioner.partition(TOPIC, "client-0", "TASK-" + task, 12);
+            assertThat(partitioner.partition(TOPIC, "client-0", "TASK-" + task, 12)).isEqualTo(partition);
+            // Every producer instance agrees
+            assertThat(other.partition(TOPIC, "client-0", "TASK-" + task, 12)).isEqualTo(partition);
+        }
+    }
+
+    @Test
+    void testParseKeyMapTrimsAndSkipsBlankEntries() {
+        assertThat(TaskPartitioner.parseKeyMap(" client-a = 5 ,, client-b=6, ")).containsOnly(
+            Map.entry("client-a", 5), Map.entry("client-b", 6));
+        assertThat(TaskPartitioner.parseKeyMap("tenant=eu=3")).containsOnly(Map.entry("tenant=eu", 3));
+        assertThat(TaskPartitioner.parseKeyMap("")).isEmpty();
+        assertThat(TaskPartitioner.parseKeyMap(null)).isEmpty();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"client-a", "=5", " =5", "client-a=", "client-a=five", "client-a=5,client-b=1.5"})
+    void testParseKeyMapRejectsMalformedEntries(String value) {
+        assertThatThrownBy(() -> TaskPartitioner.parseKeyMap(value))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("expected key=number");
+    }
+
+    @Test
+    void testNegativeOverrideAndEmptyHotKeyAreRejected() {
+        assertThatThrownBy(() -> partitioner(TaskPartitioner.STRATEGY_DEFAULT, "client-0=-1", ""))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> partitioner(TaskPartitioner.STRATEGY_DEFAULT, "", "client-0=0"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static TaskPartitioner partitioner(String strategy, String overrides, String hotKeys) {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(TaskPartitioner.TOPIC_CONFIG, TOPIC);
+        configs.put(TaskPartitioner.STRATEGY_CONFIG, strategy);
+        configs.put(TaskPartitioner.VIRTUAL_NODES_CONFIG, 64);
+        configs.put(TaskPartitioner.OVERRIDES_CONFIG, overrides);
+        configs.put(TaskPartitioner.HOT_KEYS_CONFIG, hotKeys);
+        TaskPartitioner partitioner = new TaskPartitioner();
+        partitioner.configure(configs);
+        return partitioner;
+    }
+}
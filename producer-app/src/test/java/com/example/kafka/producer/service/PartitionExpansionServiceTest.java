@@ -0,0 +1,221 @@
+package com.example.kafka.producer.service;
+
+import com.example.kafka.producer.config.PartitionLayout;
+import com.example.kafka.producer.config.TaskPartitioner;
+import com.example.kafka.producer.entity.PartitionExpansion;
+import com.example.kafka.producer.entity.PartitionExpansionFence;
+import com.example.kafka.producer.repository.PartitionExpansionFenceRepository;
+import com.example.kafka.producer.repository.PartitionExpansionRepository;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Utils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Resuming an expansion from its stored state, and the keys the relay holds back meanwhile.
+ */
+class PartitionExpansionServiceTest {
+
+    private static final String TOPIC = "task-topic";
+
+    private final PartitionLayout layout = new PartitionLayout();
+    private final PartitionExpansionRepository expansionRepository = mock(PartitionExpansionRepository.class);
+    private final PartitionExpansionFenceRepository fenceRepository = mock(PartitionExpansionFenceRepository.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, String> kafkaTemplate = mock(KafkaTemplate.class);
+    /** Stored fences, the rows fenceRepository.save writes. */
+    private final List<PartitionExpansionFence> savedFences = new ArrayList<>();
+    private final List<Integer> fencedPartitions = new ArrayList<>();
+    private PartitionExpansion stored;
+    private PartitionExpansionService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        KafkaAdmin kafkaAdmin = mock(KafkaAdmin.class);
+        when(kafkaAdmin.getConfigurationProperties())
+            .thenReturn(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092"));
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(expansionRepository.findFirstByTopicOrderByIdDesc(TOPIC)).thenAnswer(invocation -> Optional.ofNullable(stored));
+        when(expansionRepository.findById(any())).thenAnswer(invocation -> Optional.ofNullable(stored));
+        when(fenceRepository.save(any())).thenAnswer(invocation -> {
+            PartitionExpansionFence fence = invocation.getArgument(0);
+            savedFences.add(fence);
+            return fence;
+        });
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            ProducerRecord<String, String> record = invocation.getArgument(0);
+            fencedPartitions.add(record.partition());
+            RecordMetadata metadata = new RecordMetadata(new TopicPartition(TOPIC, record.partition()),
+                100 + record.partition(), 0, 0L, 0, 0);
+            return CompletableFuture.completedFuture(new SendResult<>(record, metadata));
+        });
+
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(TaskPartitioner.TOPIC_CONFIG, TOPIC);
+        configs.put(TaskPartitioner.STRATEGY_CONFIG, TaskPartitioner.STRATEGY_DEFAULT);
+        configs.put(TaskPartitioner.HOT_KEYS_CONFIG, "client-hot=2");
+        configs.put(TaskPartitioner.LAYOUT_CONFIG, layout);
+        TaskPartitioner partitioner = new TaskPartitioner();
+        partitioner.configure(configs);
+
+        service = new PartitionExpansionService(kafkaAdmin, kafkaTemplate, mock(KafkaTemplate.class), layout,
+            partitioner, expansionRepository, fenceRepository, transactionManager);
+        ReflectionTestUtils.setField(service, "topic", TOPIC);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    void testCompleteExpansionPinsTheLayoutToItsPartitionCount() {
+        stored = expansion(3, 6, PartitionExpansion.State.COMPLETE);
+
+        service.afterSingletonsInstantiated();
+
+        assertThat(layout.getPartitions()).isEqualTo(6);
+        // Partitions added to the topic since do not remap keys
+        assertThat(layout.partitionCount(9)).isEqualTo(6);
+        assertThat(service.status().get("state")).isEqualTo("idle");
+    }
+
+    @Test
+    void testPendingExpansionIsSwitchedOnTheNextRelayCycle() {
+        stored = expansion(3, 6, PartitionExpansion.State.PENDING);
+
+        service.afterSingletonsInstantiated();
+
+        assertThat(layout.getPartitions()).isEqualTo(3);
+        assertThat(service.status().get("state")).isEqualTo("pending");
+
+        service.onRelayCycle();
+
+        assertThat(stored.getState()).isEqualTo(PartitionExpansion.State.DRAINING);
+        assertThat(layout.getPartitions()).isEqualTo(6);
+        assertThat(fencedPartitions).containsExactly(0, 1, 2);
+        assertThat(savedFences).extracting(PartitionExpansionFence::getExpansionId).containsOnly(stored.getId());
+        assertThat(service.status().get("fences")).isEqualTo(Map.of(0, 100L, 1, 101L, 2, 102L));
+    }
+
+    @Test
+    void testDrainResumesWithTheStoredFences() {
+        stored = expansion(3, 6, PartitionExpansion.State.DRAINING);
+        PartitionExpansionFence drained = new PartitionExpansionFence(stored.getId(), 0, 40);
+        drained.markDrained();
+        when(fenceRepository.findByExpansionId(stored.getId()))
+            .thenReturn(List.of(drained, new PartitionExpansionFence(stored.getId(), 1, 41)));
+
+        service.afterSingletonsInstantiated();
+
+        assertThat(layout.getPartitions()).isEqualTo(6);
+        assertThat(layout.getExpansion().draining()).containsExactlyInAnyOrder(1, 2);
+        assertThat(service.isDraining()).isTrue();
+
+        // Only the fence missing before the restart is written
+        service.onRelayCycle();
+
+        assertThat(fencedPartitions).containsExactly(2);
+        assertThat(service.status().get("fences")).isEqualTo(Map.of(0, 40L, 1, 41L, 2, 102L));
+    }
+
+    @Test
+    void testDrainWithEveryFenceDrainedIsCompletedOnResume() {
+        stored = expansion(3, 6, PartitionExpansion.State.DRAINING);
+        List<PartitionExpansionFence> fences = new ArrayList<>();
+        for (int partition = 0; partition < 3; partition++) {
+            PartitionExpansionFence fence = new PartitionExpansionFence(stored.getId(), partition, 40 + partition);
+            fence.markDrained();
+            fences.add(fence);
+        }
+        when(fenceRepository.findByExpansionId(stored.getId())).thenReturn(fences);
+
+        service.afterSingletonsInstantiated();
+
+        assertThat(stored.getState()).isEqualTo(PartitionExpansion.State.COMPLETE);
+        assertThat(stored.getCompletedAt()).isNotNull();
+        assertThat(layout.getExpansion()).isNull();
+        assertThat(layout.getPartitions()).isEqualTo(6);
+    }
+
+    @Test
+    void testOnlyMovedKeysAreHeld() {
+        String kept = null;
+        String moved = null;
+        for (int i = 0; kept == null || moved == null; i++) {
+            String key = "client-" + i;
+            int hash = Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8)));
+            if (hash % 3 == hash % 6) {
+                kept = kept != null ? kept : key;
+            } else {
+                moved = moved != null ? moved : key;
+            }
+        }
+        assertThat(service.heldKeys(List.of(kept, moved))).isEmpty();
+
+        layout.beginExpansion(3, 6);
+
+        assertThat(service.heldKeys(List.of(kept, moved))).containsExactly(moved);
+
+        layout.drained(0);
+        layout.drained(1);
+        layout.drained(2);
+
+        assertThat(service.heldKeys(List.of(kept, moved))).isEmpty();
+        verify(fenceRepository, never()).save(any());
+    }
+
+    @Test
+    void testHotKeyIsHeldWhileAnyOfItsOldPartitionsDrains() {
+        // client-hot spreads its tasks over its own partition and the next one
+        int base = Utils.toPositive(Utils.murmur2("client-hot".getBytes(StandardCharsets.UTF_8))) % 3;
+        int other = (base + 2) % 3;
+        layout.beginExpansion(3, 6);
+
+        assertThat(service.heldKeys(List.of("client-hot"))).containsExactly("client-hot");
+
+        layout.drained(base);
+
+        assertThat(service.heldKeys(List.of("client-hot"))).containsExactly("client-hot");
+
+        layout.drained((base + 1) % 3);
+
+        // Only the partition the key never used is still draining
+        assertThat(layout.getExpansion().draining()).containsExactly(other);
+        assertThat(service.heldKeys(List.of("client-hot"))).isEmpty();
+    }
+
+    private static PartitionExpansion expansion(int from, int to, PartitionExpansion.State state) {
+        PartitionExpansion expansion = new PartitionExpansion(TOPIC, from, to);
+        expansion.setId(7L);
+        expansion.setState(state);
+        return expansion;
+    }
+}
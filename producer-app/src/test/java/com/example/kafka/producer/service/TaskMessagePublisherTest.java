@@ -0,0 +1,148 @@
+package com.example.kafka.producer.service;
+
+import com.example.kafka.producer.config.TaskPartitioner;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Avro publishing of outbox payloads: what the consumers decode must be what the payload said.
+ * Records of a hot key: spread by the task of their payload, one partition per task.
+ */
+class TaskMessagePublisherTest {
+
+    private static final String TOPIC = "task-topic";
+
+    private final InMemorySchemaRegistryClient registry = new InMemorySchemaRegistryClient();
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, byte[]> binaryKafkaTemplate = mock(KafkaTemplate.class);
+    private TaskMessagePublisher publisher;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(binaryKafkaTemplate.send(any(ProducerRecord.class))).thenReturn(new CompletableFuture<>());
+        publisher = new TaskMessagePublisher(mock(KafkaTemplate.class), binaryKafkaTemplate,
+            new TaskMessageCodec(registry), mock(TaskPartitioner.class), new SimpleMeterRegistry(), "avro");
+    }
+
+    @Test
+    void testNumericValuesAreExactDecimals() throws Exception {
+        GenericRecord task = publish("""
+            {"taskId":"TASK-1","attributes":[
+              {"name":"amount","type":"NUMERIC","values":[12345678901234567890.123456789, 1.50, 42]}]}
+            """);
+
+        List<?> values = (List<?>) attribute(task, 0).get("values");
+        assertThat(decimal((GenericRecord) values.get(0))).isEqualTo(new BigDecimal("12345678901234567890.123456789"));
+        assertThat(decimal((GenericRecord) values.get(1))).isEqualTo(new BigDecimal("1.50"));
+        assertThat(values.get(2)).isEqualTo(42L);
+    }
+
+    @Test
+    void testOtherPayloadFieldsAreCarriedAsJson() throws Exception {
+        GenericRecord task = publish("""
+            {"taskId":"TASK-1","meta":{"source":"crm"},"attributes":[
+              {"name":"amount","type":"NUMERIC","values":[10],"unit":"EUR","limits":{"max":2.5}}]}
+            """);
+
+        assertThat(extra(task)).containsExactly(Map.entry("meta", "{\"source\":\"crm\"}"));
+        assertThat(extra(attribute(task, 0))).containsOnly(
+            Map.entry("unit", "\"EUR\""), Map.entry("limits", "{\"max\":2.5}"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRecordsOfOneTaskUnderAHotKeyLandOnOnePartition() {
+        KafkaTemplate<String, String> kafkaTemplate = mock(KafkaTemplate.class);
+        List<PartitionInfo> partitionInfos = new ArrayList<>();
+        for (int partition = 0; partition < 12; partition++) {
+            partitionInfos.add(new PartitionInfo(TOPIC, partition, null, null, null));
+        }
+        when(kafkaTemplate.partitionsFor(TOPIC)).thenReturn(partitionInfos);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(new CompletableFuture<>());
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(TaskPartitioner.TOPIC_CONFIG, TOPIC);
+        configs.put(TaskPartitioner.STRATEGY_CONFIG, TaskPartitioner.STRATEGY_DEFAULT);
+        configs.put(TaskPartitioner.HOT_KEYS_CONFIG, "client-hot=4");
+        TaskPartitioner partitioner = new TaskPartitioner();
+        partitioner.configure(configs);
+        TaskMessagePublisher jsonPublisher = new TaskMessagePublisher(kafkaTemplate, binaryKafkaTemplate,
+            new TaskMessageCodec(registry), partitioner, new SimpleMeterRegistry(), "json");
+
+        // The relay's rows: one task per payload, each row with its own outbox id
+        long outboxId = 0;
+        for (int task = 0; task < 20; task++) {
+            for (int change = 0; change < 5; change++) {
+                String payload = "{\"taskId\":\"TASK-" + task + "\",\"attributeName\":\"status\",\"value\":\"" + change + "\"}";
+                outboxId++;
+                jsonPublisher.publish(TOPIC, "client-hot", jsonPublisher.subKeyOf("client-hot", payload, outboxId),
+                    payload, outboxId);
+            }
+        }
+
+        ArgumentCaptor<ProducerRecord<String, String>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(100)).send(sent.capture());
+        Map<String, Set<Integer>> partitionsByTask = sent.getAllValues().stream().collect(Collectors.groupingBy(
+            record -> record.value().substring(0, record.value().indexOf(',')),
+            Collectors.mapping(ProducerRecord::partition, Collectors.toSet())));
+        assertThat(partitionsByTask).hasSize(20).allSatisfy((task, partitions) -> assertThat(partitions).hasSize(1));
+        // The key's load is still spread over its partitions
+        assertThat(partitionsByTask.values().stream().flatMap(Set::stream).distinct().count()).isGreaterThan(1);
+        assertThat(jsonPublisher.subKeyOf("client-hot", "not json", 42L)).isEqualTo("42");
+        assertThat(jsonPublisher.subKeyOf("client-1", "{\"taskId\":\"TASK-1\"}", 42L)).isNull();
+    }
+
+    @SuppressWarnings("unchecked")
+    private GenericRecord publish(String payload) throws Exception {
+        publisher.publish(TOPIC, "client-1", "TASK-1", payload, 1L);
+        ArgumentCaptor<ProducerRecord<String, byte[]>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(binaryKafkaTemplate).send(sent.capture());
+        long schemaId = ByteBuffer.wrap(sent.getValue().headers().lastHeader(TaskMessageCodec.SCHEMA_ID_HEADER).value()).getLong();
+        Schema schema = registry.getSchema(schemaId);
+        return new GenericDatumReader<GenericRecord>(schema)
+            .read(null, DecoderFactory.get().binaryDecoder(sent.getValue().value(), null));
+    }
+
+    private static GenericRecord attribute(GenericRecord task, int index) {
+        return (GenericRecord) ((List<?>) task.get("attributes")).get(index);
+    }
+
+    private static BigDecimal decimal(GenericRecord decimal) {
+        ByteBuffer unscaled = (ByteBuffer) decimal.get("unscaled");
+        byte[] bytes = new byte[unscaled.remaining()];
+        unscaled.get(bytes);
+        return new BigDecimal(new BigInteger(bytes), (Integer) decimal.get("scale"));
+    }
+
+    private static Map<String, String> extra(GenericRecord record) {
+        return ((Map<?, ?>) record.get("extra")).entrySet().stream()
+            .collect(Collectors.toMap(entry -> entry.getKey().toString(), entry -> entry.getValue().toString()));
+    }
+}